@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.api.mcp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Payloads for the benchmarks, shaped like those of a Fess search: documents with the fields Fess returns,
+ * pages of hits, and JSON-RPC request bodies. The text is generated from a fixed seed, so every run sees
+ * the same payloads.
+ */
+public final class BenchmarkFixtures {
+
+    /** The size of a generated document. */
+    public enum DocSize {
+        /** A short web page: a 200 character snippet and 1,000 characters of content. */
+        SMALL(200, 1_000),
+        /** A long document: a 500 character snippet and 50,000 characters of content. */
+        LARGE(500, 50_000);
+
+        private final int snippetLength;
+
+        private final int contentLength;
+
+        DocSize(final int snippetLength, final int contentLength) {
+            this.snippetLength = snippetLength;
+            this.contentLength = contentLength;
+        }
+    }
+
+    private static final String[] WORDS = { "fess", "search", "server", "index", "document", "crawler", "query", "result", "open", "source",
+            "enterprise", "java", "plugin", "cluster", "shard", "highlight", "score", "ranking", "the", "of", "and", "to", "in", "for" };
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Generates text of words separated by spaces.
+     *
+     * @param random    the random source
+     * @param length    the length of the text
+     * @param highlight whether some words are wrapped in {@code <em>} tags
+     * @return the text
+     */
+    public static String createText(final Random random, final int length, final boolean highlight) {
+        final StringBuilder buf = new StringBuilder(length + 16);
+        while (buf.length() < length) {
+            final String word = WORDS[random.nextInt(WORDS.length)];
+            if (highlight && random.nextInt(8) == 0) {
+                buf.append("<em>").append(word).append("</em> ");
+            } else {
+                buf.append(word).append(' ');
+            }
+        }
+        buf.setLength(length);
+        return buf.toString();
+    }
+
+    /**
+     * Creates a document as Fess returns it from a search.
+     *
+     * @param random the random source
+     * @param size   the document size
+     * @param index  the position of the document in the results
+     * @return the document
+     */
+    public static Map<String, Object> createDocument(final Random random, final DocSize size, final int index) {
+        final Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("doc_id", "d" + Long.toHexString(random.nextLong()));
+        doc.put("title", createText(random, 60, false));
+        doc.put("url", "https://www.example.com/docs/" + index + ".html");
+        doc.put("url_link", "https://www.example.com/docs/" + index + ".html");
+        doc.put("host", "www.example.com");
+        doc.put("site", "www.example.com/docs/" + index + ".html");
+        doc.put("mimetype", "text/html");
+        doc.put("filetype", "html");
+        doc.put("lang", "en");
+        doc.put("score", 10.0f / index);
+        doc.put("boost", 1.0f);
+        doc.put("content_length", (long) size.contentLength);
+        doc.put("created", "2025-01-01T00:00:00.000Z");
+        doc.put("last_modified", "2025-01-02T00:00:00.000Z");
+        doc.put("digest", createText(random, 120, false));
+        doc.put("content_description", createText(random, size.snippetLength, true));
+        doc.put("content", createText(random, size.contentLength, false));
+        doc.put("label", List.of("docs", "public"));
+        return doc;
+    }
+
+    /**
+     * Creates a page of search hits.
+     *
+     * @param size the document size
+     * @param hits the number of hits
+     * @return the documents
+     */
+    public static List<Map<String, Object>> createPage(final DocSize size, final int hits) {
+        final Random random = new Random(hits * 31L + size.ordinal());
+        final List<Map<String, Object>> page = new ArrayList<>(hits);
+        for (int i = 1; i <= hits; i++) {
+            page.add(createDocument(random, size, i));
+        }
+        return page;
+    }
+
+    /**
+     * Creates the body of a search tool call.
+     *
+     * @param id the request id
+     * @return the request body
+     */
+    public static String createSearchRequest(final int id) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"tools/call\",\"params\":{\"name\":\"search\",\"arguments\":"
+                + "{\"q\":\"fess enterprise search\",\"num\":10,\"start\":0,\"sort\":\"score.desc\",\"fields.label\":[\"docs\"]},"
+                + "\"_meta\":{\"traceId\":\"bench-" + id + "\"}}}";
+    }
+
+    /**
+     * Creates the body of a batch request of ping calls, so that the time is spent in parsing and batch handling.
+     *
+     * @param size the number of elements
+     * @return the request body
+     */
+    public static String createPingBatch(final int size) {
+        final StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                buf.append(',');
+            }
+            buf.append("{\"jsonrpc\":\"2.0\",\"id\":").append(i).append(",\"method\":\"ping\",\"params\":{}}");
+        }
+        return buf.append(']').toString();
+    }
+}
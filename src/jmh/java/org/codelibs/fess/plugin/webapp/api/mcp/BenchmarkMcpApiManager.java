@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.api.mcp;
+
+import java.util.Optional;
+
+import org.codelibs.fess.plugin.webapp.mcp.McpTool;
+import org.codelibs.fess.plugin.webapp.mcp.ToolPolicy;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * An {@link McpApiManager} that runs without the Fess container: configuration is fixed,
+ * no HTTP request is bound, and responses are kept instead of written.
+ */
+public class BenchmarkMcpApiManager extends McpApiManager {
+
+    /** The last response written. */
+    public String lastResponse;
+
+    @Override
+    protected void write(final String text, final String contentType, final String encoding) {
+        lastResponse = text;
+    }
+
+    @Override
+    protected Optional<HttpServletRequest> getCurrentRequest() {
+        return Optional.empty();
+    }
+
+    @Override
+    protected int getContentMaxLength() {
+        return 10000;
+    }
+
+    @Override
+    protected int getCharsPerToken() {
+        return 4;
+    }
+
+    @Override
+    protected boolean isVirtualThreadsEnabled() {
+        return false;
+    }
+
+    @Override
+    protected boolean isHedgingEnabled() {
+        return false;
+    }
+
+    @Override
+    protected boolean isAccessLogEnabled() {
+        return false;
+    }
+
+    @Override
+    protected long getSlowThreshold(final String tool) {
+        return -1L;
+    }
+
+    @Override
+    protected ToolPolicy resolveToolPolicy(final McpTool tool) {
+        return tool.getPolicy();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.api.mcp;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.codelibs.fess.plugin.webapp.api.mcp.BenchmarkFixtures.DocSize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of turning a page of search hits into tool result content: copying the documents into
+ * serializable values, building the Markdown content entries, and stripping highlight tags.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentRenderingBenchmark {
+
+    @Param({ "1", "10", "100" })
+    public int hits;
+
+    @Param({ "SMALL", "LARGE" })
+    public DocSize docSize;
+
+    private BenchmarkMcpApiManager manager;
+
+    private List<Map<String, Object>> page;
+
+    private List<Map<String, Object>> processedPage;
+
+    private String snippet;
+
+    @Setup
+    public void setup() {
+        manager = new BenchmarkMcpApiManager();
+        page = BenchmarkFixtures.createPage(docSize, hits);
+        processedPage = manager.processDocumentItems(page);
+        snippet = (String) page.get(0).get("content_description");
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> processDocumentItems() {
+        return manager.processDocumentItems(page);
+    }
+
+    @Benchmark
+    public Object processValue() {
+        return manager.processValue(page);
+    }
+
+    @Benchmark
+    public void createDocumentContent(final Blackhole blackhole) {
+        int index = 1;
+        for (final Map<String, Object> doc : processedPage) {
+            blackhole.consume(manager.createDocumentContent(doc, index++));
+        }
+    }
+
+    @Benchmark
+    public String stripHighlightTags() {
+        return manager.stripHighlightTags(snippet);
+    }
+}
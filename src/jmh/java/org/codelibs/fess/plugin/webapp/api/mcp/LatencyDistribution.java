@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.api.mcp;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A log-normal latency distribution given by its median and 99th percentile, as stub components use to
+ * simulate the search engine. Real search latencies are skewed the same way: most calls are close to the
+ * median and a few are many times slower.
+ */
+public class LatencyDistribution {
+
+    /** The standard normal quantile of the 99th percentile. */
+    private static final double Z_99 = 2.3263d;
+
+    private final double mu;
+
+    private final double sigma;
+
+    private final boolean zero;
+
+    /**
+     * Creates a distribution.
+     *
+     * @param medianMillis the median in milliseconds; 0 for no latency
+     * @param p99Millis    the 99th percentile in milliseconds, not below the median
+     */
+    public LatencyDistribution(final double medianMillis, final double p99Millis) {
+        this.zero = medianMillis <= 0.0d;
+        this.mu = zero ? 0.0d : Math.log(medianMillis);
+        this.sigma = zero ? 0.0d : Math.max(0.0d, Math.log(Math.max(p99Millis, medianMillis)) - mu) / Z_99;
+    }
+
+    /**
+     * Parses a distribution from {@code median:p99} in milliseconds, e.g. {@code 5:50}, or a single value for a
+     * constant latency.
+     *
+     * @param spec the specification
+     * @return the distribution
+     */
+    public static LatencyDistribution parse(final String spec) {
+        final int colon = spec.indexOf(':');
+        if (colon < 0) {
+            final double value = Double.parseDouble(spec);
+            return new LatencyDistribution(value, value);
+        }
+        return new LatencyDistribution(Double.parseDouble(spec.substring(0, colon)), Double.parseDouble(spec.substring(colon + 1)));
+    }
+
+    /**
+     * Draws a latency.
+     *
+     * @param random the random source
+     * @return the latency in nanoseconds
+     */
+    public long sampleNanos(final Random random) {
+        if (zero) {
+            return 0L;
+        }
+        return (long) (Math.exp(mu + sigma * random.nextGaussian()) * 1_000_000.0d);
+    }
+
+    /**
+     * Draws a latency and blocks the current thread for it, as a thread waiting for the search engine does.
+     *
+     * @param random the random source
+     * @return the latency in milliseconds
+     */
+    public long await(final Random random) {
+        final long nanos = sampleNanos(random);
+        if (nanos > 0L) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,519 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.api.mcp;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.codelibs.core.misc.Pair;
+import org.codelibs.fess.mylasta.direction.FessConfig;
+import org.codelibs.fess.plugin.webapp.mcp.LatencyHistogram;
+import org.codelibs.fess.util.ComponentUtil;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Drives a mixed JSON-RPC workload through {@link McpApiManager#process} from many threads against the stub
+ * components of {@link LoadTestMcpApiManager}, and reports throughput, latency percentiles per operation,
+ * and thread, CPU, allocation, and GC profiles.
+ * <p>
+ * Options are given as {@code key=value} arguments:
+ * <ul>
+ * <li>{@code threads} (default 32): number of client threads</li>
+ * <li>{@code warmup} / {@code duration} (default 10 / 30): seconds of warm-up and of measurement</li>
+ * <li>{@code mix} (default {@value #DEFAULT_MIX}): relative weights of the operations</li>
+ * <li>{@code batch.size} (default 10): number of searches per batch request</li>
+ * <li>{@code search.latency}, {@code suggest.latency}, {@code client.latency} (default 5:50, 2:10, 5:50):
+ * stub latencies as {@code median:p99} in milliseconds</li>
+ * <li>{@code hits} (default 1:20): range of hits per search; {@code large.ratio} (default 0.1): fraction of large
+ * documents</li>
+ * <li>any {@code mcp.*} key: a plugin setting, e.g. {@code mcp.virtual.threads.enabled=true}</li>
+ * </ul>
+ */
+public class LoadHarness {
+
+    /** The default operation weights. */
+    public static final String DEFAULT_MIX = "search:50,suggest:15,count:10,multi_search:5,tools_list:5,ping:5,batch:10";
+
+    private static final String[] QUERIES = { "fess", "enterprise search", "crawler configuration", "open source search server",
+            "index shard", "highlight score", "java plugin", "query ranking" };
+
+    private final Properties options;
+
+    private final LoadTestMcpApiManager manager;
+
+    private final List<String> operations = new ArrayList<>();
+
+    private final int[] cumulativeWeights;
+
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+    private final Map<String, LongAdder> errors = new HashMap<>();
+
+    private volatile boolean measuring;
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates a harness.
+     *
+     * @param options the options
+     */
+    public LoadHarness(final Properties options) {
+        this.options = options;
+        manager = createManager(options);
+        final List<Integer> weights = new ArrayList<>();
+        for (final String entry : options.getProperty("mix", DEFAULT_MIX).split(",")) {
+            final String[] pair = entry.trim().split(":");
+            final int weight = Integer.parseInt(pair[1]);
+            if (weight > 0) {
+                operations.add(pair[0]);
+                weights.add(weight);
+                histograms.put(pair[0], new LatencyHistogram());
+                errors.put(pair[0], new LongAdder());
+            }
+        }
+        cumulativeWeights = new int[weights.size()];
+        int sum = 0;
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            sum += weights.get(i);
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    /**
+     * Runs the harness.
+     *
+     * @param args the options as {@code key=value}
+     * @throws Exception if the run is interrupted
+     */
+    public static void main(final String[] args) throws Exception {
+        final Properties options = parseOptions(args);
+        installFessConfig(options);
+        new LoadHarness(options).run();
+        System.exit(0);
+    }
+
+    /**
+     * Creates a manager whose stubs are configured by the {@code search.latency}, {@code suggest.latency},
+     * {@code client.latency}, {@code hits}, and {@code large.ratio} options.
+     *
+     * @param options the options
+     * @return the manager
+     */
+    protected static LoadTestMcpApiManager createManager(final Properties options) {
+        final String[] hits = options.getProperty("hits", "1:20").split(":");
+        return new LoadTestMcpApiManager(LatencyDistribution.parse(options.getProperty("search.latency", "5:50")),
+                LatencyDistribution.parse(options.getProperty("suggest.latency", "2:10")),
+                LatencyDistribution.parse(options.getProperty("client.latency", "5:50")), Integer.parseInt(hits[0]),
+                Integer.parseInt(hits[hits.length - 1]), Double.parseDouble(options.getProperty("large.ratio", "0.1")));
+    }
+
+    /**
+     * Parses {@code key=value} arguments.
+     *
+     * @param args the arguments
+     * @return the options
+     */
+    protected static Properties parseOptions(final String[] args) {
+        final Properties options = new Properties();
+        for (final String arg : args) {
+            final int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.setProperty(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Installs a Fess configuration with the default index fields and paging settings of Fess, whose system
+     * properties are the {@code mcp.*} options, so that no Fess container is needed.
+     *
+     * @param options the options
+     */
+    protected static void installFessConfig(final Properties options) {
+        ComponentUtil.setFessConfig(new FessConfig.SimpleImpl() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public String getSystemProperty(final String key, final String defaultValue) {
+                return options.getProperty(key, defaultValue);
+            }
+
+            @Override
+            public int getSystemPropertyAsInt(final String key, final int defaultValue) {
+                final String value = options.getProperty(key);
+                return value != null ? Integer.parseInt(value) : defaultValue;
+            }
+
+            @Override
+            public boolean getSystemPropertyAsBoolean(final String key, final boolean defaultValue) {
+                final String value = options.getProperty(key);
+                return value != null ? Boolean.parseBoolean(value) : defaultValue;
+            }
+
+            @Override
+            public String getIndexDocumentSearchIndex() {
+                return "fess.search";
+            }
+
+            @Override
+            public String getIndexFieldDocId() {
+                return "doc_id";
+            }
+
+            @Override
+            public String getIndexFieldTitle() {
+                return "title";
+            }
+
+            @Override
+            public String getIndexFieldContent() {
+                return "content";
+            }
+
+            @Override
+            public String getIndexFieldUrl() {
+                return "url";
+            }
+
+            @Override
+            public String getIndexFieldLastModified() {
+                return "last_modified";
+            }
+
+            @Override
+            public String getResponseFieldContentDescription() {
+                return "content_description";
+            }
+
+            @Override
+            public Integer getPagingSearchPageStartAsInteger() {
+                return 0;
+            }
+
+            @Override
+            public Integer getPagingSearchPageMaxSizeAsInteger() {
+                return 100;
+            }
+
+            @Override
+            public boolean isApiSearchScroll() {
+                return false;
+            }
+
+            @Override
+            public List<Pair<String, String>> getApiJsonResponseHeaderList() {
+                return Collections.emptyList();
+            }
+        });
+    }
+
+    /**
+     * Runs the warm-up and the measurement and prints the report.
+     *
+     * @throws InterruptedException if the run is interrupted
+     */
+    public void run() throws InterruptedException {
+        final int threadCount = Integer.parseInt(options.getProperty("threads", "32"));
+        final long warmupMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(options.getProperty("warmup", "10")));
+        final long durationMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(options.getProperty("duration", "30")));
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        final List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            final Thread worker = new Thread(this::work, "load-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        final long[] workerIds = workers.stream().mapToLong(Thread::threadId).toArray();
+
+        // Latencies and errors are only recorded while measuring, so the warm-up leaves them empty
+        Thread.sleep(warmupMillis);
+        threadBean.resetPeakThreadCount();
+        final long gcCountBefore = getGcCount();
+        final long gcMillisBefore = getGcMillis();
+        final long allocatedBefore = threadBean.getTotalThreadAllocatedBytes();
+        final long cpuBefore = getCpuNanos(threadBean, workerIds);
+        final long bytesOutBefore = manager.getBytesOut();
+        final Map<Thread.State, Long> states = new EnumMap<>(Thread.State.class);
+        measuring = true;
+        final long start = System.nanoTime();
+        final long end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        while (System.nanoTime() < end) {
+            // Sample the states of the client threads to see how much time is spent waiting or blocked
+            for (final ThreadInfo info : threadBean.getThreadInfo(workerIds)) {
+                if (info != null) {
+                    states.merge(info.getThreadState(), 1L, Long::sum);
+                }
+            }
+            Thread.sleep(20L);
+        }
+        measuring = false;
+        final double seconds = (System.nanoTime() - start) / 1_000_000_000.0d;
+        final long allocated = threadBean.getTotalThreadAllocatedBytes() - allocatedBefore;
+        final long cpuNanos = getCpuNanos(threadBean, workerIds) - cpuBefore;
+        final long bytesOut = manager.getBytesOut() - bytesOutBefore;
+        final long gcCount = getGcCount() - gcCountBefore;
+        final long gcMillis = getGcMillis() - gcMillisBefore;
+        running = false;
+        for (final Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        long total = 0L;
+        System.out.printf(Locale.ROOT, "threads=%d duration=%.1fs options=%s%n%n", threadCount, seconds, options);
+        printHeader("operation");
+        for (final Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            final LatencyHistogram histogram = entry.getValue();
+            total += histogram.getCount();
+            printRow(entry.getKey(), histogram, errors.get(entry.getKey()).sum(), seconds);
+        }
+        System.out.printf(Locale.ROOT, "%-14s %10d %10.1f%n%n", "total", total, total / seconds);
+
+        final long ops = Math.max(1L, total);
+        System.out.printf(Locale.ROOT, "allocation: %.1f MB/s, %d bytes/op%n", allocated / seconds / 1_048_576.0d, allocated / ops);
+        System.out.printf(Locale.ROOT, "client thread cpu: %.1f%% of %d threads, %.1f us/op%n",
+                cpuNanos / (seconds * 1_000_000_000.0d) / threadCount * 100.0d, threadCount, cpuNanos / 1_000.0d / ops);
+        System.out.printf(Locale.ROOT, "gc: %d collections, %d ms (%.2f%% of wall time)%n", gcCount, gcMillis,
+                gcMillis / (seconds * 10.0d));
+        System.out.printf(Locale.ROOT, "threads: %d peak, %d live%n", threadBean.getPeakThreadCount(), threadBean.getThreadCount());
+        final long samples = Math.max(1L, states.values().stream().mapToLong(Long::longValue).sum());
+        final StringBuilder stateLine = new StringBuilder("client thread states:");
+        states.forEach((state, count) -> stateLine.append(String.format(Locale.ROOT, " %s=%.1f%%", state, count * 100.0d / samples)));
+        System.out.println(stateLine);
+        System.out.printf(Locale.ROOT, "response bytes: %.1f MB/s%n", bytesOut / seconds / 1_048_576.0d);
+    }
+
+    /**
+     * Prints the header of the latency table.
+     *
+     * @param label the header of the first column
+     */
+    protected static void printHeader(final String label) {
+        System.out.printf(Locale.ROOT, "%-14s %10s %10s %8s %9s %9s %9s %9s %9s%n", label, "count", "ops/s", "errors", "p50 ms", "p90 ms",
+                "p99 ms", "p99.9 ms", "max ms");
+    }
+
+    /**
+     * Prints a row of the latency table.
+     *
+     * @param name       the operation
+     * @param histogram  the latencies of the operation
+     * @param errorCount the number of errors
+     * @param seconds    the measured time in seconds
+     */
+    protected static void printRow(final String name, final LatencyHistogram histogram, final long errorCount, final double seconds) {
+        System.out.printf(Locale.ROOT, "%-14s %10d %10.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getCount(),
+                histogram.getCount() / seconds, errorCount, toMillis(histogram.getValueAtPercentile(50)),
+                toMillis(histogram.getValueAtPercentile(90)), toMillis(histogram.getValueAtPercentile(99)),
+                toMillis(histogram.getValueAtPercentile(99.9)), toMillis(histogram.getMaxNanos()));
+    }
+
+    private void work() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int batchSize = Integer.parseInt(options.getProperty("batch.size", "10"));
+        int id = 0;
+        while (running) {
+            final String operation = pickOperation(random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]));
+            final String body = createRequestBody(operation, ++id, batchSize, random);
+            final HttpServletRequest request = createRequest(body);
+            final long start = System.nanoTime();
+            boolean failed;
+            try {
+                manager.bind(request);
+                manager.process(request, RESPONSE, null);
+                final String response = manager.getLastResponse();
+                failed = response == null || response.contains("\"error\":{");
+            } catch (final Exception e) {
+                failed = true;
+            } finally {
+                manager.unbind();
+            }
+            final long nanos = System.nanoTime() - start;
+            if (measuring) {
+                histograms.get(operation).record(nanos);
+                if (failed) {
+                    errors.get(operation).increment();
+                }
+            }
+        }
+    }
+
+    private String pickOperation(final int value) {
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations.get(i);
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    /**
+     * Creates the JSON-RPC request body of an operation.
+     *
+     * @param operation the operation
+     * @param id        the request id
+     * @param batchSize the number of searches per batch request
+     * @param random    the random source
+     * @return the request body
+     */
+    protected String createRequestBody(final String operation, final int id, final int batchSize, final ThreadLocalRandom random) {
+        final String query = QUERIES[random.nextInt(QUERIES.length)];
+        return switch (operation) {
+        case "search" -> toolCall(id, "search", "{\"q\":\"" + query + "\"}");
+        case "count" -> toolCall(id, "count", "{\"q\":\"" + query + "\"}");
+        case "suggest" -> toolCall(id, "suggest", "{\"q\":\"" + query.substring(0, Math.min(4, query.length())) + "\",\"num\":5}");
+        case "multi_search" -> toolCall(id, "multi_search",
+                "{\"queries\":[\"" + query + "\",\"" + QUERIES[random.nextInt(QUERIES.length)] + "\",\"fess " + query + "\"]}");
+        case "tools_list" -> "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"tools/list\",\"params\":{}}";
+        case "ping" -> "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"ping\"}";
+        case "batch" -> {
+            final StringBuilder buf = new StringBuilder("[");
+            for (int i = 0; i < batchSize; i++) {
+                if (i > 0) {
+                    buf.append(',');
+                }
+                buf.append(toolCall(id * 1000 + i, "search", "{\"q\":\"" + QUERIES[random.nextInt(QUERIES.length)] + "\"}"));
+            }
+            yield buf.append(']').toString();
+        }
+        default -> throw new IllegalArgumentException("Unknown operation: " + operation);
+        };
+    }
+
+    private static String toolCall(final int id, final String tool, final String arguments) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"tools/call\",\"params\":{\"name\":\"" + tool + "\",\"arguments\":"
+                + arguments + "}}";
+    }
+
+    /** A response that discards everything; bodies are captured by the manager instead. */
+    protected static final HttpServletResponse RESPONSE = (HttpServletResponse) Proxy.newProxyInstance(LoadHarness.class.getClassLoader(),
+            new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> defaultValue(method.getReturnType()));
+
+    /**
+     * Creates a POST request to {@code /mcp} with a JSON body.
+     *
+     * @param body the request body
+     * @return the request
+     */
+    protected static HttpServletRequest createRequest(final String body) {
+        final ByteArrayInputStream in = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+        final ServletInputStream inputStream = new ServletInputStream() {
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) {
+                return in.read(b, off, len);
+            }
+
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(final ReadListener readListener) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        final Map<String, Object> attributes = new HashMap<>();
+        return (HttpServletRequest) Proxy.newProxyInstance(LoadHarness.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                case "getInputStream" -> inputStream;
+                case "getServletPath" -> "/mcp";
+                case "getMethod" -> "POST";
+                case "getContentType" -> "application/json";
+                case "getRemoteAddr" -> "127.0.0.1";
+                case "getAttribute" -> attributes.get(args[0]);
+                case "setAttribute" -> attributes.put((String) args[0], args[1]);
+                default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    private static Object defaultValue(final Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private static long getCpuNanos(final com.sun.management.ThreadMXBean threadBean, final long[] threadIds) {
+        long total = 0L;
+        for (final long threadId : threadIds) {
+            total += Math.max(0L, threadBean.getThreadCpuTime(threadId));
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of collections of all garbage collectors.
+     *
+     * @return the collection count
+     */
+    protected static long getGcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    /**
+     * Gets the time spent in all garbage collectors.
+     *
+     * @return the collection time in milliseconds
+     */
+    protected static long getGcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / 1_000_000.0d;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.api.mcp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.codelibs.fess.entity.SearchRequestParams;
+import org.codelibs.fess.plugin.webapp.api.mcp.BenchmarkFixtures.DocSize;
+import org.codelibs.fess.plugin.webapp.mcp.AccessLogWriter;
+import org.codelibs.fess.plugin.webapp.mcp.McpSearchResult;
+import org.opensearch.action.search.SearchRequestBuilder;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * An {@link McpApiManager} whose search engine access is replaced by stubs, so that the whole request pipeline
+ * can be loaded without a Fess cluster.
+ * <p>
+ * The stubs stand in for Fess {@code SearchHelper} ({@link #executeSearch(SearchRequestParams)}),
+ * {@code SuggestHelper} ({@link #executeSuggest(String, int)}), and the search engine client
+ * ({@link #executeDirectSearch(SearchRequestParams, int, Consumer)} and {@link #executeMultiSearch(List)}).
+ * Each blocks for a latency drawn from its distribution and returns a number of hits drawn uniformly between
+ * the minimum and maximum from a pool of generated documents. The HTTP request is bound to the calling thread
+ * with {@link #bind(HttpServletRequest)} instead of the Fess container, and responses are counted instead of
+ * written.
+ */
+public class LoadTestMcpApiManager extends McpApiManager {
+
+    private final LatencyDistribution searchLatency;
+
+    private final LatencyDistribution suggestLatency;
+
+    private final LatencyDistribution clientLatency;
+
+    private final int minHits;
+
+    private final int maxHits;
+
+    private final List<Map<String, Object>> documentPool;
+
+    private final ThreadLocal<HttpServletRequest> currentRequest = new ThreadLocal<>();
+
+    private final ThreadLocal<Random> requestRandom = new ThreadLocal<>();
+
+    private final ThreadLocal<String> lastResponse = new ThreadLocal<>();
+
+    private final LongAdder bytesOut = new LongAdder();
+
+    /**
+     * Creates a manager with stub components.
+     *
+     * @param searchLatency  the latency of the {@code SearchHelper} stub
+     * @param suggestLatency the latency of the {@code SuggestHelper} stub
+     * @param clientLatency  the latency of the search engine client stub
+     * @param minHits        the minimum number of hits per search
+     * @param maxHits        the maximum number of hits per search
+     * @param largeRatio     the fraction of large documents among the hits, in [0, 1]
+     */
+    public LoadTestMcpApiManager(final LatencyDistribution searchLatency, final LatencyDistribution suggestLatency,
+            final LatencyDistribution clientLatency, final int minHits, final int maxHits, final double largeRatio) {
+        this.searchLatency = searchLatency;
+        this.suggestLatency = suggestLatency;
+        this.clientLatency = clientLatency;
+        this.minHits = Math.max(0, minHits);
+        this.maxHits = Math.max(this.minHits, maxHits);
+        final Random random = new Random(42L);
+        final int poolSize = Math.max(1, this.maxHits * 4);
+        documentPool = new ArrayList<>(poolSize);
+        for (int i = 1; i <= poolSize; i++) {
+            final DocSize size = random.nextDouble() < largeRatio ? DocSize.LARGE : DocSize.SMALL;
+            documentPool.add(BenchmarkFixtures.createDocument(random, size, i));
+        }
+    }
+
+    /**
+     * Binds an HTTP request to the current thread until {@link #unbind()}.
+     *
+     * @param request the request
+     */
+    public void bind(final HttpServletRequest request) {
+        currentRequest.set(request);
+    }
+
+    /**
+     * Binds an HTTP request to the current thread until {@link #unbind()}, with the stubs drawing latencies and hits
+     * from a random source seeded for the request, so that replaying the same request draws the same values.
+     * Concurrent batch elements share the source and may draw in a different order.
+     *
+     * @param request the request
+     * @param seed    the seed of the request
+     */
+    public void bind(final HttpServletRequest request, final long seed) {
+        currentRequest.set(request);
+        requestRandom.set(new Random(seed));
+    }
+
+    /**
+     * Removes the HTTP request, its random source, and the last response of the current thread.
+     */
+    public void unbind() {
+        currentRequest.remove();
+        requestRandom.remove();
+        lastResponse.remove();
+    }
+
+    /**
+     * Gets the random source of the stubs on the current thread.
+     *
+     * @return the source of the bound request, or {@link ThreadLocalRandom} if none was seeded
+     */
+    protected Random getRandom() {
+        final Random random = requestRandom.get();
+        return random != null ? random : ThreadLocalRandom.current();
+    }
+
+    /**
+     * Gets the last response written on the current thread.
+     *
+     * @return the response body, or null if nothing was written
+     */
+    public String getLastResponse() {
+        return lastResponse.get();
+    }
+
+    /**
+     * Gets the number of response bytes written.
+     *
+     * @return the number of bytes
+     */
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    protected void write(final String text, final String contentType, final String encoding) {
+        lastResponse.set(text);
+        bytesOut.add(AccessLogWriter.utf8Length(text));
+    }
+
+    @Override
+    protected Optional<HttpServletRequest> getCurrentRequest() {
+        return Optional.ofNullable(currentRequest.get());
+    }
+
+    @Override
+    protected <T> Supplier<T> withRequestContext(final Supplier<T> task) {
+        final HttpServletRequest request = currentRequest.get();
+        final Random random = requestRandom.get();
+        return () -> {
+            currentRequest.set(request);
+            requestRandom.set(random);
+            try {
+                return task.get();
+            } finally {
+                currentRequest.remove();
+                requestRandom.remove();
+            }
+        };
+    }
+
+    @Override
+    protected McpSearchResult executeSearch(final SearchRequestParams reqParams) {
+        return createResult(searchLatency);
+    }
+
+    @Override
+    protected McpSearchResult executeDirectSearch(final SearchRequestParams reqParams, final int offset,
+            final Consumer<SearchRequestBuilder> customizer) {
+        return createResult(clientLatency);
+    }
+
+    @Override
+    protected List<McpSearchResult> executeMultiSearch(final List<SearchRequestParams> reqParamsList) {
+        // One multi-search request: a single wait for all queries
+        final long tookMillis = clientLatency.await(getRandom());
+        final List<McpSearchResult> results = new ArrayList<>(reqParamsList.size());
+        for (int i = 0; i < reqParamsList.size(); i++) {
+            final McpSearchResult result = createResult(null);
+            result.setTookMillis(tookMillis);
+            results.add(result);
+        }
+        return results;
+    }
+
+    @Override
+    protected List<String> executeSuggest(final String query, final int num) {
+        suggestLatency.await(getRandom());
+        final List<String> suggestions = new ArrayList<>(num);
+        for (int i = 0; i < num; i++) {
+            suggestions.add(query + " " + documentPool.get(i % documentPool.size()).get("title"));
+        }
+        return suggestions;
+    }
+
+    private McpSearchResult createResult(final LatencyDistribution latency) {
+        final Random random = getRandom();
+        final long tookMillis = latency != null ? latency.await(random) : 0L;
+        final int hits = minHits + random.nextInt(maxHits - minHits + 1);
+        final int start = random.nextInt(documentPool.size() - hits + 1);
+        final McpSearchResult result = new McpSearchResult();
+        result.setDocumentItems(new ArrayList<>(documentPool.subList(start, start + hits)));
+        result.setTotalHits(hits * 100L);
+        result.setTotalHitsRelation("eq");
+        result.setTookMillis(tookMillis);
+        return result;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.api.mcp;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.codelibs.fess.plugin.webapp.mcp.LatencyHistogram;
+import org.codelibs.fess.plugin.webapp.mcp.RotatingFileWriter;
+import org.codelibs.fess.plugin.webapp.mcp.TrafficCapture;
+import org.opensearch.common.xcontent.LoggingDeprecationHandler;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.xcontent.NamedXContentRegistry;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Replays captured traffic through {@link McpApiManager#process} against the stub components of
+ * {@link LoadTestMcpApiManager}, and reports latency percentiles per method or tool.
+ * <p>
+ * Requests are sent in the order they were captured, each at its recorded offset from the first request divided by
+ * the speed, and each is bound with its position in the capture as the seed of the stubs, so that runs over the same
+ * capture are comparable. The report also shows how late requests started against their schedule, which grows when
+ * the client threads cannot keep up.
+ * <p>
+ * Options are given as {@code key=value} arguments:
+ * <ul>
+ * <li>{@code capture} (required): a capture file, or a directory of {@code mcp-capture-*.ndjson} files</li>
+ * <li>{@code speed} (default 1): the replay speed relative to the recorded timing; 0 sends requests as fast as the
+ * client threads allow</li>
+ * <li>{@code threads} (default 64): number of client threads</li>
+ * <li>{@code warmup} (default 0): number of unmeasured passes over the capture at full speed</li>
+ * <li>the stub options of {@link LoadHarness} and any {@code mcp.*} key</li>
+ * </ul>
+ */
+public class ReplayRunner {
+
+    /**
+     * A captured request.
+     *
+     * @param offsetMillis the arrival time relative to the first request
+     * @param body         the request body
+     * @param label        the method, the tool name of a tools/call request, or "batch"
+     */
+    protected record CapturedRequest(long offsetMillis, String body, String label) {
+    }
+
+    private final LoadTestMcpApiManager manager;
+
+    private final int threadCount;
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram lag = new LatencyHistogram();
+
+    /**
+     * Creates a runner.
+     *
+     * @param options the options
+     */
+    public ReplayRunner(final Properties options) {
+        manager = LoadHarness.createManager(options);
+        threadCount = Integer.parseInt(options.getProperty("threads", "64"));
+    }
+
+    /**
+     * Runs the replay.
+     *
+     * @param args the options as {@code key=value}
+     * @throws Exception if the capture cannot be read or the run is interrupted
+     */
+    public static void main(final String[] args) throws Exception {
+        final Properties options = LoadHarness.parseOptions(args);
+        final String capture = options.getProperty("capture");
+        if (capture == null) {
+            System.err.println("Usage: ReplayRunner capture=<file or directory> [speed=1] [threads=64] [warmup=0] [option=value...]");
+            System.exit(2);
+        }
+        LoadHarness.installFessConfig(options);
+        final List<CapturedRequest> requests = readCapture(Paths.get(capture));
+        final ReplayRunner runner = new ReplayRunner(options);
+        final int warmup = Integer.parseInt(options.getProperty("warmup", "0"));
+        for (int i = 0; i < warmup; i++) {
+            runner.replay(requests, 0.0d, false);
+        }
+        final double speed = Double.parseDouble(options.getProperty("speed", "1"));
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        final long allocatedBefore = threadBean.getTotalThreadAllocatedBytes();
+        final long gcCountBefore = LoadHarness.getGcCount();
+        final long gcMillisBefore = LoadHarness.getGcMillis();
+        final long start = System.nanoTime();
+        runner.replay(requests, speed, true);
+        final double seconds = (System.nanoTime() - start) / 1_000_000_000.0d;
+
+        final long recordedMillis = requests.isEmpty() ? 0L : requests.get(requests.size() - 1).offsetMillis();
+        System.out.printf(Locale.ROOT, "requests=%d recorded=%.1fs replayed=%.1fs speed=%s threads=%d%n%n", requests.size(),
+                recordedMillis / 1_000.0d, seconds, speed, runner.threadCount);
+        runner.printReport(seconds);
+        final long allocated = threadBean.getTotalThreadAllocatedBytes() - allocatedBefore;
+        System.out.printf(Locale.ROOT, "allocation: %.1f MB/s, %d bytes/request%n", allocated / seconds / 1_048_576.0d,
+                allocated / Math.max(1, requests.size()));
+        System.out.printf(Locale.ROOT, "gc: %d collections, %d ms%n", LoadHarness.getGcCount() - gcCountBefore,
+                LoadHarness.getGcMillis() - gcMillisBefore);
+        System.exit(0);
+    }
+
+    /**
+     * Reads captured requests from a capture file or from all capture files in a directory, oldest first.
+     *
+     * @param path a capture file or directory
+     * @return the requests, with offsets relative to the first one
+     * @throws IOException if the capture cannot be read
+     */
+    protected static List<CapturedRequest> readCapture(final Path path) throws IOException {
+        final List<Path> files =
+                Files.isDirectory(path) ? RotatingFileWriter.listFiles(path, McpApiManager.CAPTURE_FILE_PREFIX) : List.of(path);
+        final List<CapturedRequest> requests = new ArrayList<>();
+        for (final Path file : files) {
+            for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    final Map<String, Object> entry = parse(line);
+                    final String body = (String) entry.get(TrafficCapture.BODY_KEY);
+                    requests.add(new CapturedRequest(((Number) entry.get(TrafficCapture.TIME_KEY)).longValue(), body, getLabel(body)));
+                }
+            }
+        }
+        // Concurrent requests may be written slightly out of order; the sort is stable for equal times
+        requests.sort(Comparator.comparingLong(CapturedRequest::offsetMillis));
+        final long firstTime = requests.isEmpty() ? 0L : requests.get(0).offsetMillis();
+        requests.replaceAll(r -> new CapturedRequest(r.offsetMillis() - firstTime, r.body(), r.label()));
+        return requests;
+    }
+
+    private static Map<String, Object> parse(final String json) throws IOException {
+        return JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, json).map();
+    }
+
+    /**
+     * Gets the label a request is reported under.
+     *
+     * @param body the request body
+     * @return the tool name of a tools/call request, "batch" for a batch request, the method otherwise,
+     *         or "invalid" if the body cannot be parsed
+     */
+    protected static String getLabel(final String body) {
+        if (body.trim().startsWith("[")) {
+            return "batch";
+        }
+        try {
+            final Map<String, Object> message = parse(body);
+            if ("tools/call".equals(message.get("method")) && message.get("params") instanceof final Map<?, ?> params
+                    && params.get("name") instanceof final String name) {
+                return name;
+            }
+            return String.valueOf(message.get("method"));
+        } catch (final Exception e) {
+            return "invalid";
+        }
+    }
+
+    /**
+     * Sends the requests at their scheduled times and waits for all of them to complete.
+     *
+     * @param requests the requests
+     * @param speed    the speed relative to the recorded timing, or 0 for no waits
+     * @param measure  whether latencies are recorded
+     * @throws InterruptedException if the replay is interrupted
+     */
+    protected void replay(final List<CapturedRequest> requests, final double speed, final boolean measure) throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        final long start = System.nanoTime();
+        for (int i = 0; i < requests.size(); i++) {
+            final CapturedRequest captured = requests.get(i);
+            final long due = speed > 0.0d ? start + (long) (TimeUnit.MILLISECONDS.toNanos(captured.offsetMillis()) / speed) : start;
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0L) {
+                LockSupport.parkNanos(wait);
+            }
+            final long seed = i;
+            executor.execute(() -> send(captured, seed, due, measure));
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.DAYS);
+    }
+
+    private void send(final CapturedRequest captured, final long seed, final long due, final boolean measure) {
+        final HttpServletRequest request = LoadHarness.createRequest(captured.body());
+        final long start = System.nanoTime();
+        boolean failed;
+        try {
+            manager.bind(request, seed);
+            manager.process(request, LoadHarness.RESPONSE, null);
+            final String response = manager.getLastResponse();
+            // Notifications have no response
+            failed = response != null && response.contains("\"error\":{");
+        } catch (final Exception e) {
+            failed = true;
+        } finally {
+            manager.unbind();
+        }
+        final long nanos = System.nanoTime() - start;
+        if (measure) {
+            histograms.computeIfAbsent(captured.label(), k -> new LatencyHistogram()).record(nanos);
+            final LongAdder errorCount = errors.computeIfAbsent(captured.label(), k -> new LongAdder());
+            if (failed) {
+                errorCount.increment();
+            }
+            lag.record(start - due);
+        }
+    }
+
+    private void printReport(final double seconds) {
+        LoadHarness.printHeader("request");
+        long total = 0L;
+        for (final Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            total += entry.getValue().getCount();
+            LoadHarness.printRow(entry.getKey(), entry.getValue(), errors.get(entry.getKey()).sum(), seconds);
+        }
+        System.out.printf(Locale.ROOT, "%-14s %10d %10.1f%n", "total", total, total / seconds);
+        LoadHarness.printRow("start lag", lag, 0L, seconds);
+        System.out.println();
+    }
+}
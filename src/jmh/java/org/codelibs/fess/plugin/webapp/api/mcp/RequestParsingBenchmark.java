@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.api.mcp;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of reading JSON-RPC requests: parsing a single request, and parsing and dispatching a batch
+ * of ping calls, which is dominated by parsing, per-element bookkeeping, and serializing the responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParsingBenchmark {
+
+    @Param({ "1", "20", "200" })
+    public int batchSize;
+
+    private BenchmarkMcpApiManager manager;
+
+    private String searchRequest;
+
+    private String batchRequest;
+
+    @Setup
+    public void setup() {
+        manager = new BenchmarkMcpApiManager();
+        searchRequest = BenchmarkFixtures.createSearchRequest(1);
+        batchRequest = BenchmarkFixtures.createPingBatch(batchSize);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseJsonObject() throws IOException {
+        return manager.parseJsonObject(searchRequest);
+    }
+
+    @Benchmark
+    public String processBatchRequest() throws IOException {
+        manager.processBatchRequest(batchRequest, null);
+        return manager.lastResponse;
+    }
+}
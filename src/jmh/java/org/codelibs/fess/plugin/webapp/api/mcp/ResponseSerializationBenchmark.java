@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.api.mcp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.codelibs.fess.plugin.webapp.api.mcp.BenchmarkFixtures.DocSize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensearch.common.xcontent.json.JsonXContent;
+
+/**
+ * Benchmarks of producing a search response: serializing a prepared JSON-RPC response, and the whole path
+ * from a page of hits to the serialized response as the search tool runs it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    @Param({ "1", "10", "100" })
+    public int hits;
+
+    @Param({ "SMALL", "LARGE" })
+    public DocSize docSize;
+
+    private BenchmarkMcpApiManager manager;
+
+    private List<Map<String, Object>> page;
+
+    private Map<String, Object> response;
+
+    @Setup
+    public void setup() {
+        manager = new BenchmarkMcpApiManager();
+        page = BenchmarkFixtures.createPage(docSize, hits);
+        response = createResponse();
+    }
+
+    private Map<String, Object> createResponse() {
+        final List<Map<String, Object>> contents = new ArrayList<>();
+        int index = 1;
+        for (final Map<String, Object> doc : manager.processDocumentItems(page)) {
+            contents.add(manager.createDocumentContent(doc, index++));
+        }
+        final Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("estimatedTokens", manager.estimateTokens(contents));
+        meta.put("resultCount", contents.size());
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("content", contents);
+        result.put("_meta", meta);
+        final Map<String, Object> resMap = new LinkedHashMap<>();
+        resMap.put("jsonrpc", "2.0");
+        resMap.put("id", 1);
+        resMap.put("result", result);
+        return resMap;
+    }
+
+    @Benchmark
+    public String serialize() throws IOException {
+        return JsonXContent.contentBuilder().map(response).toString();
+    }
+
+    @Benchmark
+    public String renderAndSerialize() throws IOException {
+        return JsonXContent.contentBuilder().map(createResponse()).toString();
+    }
+}
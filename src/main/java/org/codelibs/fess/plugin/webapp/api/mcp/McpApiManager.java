@@ -15,19 +15,51 @@
  */
 package org.codelibs.fess.plugin.webapp.api.mcp;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.codelibs.core.lang.StringUtil;
+import org.codelibs.core.stream.StreamUtil;
 import org.codelibs.fess.Constants;
 import org.codelibs.fess.api.BaseApiManager;
 import org.codelibs.fess.entity.FacetInfo;
@@ -35,16 +67,66 @@ import org.codelibs.fess.entity.GeoInfo;
 import org.codelibs.fess.entity.HighlightInfo;
 import org.codelibs.fess.entity.SearchRenderData;
 import org.codelibs.fess.entity.SearchRequestParams;
+import org.codelibs.fess.exception.FessSystemException;
 import org.codelibs.fess.mylasta.direction.FessConfig;
+import org.codelibs.fess.opensearch.client.SearchEngineClient.SearchConditionBuilder;
 import org.codelibs.fess.plugin.webapp.exception.McpApiException;
+import org.codelibs.fess.plugin.webapp.mcp.AbandonableResponse;
+import org.codelibs.fess.plugin.webapp.mcp.AccessLogWriter;
 import org.codelibs.fess.plugin.webapp.mcp.ErrorCode;
+import org.codelibs.fess.plugin.webapp.mcp.HedgedExecutor;
+import org.codelibs.fess.plugin.webapp.mcp.LocalExchange;
+import org.codelibs.fess.plugin.webapp.mcp.McpMetrics;
+import org.codelibs.fess.plugin.webapp.mcp.McpRequestEvent;
+import org.codelibs.fess.plugin.webapp.mcp.McpSearchResult;
+import org.codelibs.fess.plugin.webapp.mcp.McpTool;
+import org.codelibs.fess.plugin.webapp.mcp.McpToolEvent;
+import org.codelibs.fess.plugin.webapp.mcp.McpToolRegistry;
+import org.codelibs.fess.plugin.webapp.mcp.McpWarmup;
+import org.codelibs.fess.plugin.webapp.mcp.PhaseTimings;
+import org.codelibs.fess.plugin.webapp.mcp.PhaseTimings.Phase;
+import org.codelibs.fess.plugin.webapp.mcp.PointInTimeRegistry;
+import org.codelibs.fess.plugin.webapp.mcp.RotatingFileWriter;
+import org.codelibs.fess.plugin.webapp.mcp.SearchArguments;
+import org.codelibs.fess.plugin.webapp.mcp.SearchCursor;
+import org.codelibs.fess.plugin.webapp.mcp.SimpleMcpTool;
+import org.codelibs.fess.plugin.webapp.mcp.SlowCallLog;
+import org.codelibs.fess.plugin.webapp.mcp.ToolPolicy;
+import org.codelibs.fess.plugin.webapp.mcp.TrafficCapture;
+import org.codelibs.fess.plugin.webapp.mcp.VirtualThreadExecutor;
 import org.codelibs.fess.util.ComponentUtil;
+import org.codelibs.fess.util.FacetResponse;
+import org.codelibs.fess.util.QueryResponseList;
+import org.dbflute.optional.OptionalEntity;
 import org.dbflute.optional.OptionalThing;
+import org.lastaflute.di.core.ExternalContext;
+import org.lastaflute.di.core.factory.SingletonLaContainerFactory;
+import org.opensearch.action.ActionRequestBuilder;
+import org.opensearch.action.search.CreatePitRequest;
+import org.opensearch.action.search.CreatePitResponse;
+import org.opensearch.action.search.DeletePitRequest;
+import org.opensearch.action.search.MultiSearchRequestBuilder;
+import org.opensearch.action.search.MultiSearchResponse;
+import org.opensearch.action.search.SearchRequestBuilder;
+import org.opensearch.action.search.SearchResponse;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.common.util.concurrent.ThreadContext;
+import org.opensearch.common.util.concurrent.ThreadContext.StoredContext;
 import org.opensearch.common.xcontent.LoggingDeprecationHandler;
 import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.action.ActionListener;
 import org.opensearch.core.xcontent.NamedXContentRegistry;
+import org.opensearch.core.xcontent.XContentParser;
+import org.opensearch.search.SearchHit;
+import org.opensearch.search.builder.PointInTimeBuilder;
+import org.opensearch.search.collapse.CollapseBuilder;
+import org.opensearch.search.sort.SortOrder;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -73,9 +155,98 @@ public class McpApiManager extends BaseApiManager {
     protected static final List<String> SORT_VALUES =
             List.of("score.desc", "score.asc", "last_modified.desc", "last_modified.asc", "create_timestamp.desc", "create_timestamp.asc");
 
+    /** The URI prefix of export resources. */
+    protected static final String EXPORT_URI_PREFIX = "fess://export";
+
+    /** The MIME type for NDJSON export output. */
+    protected static final String NDJSON_MIME_TYPE = "application/x-ndjson";
+
+    /** The search request attribute carrying the explicit {@code preference} argument. */
+    protected static final String PREFERENCE_ATTRIBUTE = "mcp.preference";
+
+    /** The HTTP header carrying the MCP session id. */
+    protected static final String SESSION_ID_HEADER = "Mcp-Session-Id";
+
+    /** The MIME type of the Prometheus text exposition format. */
+    protected static final String PROMETHEUS_MIME_TYPE = "text/plain; version=0.0.4";
+
+    /** The request attribute carrying the {@link PhaseTimings} of the request. */
+    protected static final String TIMINGS_ATTRIBUTE = "mcp.timings";
+
+    /** The request attribute marking a warm-up request, counting its failed JSON-RPC requests. */
+    protected static final String WARMUP_ATTRIBUTE = "mcp.warmup";
+
+    /** The HTTP header carrying the phase timings of a response. */
+    protected static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    /** The search engine request header identifying the origin of a request in slow logs and tasks. */
+    protected static final String OPAQUE_ID_HEADER = "X-Opaque-Id";
+
+    /** The W3C trace context header. */
+    protected static final String TRACEPARENT_HEADER = "traceparent";
+
+    /** The W3C traceparent format; group 1 is the trace id. */
+    protected static final Pattern TRACEPARENT_PATTERN = Pattern.compile("[0-9a-f]{2}-([0-9a-f]{32})-[0-9a-f]{16}-[0-9a-f]{2}(?:-.*)?");
+
+    /** The accepted format of trace ids passed in {@code _meta.traceId}. */
+    protected static final Pattern TRACE_ID_PATTERN = Pattern.compile("[A-Za-z0-9._:\\-]{1,128}");
+
+    /** The URI of the metrics resource. */
+    protected static final String METRICS_URI = "fess://metrics";
+
+    /** The URI of the slow call diagnostics resource. */
+    protected static final String SLOW_CALLS_URI = "fess://diagnostics/slow";
+
+    /** The file name prefix of captured traffic. */
+    protected static final String CAPTURE_FILE_PREFIX = "mcp-capture";
+
+    /** The search source of a tool call that has not sent a search engine request. */
+    private static final Supplier<String> NO_SEARCH_SOURCE = () -> null;
+
+    /** The JSON-RPC methods recorded under their own name in metrics; other methods are recorded as "unknown". */
+    protected static final Set<String> METRIC_METHODS = Set.of("initialize", "ping", "tools/list", "tools/call", "resources/list",
+            "resources/read", "resources/templates/list", "prompts/list", "prompts/get", "completion/complete", "notifications/initialized",
+            "notifications/cancelled");
+
     /** The MIME type for JSON responses. */
     protected String mimeType = "application/json";
 
+    /** The executor of asynchronous requests, created on first use. */
+    protected volatile ExecutorService asyncExecutor;
+
+    /** The hedging state of direct searches, including recent search latencies. */
+    protected final HedgedExecutor searchHedger = new HedgedExecutor(1024);
+
+    /** The latency histograms of requests and tool calls. */
+    protected final McpMetrics metrics = new McpMetrics();
+
+    /** The point-in-times opened for cursor-based searches. */
+    protected final PointInTimeRegistry pointInTimes = new PointInTimeRegistry();
+
+    /** The access log writer, created on first use when the access log is enabled. */
+    protected volatile AccessLogWriter accessLogWriter;
+
+    /** The captured slow tool calls, created on first capture. */
+    protected volatile SlowCallLog slowCallLog;
+
+    /** The traffic capture, created on first use when capture is enabled. */
+    protected volatile TrafficCapture trafficCapture;
+
+    /** The registered tools, built on first use. */
+    protected volatile McpToolRegistry toolRegistry;
+
+    /** The executor of tool calls with an asynchronous policy, created on first use. */
+    protected volatile ExecutorService toolExecutor;
+
+    /** Set while a tool call runs on a thread of the tool executor. */
+    protected final ThreadLocal<Boolean> toolWorker = new ThreadLocal<>();
+
+    /** The startup warm-up, or null if it is disabled. */
+    protected volatile McpWarmup warmup;
+
+    /** The source of the last search engine request of the tool call running on this thread, while slow calls are captured. */
+    protected final ThreadLocal<Supplier<String>> searchSource = new ThreadLocal<>();
+
     /**
      * Creates a new MCP API manager with the default path prefix "/mcp".
      */
@@ -85,7 +256,7 @@ public class McpApiManager extends BaseApiManager {
     }
 
     /**
-     * Registers this API manager with the WebApiManagerFactory.
+     * Registers this API manager with the WebApiManagerFactory and starts the warm-up if it is enabled.
      */
     @PostConstruct
     public void register() {
@@ -94,6 +265,9 @@ public class McpApiManager extends BaseApiManager {
         }
 
         ComponentUtil.getWebApiManagerFactory().add(this);
+        if (isWarmupEnabled()) {
+            startWarmup();
+        }
     }
 
     @Override
@@ -101,17 +275,202 @@ public class McpApiManager extends BaseApiManager {
         return request.getServletPath().startsWith(pathPrefix);
     }
 
+    /**
+     * Stops the warm-up and shuts down the executors of asynchronous requests and tool calls.
+     */
+    @PreDestroy
+    public void destroy() {
+        final McpWarmup currentWarmup = warmup;
+        if (currentWarmup != null) {
+            currentWarmup.stop();
+        }
+        final ExecutorService executor = asyncExecutor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+        final ExecutorService tools = toolExecutor;
+        if (tools != null) {
+            tools.shutdown();
+        }
+        final AccessLogWriter writer = accessLogWriter;
+        if (writer != null) {
+            writer.close();
+        }
+        final TrafficCapture capture = trafficCapture;
+        if (capture != null) {
+            capture.close();
+        }
+    }
+
     @Override
     public void process(final HttpServletRequest request, final HttpServletResponse response, final FilterChain chain)
             throws IOException, ServletException {
+        if ((isAsyncEnabled() || isVirtualThreadsEnabled()) && request.isAsyncSupported()) {
+            processAsync(request, response);
+        } else {
+            processRequest(request, response);
+        }
+    }
+
+    /**
+     * Processes a request on a worker thread using servlet asynchronous processing, so that the container thread
+     * is released while the search engine is queried. The response is completed when the worker finishes
+     * or the request times out. If all workers are busy, the request is answered with 503.
+     * <p>
+     * The worker writes through an {@link AbandonableResponse}. On a timeout, that response is abandoned before
+     * the 503 is sent and the worker is interrupted, so that a late worker cannot write into the completed response.
+     *
+     * @param request  the HTTP servlet request
+     * @param response the HTTP servlet response
+     * @throws IOException if writing the busy response fails
+     */
+    protected void processAsync(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        final AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(getAsyncTimeout());
+        final AtomicBoolean completed = new AtomicBoolean();
+        final AbandonableResponse guardedResponse = new AbandonableResponse(response);
+        final AtomicReference<Future<?>> task = new AtomicReference<>();
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(final AsyncEvent event) throws IOException {
+                if (completed.compareAndSet(false, true)) {
+                    logger.warn("[MCP] Request timed out after {}ms: {}", getAsyncTimeout(), request.getRequestURI());
+                    guardedResponse.abandon();
+                    final Future<?> future = task.get();
+                    if (future != null) {
+                        future.cancel(true);
+                    }
+                    if (!response.isCommitted()) {
+                        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    }
+                    asyncContext.complete();
+                }
+            }
+
+            @Override
+            public void onError(final AsyncEvent event) throws IOException {
+                logger.debug("[MCP] Asynchronous request failed: {}", request.getRequestURI(), event.getThrowable());
+            }
+
+            @Override
+            public void onComplete(final AsyncEvent event) throws IOException {
+                // nothing to do
+            }
+
+            @Override
+            public void onStartAsync(final AsyncEvent event) throws IOException {
+                // nothing to do
+            }
+        });
+
+        try {
+            task.set(getAsyncExecutor().submit(() -> {
+                try {
+                    callInRequestContext(request, guardedResponse, () -> {
+                        try {
+                            processRequest(request, guardedResponse);
+                        } catch (final IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        return null;
+                    });
+                } catch (final Exception e) {
+                    if (guardedResponse.isAbandoned()) {
+                        logger.debug("[MCP] Abandoned asynchronous request failed: {}", request.getRequestURI(), e);
+                    } else {
+                        logger.warn("[MCP] Failed to process asynchronous request: {}", request.getRequestURI(), e);
+                    }
+                } finally {
+                    if (completed.compareAndSet(false, true)) {
+                        asyncContext.complete();
+                    }
+                }
+            }));
+            if (guardedResponse.isAbandoned()) {
+                // timed out before the task was set
+                task.get().cancel(true);
+            }
+        } catch (final RejectedExecutionException e) {
+            logger.warn("[MCP] Too many concurrent requests, rejecting: {}", request.getRequestURI());
+            if (completed.compareAndSet(false, true)) {
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                asyncContext.complete();
+            }
+        }
+    }
+
+    /**
+     * Runs a task with the given request and response bound to the current thread, as Fess components
+     * such as {@code SearchHelper} and {@link #write(String, String, String)} look them up from there.
+     *
+     * @param <T>      the result type
+     * @param request  the request to bind
+     * @param response the response to bind
+     * @param task     the task
+     * @return the result of the task
+     */
+    protected <T> T callInRequestContext(final Object request, final Object response, final Supplier<T> task) {
+        final ExternalContext externalContext = SingletonLaContainerFactory.getExternalContext();
+        final Object previousRequest = externalContext.getRequest();
+        final Object previousResponse = externalContext.getResponse();
+        externalContext.setRequest(request);
+        externalContext.setResponse(response);
+        try {
+            return task.get();
+        } finally {
+            externalContext.setRequest(previousRequest);
+            externalContext.setResponse(previousResponse);
+        }
+    }
+
+    /**
+     * Wraps a task so that it runs with the request and response of the current thread bound,
+     * for handing it over to another thread.
+     *
+     * @param <T>  the result type
+     * @param task the task
+     * @return the wrapped task
+     */
+    protected <T> Supplier<T> withRequestContext(final Supplier<T> task) {
+        final ExternalContext externalContext = SingletonLaContainerFactory.getExternalContext();
+        final Object request = externalContext.getRequest();
+        final Object response = externalContext.getResponse();
+        return () -> callInRequestContext(request, response, task);
+    }
+
+    /**
+     * Processes an MCP request on the current thread.
+     *
+     * @param request  the HTTP servlet request
+     * @param response the HTTP servlet response
+     * @throws IOException if writing the response fails
+     */
+    protected void processRequest(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
         writeHeaders(response);
+        if ((pathPrefix + "/export").equals(request.getServletPath())) {
+            processExportRequest(request, response);
+            return;
+        }
+        if ((pathPrefix + "/metrics").equals(request.getServletPath())) {
+            processMetricsRequest(response);
+            return;
+        }
+        if ((pathPrefix + "/ready").equals(request.getServletPath())) {
+            processReadyRequest(response);
+            return;
+        }
+        final PhaseTimings timings = new PhaseTimings();
+        request.setAttribute(TIMINGS_ATTRIBUTE, timings);
         try {
             if (logger.isDebugEnabled()) {
                 logger.debug("[MCP] Incoming request: {} {} Content-Type={} RemoteAddr={}", request.getMethod(), request.getRequestURI(),
                         request.getContentType(), request.getRemoteAddr());
             }
 
+            final long readStart = System.nanoTime();
             final String requestBody = readRequestBody(request);
+            timings.addSince(Phase.READ, readStart);
+            captureRequest(requestBody);
             if (logger.isDebugEnabled()) {
                 logger.debug("[MCP] Raw request body: {}", requestBody);
             }
@@ -128,6 +487,88 @@ public class McpApiManager extends BaseApiManager {
         }
     }
 
+    /**
+     * Returns whether requests are processed asynchronously on worker threads.
+     *
+     * @return the value of {@code mcp.async.enabled} (default false)
+     */
+    protected boolean isAsyncEnabled() {
+        return Constants.TRUE.equalsIgnoreCase(ComponentUtil.getFessConfig().getSystemProperty("mcp.async.enabled", Constants.FALSE));
+    }
+
+    /**
+     * Gets the timeout of asynchronous requests.
+     *
+     * @return the value of {@code mcp.async.timeout} in milliseconds (default 300000)
+     */
+    protected long getAsyncTimeout() {
+        return ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.async.timeout", 300000);
+    }
+
+    /**
+     * Returns whether requests and batch elements run on virtual threads. This implies asynchronous processing.
+     *
+     * @return the value of {@code mcp.virtual.threads.enabled} (default false)
+     */
+    protected boolean isVirtualThreadsEnabled() {
+        return Constants.TRUE
+                .equalsIgnoreCase(ComponentUtil.getFessConfig().getSystemProperty("mcp.virtual.threads.enabled", Constants.FALSE));
+    }
+
+    /**
+     * Gets the executor running asynchronous requests and concurrent batch elements, creating it on first use.
+     *
+     * @return the executor
+     */
+    protected ExecutorService getAsyncExecutor() {
+        ExecutorService executor = asyncExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = asyncExecutor;
+                if (executor == null) {
+                    executor = createAsyncExecutor();
+                    asyncExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Creates the executor of asynchronous requests.
+     * <p>
+     * With virtual threads enabled, each task runs on its own virtual thread, with at most
+     * {@code mcp.virtual.threads.max.concurrency} tasks (default 1000) at once, and virtual threads pinned to their
+     * carrier for longer than {@code mcp.virtual.threads.pinned.threshold} milliseconds (default 20, negative to disable)
+     * are logged. Otherwise, the executor has {@code mcp.async.threads} platform threads (default 32) and a queue of
+     * {@code mcp.async.queue.size} requests (default 1000). Tasks beyond these limits are rejected.
+     *
+     * @return the executor
+     */
+    protected ExecutorService createAsyncExecutor() {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        if (isVirtualThreadsEnabled()) {
+            final int maxConcurrency = Math.max(1, fessConfig.getSystemPropertyAsInt("mcp.virtual.threads.max.concurrency", 1000));
+            final int pinnedThreshold = fessConfig.getSystemPropertyAsInt("mcp.virtual.threads.pinned.threshold", 20);
+            if (logger.isInfoEnabled()) {
+                logger.info("[MCP] Running requests on virtual threads: maxConcurrency={}, pinnedThreshold={}ms", maxConcurrency,
+                        pinnedThreshold);
+            }
+            return new VirtualThreadExecutor("mcp-vt-", maxConcurrency, pinnedThreshold >= 0 ? Duration.ofMillis(pinnedThreshold) : null);
+        }
+        final int threads = Math.max(1, fessConfig.getSystemPropertyAsInt("mcp.async.threads", 32));
+        final int queueSize = Math.max(1, fessConfig.getSystemPropertyAsInt("mcp.async.queue.size", 1000));
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+                    final Thread thread = new Thread(r, "mcp-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     /**
      * Reads the raw request body from the HTTP request.
      *
@@ -147,11 +588,20 @@ public class McpApiManager extends BaseApiManager {
      * @throws IOException if writing the response fails
      */
     protected void processSingleRequest(final String requestBody, final HttpServletResponse response) throws IOException {
+        final long startTime = System.nanoTime();
+        final McpRequestEvent event = new McpRequestEvent();
+        event.begin();
+        final PhaseTimings timings = getPhaseTimings();
+        String outcome = McpMetrics.OUTCOME_SUCCESS;
         Object rpcId = null;
         String method = null;
         Map<String, Object> params = Collections.emptyMap();
+        Object result = null;
+        String json = null;
+        String traceId = null;
         try {
             final Map<String, Object> reqMap = parseJsonObject(requestBody);
+            recordPhase(timings, Phase.PARSE, startTime);
             if (logger.isDebugEnabled()) {
                 logger.debug("[MCP] Parsed request body: {}", reqMap);
             }
@@ -164,6 +614,9 @@ public class McpApiManager extends BaseApiManager {
             final Map<String, Object> paramsMap =
                     Optional.ofNullable((Map<String, Object>) reqMap.get("params")).orElse(Collections.emptyMap());
             params = paramsMap;
+            event.setMethod(method);
+            event.setRpcId(rpcId);
+            event.setTool(getToolName(method, params));
             if (logger.isDebugEnabled()) {
                 logger.debug("[MCP] JSON-RPC fields: jsonrpc={}, method={}, id={}, params={}", jsonrpc, method, rpcId, params);
             }
@@ -185,8 +638,21 @@ public class McpApiManager extends BaseApiManager {
                 return;
             }
 
-            // Execute the method
-            final Object result = dispatchRpcMethod(method, params);
+            traceId = resolveTraceId(params);
+            event.setTraceId(traceId);
+            try (StoredContext ignored = applyOpaqueId(traceId)) {
+                // Export resources are streamed straight to the response instead of being built in memory
+                if ("resources/read".equals(method) && isExportUri(params.get("uri"))) {
+                    streamExportResource(rpcId, (String) params.get("uri"), response);
+                    return;
+                }
+
+                // Execute the method
+                final long dispatchStart = System.nanoTime();
+                result = dispatchRpcMethod(method, params);
+                recordPhase(timings, Phase.DISPATCH, dispatchStart);
+            }
+            outcome = resolveOutcome(result);
             if (logger.isDebugEnabled()) {
                 logger.debug("[MCP] Method '{}' completed successfully", method);
             }
@@ -194,9 +660,14 @@ public class McpApiManager extends BaseApiManager {
             final Map<String, Object> resMap = new LinkedHashMap<>();
             resMap.put("jsonrpc", "2.0");
             resMap.put("id", rpcId);
-            resMap.put("result", result);
-            write(JsonXContent.contentBuilder().map(resMap).toString(), mimeType, Constants.UTF_8);
+            resMap.put("result", timings != null && isTimingsRequested(params) ? addTimingsMeta(result, timings) : result);
+            final long serializeStart = System.nanoTime();
+            json = serializeResponse(resMap);
+            recordPhase(timings, Phase.SERIALIZE, serializeStart);
+            writeServerTiming(response, timings);
+            write(json, mimeType, Constants.UTF_8);
         } catch (final McpApiException mae) {
+            outcome = mae.getCode().name();
             // Client error - log at debug level
             if (logger.isDebugEnabled()) {
                 logger.debug("[MCP] Client error: code={}, message='{}', id={}, method={}, params={}", mae.getCode(), mae.getMessage(),
@@ -206,13 +677,234 @@ public class McpApiManager extends BaseApiManager {
                 writeError(rpcId, mae.getCode(), mae.getMessage(), response);
             }
         } catch (final Exception e) {
+            outcome = ErrorCode.InternalError.name();
             // Unexpected error - log at warn level (potential system issue)
             logger.warn("[MCP] Unexpected error processing request: id={}, method={}, params={}, error={}", rpcId, method, params,
                     e.getMessage(), e);
             if (rpcId != null) {
                 writeError(rpcId, ErrorCode.InternalError, e.getMessage(), response);
             }
+        } finally {
+            recordRequestMetrics(method, outcome, System.nanoTime() - startTime);
+            commitRequestEvent(event, outcome, result, json);
+            writeAccessLog(method, params, rpcId, traceId, outcome, result, requestBody, json, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Completes and commits a request event if Flight Recorder records it. The response size and hit count
+     * are only computed then. Warm-up requests are not recorded.
+     *
+     * @param event   the event, with its method, tool, and rpc id set
+     * @param outcome the outcome of the request
+     * @param result  the method result, or null if the request failed
+     * @param json    the serialized response, or null if unknown
+     */
+    protected void commitRequestEvent(final McpRequestEvent event, final String outcome, final Object result, final String json) {
+        if (isWarmupCall()) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.setOutcome(outcome);
+            event.setHitCount(getHitCount(result));
+            event.setBytesOut(json != null ? json.getBytes(StandardCharsets.UTF_8).length : -1L);
+            event.commit();
+        }
+    }
+
+    /**
+     * Queues an access log entry for a JSON-RPC call if the access log is enabled with {@code mcp.access.log.enabled}
+     * and the call is not a warm-up request.
+     * Only the fields are collected here; the query is normalized and the entry serialized on the writer thread.
+     *
+     * @param method       the method name, or null if the request could not be parsed
+     * @param params       the request params
+     * @param rpcId        the request id, or null for a notification
+     * @param traceId      the trace id, or null if none was applied
+     * @param outcome      the outcome of the request
+     * @param result       the method result, or null if the request failed
+     * @param requestBody  the request body, or null for an element of a batch request
+     * @param json         the serialized response, or null if unknown
+     * @param latencyNanos the time spent on the request in nanoseconds
+     */
+    protected void writeAccessLog(final String method, final Map<String, Object> params, final Object rpcId, final String traceId,
+            final String outcome, final Object result, final String requestBody, final String json, final long latencyNanos) {
+        final AccessLogWriter writer = getAccessLogWriter();
+        if (writer == null || isWarmupCall()) {
+            return;
+        }
+        final Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("time", Instant.now().toString());
+        entry.put("method", method);
+        entry.put("tool", getToolName(method, params));
+        entry.put(AccessLogWriter.QUERY_KEY, getLoggedQuery(method, params));
+        entry.put("rpcId", rpcId);
+        entry.put("traceId", traceId);
+        entry.put("client", getCurrentRequest().map(HttpServletRequest::getRemoteAddr).orElse(null));
+        entry.put("batch", requestBody == null);
+        entry.put("bytesIn", requestBody != null ? AccessLogWriter.utf8Length(requestBody) : -1L);
+        entry.put("bytesOut", json != null ? AccessLogWriter.utf8Length(json) : -1L);
+        entry.put("hits", getHitCount(result));
+        entry.put("tookMillis", getTookMillis(result));
+        entry.put("latencyMillis", Math.round(latencyNanos / 1_000.0d) / 1_000.0d);
+        entry.put("outcome", outcome);
+        writer.offer(entry);
+    }
+
+    /**
+     * Gets the query of a tools/call request for the access log: {@code q}, or the {@code queries} of multi_search
+     * joined with {@code " | "}.
+     *
+     * @param method the method name
+     * @param params the request params
+     * @return the query, or null if the request has none
+     */
+    protected String getLoggedQuery(final String method, final Map<String, Object> params) {
+        if (getToolName(method, params) == null || !(params.get("arguments") instanceof final Map<?, ?> arguments)) {
+            return null;
+        }
+        if (arguments.get("q") instanceof final String q) {
+            return q;
+        }
+        if (arguments.get("queries") instanceof final List<?> queries) {
+            return queries.stream().map(String::valueOf).collect(Collectors.joining(" | "));
+        }
+        return null;
+    }
+
+    /**
+     * Gets the time the search engine took for a tool result, from its {@code _meta.tookMillis}.
+     *
+     * @param result the method result
+     * @return the time in milliseconds, or -1 if not applicable
+     */
+    protected long getTookMillis(final Object result) {
+        if (result instanceof final Map<?, ?> resultMap && resultMap.get("_meta") instanceof final Map<?, ?> meta
+                && meta.get("tookMillis") instanceof final Number tookMillis) {
+            return tookMillis.longValue();
+        }
+        return -1L;
+    }
+
+    /**
+     * Records a request body for replay if traffic capture is enabled.
+     *
+     * @param requestBody the raw request body
+     */
+    protected void captureRequest(final String requestBody) {
+        final TrafficCapture capture = getTrafficCapture();
+        if (capture != null) {
+            capture.capture(requestBody);
+        }
+    }
+
+    /**
+     * Gets the traffic capture, creating it on first use.
+     * <p>
+     * Request bodies are written to {@code mcp-capture-*.ndjson} files in {@code mcp.capture.dir} (default
+     * {@code fess-mcp-capture} in the temporary directory). A new file is started every
+     * {@code mcp.capture.file.size.mb} megabytes (default 100), and the newest {@code mcp.capture.max.files} files
+     * (default 10) are kept. {@code mcp.capture.sample.percent} percent of requests are recorded (default 100), and
+     * the values of the comma-separated keys in {@code mcp.capture.redact.keys} are redacted (default none).
+     *
+     * @return the capture, or null if capture is disabled
+     */
+    protected TrafficCapture getTrafficCapture() {
+        TrafficCapture capture = trafficCapture;
+        if (capture == null) {
+            if (!isCaptureEnabled()) {
+                return null;
+            }
+            synchronized (this) {
+                capture = trafficCapture;
+                if (capture == null) {
+                    final FessConfig fessConfig = ComponentUtil.getFessConfig();
+                    final String dir = fessConfig.getSystemProperty("mcp.capture.dir",
+                            Paths.get(System.getProperty("java.io.tmpdir"), "fess-mcp-capture").toString());
+                    final RotatingFileWriter files = new RotatingFileWriter(Paths.get(dir), CAPTURE_FILE_PREFIX,
+                            Math.max(1, fessConfig.getSystemPropertyAsInt("mcp.capture.file.size.mb", 100)) * 1024L * 1024L,
+                            fessConfig.getSystemPropertyAsInt("mcp.capture.max.files", 10));
+                    final Set<String> redactedKeys = StreamUtil.split(fessConfig.getSystemProperty("mcp.capture.redact.keys", ""), ",")
+                            .get(stream -> stream.map(String::trim).filter(StringUtil::isNotBlank).collect(Collectors.toSet()));
+                    capture = new TrafficCapture(files, fessConfig.getSystemPropertyAsInt("mcp.capture.buffer.size", 8192),
+                            fessConfig.getSystemPropertyAsInt("mcp.capture.sample.percent", 100), redactedKeys);
+                    trafficCapture = capture;
+                    logger.info("[MCP] Capturing requests to {}", dir);
+                }
+            }
+        }
+        return capture;
+    }
+
+    /**
+     * Returns whether incoming request bodies are recorded for replay.
+     *
+     * @return the value of {@code mcp.capture.enabled} (default false)
+     */
+    protected boolean isCaptureEnabled() {
+        return Constants.TRUE.equalsIgnoreCase(ComponentUtil.getFessConfig().getSystemProperty("mcp.capture.enabled", Constants.FALSE));
+    }
+
+    /**
+     * Gets the access log writer, creating it on first use.
+     *
+     * @return the writer, or null if the access log is disabled
+     */
+    protected AccessLogWriter getAccessLogWriter() {
+        AccessLogWriter writer = accessLogWriter;
+        if (writer == null) {
+            if (!isAccessLogEnabled()) {
+                return null;
+            }
+            synchronized (this) {
+                writer = accessLogWriter;
+                if (writer == null) {
+                    writer = new AccessLogWriter(ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.access.log.buffer.size", 8192));
+                    accessLogWriter = writer;
+                }
+            }
         }
+        return writer;
+    }
+
+    /**
+     * Returns whether each JSON-RPC call is written to the access log.
+     *
+     * @return the value of {@code mcp.access.log.enabled} (default false)
+     */
+    protected boolean isAccessLogEnabled() {
+        return Constants.TRUE.equalsIgnoreCase(ComponentUtil.getFessConfig().getSystemProperty("mcp.access.log.enabled", Constants.FALSE));
+    }
+
+    /**
+     * Gets the tool name of a tools/call request.
+     *
+     * @param method the method name
+     * @param params the request params
+     * @return the tool name, or null if the request is not a tools/call request
+     */
+    protected String getToolName(final String method, final Map<String, Object> params) {
+        return "tools/call".equals(method) && params.get("name") instanceof final String name ? name : null;
+    }
+
+    /**
+     * Gets the number of results of a tool result from its {@code _meta.resultCount}, or {@code _meta.count}
+     * for the count tool.
+     *
+     * @param result the method result
+     * @return the number of results, or -1 if not applicable
+     */
+    protected int getHitCount(final Object result) {
+        if (result instanceof final Map<?, ?> resultMap && resultMap.get("_meta") instanceof final Map<?, ?> meta) {
+            if (meta.get("resultCount") instanceof final Number resultCount) {
+                return resultCount.intValue();
+            }
+            if (meta.get("count") instanceof final Number count) {
+                return (int) Math.min(Integer.MAX_VALUE, count.longValue());
+            }
+        }
+        return -1;
     }
 
     /**
@@ -225,10 +917,13 @@ public class McpApiManager extends BaseApiManager {
      */
     @SuppressWarnings("unchecked")
     protected void processBatchRequest(final String requestBody, final HttpServletResponse response) throws IOException {
+        final PhaseTimings timings = getPhaseTimings();
+        final long parseStart = System.nanoTime();
         final List<Object> rawList;
         try {
             rawList = JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, requestBody)
                     .list();
+            recordPhase(timings, Phase.PARSE, parseStart);
         } catch (final Exception e) {
             if (logger.isDebugEnabled()) {
                 logger.debug("[MCP] Failed to parse batch request body as JSON array: error='{}'", e.getMessage());
@@ -258,98 +953,307 @@ public class McpApiManager extends BaseApiManager {
             }
         }
 
+        final long dispatchStart = System.nanoTime();
         responses.addAll(processBatchRequests(requests));
+        recordPhase(timings, Phase.DISPATCH, dispatchStart);
 
         if (responses.isEmpty()) {
             // All were notifications - no response per JSON-RPC 2.0 spec
             return;
         }
 
+        final long serializeStart = System.nanoTime();
         final StringBuilder batchJson = new StringBuilder("[");
         for (int i = 0; i < responses.size(); i++) {
             if (i > 0) {
                 batchJson.append(",");
             }
-            batchJson.append(JsonXContent.contentBuilder().map(responses.get(i)).toString());
+            batchJson.append(serializeResponse(responses.get(i)));
         }
         batchJson.append("]");
+        recordPhase(timings, Phase.SERIALIZE, serializeStart);
+        writeServerTiming(response, timings);
         write(batchJson.toString(), mimeType, Constants.UTF_8);
     }
 
     /**
-     * Processes a list of JSON-RPC requests and returns a list of responses.
-     * Notifications (requests without id) do not produce responses.
+     * Gets the phase timings of the HTTP request bound to the current thread.
      *
-     * @param requests the list of parsed JSON-RPC request maps
-     * @return the list of response maps
+     * @return the timings, or null if no request is bound or the request is not timed
      */
-    @SuppressWarnings("unchecked")
-    protected List<Map<String, Object>> processBatchRequests(final List<Map<String, Object>> requests) {
-        final List<Map<String, Object>> responses = new ArrayList<>();
-        for (final Map<String, Object> reqMap : requests) {
-            final String jsonrpc = (String) reqMap.get("jsonrpc");
-            final String method = (String) reqMap.get("method");
-            final Object rpcId = reqMap.get("id");
-            final Map<String, Object> params =
-                    Optional.ofNullable((Map<String, Object>) reqMap.get("params")).orElse(Collections.emptyMap());
-
-            if (!"2.0".equals(jsonrpc) || method == null) {
-                if (rpcId != null) {
-                    responses.add(createErrorResponse(rpcId, ErrorCode.InvalidRequest,
-                            "Invalid JSON-RPC request: jsonrpc=" + jsonrpc + ", method=" + method));
-                }
-                continue;
-            }
+    protected PhaseTimings getPhaseTimings() {
+        return getCurrentRequest().map(request -> request.getAttribute(TIMINGS_ATTRIBUTE))
+                .filter(PhaseTimings.class::isInstance)
+                .map(PhaseTimings.class::cast)
+                .orElse(null);
+    }
 
-            // Notifications (no id) do not produce responses
-            if (rpcId == null) {
-                dispatchNotification(method, params);
-                continue;
-            }
+    /**
+     * Adds the time elapsed since a start time to a phase.
+     *
+     * @param timings   the timings, or null to record nothing
+     * @param phase     the phase
+     * @param startTime the start time, from {@link System#nanoTime()}
+     */
+    protected void recordPhase(final PhaseTimings timings, final Phase phase, final long startTime) {
+        if (timings != null) {
+            timings.addSince(phase, startTime);
+        }
+    }
 
-            try {
-                final Object result = dispatchRpcMethod(method, params);
-                final Map<String, Object> resMap = new LinkedHashMap<>();
-                resMap.put("jsonrpc", "2.0");
-                resMap.put("id", rpcId);
-                resMap.put("result", result);
-                responses.add(resMap);
-            } catch (final McpApiException mae) {
-                responses.add(createErrorResponse(rpcId, mae.getCode(), mae.getMessage()));
-            } catch (final Exception e) {
-                logger.warn("[MCP] Batch request error: id={}, method={}, error={}", rpcId, method, e.getMessage(), e);
-                responses.add(createErrorResponse(rpcId, ErrorCode.InternalError, e.getMessage()));
-            }
+    /**
+     * Sets the {@code Server-Timing} header from the phase timings, unless disabled with {@code mcp.server.timing.enabled}.
+     *
+     * @param response the HTTP servlet response
+     * @param timings  the timings, or null to set no header
+     */
+    protected void writeServerTiming(final HttpServletResponse response, final PhaseTimings timings) {
+        if (timings != null && isServerTimingEnabled()) {
+            response.setHeader(SERVER_TIMING_HEADER, timings.toServerTiming());
         }
-        return responses;
     }
 
     /**
-     * Creates a JSON-RPC 2.0 error response map.
+     * Returns whether responses carry a {@code Server-Timing} header.
      *
-     * @param id the request id
-     * @param code the error code
-     * @param message the error message
-     * @return the error response map
+     * @return the value of {@code mcp.server.timing.enabled} (default true)
      */
-    protected Map<String, Object> createErrorResponse(final Object id, final ErrorCode code, final String message) {
-        final Map<String, Object> error = Map.of("code", code.getCode(), "message", message != null ? message : "Unknown error");
-        final Map<String, Object> errorResponse = new LinkedHashMap<>();
-        errorResponse.put("jsonrpc", "2.0");
-        errorResponse.put("id", id);
-        errorResponse.put("error", error);
-        return errorResponse;
+    protected boolean isServerTimingEnabled() {
+        return Constants.TRUE
+                .equalsIgnoreCase(ComponentUtil.getFessConfig().getSystemProperty("mcp.server.timing.enabled", Constants.TRUE));
     }
 
     /**
-     * Parses a JSON string as a map (JSON object).
+     * Returns whether a request asks for phase timings in its result, with {@code "_meta": {"timings": true}} in its params.
      *
-     * @param requestBody the JSON string to parse
-     * @return a map containing the parsed JSON
-     * @throws IOException if parsing fails
+     * @param params the request params
+     * @return true if timings are requested
      */
-    protected Map<String, Object> parseJsonObject(final String requestBody) throws IOException {
-        if (requestBody == null || requestBody.isEmpty()) {
+    protected boolean isTimingsRequested(final Map<String, Object> params) {
+        return params.get("_meta") instanceof final Map<?, ?> meta && Boolean.TRUE.equals(meta.get("timings"));
+    }
+
+    /**
+     * Adds the phase timings recorded so far to the {@code _meta} object of a result.
+     * Serialization has not happened yet, so it is not included.
+     *
+     * @param result  the method result
+     * @param timings the timings
+     * @return a copy of the result with {@code _meta.timings}, or the result itself if it is not an object
+     */
+    protected Object addTimingsMeta(final Object result, final PhaseTimings timings) {
+        if (!(result instanceof final Map<?, ?> resultMap)) {
+            return result;
+        }
+        final Map<String, Object> copy = new LinkedHashMap<>();
+        resultMap.forEach((k, v) -> copy.put(String.valueOf(k), v));
+        final Map<String, Object> meta = new LinkedHashMap<>();
+        if (copy.get("_meta") instanceof final Map<?, ?> existing) {
+            existing.forEach((k, v) -> meta.put(String.valueOf(k), v));
+        }
+        meta.put("timings", timings.toMap());
+        copy.put("_meta", meta);
+        return copy;
+    }
+
+    /**
+     * Serializes a JSON-RPC response map. The {@code tools/list} result of the tool registry is not serialized again;
+     * its pre-serialized JSON is written after the envelope.
+     *
+     * @param resMap the response map
+     * @return the JSON text
+     * @throws IOException if serialization fails
+     */
+    protected String serializeResponse(final Map<String, Object> resMap) throws IOException {
+        final McpToolRegistry registry = toolRegistry;
+        if (registry != null && resMap.size() == 3 && resMap.get("result") == registry.getListToolsResult()) {
+            final String listToolsJson = registry.getListToolsJson();
+            final String id = JsonXContent.contentBuilder().value(resMap.get("id")).toString();
+            final StringBuilder buf = new StringBuilder(listToolsJson.length() + id.length() + 40);
+            buf.append("{\"jsonrpc\":\"2.0\",\"id\":").append(id).append(",\"result\":").append(listToolsJson).append('}');
+            return buf.toString();
+        }
+        return JsonXContent.contentBuilder().map(resMap).toString();
+    }
+
+    /**
+     * Processes a list of JSON-RPC requests and returns a list of responses.
+     * Notifications (requests without id) do not produce responses.
+     * With virtual threads enabled, the requests run concurrently, each on its own virtual thread;
+     * responses keep the order of the requests.
+     *
+     * @param requests the list of parsed JSON-RPC request maps
+     * @return the list of response maps
+     */
+    protected List<Map<String, Object>> processBatchRequests(final List<Map<String, Object>> requests) {
+        final List<Map<String, Object>> responses = new ArrayList<>();
+        if (requests.size() > 1 && isVirtualThreadsEnabled()) {
+            // Run the elements concurrently; an element that cannot be scheduled runs on the current thread
+            final List<CompletableFuture<Map<String, Object>>> futures = new ArrayList<>();
+            for (final Map<String, Object> reqMap : requests) {
+                CompletableFuture<Map<String, Object>> future;
+                try {
+                    future = CompletableFuture.supplyAsync(withRequestContext(() -> processBatchElement(reqMap)), getAsyncExecutor());
+                } catch (final RejectedExecutionException e) {
+                    future = CompletableFuture.completedFuture(processBatchElement(reqMap));
+                }
+                futures.add(future);
+            }
+            for (final CompletableFuture<Map<String, Object>> future : futures) {
+                final Map<String, Object> resMap = future.join();
+                if (resMap != null) {
+                    responses.add(resMap);
+                }
+            }
+        } else {
+            for (final Map<String, Object> reqMap : requests) {
+                final Map<String, Object> resMap = processBatchElement(reqMap);
+                if (resMap != null) {
+                    responses.add(resMap);
+                }
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Processes one element of a batch request.
+     *
+     * @param reqMap the parsed JSON-RPC request map
+     * @return the response map, or null if the element produces no response (e.g. a notification)
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<String, Object> processBatchElement(final Map<String, Object> reqMap) {
+        final long startTime = System.nanoTime();
+        final McpRequestEvent event = new McpRequestEvent();
+        event.begin();
+        final String jsonrpc = (String) reqMap.get("jsonrpc");
+        final String method = (String) reqMap.get("method");
+        final Object rpcId = reqMap.get("id");
+        final Map<String, Object> params = Optional.ofNullable((Map<String, Object>) reqMap.get("params")).orElse(Collections.emptyMap());
+        event.setMethod(method);
+        event.setRpcId(rpcId);
+        event.setTool(getToolName(method, params));
+        event.setBatch(true);
+
+        if (!"2.0".equals(jsonrpc) || method == null) {
+            recordRequestMetrics(method, ErrorCode.InvalidRequest.name(), System.nanoTime() - startTime);
+            commitRequestEvent(event, ErrorCode.InvalidRequest.name(), null, null);
+            writeAccessLog(method, params, rpcId, null, ErrorCode.InvalidRequest.name(), null, null, null, System.nanoTime() - startTime);
+            if (rpcId != null) {
+                return createErrorResponse(rpcId, ErrorCode.InvalidRequest,
+                        "Invalid JSON-RPC request: jsonrpc=" + jsonrpc + ", method=" + method);
+            }
+            return null;
+        }
+
+        // Notifications (no id) do not produce responses
+        if (rpcId == null) {
+            dispatchNotification(method, params);
+            recordRequestMetrics(method, McpMetrics.OUTCOME_SUCCESS, System.nanoTime() - startTime);
+            commitRequestEvent(event, McpMetrics.OUTCOME_SUCCESS, null, null);
+            writeAccessLog(method, params, null, null, McpMetrics.OUTCOME_SUCCESS, null, null, null, System.nanoTime() - startTime);
+            return null;
+        }
+
+        String outcome = McpMetrics.OUTCOME_SUCCESS;
+        Object result = null;
+        final String traceId = resolveTraceId(params);
+        event.setTraceId(traceId);
+        try (StoredContext ignored = applyOpaqueId(traceId)) {
+            result = dispatchRpcMethod(method, params);
+            outcome = resolveOutcome(result);
+            final Map<String, Object> resMap = new LinkedHashMap<>();
+            resMap.put("jsonrpc", "2.0");
+            resMap.put("id", rpcId);
+            resMap.put("result", result);
+            return resMap;
+        } catch (final McpApiException mae) {
+            outcome = mae.getCode().name();
+            return createErrorResponse(rpcId, mae.getCode(), mae.getMessage());
+        } catch (final Exception e) {
+            outcome = ErrorCode.InternalError.name();
+            logger.warn("[MCP] Batch request error: id={}, method={}, error={}", rpcId, method, e.getMessage(), e);
+            return createErrorResponse(rpcId, ErrorCode.InternalError, e.getMessage());
+        } finally {
+            recordRequestMetrics(method, outcome, System.nanoTime() - startTime);
+            // Batch responses are serialized together, so the size of this element is not known
+            commitRequestEvent(event, outcome, result, null);
+            writeAccessLog(method, params, rpcId, traceId, outcome, result, null, null, System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Gets the metrics outcome of a method or tool result.
+     *
+     * @param result the result
+     * @return {@link McpMetrics#OUTCOME_IS_ERROR} if the result is a tool result with {@code isError} set,
+     *         {@link McpMetrics#OUTCOME_SUCCESS} otherwise
+     */
+    protected String resolveOutcome(final Object result) {
+        if (result instanceof final Map<?, ?> map && Boolean.TRUE.equals(map.get("isError"))) {
+            return McpMetrics.OUTCOME_IS_ERROR;
+        }
+        return McpMetrics.OUTCOME_SUCCESS;
+    }
+
+    /**
+     * Records the latency of a JSON-RPC request. Methods outside {@link #METRIC_METHODS} are recorded as "unknown",
+     * so that clients cannot create unbounded numbers of series. Warm-up requests are only counted for the warm-up.
+     *
+     * @param method  the method name, or null if the request had none
+     * @param outcome the outcome
+     * @param nanos   the latency in nanoseconds
+     */
+    protected void recordRequestMetrics(final String method, final String outcome, final long nanos) {
+        if (isWarmupCall()) {
+            recordWarmupOutcome(outcome);
+            return;
+        }
+        metrics.recordRequest(method != null && METRIC_METHODS.contains(method) ? method : "unknown", outcome, nanos);
+    }
+
+    /**
+     * Records the latency of a tool call. Tools that are not registered are recorded as "unknown",
+     * and warm-up calls are not recorded.
+     *
+     * @param tool    the tool name
+     * @param outcome the outcome
+     * @param nanos   the latency in nanoseconds
+     */
+    protected void recordToolMetrics(final String tool, final String outcome, final long nanos) {
+        if (isWarmupCall()) {
+            return;
+        }
+        metrics.recordTool(getToolRegistry().contains(tool) ? tool : "unknown", outcome, nanos);
+    }
+
+    /**
+     * Creates a JSON-RPC 2.0 error response map.
+     *
+     * @param id the request id
+     * @param code the error code
+     * @param message the error message
+     * @return the error response map
+     */
+    protected Map<String, Object> createErrorResponse(final Object id, final ErrorCode code, final String message) {
+        final Map<String, Object> error = Map.of("code", code.getCode(), "message", message != null ? message : "Unknown error");
+        final Map<String, Object> errorResponse = new LinkedHashMap<>();
+        errorResponse.put("jsonrpc", "2.0");
+        errorResponse.put("id", id);
+        errorResponse.put("error", error);
+        return errorResponse;
+    }
+
+    /**
+     * Parses a JSON string as a map (JSON object).
+     *
+     * @param requestBody the JSON string to parse
+     * @return a map containing the parsed JSON
+     * @throws IOException if parsing fails
+     */
+    protected Map<String, Object> parseJsonObject(final String requestBody) throws IOException {
+        if (requestBody == null || requestBody.isEmpty()) {
             if (logger.isDebugEnabled()) {
                 logger.debug("[MCP] Request body is empty");
             }
@@ -527,77 +1431,236 @@ public class McpApiManager extends BaseApiManager {
      *         - "inputSchema": A JSON Schema object defining the tool's input parameters.
      */
     protected Map<String, Object> handleListTools(final Map<String, Object> params) {
-        // Search tool
-        final Map<String, Object> searchProperties = new HashMap<>();
-        searchProperties.put("q", Map.of("type", "string", "description", "query string"));
-        searchProperties.put("start", Map.of("type", "integer", "description", "start position"));
-        searchProperties.put("offset", Map.of("type", "integer", "description", "offset (alias of start)"));
-        searchProperties.put("num", Map.of("type", "integer", "description", "number of results", "default", 3));
-        searchProperties.put("sort", Map.of("type", "string", "description", "sort order"));
-        searchProperties.put("fields.label", Map.of("type", "array", "description", "labels to return"));
-        searchProperties.put("lang", Map.of("type", "string", "description", "language"));
-        searchProperties.put("preference", Map.of("type", "string", "description", "preference"));
-
-        final Map<String, Object> searchInputSchema = new HashMap<>();
-        searchInputSchema.put("type", "object");
-        searchInputSchema.put("properties", searchProperties);
-        searchInputSchema.put("required", List.of("q"));
-
-        final Map<String, Object> toolSearch = new HashMap<>();
-        toolSearch.put("name", "search");
-        toolSearch.put("description",
-                "Search documents via Fess. Query syntax is similar to Lucene: " + "multiple terms are combined with AND by default, "
-                        + "use OR explicitly for OR search (e.g., \"term1 OR term2\"), "
-                        + "use quotes for phrase search, use - for exclusion.");
-        toolSearch.put("inputSchema", searchInputSchema);
-        toolSearch.put("annotations",
-                Map.of("title", "Search Documents", "readOnlyHint", true, "destructiveHint", false, "openWorldHint", false));
-
-        // Index stats tool
-        final Map<String, Object> statsInputSchema = new HashMap<>();
-        statsInputSchema.put("type", "object");
-        statsInputSchema.put("properties", new HashMap<>());
-
-        final Map<String, Object> toolStats = new HashMap<>();
-        toolStats.put("name", "get_index_stats");
-        toolStats.put("description", "Get index statistics and information");
-        toolStats.put("inputSchema", statsInputSchema);
-        toolStats.put("annotations",
-                Map.of("title", "Get Index Statistics", "readOnlyHint", true, "destructiveHint", false, "openWorldHint", false));
-
-        // Suggest tool
-        final Map<String, Object> suggestProperties = new HashMap<>();
-        suggestProperties.put("q", Map.of("type", "string", "description", "query prefix for autocomplete"));
-        suggestProperties.put("num", Map.of("type", "integer", "description", "number of suggestions", "default", 10));
-
-        final Map<String, Object> suggestInputSchema = new HashMap<>();
-        suggestInputSchema.put("type", "object");
-        suggestInputSchema.put("properties", suggestProperties);
-        suggestInputSchema.put("required", List.of("q"));
-
-        final Map<String, Object> toolSuggest = new HashMap<>();
-        toolSuggest.put("name", "suggest");
-        toolSuggest.put("description", "Get autocomplete suggestions for a search query prefix");
-        toolSuggest.put("inputSchema", suggestInputSchema);
-        toolSuggest.put("annotations", Map.of("title", "Suggest", "readOnlyHint", true, "destructiveHint", false, "openWorldHint", false));
-
-        // Get document tool
-        final Map<String, Object> getDocProperties = new HashMap<>();
-        getDocProperties.put("doc_id", Map.of("type", "string", "description", "document ID to retrieve"));
-
-        final Map<String, Object> getDocInputSchema = new HashMap<>();
-        getDocInputSchema.put("type", "object");
-        getDocInputSchema.put("properties", getDocProperties);
-        getDocInputSchema.put("required", List.of("doc_id"));
-
-        final Map<String, Object> toolGetDoc = new HashMap<>();
-        toolGetDoc.put("name", "get_document");
-        toolGetDoc.put("description", "Retrieve a document by its document ID");
-        toolGetDoc.put("inputSchema", getDocInputSchema);
-        toolGetDoc.put("annotations",
-                Map.of("title", "Get Document", "readOnlyHint", true, "destructiveHint", false, "openWorldHint", false));
-
-        return Map.of("tools", List.of(toolSearch, toolStats, toolSuggest, toolGetDoc));
+        return getToolRegistry().getListToolsResult();
+    }
+
+    /**
+     * Gets the tool registry, building it on first use.
+     *
+     * @return the registry
+     */
+    protected McpToolRegistry getToolRegistry() {
+        McpToolRegistry registry = toolRegistry;
+        if (registry == null) {
+            synchronized (this) {
+                registry = toolRegistry;
+                if (registry == null) {
+                    registry = createToolRegistry();
+                    toolRegistry = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Builds the tool registry from the built-in tools and the {@link McpTool} components of the DI container.
+     * A component with the name of a built-in tool replaces it.
+     *
+     * @return the registry
+     */
+    protected McpToolRegistry createToolRegistry() {
+        final List<McpTool> tools = new ArrayList<>(createBuiltinTools());
+        tools.addAll(findPluginTools());
+        final McpToolRegistry registry = new McpToolRegistry(tools, this::resolveToolPolicy);
+        if (logger.isInfoEnabled()) {
+            logger.info("[MCP] Registered tools: {}", tools.stream().map(McpTool::getName).distinct().collect(Collectors.joining(",")));
+        }
+        return registry;
+    }
+
+    /**
+     * Creates the built-in tools, in the order they are listed.
+     *
+     * @return the tools
+     */
+    protected List<McpTool> createBuiltinTools() {
+        return List.of(createSearchTool(), createGetIndexStatsTool(), createSuggestTool(), createGetDocumentTool(), createCountTool(),
+                createMultiSearchTool());
+    }
+
+    /**
+     * Finds the tools registered as components of the DI container.
+     *
+     * @return the tools, or an empty list without a container
+     */
+    protected List<McpTool> findPluginTools() {
+        if (!SingletonLaContainerFactory.hasContainer()) {
+            return Collections.emptyList();
+        }
+        final Object[] components = SingletonLaContainerFactory.getContainer().findAllComponents(McpTool.class);
+        final List<McpTool> tools = new ArrayList<>(components.length);
+        for (final Object component : components) {
+            if (component instanceof final McpTool tool) {
+                tools.add(tool);
+            }
+        }
+        return tools;
+    }
+
+    /**
+     * Computes the effective policy of a tool: the policy it declares, overridden by
+     * {@code mcp.tool.<name>.max.concurrency}, {@code mcp.tool.<name>.timeout} (milliseconds), and
+     * {@code mcp.tool.<name>.executor} ({@code caller} or {@code async}). An asynchronous policy without a timeout
+     * gets {@link #getToolTimeout()}. The policy is computed once, when the registry is built.
+     *
+     * @param tool the tool
+     * @return the policy
+     */
+    protected ToolPolicy resolveToolPolicy(final McpTool tool) {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        final String prefix = "mcp.tool." + tool.getName() + ".";
+        ToolPolicy policy = tool.getPolicy() != null ? tool.getPolicy() : ToolPolicy.DEFAULT;
+        policy = policy.withMaxConcurrency(fessConfig.getSystemPropertyAsInt(prefix + "max.concurrency", policy.getMaxConcurrency()));
+        policy = policy.withTimeoutMillis(fessConfig.getSystemPropertyAsInt(prefix + "timeout", (int) policy.getTimeoutMillis()));
+        final String execution = fessConfig.getSystemProperty(prefix + "executor", policy.getExecution().name());
+        try {
+            policy = policy.withExecution(ToolPolicy.Execution.valueOf(execution.trim().toUpperCase(Locale.ROOT)));
+        } catch (final IllegalArgumentException e) {
+            logger.warn("[MCP] Invalid executor of tool {}: {}", tool.getName(), execution);
+        }
+        if (policy.isAsync() && policy.getTimeoutMillis() <= 0L) {
+            policy = policy.withTimeoutMillis(getToolTimeout());
+        }
+        return policy;
+    }
+
+    /**
+     * Creates the JSON Schema of tool arguments given as an object.
+     *
+     * @param properties the argument schemas by name
+     * @param required   the names of the required arguments
+     * @return the schema
+     */
+    protected static Map<String, Object> createInputSchema(final Map<String, Object> properties, final String... required) {
+        final Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", properties);
+        if (required.length > 0) {
+            schema.put("required", List.of(required));
+        }
+        return schema;
+    }
+
+    /**
+     * Creates the annotations of a tool that only reads the index.
+     *
+     * @param title the human-readable title
+     * @return the annotations
+     */
+    protected static Map<String, Object> createReadOnlyAnnotations(final String title) {
+        final Map<String, Object> annotations = new LinkedHashMap<>();
+        annotations.put("title", title);
+        annotations.put("readOnlyHint", true);
+        annotations.put("destructiveHint", false);
+        annotations.put("openWorldHint", false);
+        return annotations;
+    }
+
+    /**
+     * Creates the search tool.
+     *
+     * @return the tool
+     */
+    protected McpTool createSearchTool() {
+        final Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("q", Map.of("type", "string", "description", "query string"));
+        properties.put("start", Map.of("type", "integer", "description", "start position"));
+        properties.put("offset", Map.of("type", "integer", "description", "offset (alias of start)"));
+        properties.put("num", Map.of("type", "integer", "description", "number of results", "default", 3));
+        properties.put("sort", Map.of("type", "string", "description", "sort order"));
+        properties.put("fields.label", Map.of("type", "array", "description", "labels to return"));
+        properties.put("lang", Map.of("type", "string", "description", "language"));
+        properties.put("preference",
+                Map.of("type", "string", "description", "shard preference, e.g. a session id to keep searches on the same shard copies"));
+        properties.put("facet.field", Map.of("type", "array", "items", Map.of("type", "string"), "description",
+                "fields to aggregate (e.g., label, site); value counts are returned in a facets block alongside the hits"));
+        properties.put("facet.query", Map.of("type", "array", "items", Map.of("type", "string"), "description",
+                "queries to count (e.g., \"timestamp:[now-7d TO *]\")"));
+        properties.put("facet.size", Map.of("type", "integer", "description", "maximum number of values per facet field"));
+        properties.put("collapse", Map.of("type", "string", "description",
+                "field to collapse on, keeping only the best hit per value (e.g., content_minhash_bits for near-duplicate content, host)"));
+        properties.put("cursor", Map.of("type", "string",
+                "description", "pagination cursor; pass \"*\" to start and then the returned _meta.nextCursor (start is ignored)"));
+        properties.put("max_tokens",
+                Map.of("type", "integer", "description", "approximate token budget for the returned content; snippets are shortened "
+                        + "before results are dropped"));
+        properties.put("max_chars", Map.of("type", "integer", "description", "character budget (takes precedence over max_tokens)"));
+        final String description = "Search documents via Fess. Query syntax is similar to Lucene: "
+                + "multiple terms are combined with AND by default, use OR explicitly for OR search (e.g., \"term1 OR term2\"), "
+                + "use quotes for phrase search, use - for exclusion.";
+        return new SimpleMcpTool("search", description, createInputSchema(properties, "q"), createReadOnlyAnnotations("Search Documents"),
+                ToolPolicy.DEFAULT, this::invokeSearch);
+    }
+
+    /**
+     * Creates the index statistics tool.
+     *
+     * @return the tool
+     */
+    protected McpTool createGetIndexStatsTool() {
+        return new SimpleMcpTool("get_index_stats", "Get index statistics and information", createInputSchema(Map.of()),
+                createReadOnlyAnnotations("Get Index Statistics"), ToolPolicy.DEFAULT, arguments -> invokeGetIndexStats());
+    }
+
+    /**
+     * Creates the suggest tool.
+     *
+     * @return the tool
+     */
+    protected McpTool createSuggestTool() {
+        final Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("q", Map.of("type", "string", "description", "query prefix for autocomplete"));
+        properties.put("num", Map.of("type", "integer", "description", "number of suggestions", "default", 10));
+        return new SimpleMcpTool("suggest", "Get autocomplete suggestions for a search query prefix", createInputSchema(properties, "q"),
+                createReadOnlyAnnotations("Suggest"), ToolPolicy.DEFAULT, this::invokeSuggest);
+    }
+
+    /**
+     * Creates the get document tool.
+     *
+     * @return the tool
+     */
+    protected McpTool createGetDocumentTool() {
+        final Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("doc_id", Map.of("type", "string", "description", "document ID to retrieve"));
+        return new SimpleMcpTool("get_document", "Retrieve a document by its document ID", createInputSchema(properties, "doc_id"),
+                createReadOnlyAnnotations("Get Document"), ToolPolicy.DEFAULT, this::invokeGetDocument);
+    }
+
+    /**
+     * Creates the count tool.
+     *
+     * @return the tool
+     */
+    protected McpTool createCountTool() {
+        final Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("q", Map.of("type", "string", "description", "query string"));
+        properties.put("as", Map.of("type", "object", "description", "additional search conditions, as in the search tool"));
+        properties.put("ex_q", Map.of("type", "array", "items", Map.of("type", "string"), "description", "extra queries"));
+        final String description = "Count the documents matching a query without retrieving them. "
+                + "Much cheaper than search; use it to decide whether a query needs refining. "
+                + "Very large counts may be reported as a lower bound (\"At least N\").";
+        return new SimpleMcpTool("count", description, createInputSchema(properties, "q"), createReadOnlyAnnotations("Count Documents"),
+                ToolPolicy.DEFAULT, this::invokeCount);
+    }
+
+    /**
+     * Creates the multi-search tool.
+     *
+     * @return the tool
+     */
+    protected McpTool createMultiSearchTool() {
+        final Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("queries", Map.of("type", "array", "items", Map.of("type", "string"), "description",
+                "reformulations of the same information need, searched together"));
+        properties.put("num", Map.of("type", "integer", "description", "number of fused results", "default", 3));
+        properties.put("lang", Map.of("type", "string", "description", "language"));
+        properties.put("fields.label", Map.of("type", "array", "description", "labels to return"));
+        final String description = "Run several queries at once and return one ranked list merged with reciprocal rank fusion, "
+                + "without duplicates. Use it instead of repeated search calls when trying query reformulations.";
+        return new SimpleMcpTool("multi_search", description, createInputSchema(properties, "queries"),
+                createReadOnlyAnnotations("Multi Search"), ToolPolicy.DEFAULT, this::invokeMultiSearch);
     }
 
     /**
@@ -626,403 +1689,2231 @@ public class McpApiManager extends BaseApiManager {
             logger.debug("[MCP] Invoking tool: name={}, arguments={}", tool, toolParams);
         }
 
+        final long startTime = System.nanoTime();
+        final McpToolEvent event = new McpToolEvent();
+        event.begin();
+        final long slowThreshold = isWarmupCall() ? -1L : getSlowThreshold(tool);
+        if (slowThreshold >= 0) {
+            searchSource.set(NO_SEARCH_SOURCE);
+        }
+        String outcome = McpMetrics.OUTCOME_IS_ERROR;
+        int hitCount = -1;
+        Map<String, Object> toolResult = null;
         try {
-            return switch (tool) {
-            case "search" -> invokeSearch(toolParams);
-            case "get_index_stats" -> invokeGetIndexStats();
-            case "suggest" -> invokeSuggest(toolParams);
-            case "get_document" -> invokeGetDocument(toolParams);
-            // TODO Add more administrative tools here...
-            default -> {
+            final McpToolRegistry.Registration registration = getToolRegistry().get(tool);
+            if (registration == null) {
                 if (logger.isDebugEnabled()) {
                     logger.debug("[MCP] Unknown tool requested: {}", tool);
                 }
                 throw new McpApiException(ErrorCode.InvalidParams, "Unknown tool: " + tool);
             }
-            };
+            final Map<String, Object> result = invokeTool(registration, toolParams);
+            outcome = resolveOutcome(result);
+            hitCount = getHitCount(result);
+            toolResult = result;
+            return result;
         } catch (final McpApiException e) {
+            outcome = e.getCode().name();
             throw e;
         } catch (final Exception e) {
             logger.warn("[MCP] Tool '{}' execution failed: {}", tool, e.getMessage(), e);
-            final String errorMessage = e.getMessage() != null ? e.getMessage() : "Unknown error";
-            final Map<String, Object> result = new LinkedHashMap<>();
-            result.put("content", List.of(Map.of("type", "text", "text", "Error: " + errorMessage)));
-            result.put("isError", true);
+            final Map<String, Object> result = createToolErrorResult(e.getMessage() != null ? e.getMessage() : "Unknown error");
+            toolResult = result;
             return result;
+        } finally {
+            final long elapsed = System.nanoTime() - startTime;
+            recordToolMetrics(tool, outcome, elapsed);
+            event.end();
+            if (event.shouldCommit()) {
+                event.setTool(tool);
+                event.setOutcome(outcome);
+                event.setHitCount(hitCount);
+                event.commit();
+            }
+            if (slowThreshold >= 0) {
+                if (elapsed >= TimeUnit.MILLISECONDS.toNanos(slowThreshold)) {
+                    captureSlowCall(tool, toolParams, outcome, toolResult, elapsed);
+                }
+                searchSource.remove();
+            }
         }
     }
 
     /**
-     * Invokes the search tool with the specified parameters.
+     * Runs a tool call under the policy of the tool. The arguments are first checked against the compiled input schema
+     * of the tool, so that invalid calls fail before any search engine request. A call beyond the concurrency limit
+     * of the tool fails at once.
+     * An asynchronous call runs on the tool executor, apart from the executor of asynchronous requests that may be
+     * running the caller, and is waited for until its timeout (or {@link #getToolTimeout()} without one). When the caller
+     * stops waiting, the call is cancelled: a call that has not started never runs, and a running call is interrupted,
+     * so that it stops waiting for the search engine and unbinds the request context as it unwinds. Its concurrency
+     * permit is returned at once. A call made from a tool executor thread runs inline, so that nested calls cannot wait
+     * for threads of their own pool.
      *
-     * @param params the search parameters including query string (q), pagination (start, num), and other options
-     * @return a map containing the search results in MCP-compliant format
+     * @param registration the registered tool
+     * @param rawArguments the tool arguments as received
+     * @return the tool result, or an error result if the call was rejected or timed out
+     * @throws McpApiException if the arguments do not match the input schema
      */
-    @SuppressWarnings("unchecked")
-    protected Map<String, Object> invokeSearch(final Map<String, Object> params) {
-        // Create and populate SearchRequestParams
-        final FessConfig fessConfig = ComponentUtil.getFessConfig();
-        final SearchRequestParams reqParams = new SearchRequestParams() {
-            private final Map<String, Object> paramMap = params;
-
-            @Override
-            public String getQuery() {
-                return (String) paramMap.get("q");
+    protected Map<String, Object> invokeTool(final McpToolRegistry.Registration registration, final Map<String, Object> rawArguments) {
+        final String tool = registration.getName();
+        final ToolPolicy policy = registration.getPolicy();
+        final Map<String, Object> arguments = registration.getValidator().validate(rawArguments);
+        if (!registration.tryAcquire()) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("[MCP] Tool call rejected: tool={}, maxConcurrency={}", tool, policy.getMaxConcurrency());
             }
-
-            @Override
-            public Map<String, String[]> getFields() {
-                final Map<String, Object> fields = (Map<String, Object>) paramMap.get("fields");
-                if (fields != null) {
-                    return fields.entrySet()
-                            .stream()
-                            .collect(Collectors.toMap(Map.Entry::getKey, e -> ((List<String>) e.getValue()).toArray(n -> new String[n])));
-                }
-                return Collections.emptyMap();
+            return createToolErrorResult("Too many concurrent calls of " + tool + ", retry later");
+        }
+        if (!policy.isAsync() || Boolean.TRUE.equals(toolWorker.get())) {
+            try {
+                return registration.getTool().invoke(arguments);
+            } finally {
+                registration.release();
             }
+        }
 
-            @Override
-            public Map<String, String[]> getConditions() {
-                final Map<String, Object> conditions = (Map<String, Object>) paramMap.get("as");
-                if (conditions != null) {
-                    return conditions.entrySet()
-                            .stream()
-                            .collect(Collectors.toMap(Map.Entry::getKey,
-                                    e -> ((List<?>) e.getValue()).stream().map(Object::toString).toArray(n -> new String[n])));
-                }
-                return Collections.emptyMap();
+        // The slow call capture of this thread picks up the search engine request sent on the worker thread
+        final boolean sourceCaptured = searchSource.get() != null;
+        final AtomicReference<Supplier<String>> workerSource = new AtomicReference<>();
+        // The permit is returned by the call or, if it times out, by the caller, whichever comes first
+        final AtomicBoolean released = new AtomicBoolean();
+        final Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                registration.release();
             }
-
-            @Override
-            public String[] getLanguages() {
-                final Object lang = paramMap.get("lang");
-                if (lang instanceof final String[] languages) {
-                    return languages;
-                }
-                if (lang != null) {
-                    return new String[] { lang.toString() };
+        };
+        final Supplier<Map<String, Object>> task = withRequestContext(() -> {
+            toolWorker.set(Boolean.TRUE);
+            if (sourceCaptured) {
+                searchSource.set(NO_SEARCH_SOURCE);
+            }
+            try {
+                return registration.getTool().invoke(arguments);
+            } finally {
+                if (sourceCaptured) {
+                    workerSource.set(searchSource.get());
+                    searchSource.remove();
                 }
-
-                return new String[0];
+                toolWorker.remove();
+                release.run();
             }
-
-            @Override
-            public GeoInfo getGeoInfo() {
-                return null; // Not implemented
+        });
+        final Future<Map<String, Object>> future;
+        try {
+            future = getToolExecutor().submit(task::get);
+        } catch (final RejectedExecutionException e) {
+            release.run();
+            logger.warn("[MCP] Too many asynchronous tool calls, rejecting: tool={}", tool);
+            return createToolErrorResult("Too many concurrent tool calls, retry later");
+        }
+        final long timeout = policy.getTimeoutMillis() > 0L ? policy.getTimeoutMillis() : getToolTimeout();
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            future.cancel(true);
+            release.run();
+            if (logger.isDebugEnabled()) {
+                logger.debug("[MCP] Tool call timed out: tool={}, timeout={}ms", tool, timeout);
             }
-
-            @Override
-            public FacetInfo getFacetInfo() {
-                return null; // Not implemented
+            return createToolErrorResult(tool + " timed out after " + timeout + "ms");
+        } catch (final InterruptedException e) {
+            future.cancel(true);
+            release.run();
+            Thread.currentThread().interrupt();
+            throw new McpApiException(ErrorCode.InternalError, "Interrupted while waiting for " + tool);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof final RuntimeException cause) {
+                throw cause;
             }
-
-            @Override
-            public HighlightInfo getHighlightInfo() {
-                final int fragmentSize = fessConfig.getSystemPropertyAsInt("mcp.highlight.fragment.size", 500);
-                final int numOfFragments = fessConfig.getSystemPropertyAsInt("mcp.highlight.num.of.fragments", 3);
-                return new HighlightInfo().fragmentSize(fragmentSize).numOfFragments(numOfFragments);
+            if (e.getCause() instanceof final Error cause) {
+                throw cause;
             }
-
-            @Override
-            public String getSort() {
-                return (String) paramMap.get("sort");
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            if (sourceCaptured && workerSource.get() != null) {
+                searchSource.set(workerSource.get());
             }
+        }
+    }
 
-            @Override
-            public int getStartPosition() {
-                final Object value = paramMap.get("start");
-                try {
-                    if (value != null) {
-                        final int start = value instanceof final Number n ? n.intValue() : Integer.parseInt(value.toString());
-                        if (start > -1) {
-                            return start;
-                        }
-                    }
-                } catch (final NumberFormatException e) {
-                    logger.debug("Failed to parse {}", value, e);
+    /**
+     * Gets the executor of tool calls with an asynchronous policy, creating it on first use.
+     *
+     * @return the executor
+     */
+    protected ExecutorService getToolExecutor() {
+        ExecutorService executor = toolExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = toolExecutor;
+                if (executor == null) {
+                    executor = createToolExecutor();
+                    toolExecutor = executor;
                 }
-                return ComponentUtil.getFessConfig().getPagingSearchPageStartAsInteger();
             }
+        }
+        return executor;
+    }
 
-            @Override
-            public int getPageSize() {
-                final Object value = paramMap.get("num");
-                try {
-                    if (value != null) {
-                        final int num = value instanceof final Number n ? n.intValue() : Integer.parseInt(value.toString());
-                        if (num > fessConfig.getPagingSearchPageMaxSizeAsInteger().intValue() || num <= 0) {
-                            return fessConfig.getPagingSearchPageMaxSizeAsInteger();
-                        }
-                        return num;
-                    }
-                } catch (final NumberFormatException e) {
-                    logger.debug("Failed to parse {}", value, e);
-                }
-                return fessConfig.getSystemPropertyAsInt("mcp.default.page.size", 3);
-            }
+    /**
+     * Creates the executor of tool calls with an asynchronous policy, with {@code mcp.tool.threads} threads (default 16)
+     * and a queue of {@code mcp.tool.queue.size} calls (default 100). Calls beyond these limits fail with an error result.
+     *
+     * @return the executor
+     */
+    protected ExecutorService createToolExecutor() {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        final int threads = Math.max(1, fessConfig.getSystemPropertyAsInt("mcp.tool.threads", 16));
+        final int queueSize = Math.max(1, fessConfig.getSystemPropertyAsInt("mcp.tool.queue.size", 100));
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+                    final Thread thread = new Thread(r, "mcp-tool-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 
-            @Override
-            public int getOffset() {
-                final Object value = paramMap.get("offset");
-                try {
-                    if (value != null) {
-                        return value instanceof final Number n ? n.intValue() : Integer.parseInt(value.toString());
+    /**
+     * Gets the time a caller waits for an asynchronous tool call whose policy has no timeout.
+     *
+     * @return the value of {@code mcp.tool.timeout} in milliseconds (default 60000), at least 1
+     */
+    protected long getToolTimeout() {
+        return Math.max(1, ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.tool.timeout", 60000));
+    }
 
-                    }
-                } catch (final NumberFormatException e) {
-                    logger.debug("Failed to parse {}", value, e);
-                }
-                return 0;
-            }
+    /**
+     * Creates a tool result reporting an error to the client.
+     *
+     * @param message the error message
+     * @return the result with an "Error: " text content and {@code isError} set
+     */
+    protected Map<String, Object> createToolErrorResult(final String message) {
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("content", List.of(Map.of("type", "text", "text", "Error: " + message)));
+        result.put("isError", true);
+        return result;
+    }
 
-            @Override
-            public String[] getExtraQueries() {
-                final List<String> exQs = (List<String>) paramMap.get("ex_q");
-                return exQs != null ? exQs.toArray(new String[0]) : null;
-            }
+    /**
+     * Gets the latency above which calls of a tool are captured in the slow call log.
+     *
+     * @param tool the tool name
+     * @return the value of {@code mcp.slow.threshold.<tool>}, or else {@code mcp.slow.threshold} (default 1000),
+     *         in milliseconds; negative if slow calls of the tool are not captured
+     */
+    protected long getSlowThreshold(final String tool) {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        final int defaultThreshold = fessConfig.getSystemPropertyAsInt("mcp.slow.threshold", 1000);
+        return fessConfig.getSystemPropertyAsInt("mcp.slow.threshold." + tool, defaultThreshold);
+    }
 
-            @Override
-            public Object getAttribute(final String name) {
-                return null; // Not implemented
+    /**
+     * Captures a slow tool call with its arguments, phase timings, last search engine query, and response size.
+     * The query and the response size are only computed here, for the calls that are captured.
+     * Failures are logged and do not affect the call.
+     *
+     * @param tool         the tool name
+     * @param arguments    the tool arguments
+     * @param outcome      the outcome of the call
+     * @param result       the tool result, or null if the call failed
+     * @param latencyNanos the time spent on the call in nanoseconds
+     */
+    protected void captureSlowCall(final String tool, final Map<String, Object> arguments, final String outcome,
+            final Map<String, Object> result, final long latencyNanos) {
+        try {
+            final Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("time", Instant.now().toString());
+            entry.put("tool", tool);
+            entry.put("arguments", arguments);
+            entry.put("latencyMillis", Math.round(latencyNanos / 1_000.0d) / 1_000.0d);
+            entry.put("outcome", outcome);
+            entry.put("traceId", getOpaqueId());
+            final PhaseTimings timings = getPhaseTimings();
+            if (timings != null) {
+                entry.put("timings", timings.toMap());
             }
-
-            @Override
-            public Locale getLocale() {
-                return Locale.ROOT;
+            final Supplier<String> source = searchSource.get();
+            entry.put("query", source != null ? source.get() : null);
+            entry.put("hits", getHitCount(result));
+            entry.put("tookMillis", getTookMillis(result));
+            entry.put("responseBytes",
+                    result != null ? JsonXContent.contentBuilder().map(result).toString().getBytes(StandardCharsets.UTF_8).length : -1);
+            getSlowCallLog().add(entry);
+            if (logger.isDebugEnabled()) {
+                logger.debug("[MCP] Captured slow tool call: tool={}, latencyMillis={}", tool, entry.get("latencyMillis"));
             }
+        } catch (final Exception e) {
+            logger.warn("[MCP] Failed to capture slow tool call: tool={}, error={}", tool, e.getMessage(), e);
+        }
+    }
 
-            @Override
-            public SearchRequestType getType() {
-                return SearchRequestType.JSON;
+    /**
+     * Gets the slow call log, creating it on first use.
+     *
+     * @return the slow call log
+     */
+    protected SlowCallLog getSlowCallLog() {
+        SlowCallLog log = slowCallLog;
+        if (log == null) {
+            synchronized (this) {
+                log = slowCallLog;
+                if (log == null) {
+                    log = new SlowCallLog(getSlowLogSize());
+                    slowCallLog = log;
+                }
             }
+        }
+        return log;
+    }
 
-            @Override
-            public String getSimilarDocHash() {
-                return (String) paramMap.get("sdh");
-            }
+    /**
+     * Gets the number of slow calls kept.
+     *
+     * @return the value of {@code mcp.slow.log.size} (default 100)
+     */
+    protected int getSlowLogSize() {
+        return ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.slow.log.size", 100);
+    }
 
-            @Override
-            public String[] getResponseFields() {
-                return new String[] { fessConfig.getIndexFieldTitle(), fessConfig.getIndexFieldContent(), fessConfig.getIndexFieldUrl(),
-                        fessConfig.getResponseFieldContentDescription() };
-            }
-        };
+    /**
+     * Records the source of a search engine request about to be sent, if a slow call capture is active on this thread.
+     * Only a reference is kept; the source is rendered if the call turns out to be slow.
+     *
+     * @param builder the request builder
+     */
+    protected void captureSearchSource(final ActionRequestBuilder<?, ?> builder) {
+        if (searchSource.get() == null) {
+            return;
+        }
+        if (builder instanceof final SearchRequestBuilder searchBuilder) {
+            searchSource.set(() -> String.valueOf(searchBuilder.request().source()));
+        } else if (builder instanceof final MultiSearchRequestBuilder multiBuilder) {
+            searchSource.set(() -> multiBuilder.request()
+                    .requests()
+                    .stream()
+                    .map(request -> String.valueOf(request.source()))
+                    .collect(Collectors.joining("\n")));
+        }
+    }
+
+    /**
+     * Invokes the search tool with the specified parameters.
+     *
+     * @param params the search parameters including query string (q), pagination (start, num), and other options
+     * @return a map containing the search results in MCP-compliant format
+     */
+    protected Map<String, Object> invokeSearch(final Map<String, Object> params) {
+        final int charBudget = resolveCharBudget(params);
+        final Map<String, Object> searchArgs;
+        if (charBudget > 0 && params.get("num") == null) {
+            // Fetch a larger candidate set once and let the packer decide how many fit
+            searchArgs = new HashMap<>(params);
+            searchArgs.put("num", getBudgetCandidateSize());
+        } else {
+            searchArgs = params;
+        }
+        final String cursorValue = params.get("cursor") instanceof final String s && !s.isEmpty() ? s : null;
+        final String collapseField = resolveCollapseField(params.get("collapse"));
+        if (collapseField != null && cursorValue != null) {
+            throw new McpApiException(ErrorCode.InvalidParams, "collapse cannot be combined with cursor");
+        }
+        final SearchRequestParams reqParams = createSearchRequestParams(searchArgs);
 
         // Execute search
         if (logger.isDebugEnabled()) {
-            logger.debug("[MCP] Executing search: query='{}', start={}, num={}, sort={}", reqParams.getQuery(),
-                    reqParams.getStartPosition(), reqParams.getPageSize(), reqParams.getSort());
+            logger.debug("[MCP] Executing search: query='{}', start={}, num={}, sort={}, charBudget={}, cursor={}, collapse={}",
+                    reqParams.getQuery(), reqParams.getStartPosition(), reqParams.getPageSize(), reqParams.getSort(), charBudget,
+                    cursorValue, collapseField);
+        }
+        final McpSearchResult searchResult;
+        final String fingerprint;
+        if (cursorValue != null) {
+            fingerprint = createQueryFingerprint(params);
+            searchResult = executeCursorSearch(reqParams, cursorValue, fingerprint);
+        } else if (collapseField != null) {
+            fingerprint = null;
+            searchResult = executeCollapsedSearch(reqParams, collapseField);
+        } else if (isHedgingEnabled() || hasPreferenceArgument(reqParams)) {
+            // Hedging and an explicit shard preference need control over the search engine request, which SearchHelper does not give
+            fingerprint = null;
+            searchResult = executeDirectSearch(reqParams, reqParams.getStartPosition(), builder -> {});
+        } else {
+            fingerprint = null;
+            searchResult = executeSearch(reqParams);
         }
-        final SearchRenderData data = new SearchRenderData();
-        ComponentUtil.getSearchHelper().search(reqParams, data, OptionalThing.empty());
         if (logger.isDebugEnabled()) {
-            logger.debug("[MCP] Search completed: resultCount={}", data.getDocumentItems() != null ? data.getDocumentItems().size() : 0);
+            logger.debug("[MCP] Search completed: resultCount={}", searchResult.getDocumentItems().size());
         }
 
         // Build MCP-compliant response with multiple content entries
-        final List<Map<String, Object>> contents = new java.util.ArrayList<>();
-        final List<Map<String, Object>> documentItems = processDocumentItems(data.getDocumentItems());
+        final long renderStart = System.nanoTime();
+        final List<Map<String, Object>> documentItems = processDocumentItems(searchResult.getDocumentItems());
+        final List<Map<String, Object>> contents;
+        if (charBudget > 0) {
+            contents = packDocumentContents(documentItems, charBudget, getBudgetMinSnippetLength());
+        } else {
+            contents = new ArrayList<>();
+            int index = 1;
+            for (final Map<String, Object> doc : documentItems) {
+                contents.add(createDocumentContent(doc, index++));
+            }
+        }
 
-        int index = 1;
-        for (final Map<String, Object> doc : documentItems) {
-            contents.add(createDocumentContent(doc, index++));
+        final Map<String, Object> facetBlock = createFacetBlock(searchResult.getFacetResponse());
+        if (facetBlock != null) {
+            try {
+                contents.add(Map.of("type", "text", "text", JsonXContent.contentBuilder().map(Map.of("facets", facetBlock)).toString()));
+            } catch (final IOException e) {
+                throw new McpApiException(ErrorCode.InternalError, "Failed to serialize facets: " + e.getMessage(), e);
+            }
         }
+        recordPhase(getPhaseTimings(), Phase.RENDER, renderStart);
 
-        return Map.of("content", contents);
+        final Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("estimatedTokens", estimateTokens(contents));
+        if (charBudget > 0) {
+            meta.put("maxChars", charBudget);
+            meta.put("candidateCount", documentItems.size());
+        }
+        final int resultCount = facetBlock != null ? contents.size() - 1 : contents.size();
+        meta.put("resultCount", resultCount);
+        meta.put("tookMillis", searchResult.getTookMillis());
+        if (collapseField != null) {
+            meta.put("collapsedOn", collapseField);
+        }
+        if (fingerprint != null) {
+            final String nextCursor = createNextCursor(searchResult, resultCount, reqParams.getPageSize(), fingerprint);
+            if (nextCursor != null) {
+                meta.put("nextCursor", nextCursor);
+            } else if (searchResult.getPointInTimeId() != null) {
+                // the scan is over; nobody continues on this point-in-time
+                closePointInTime(searchResult.getPointInTimeId());
+            }
+        }
+
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("content", contents);
+        result.put("_meta", meta);
+        return result;
     }
 
     /**
-     * Retrieves index statistics and system information.
+     * Executes a search through Fess {@code SearchHelper} with from/size paging.
      *
-     * @return A map containing index statistics in MCP-compliant format with "content" array.
+     * @param reqParams the search request parameters
+     * @return the search result
      */
-    protected Map<String, Object> invokeGetIndexStats() {
-        if (logger.isDebugEnabled()) {
-            logger.debug("[MCP] Retrieving index statistics");
+    protected McpSearchResult executeSearch(final SearchRequestParams reqParams) {
+        final SearchRenderData data = new SearchRenderData();
+        if (searchSource.get() != null) {
+            // SearchHelper builds its request internally; a slow call capture rebuilds it the same way
+            searchSource.set(() -> {
+                final SearchRequestBuilder builder = prepareDirectSearch(reqParams, reqParams.getStartPosition());
+                return builder != null ? String.valueOf(builder.request().source()) : null;
+            });
+        }
+        final long searchStart = System.nanoTime();
+        ComponentUtil.getSearchHelper().search(reqParams, data, OptionalThing.empty());
+        recordPhase(getPhaseTimings(), Phase.SEARCH, searchStart);
+        final McpSearchResult result = new McpSearchResult();
+        result.setDocumentItems(data.getDocumentItems());
+        result.setTotalHits(data.getAllRecordCount());
+        result.setTotalHitsRelation(data.getAllRecordCountRelation());
+        result.setTookMillis(data.getQueryTime());
+        result.setFacetResponse(data.getFacetResponse());
+        return result;
+    }
+
+    /**
+     * Executes a search that keeps only the top hit per value of the given field. Collapsing runs in the
+     * search engine, so duplicates are removed before documents are fetched, highlighted, and rendered.
+     *
+     * @param reqParams     the search request parameters
+     * @param collapseField the field to collapse on
+     * @return the search result
+     */
+    protected McpSearchResult executeCollapsedSearch(final SearchRequestParams reqParams, final String collapseField) {
+        return executeDirectSearch(reqParams, reqParams.getStartPosition(),
+                builder -> builder.setCollapse(new CollapseBuilder(collapseField)));
+    }
+
+    /**
+     * Resolves the {@code collapse} argument of the search tool against {@link #getCollapseAllowedFields()}.
+     *
+     * @param collapse the raw argument value
+     * @return the field to collapse on, or null if no collapsing was requested
+     * @throws McpApiException if the field is not allowed
+     */
+    protected String resolveCollapseField(final Object collapse) {
+        if (collapse == null || StringUtil.isBlank(collapse.toString())) {
+            return null;
+        }
+        final String field = collapse.toString().trim();
+        for (final String allowed : getCollapseAllowedFields()) {
+            if (allowed.equals(field)) {
+                return field;
+            }
+        }
+        throw new McpApiException(ErrorCode.InvalidParams,
+                "Cannot collapse on: " + field + " (allowed: " + String.join(", ", getCollapseAllowedFields()) + ")");
+    }
+
+    /**
+     * Gets the fields that search results may be collapsed on. They must be keyword or numeric fields with doc values.
+     *
+     * @return the fields from {@code mcp.collapse.fields}
+     */
+    protected String[] getCollapseAllowedFields() {
+        return StreamUtil
+                .split(ComponentUtil.getFessConfig().getSystemProperty("mcp.collapse.fields", "content_minhash_bits,host,site"), ",")
+                .get(stream -> stream.map(String::trim).filter(StringUtil::isNotBlank).toArray(String[]::new));
+    }
+
+    /**
+     * Executes one page of a cursor-based search using {@code search_after} on a point-in-time.
+     * The first page (cursor {@value SearchCursor#START}) opens the point-in-time; following pages
+     * continue from the sort values stored in the cursor, so each page costs the same regardless of depth.
+     * The caller closes the point-in-time after the last page; if the first page fails, it is closed here.
+     *
+     * @param reqParams   the search request parameters
+     * @param cursorValue the cursor passed by the client
+     * @param fingerprint the fingerprint of the current query
+     * @return the search result with sort values for each document
+     * @throws McpApiException if the cursor is invalid or belongs to a different query
+     */
+    protected McpSearchResult executeCursorSearch(final SearchRequestParams reqParams, final String cursorValue, final String fingerprint) {
+        final String pitId;
+        final Object[] searchAfter;
+        final boolean opened = SearchCursor.START.equals(cursorValue);
+        if (opened) {
+            pitId = openPointInTime();
+            searchAfter = null;
+        } else {
+            final SearchCursor cursor = SearchCursor.decode(cursorValue);
+            if (!fingerprint.equals(cursor.getFingerprint())) {
+                throw new McpApiException(ErrorCode.InvalidParams, "Cursor does not belong to this query");
+            }
+            pitId = cursor.getPointInTimeId();
+            searchAfter = cursor.getSearchAfter();
+            if (pitId != null) {
+                pointInTimes.touch(pitId, getCursorKeepAlive().millis());
+            }
         }
+
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        final McpSearchResult result;
         try {
-            final Map<String, Object> stats = collectIndexStats();
-            if (logger.isDebugEnabled()) {
-                logger.debug("[MCP] Index statistics collected: {}", stats);
+            result = executeDirectSearch(reqParams, 0, builder -> {
+                if (StringUtil.isBlank(reqParams.getSort())) {
+                    builder.addSort("_score", SortOrder.DESC);
+                }
+                // doc_id is unique, which makes the sort order total as search_after requires
+                builder.addSort(fessConfig.getIndexFieldDocId(), SortOrder.ASC);
+                if (pitId != null) {
+                    builder.setIndices();
+                    builder.setPointInTime(new PointInTimeBuilder(pitId).setKeepAlive(getCursorKeepAlive()));
+                }
+                if (searchAfter != null) {
+                    builder.searchAfter(searchAfter);
+                }
+            });
+        } catch (final RuntimeException e) {
+            if (opened && pitId != null) {
+                closePointInTime(pitId);
             }
+            throw e;
+        }
+        if (result.getPointInTimeId() == null) {
+            result.setPointInTimeId(pitId);
+        }
+        return result;
+    }
 
-            // Return MCP-compliant response with content array
-            final String jsonResult = JsonXContent.contentBuilder().map(stats).toString();
-            final Map<String, Object> content = new HashMap<>();
-            content.put("type", "text");
-            content.put("text", jsonResult);
-            return Map.of("content", List.of(content));
-        } catch (final IOException e) {
-            throw new McpApiException(ErrorCode.InternalError, "Failed to serialize index stats: " + e.getMessage());
+    /**
+     * Opens a point-in-time on the document index for cursor-based searches.
+     * If point-in-time is disabled or not supported by the search engine client, or if
+     * {@code mcp.cursor.max.open.pit} point-in-times (default 100) are already open,
+     * cursor-based searches run against the live index instead.
+     *
+     * @return the point-in-time id, or null if none could be opened
+     */
+    protected String openPointInTime() {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        if (!Constants.TRUE.equalsIgnoreCase(fessConfig.getSystemProperty("mcp.cursor.pit.enabled", Constants.TRUE))) {
+            return null;
+        }
+        final int maxOpen = fessConfig.getSystemPropertyAsInt("mcp.cursor.max.open.pit", 100);
+        if (!pointInTimes.reserve(maxOpen)) {
+            logger.debug("[MCP] {} point-in-times are open, continuing without one", maxOpen);
+            return null;
+        }
+        final TimeValue keepAlive = getCursorKeepAlive();
+        String pitId = null;
+        try {
+            final CompletableFuture<CreatePitResponse> future = new CompletableFuture<>();
+            ComponentUtil.getSearchEngineClient()
+                    .createPit(new CreatePitRequest(keepAlive, false, fessConfig.getIndexDocumentSearchIndex()), toActionListener(future));
+            pitId = await(future).getId();
+            return pitId;
+        } catch (final Exception e) {
+            logger.debug("[MCP] Failed to open point-in-time, continuing without it: {}", e.getMessage(), e);
+            return null;
+        } finally {
+            pointInTimes.register(pitId, keepAlive.millis());
         }
     }
 
     /**
-     * Invokes the suggest tool to provide query autocomplete suggestions.
+     * Closes a point-in-time whose scan is over, without waiting for the search engine.
+     * A failure is only logged, since the point-in-time expires after its keep-alive anyway.
      *
-     * @param params the parameters including query prefix (q) and number of suggestions (num)
-     * @return a map containing the suggestions in MCP-compliant format
+     * @param pitId the point-in-time id
      */
-    protected Map<String, Object> invokeSuggest(final Map<String, Object> params) {
-        final String query = (String) params.get("q");
-        if (query == null || query.isEmpty()) {
-            throw new McpApiException(ErrorCode.InvalidParams, "Missing required parameter: q");
+    protected void closePointInTime(final String pitId) {
+        pointInTimes.remove(pitId);
+        try {
+            ComponentUtil.getSearchEngineClient().deletePits(new DeletePitRequest(pitId), ActionListener.wrap(response -> {},
+                    e -> logger.debug("[MCP] Failed to close point-in-time: {}", e.getMessage(), e)));
+        } catch (final Exception e) {
+            logger.debug("[MCP] Failed to close point-in-time: {}", e.getMessage(), e);
         }
+    }
 
-        final FessConfig fessConfig = ComponentUtil.getFessConfig();
-        final int maxPageSize = fessConfig.getPagingSearchPageMaxSizeAsInteger().intValue();
-        final int num = resolveSuggestSize(params.get("num"), maxPageSize);
+    /**
+     * Executes a search directly on the search engine client, building the request the same way
+     * as Fess {@code SearchHelper} does, so that callers can customize the request before it is sent.
+     *
+     * @param reqParams  the search request parameters
+     * @param offset     the offset of the first hit
+     * @param customizer the customizer applied to the request after Fess has built it
+     * @return the search result with sort values for each document
+     */
+    protected McpSearchResult executeDirectSearch(final SearchRequestParams reqParams, final int offset,
+            final Consumer<SearchRequestBuilder> customizer) {
+        final SearchRequestBuilder builder = prepareDirectSearch(reqParams, offset);
+        if (builder == null) {
+            return new McpSearchResult();
+        }
+        customizer.accept(builder);
+        final SearchResponse response;
+        if (isHedgingEnabled()) {
+            final long delay = searchHedger.getHedgeDelayMillis(getHedgePercentile(), getHedgeMinDelay(), getHedgeMinSamples());
+            // The hedge is built here, where the caller's request is bound, since the role filters and the preference
+            // come from it; it is sent from a timer thread, so the opaque id is carried over explicitly
+            final SearchRequestBuilder hedgeBuilder = delay >= 0 ? prepareDirectSearch(reqParams, offset) : null;
+            if (hedgeBuilder != null) {
+                customizer.accept(hedgeBuilder);
+                hedgeBuilder.setPreference(createHedgePreference(reqParams));
+            }
+            final String opaqueId = getOpaqueId();
+            response = await(searchHedger.execute(() -> executeAsync(() -> builder), () -> {
+                try (StoredContext ignored = applyOpaqueId(opaqueId)) {
+                    return executeAsync(() -> hedgeBuilder);
+                }
+            }, hedgeBuilder != null ? delay : -1L));
+        } else {
+            response = await(executeAsync(() -> builder));
+        }
+        return createSearchResult(response, offset, reqParams.getPageSize());
+    }
 
-        if (logger.isDebugEnabled()) {
-            logger.debug("[MCP] Executing suggest: query='{}', num={}", query, num);
+    /**
+     * Creates the shard preference of a hedge attempt, which differs from the preference of the primary attempt
+     * so that the hedge is likely to be served by other shard copies.
+     *
+     * @param reqParams the search request parameters
+     * @return the preference of the hedge attempt
+     */
+    protected String createHedgePreference(final SearchRequestParams reqParams) {
+        final String preference = resolvePreference(reqParams.getAttribute(PREFERENCE_ATTRIBUTE));
+        return (preference != null ? preference : "mcp") + "_hedge";
+    }
+
+    /**
+     * Returns whether direct searches are hedged.
+     *
+     * @return the value of {@code mcp.search.hedge.enabled} (default false)
+     */
+    protected boolean isHedgingEnabled() {
+        return Constants.TRUE
+                .equalsIgnoreCase(ComponentUtil.getFessConfig().getSystemProperty("mcp.search.hedge.enabled", Constants.FALSE));
+    }
+
+    /**
+     * Gets the percentile of recent search latencies after which a hedge is sent.
+     *
+     * @return the value of {@code mcp.search.hedge.percentile} (default 95)
+     */
+    protected double getHedgePercentile() {
+        final int percentile = ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.search.hedge.percentile", 95);
+        return Math.min(100, Math.max(1, percentile));
+    }
+
+    /**
+     * Gets the minimum delay before a hedge is sent.
+     *
+     * @return the value of {@code mcp.search.hedge.min.delay} in milliseconds (default 20)
+     */
+    protected long getHedgeMinDelay() {
+        return Math.max(0, ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.search.hedge.min.delay", 20));
+    }
+
+    /**
+     * Gets the number of search latencies recorded before hedging starts.
+     *
+     * @return the value of {@code mcp.search.hedge.min.samples} (default 50)
+     */
+    protected int getHedgeMinSamples() {
+        return ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.search.hedge.min.samples", 50);
+    }
+
+    /**
+     * Builds a search request on the document index the same way as Fess {@code SearchHelper} does.
+     *
+     * @param reqParams the search request parameters
+     * @param offset    the offset of the first hit
+     * @return the request builder, or null if Fess decided not to run the query
+     */
+    protected SearchRequestBuilder prepareDirectSearch(final SearchRequestParams reqParams, final int offset) {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        final String query = buildQueryString(reqParams);
+        final SearchRequestBuilder builder = ComponentUtil.getSearchEngineClient().prepareSearch(fessConfig.getIndexDocumentSearchIndex());
+        final boolean built = SearchConditionBuilder.builder(builder)
+                .query(query)
+                .offset(offset)
+                .size(reqParams.getPageSize())
+                .facetInfo(reqParams.getFacetInfo())
+                .geoInfo(reqParams.getGeoInfo())
+                .highlightInfo(reqParams.getHighlightInfo())
+                .similarDocHash(reqParams.getSimilarDocHash())
+                .responseFields(reqParams.getResponseFields())
+                .searchRequestType(reqParams.getType())
+                .trackTotalHits(reqParams.getTrackTotalHits())
+                .build();
+        if (!built) {
+            return null;
+        }
+        final String preference = resolvePreference(reqParams.getAttribute(PREFERENCE_ATTRIBUTE));
+        if (preference != null) {
+            builder.setPreference(preference);
         }
+        return builder;
+    }
 
-        final org.codelibs.fess.suggest.request.suggest.SuggestRequestBuilder builder =
-                ComponentUtil.getSuggestHelper().suggester().suggest();
-        builder.setQuery(query);
-        builder.setSize(num);
-        builder.addKind(org.codelibs.fess.suggest.entity.SuggestItem.Kind.QUERY.toString());
-        builder.addKind(org.codelibs.fess.suggest.entity.SuggestItem.Kind.DOCUMENT.toString());
+    /**
+     * Returns whether a search has an explicit {@code preference} argument. Only such searches leave the
+     * {@code SearchHelper} path for a preference; a session-derived preference does not.
+     *
+     * @param reqParams the search request parameters, or null
+     * @return true if the {@code preference} argument is set
+     */
+    protected boolean hasPreferenceArgument(final SearchRequestParams reqParams) {
+        if (reqParams == null) {
+            return false;
+        }
+        final Object preference = reqParams.getAttribute(PREFERENCE_ATTRIBUTE);
+        return preference != null && StringUtil.isNotBlank(preference.toString());
+    }
 
-        final org.codelibs.fess.suggest.request.suggest.SuggestResponse suggestResponse = builder.execute().getResponse();
+    /**
+     * Resolves the shard preference of a search that the plugin sends itself. An explicit {@code preference}
+     * argument wins; otherwise, if {@link #isStickyPreferenceEnabled()}, the preference is derived from the MCP
+     * session (see {@link #createSessionPreference(HttpServletRequest)}), so that all searches of a session hit
+     * the same shard copies, with warm caches and consistent ordering.
+     *
+     * @param preference the {@code preference} argument, or null
+     * @return the preference, or null to let the search engine choose
+     */
+    protected String resolvePreference(final Object preference) {
+        if (preference != null && StringUtil.isNotBlank(preference.toString())) {
+            return preference.toString();
+        }
+        if (!isStickyPreferenceEnabled()) {
+            return null;
+        }
+        return getCurrentRequest().map(this::createSessionPreference).orElse(null);
+    }
 
-        final List<Map<String, Object>> contents = new java.util.ArrayList<>();
-        if (suggestResponse.getItems() != null) {
-            for (final org.codelibs.fess.suggest.entity.SuggestItem item : suggestResponse.getItems()) {
-                contents.add(Map.of("type", "text", "text", item.getText()));
-            }
+    /**
+     * Creates a shard preference for the session of a request: a hash of the {@code Mcp-Session-Id} header,
+     * or of the client identity (remote address, forwarded-for address, and user agent) if there is none.
+     * The raw session id is not sent to the search engine.
+     *
+     * @param request the HTTP request
+     * @return the preference
+     */
+    protected String createSessionPreference(final HttpServletRequest request) {
+        final String sessionId = request.getHeader(SESSION_ID_HEADER);
+        final String identity;
+        if (StringUtil.isNotBlank(sessionId)) {
+            identity = sessionId;
+        } else {
+            identity = request.getRemoteAddr() + "|" + request.getHeader("X-Forwarded-For") + "|" + request.getHeader("User-Agent");
         }
+        return "mcp_" + Integer.toHexString(identity.hashCode());
+    }
+
+    /**
+     * Returns whether searches that the plugin sends itself without a {@code preference} argument get a session-derived
+     * preference.
+     *
+     * @return the value of {@code mcp.search.sticky.preference} (default false)
+     */
+    protected boolean isStickyPreferenceEnabled() {
+        return Constants.TRUE
+                .equalsIgnoreCase(ComponentUtil.getFessConfig().getSystemProperty("mcp.search.sticky.preference", Constants.FALSE));
+    }
+
+    /**
+     * Gets the HTTP request bound to the current thread.
+     *
+     * @return the request, or empty if none is bound
+     */
+    protected Optional<HttpServletRequest> getCurrentRequest() {
+        try {
+            final ExternalContext externalContext = SingletonLaContainerFactory.getExternalContext();
+            if (externalContext != null && externalContext.getRequest() instanceof final HttpServletRequest request) {
+                return Optional.of(request);
+            }
+        } catch (final RuntimeException e) {
+            logger.debug("[MCP] No request is bound to the current thread.", e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Resolves the trace id of a JSON-RPC request: {@code _meta.traceId} in its params if valid,
+     * otherwise the trace id of the W3C {@code traceparent} header of the HTTP request.
+     *
+     * @param params the request params
+     * @return the trace id, or null if the request carries none
+     */
+    protected String resolveTraceId(final Map<String, Object> params) {
+        if (params.get("_meta") instanceof final Map<?, ?> meta && meta.get("traceId") instanceof final String traceId
+                && TRACE_ID_PATTERN.matcher(traceId).matches()) {
+            return traceId;
+        }
+        return getCurrentRequest().map(request -> parseTraceparent(request.getHeader(TRACEPARENT_HEADER))).orElse(null);
+    }
+
+    /**
+     * Extracts the trace id from a W3C {@code traceparent} header value.
+     *
+     * @param traceparent the header value
+     * @return the trace id, or null if the value is missing or invalid
+     */
+    protected String parseTraceparent(final String traceparent) {
+        if (traceparent == null) {
+            return null;
+        }
+        final Matcher matcher = TRACEPARENT_PATTERN.matcher(traceparent.trim());
+        if (!matcher.matches() || traceparent.trim().startsWith("ff") || "0".repeat(32).equals(matcher.group(1))) {
+            return null;
+        }
+        return matcher.group(1);
+    }
+
+    /**
+     * Sets the {@code X-Opaque-Id} header of search engine requests sent from the current thread until the returned
+     * context is closed. OpenSearch records the header in its slow logs and task list.
+     *
+     * @param opaqueId the header value, or null to set nothing
+     * @return the context to close to restore the previous headers, or null if nothing was set
+     */
+    protected StoredContext applyOpaqueId(final String opaqueId) {
+        if (opaqueId == null) {
+            return null;
+        }
+        final ThreadContext threadContext = ComponentUtil.getSearchEngineClient().threadPool().getThreadContext();
+        final StoredContext storedContext = threadContext.stashContext();
+        threadContext.putHeader(OPAQUE_ID_HEADER, opaqueId);
+        return storedContext;
+    }
+
+    /**
+     * Gets the {@code X-Opaque-Id} header set for search engine requests sent from the current thread.
+     *
+     * @return the header value, or null if not set
+     */
+    protected String getOpaqueId() {
+        return ComponentUtil.getSearchEngineClient().threadPool().getThreadContext().getHeader(OPAQUE_ID_HEADER);
+    }
+
+    /**
+     * Converts a search engine response to a search result, using Fess {@code QueryResponseList}
+     * so that documents have the same shape as those returned by {@code SearchHelper}.
+     *
+     * @param response the search engine response
+     * @param offset   the offset of the first hit
+     * @param pageSize the requested page size
+     * @return the search result with sort values for each document
+     */
+    protected McpSearchResult createSearchResult(final SearchResponse response, final int offset, final int pageSize) {
+        final QueryResponseList queryResponseList = ComponentUtil.getQueryResponseList();
+        queryResponseList.init(OptionalEntity.of(response), offset, pageSize);
+        final McpSearchResult result = new McpSearchResult();
+        result.setDocumentItems(queryResponseList);
+        result.setTotalHits(queryResponseList.getAllRecordCount());
+        result.setTotalHitsRelation(queryResponseList.getAllRecordCountRelation());
+        result.setTookMillis(queryResponseList.getQueryTime());
+        result.setFacetResponse(queryResponseList.getFacetResponse());
+        result.setPointInTimeId(response.pointInTimeId());
+        final List<Object[]> sortValues = new ArrayList<>();
+        for (final SearchHit hit : response.getHits().getHits()) {
+            sortValues.add(hit.getSortValues());
+        }
+        result.setSortValues(sortValues);
+        return result;
+    }
+
+    /**
+     * Executes several searches in a single multi-search request.
+     *
+     * @param reqParamsList the search request parameters, one per query
+     * @return the search results in the same order; an entry is null if its query failed
+     */
+    protected List<McpSearchResult> executeMultiSearch(final List<SearchRequestParams> reqParamsList) {
+        final List<McpSearchResult> results = new ArrayList<>();
+        final List<Integer> slots = new ArrayList<>();
+        final MultiSearchRequestBuilder multiBuilder = ComponentUtil.getSearchEngineClient().prepareMultiSearch();
+        for (int i = 0; i < reqParamsList.size(); i++) {
+            results.add(new McpSearchResult());
+            final SearchRequestBuilder builder = prepareDirectSearch(reqParamsList.get(i), 0);
+            if (builder != null) {
+                multiBuilder.add(builder);
+                slots.add(i);
+            }
+        }
+        if (slots.isEmpty()) {
+            return results;
+        }
+
+        final MultiSearchResponse.Item[] items = await(executeAsync(() -> multiBuilder)).getResponses();
+        for (int i = 0; i < items.length && i < slots.size(); i++) {
+            final int slot = slots.get(i);
+            if (items[i].isFailure()) {
+                logger.debug("[MCP] Query {} of multi-search failed: {}", slot, items[i].getFailureMessage());
+                results.set(slot, null);
+            } else {
+                results.set(slot, createSearchResult(items[i].getResponse(), 0, reqParamsList.get(slot).getPageSize()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Builds the Fess query string (query, conditions, filters, and sort) for the given parameters.
+     *
+     * @param reqParams the search request parameters
+     * @return the query string
+     */
+    protected String buildQueryString(final SearchRequestParams reqParams) {
+        final String query = ComponentUtil.getQueryStringBuilder().params(reqParams).build();
+        final String sort = reqParams.getSort();
+        return StringUtil.isBlank(sort) ? query : query + " sort:" + sort;
+    }
+
+    /**
+     * Creates the cursor for the page following the returned documents.
+     *
+     * @param searchResult  the search result of the current page
+     * @param returnedCount the number of documents actually returned to the client
+     * @param pageSize      the requested page size
+     * @param fingerprint   the fingerprint of the current query
+     * @return the encoded next cursor, or null if there are no more hits
+     */
+    protected String createNextCursor(final McpSearchResult searchResult, final int returnedCount, final int pageSize,
+            final String fingerprint) {
+        final List<Object[]> sortValues = searchResult.getSortValues();
+        if (returnedCount == 0 || returnedCount > sortValues.size()) {
+            return null;
+        }
+        if (returnedCount == sortValues.size() && sortValues.size() < pageSize) {
+            // the last page has been reached
+            return null;
+        }
+        return new SearchCursor(searchResult.getPointInTimeId(), sortValues.get(returnedCount - 1), fingerprint).encode();
+    }
+
+    /**
+     * Creates a fingerprint of the query-defining search arguments, used to bind a cursor to its query.
+     *
+     * @param params the search tool arguments
+     * @return the fingerprint
+     */
+    protected String createQueryFingerprint(final Map<String, Object> params) {
+        final int hash = Objects.hash(params.get("q"), params.get("sort"), params.get("fields"), params.get("as"), params.get("ex_q"),
+                params.get("lang"), params.get("sdh"));
+        return Integer.toHexString(hash);
+    }
+
+    /**
+     * Gets the keep-alive of the point-in-time used by cursor-based searches.
+     *
+     * @return the keep-alive time
+     */
+    protected TimeValue getCursorKeepAlive() {
+        return TimeValue.parseTimeValue(ComponentUtil.getFessConfig().getSystemProperty("mcp.cursor.keep.alive", "1m"),
+                "mcp.cursor.keep.alive");
+    }
+
+    /**
+     * Creates the {@link SearchRequestParams} for the search tool from its raw arguments.
+     *
+     * @param params the search tool arguments
+     * @return the search request parameters backed by the given arguments
+     */
+    protected SearchRequestParams createSearchRequestParams(final Map<String, Object> params) {
+        return createSearchRequestParams(params, null);
+    }
+
+    /**
+     * Creates the {@link SearchRequestParams} from raw arguments with the given response fields.
+     * The arguments are parsed once into {@link SearchArguments}, and the facet and highlight requests are built once,
+     * so the getters only return values.
+     *
+     * @param params         the search arguments
+     * @param responseFields the fields to return, or null for the fields rendered by the search tool
+     * @return the search request parameters
+     * @throws McpApiException if an argument has the wrong type
+     */
+    protected SearchRequestParams createSearchRequestParams(final Map<String, Object> params, final String[] responseFields) {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        final SearchArguments arguments = SearchArguments.bind(params, fessConfig.getPagingSearchPageStartAsInteger(),
+                fessConfig.getSystemPropertyAsInt("mcp.default.page.size", 3), fessConfig.getPagingSearchPageMaxSizeAsInteger());
+        final FacetInfo facetInfo = createFacetInfo(params);
+        final HighlightInfo highlightInfo = new HighlightInfo()
+                .fragmentSize(fessConfig.getSystemPropertyAsInt("mcp.highlight.fragment.size", 500))
+                .numOfFragments(fessConfig.getSystemPropertyAsInt("mcp.highlight.num.of.fragments", 3));
+        final String[] fields = responseFields != null ? responseFields
+                : new String[] { fessConfig.getIndexFieldTitle(), fessConfig.getIndexFieldContent(), fessConfig.getIndexFieldUrl(),
+                        fessConfig.getResponseFieldContentDescription() };
+        return new SearchRequestParams() {
+            @Override
+            public String getQuery() {
+                return arguments.getQuery();
+            }
+
+            @Override
+            public Map<String, String[]> getFields() {
+                return arguments.getFields();
+            }
+
+            @Override
+            public Map<String, String[]> getConditions() {
+                return arguments.getConditions();
+            }
+
+            @Override
+            public String[] getLanguages() {
+                return arguments.getLanguages();
+            }
+
+            @Override
+            public GeoInfo getGeoInfo() {
+                return null; // Not implemented
+            }
+
+            @Override
+            public FacetInfo getFacetInfo() {
+                return facetInfo;
+            }
+
+            @Override
+            public HighlightInfo getHighlightInfo() {
+                return highlightInfo;
+            }
+
+            @Override
+            public String getSort() {
+                return arguments.getSort();
+            }
+
+            @Override
+            public int getStartPosition() {
+                return arguments.getStartPosition();
+            }
+
+            @Override
+            public int getPageSize() {
+                return arguments.getPageSize();
+            }
+
+            @Override
+            public int getOffset() {
+                return arguments.getOffset();
+            }
+
+            @Override
+            public String[] getExtraQueries() {
+                return arguments.getExtraQueries();
+            }
+
+            @Override
+            public Object getAttribute(final String name) {
+                if (PREFERENCE_ATTRIBUTE.equals(name)) {
+                    return arguments.getPreference();
+                }
+                return null;
+            }
+
+            @Override
+            public Locale getLocale() {
+                return Locale.ROOT;
+            }
+
+            @Override
+            public SearchRequestType getType() {
+                return SearchRequestType.JSON;
+            }
+
+            @Override
+            public String getSimilarDocHash() {
+                return arguments.getSimilarDocHash();
+            }
+
+            @Override
+            public String[] getResponseFields() {
+                return fields;
+            }
+        };
+    }
+
+    /**
+     * Creates the facet request from the {@code facet.field}, {@code facet.query}, and {@code facet.size} arguments.
+     *
+     * @param params the search tool arguments
+     * @return the facet request, or null if no facet was requested
+     */
+    protected FacetInfo createFacetInfo(final Map<String, Object> params) {
+        final String[] fields = toStringArray(params.get("facet.field"));
+        final String[] queries = toStringArray(params.get("facet.query"));
+        if (fields.length == 0 && queries.length == 0) {
+            return null;
+        }
+        final FacetInfo facetInfo = new FacetInfo();
+        if (fields.length > 0) {
+            facetInfo.field = fields;
+        }
+        if (queries.length > 0) {
+            facetInfo.query = queries;
+        }
+        final int size = parsePositiveInt(params.get("facet.size"));
+        if (size > 0) {
+            facetInfo.size = size;
+        }
+        return facetInfo;
+    }
+
+    /**
+     * Converts a string or list argument to a string array, dropping blank values.
+     *
+     * @param value the raw argument value
+     * @return the non-blank values, or an empty array
+     */
+    protected String[] toStringArray(final Object value) {
+        if (value instanceof final List<?> list) {
+            return list.stream().filter(Objects::nonNull).map(Object::toString).filter(StringUtil::isNotBlank).toArray(String[]::new);
+        }
+        if (value != null && StringUtil.isNotBlank(value.toString())) {
+            return new String[] { value.toString() };
+        }
+        return new String[0];
+    }
+
+    /**
+     * Creates the compact facet block returned alongside the hits.
+     *
+     * @param facetResponse the facet response of the search
+     * @return the facet counts as {@code {"fields": {field: {value: count}}, "queries": {query: count}}}, or null if there are none
+     */
+    protected Map<String, Object> createFacetBlock(final FacetResponse facetResponse) {
+        if (facetResponse == null) {
+            return null;
+        }
+        final Map<String, Object> block = new LinkedHashMap<>();
+        if (facetResponse.getFieldList() != null && !facetResponse.getFieldList().isEmpty()) {
+            final Map<String, Object> fields = new LinkedHashMap<>();
+            for (final FacetResponse.Field field : facetResponse.getFieldList()) {
+                fields.put(field.getName(), field.getValueCountMap());
+            }
+            block.put("fields", fields);
+        }
+        if (facetResponse.getQueryCountMap() != null && !facetResponse.getQueryCountMap().isEmpty()) {
+            block.put("queries", facetResponse.getQueryCountMap());
+        }
+        return block.isEmpty() ? null : block;
+    }
+
+    /**
+     * Resolves the character budget requested through the {@code max_chars} or {@code max_tokens} arguments.
+     * {@code max_chars} takes precedence; {@code max_tokens} is converted using {@link #getCharsPerToken()}.
+     *
+     * @param params the search tool arguments
+     * @return the character budget, or 0 if no budget was requested
+     */
+    protected int resolveCharBudget(final Map<String, Object> params) {
+        final int maxChars = parsePositiveInt(params.get("max_chars"));
+        if (maxChars > 0) {
+            return maxChars;
+        }
+        final int maxTokens = parsePositiveInt(params.get("max_tokens"));
+        if (maxTokens > 0) {
+            final long chars = (long) maxTokens * getCharsPerToken();
+            return chars > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) chars;
+        }
+        return 0;
+    }
+
+    /**
+     * Parses a positive integer argument.
+     *
+     * @param value the raw argument value
+     * @return the parsed value, or 0 if the value is missing, unparseable, or not positive
+     */
+    protected int parsePositiveInt(final Object value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            final int num = value instanceof final Number n ? n.intValue() : Integer.parseInt(value.toString());
+            return num > 0 ? num : 0;
+        } catch (final NumberFormatException e) {
+            logger.debug("Failed to parse {}", value, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Packs as many documents as fit into the given character budget, keeping the search order.
+     * Snippets are shrunk evenly before documents are dropped: the number of documents is chosen first
+     * so that each one keeps at least {@code minSnippetLength} characters of content, then the
+     * remaining budget is spread over their snippets.
+     * <p>
+     * Entries are rendered with {@link #createDocumentContent(Map, int)}; a shrunk snippet is passed as the
+     * {@code content_description} of a copy of the document. The size of an entry besides its snippet is measured
+     * from the entry of the full document, and trailing entries that still exceed the budget are dropped.
+     *
+     * @param documentItems    the processed document items in rank order
+     * @param charBudget       the maximum number of characters for all content entries
+     * @param minSnippetLength the minimum number of content characters kept per document
+     * @return the MCP content entries that fit into the budget
+     */
+    protected List<Map<String, Object>> packDocumentContents(final List<Map<String, Object>> documentItems, final int charBudget,
+            final int minSnippetLength) {
+        final int size = documentItems.size();
+        final List<Map<String, Object>> fullContents = new ArrayList<>(size);
+        final String[] bodies = new String[size];
+        final int[] overheads = new int[size];
+        for (int i = 0; i < size; i++) {
+            final Map<String, Object> content = createDocumentContent(documentItems.get(i), i + 1);
+            fullContents.add(content);
+            bodies[i] = resolveDisplayContent(documentItems.get(i));
+            overheads[i] = Math.max(0, getContentText(content).length() - bodies[i].length());
+        }
+
+        // 1. choose how many documents fit with minimum-length snippets
+        int count = 0;
+        long used = 0;
+        int maxBodyLength = 0;
+        for (int i = 0; i < size; i++) {
+            final long cost = overheads[i] + clippedLength(bodies[i].length(), minSnippetLength);
+            if (used + cost > charBudget) {
+                break;
+            }
+            used += cost;
+            maxBodyLength = Math.max(maxBodyLength, bodies[i].length());
+            count++;
+        }
+        if (count == 0) {
+            if (size == 0) {
+                return new ArrayList<>();
+            }
+            // Not even one minimal entry fits; return the top document cut down to the budget.
+            final String text = getContentText(fullContents.get(0));
+            final Map<String, Object> content = new LinkedHashMap<>(fullContents.get(0));
+            content.put("text", text.length() > charBudget ? text.substring(0, charBudget) : text);
+            final List<Map<String, Object>> contents = new ArrayList<>(1);
+            contents.add(content);
+            return contents;
+        }
+
+        // 2. find the largest snippet length for which the chosen documents still fit
+        int low = Math.min(minSnippetLength, maxBodyLength);
+        int high = maxBodyLength;
+        while (low < high) {
+            final int mid = low + (high - low + 1) / 2;
+            long total = 0;
+            for (int i = 0; i < count; i++) {
+                total += overheads[i] + clippedLength(bodies[i].length(), mid);
+            }
+            if (total <= charBudget) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        final List<Map<String, Object>> contents = new ArrayList<>(count);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            final Map<String, Object> content;
+            if (bodies[i].length() <= low) {
+                content = fullContents.get(i);
+            } else {
+                final Map<String, Object> doc = new HashMap<>(documentItems.get(i));
+                doc.put("content_description", truncateContent(bodies[i], low));
+                content = createDocumentContent(doc, i + 1);
+            }
+            total += getContentText(content).length();
+            if (total > charBudget && !contents.isEmpty()) {
+                // an overridden entry grew with something other than its snippet
+                break;
+            }
+            contents.add(content);
+        }
+        return contents;
+    }
+
+    /**
+     * Gets the text of an MCP content entry.
+     *
+     * @param content the content entry
+     * @return the text, or an empty string if it has none
+     */
+    protected String getContentText(final Map<String, Object> content) {
+        final Object text = content.get("text");
+        return text != null ? text.toString() : "";
+    }
+
+    /**
+     * Returns the length of a text of {@code length} characters after {@link #truncateContent(String, int)}.
+     *
+     * @param length    the original text length
+     * @param maxLength the truncation length
+     * @return the resulting length including the ellipsis
+     */
+    protected int clippedLength(final int length, final int maxLength) {
+        return length <= maxLength ? length : maxLength + 3;
+    }
+
+    /**
+     * Estimates the number of tokens used by the given MCP content entries.
+     *
+     * @param contents the MCP content entries
+     * @return the estimated token count
+     */
+    protected int estimateTokens(final List<Map<String, Object>> contents) {
+        long chars = 0;
+        for (final Map<String, Object> content : contents) {
+            final Object text = content.get("text");
+            if (text != null) {
+                chars += text.toString().length();
+            }
+        }
+        final int charsPerToken = getCharsPerToken();
+        return (int) ((chars + charsPerToken - 1) / charsPerToken);
+    }
+
+    /**
+     * Retrieves index statistics and system information.
+     *
+     * @return A map containing index statistics in MCP-compliant format with "content" array.
+     */
+    protected Map<String, Object> invokeGetIndexStats() {
+        if (logger.isDebugEnabled()) {
+            logger.debug("[MCP] Retrieving index statistics");
+        }
+        try {
+            final Map<String, Object> stats = collectIndexStats();
+            if (logger.isDebugEnabled()) {
+                logger.debug("[MCP] Index statistics collected: {}", stats);
+            }
+
+            // Return MCP-compliant response with content array
+            final String jsonResult = JsonXContent.contentBuilder().map(stats).toString();
+            final Map<String, Object> content = new HashMap<>();
+            content.put("type", "text");
+            content.put("text", jsonResult);
+            return Map.of("content", List.of(content));
+        } catch (final IOException e) {
+            throw new McpApiException(ErrorCode.InternalError, "Failed to serialize index stats: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Invokes the suggest tool to provide query autocomplete suggestions.
+     *
+     * @param params the parameters including query prefix (q) and number of suggestions (num)
+     * @return a map containing the suggestions in MCP-compliant format
+     */
+    protected Map<String, Object> invokeSuggest(final Map<String, Object> params) {
+        final String query = (String) params.get("q");
+        if (query == null || query.isEmpty()) {
+            throw new McpApiException(ErrorCode.InvalidParams, "Missing required parameter: q");
+        }
+
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        final int maxPageSize = fessConfig.getPagingSearchPageMaxSizeAsInteger().intValue();
+        final int num = resolveSuggestSize(params.get("num"), maxPageSize);
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("[MCP] Executing suggest: query='{}', num={}", query, num);
+        }
+
+        final List<Map<String, Object>> contents = new java.util.ArrayList<>();
+        for (final String text : executeSuggest(query, num)) {
+            contents.add(Map.of("type", "text", "text", text));
+        }
+
+        if (contents.isEmpty()) {
+            contents.add(Map.of("type", "text", "text", "No suggestions found for: " + query));
+        }
+
+        return Map.of("content", contents);
+    }
+
+    /**
+     * Gets query and document suggestions from Fess {@code SuggestHelper}.
+     *
+     * @param query the query prefix
+     * @param num   the maximum number of suggestions
+     * @return the suggested texts
+     */
+    protected List<String> executeSuggest(final String query, final int num) {
+        final org.codelibs.fess.suggest.request.suggest.SuggestRequestBuilder builder =
+                ComponentUtil.getSuggestHelper().suggester().suggest();
+        builder.setQuery(query);
+        builder.setSize(num);
+        builder.addKind(org.codelibs.fess.suggest.entity.SuggestItem.Kind.QUERY.toString());
+        builder.addKind(org.codelibs.fess.suggest.entity.SuggestItem.Kind.DOCUMENT.toString());
+
+        final org.codelibs.fess.suggest.request.suggest.SuggestResponse suggestResponse = builder.execute().getResponse();
+
+        final List<String> suggestions = new ArrayList<>();
+        if (suggestResponse.getItems() != null) {
+            for (final org.codelibs.fess.suggest.entity.SuggestItem item : suggestResponse.getItems()) {
+                suggestions.add(item.getText());
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Resolves the requested suggest size, applying defaults and the configured page-size cap.
+     * <p>
+     * Parsing rules:
+     * <ul>
+     *   <li>{@code null} or unparseable input -&gt; default 10</li>
+     *   <li>{@code Number} -&gt; intValue</li>
+     *   <li>other -&gt; {@link Integer#parseInt}(toString())</li>
+     *   <li>result &lt;= 0 -&gt; default 10</li>
+     *   <li>result &gt; {@code maxPageSize} -&gt; capped at {@code maxPageSize}</li>
+     * </ul>
+     *
+     * @param numObj the raw {@code num} argument value
+     * @param maxPageSize the configured maximum page size (cap)
+     * @return the effective suggest size within [1, maxPageSize]
+     */
+    protected int resolveSuggestSize(final Object numObj, final int maxPageSize) {
+        int num = 10;
+        if (numObj instanceof final Number n) {
+            num = n.intValue();
+        } else if (numObj != null) {
+            try {
+                num = Integer.parseInt(numObj.toString());
+            } catch (final NumberFormatException e) {
+                num = 10;
+            }
+        }
+        // Fall back to default for non-positive values; cap at configured max.
+        if (num <= 0) {
+            num = 10;
+        }
+        if (num > maxPageSize) {
+            num = maxPageSize;
+        }
+        return num;
+    }
+
+    /**
+     * Invokes the count tool, which returns the number of documents matching a query without fetching any hits.
+     *
+     * @param params the parameters including query string (q), conditions (as), and extra queries (ex_q)
+     * @return a map containing the count in MCP-compliant format, with the count also in {@code _meta}
+     */
+    protected Map<String, Object> invokeCount(final Map<String, Object> params) {
+        final Object query = params.get("q");
+        if (query == null || StringUtil.isBlank(query.toString())) {
+            throw new McpApiException(ErrorCode.InvalidParams, "Missing required parameter: q");
+        }
+
+        final SearchRequestParams reqParams = createSearchRequestParams(params);
+        if (logger.isDebugEnabled()) {
+            logger.debug("[MCP] Executing count: query='{}'", query);
+        }
+        final McpSearchResult searchResult = executeCount(reqParams);
+
+        final boolean lowerBound = "gte".equalsIgnoreCase(searchResult.getTotalHitsRelation());
+        final String text = (lowerBound ? "At least " : "") + searchResult.getTotalHits() + " documents match: " + query;
+        final Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("count", searchResult.getTotalHits());
+        meta.put("relation", lowerBound ? "gte" : "eq");
+        meta.put("tookMillis", searchResult.getTookMillis());
+
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("content", List.of(Map.of("type", "text", "text", text)));
+        result.put("_meta", meta);
+        return result;
+    }
+
+    /**
+     * Executes a count-only search: no hits are fetched or highlighted, the shard request cache is used,
+     * and total hits are tracked only up to {@link #getCountTrackTotalHits()}.
+     *
+     * @param reqParams the search request parameters
+     * @return the search result carrying only the total hits and their relation
+     */
+    protected McpSearchResult executeCount(final SearchRequestParams reqParams) {
+        final int trackTotalHits = getCountTrackTotalHits();
+        return executeDirectSearch(reqParams, 0, builder -> {
+            builder.setSize(0);
+            builder.setRequestCache(true);
+            if (trackTotalHits > 0) {
+                builder.setTrackTotalHitsUpTo(trackTotalHits);
+            } else {
+                builder.setTrackTotalHits(true);
+            }
+        });
+    }
+
+    /**
+     * Gets the number of hits up to which the count tool counts accurately.
+     *
+     * @return the threshold from {@code mcp.count.track.total.hits} (default 10000), or 0 to always count exactly
+     */
+    protected int getCountTrackTotalHits() {
+        return Math.max(0, ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.count.track.total.hits", 10000));
+    }
+
+    /**
+     * Invokes the multi_search tool: runs several reformulations of a query in one multi-search request
+     * and merges their hits into a single ranked list with reciprocal rank fusion.
+     *
+     * @param params the parameters including the list of queries (queries), the number of fused results (num),
+     *               and any other search argument, which is applied to every query
+     * @return a map containing the fused results in MCP-compliant format
+     */
+    protected Map<String, Object> invokeMultiSearch(final Map<String, Object> params) {
+        final String[] queries = toStringArray(params.get("queries"));
+        if (queries.length == 0) {
+            throw new McpApiException(ErrorCode.InvalidParams, "Missing required parameter: queries");
+        }
+        final int maxQueries = getMultiSearchMaxQueries();
+        if (queries.length > maxQueries) {
+            throw new McpApiException(ErrorCode.InvalidParams, "Too many queries: " + queries.length + " (max " + maxQueries + ")");
+        }
+
+        final Map<String, Object> sharedArgs = new HashMap<>(params);
+        sharedArgs.remove("queries");
+        sharedArgs.remove("cursor");
+        final int resultSize = parsePositiveInt(params.get("num"));
+        final int depth = Math.max(getMultiSearchDepth(), resultSize);
+        final String[] responseFields = getMultiSearchResponseFields();
+        final List<SearchRequestParams> reqParamsList = new ArrayList<>();
+        for (final String query : queries) {
+            final Map<String, Object> queryArgs = new HashMap<>(sharedArgs);
+            queryArgs.put("q", query);
+            queryArgs.put("num", depth);
+            reqParamsList.add(createSearchRequestParams(queryArgs, responseFields));
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("[MCP] Executing multi-search: queries={}, depth={}", Arrays.toString(queries), depth);
+        }
+        final List<McpSearchResult> searchResults = executeMultiSearch(reqParamsList);
+        final List<List<Map<String, Object>>> rankings = new ArrayList<>();
+        int failedCount = 0;
+        long tookMillis = 0L;
+        for (final McpSearchResult searchResult : searchResults) {
+            if (searchResult == null) {
+                failedCount++;
+            } else {
+                rankings.add(processDocumentItems(searchResult.getDocumentItems()));
+                tookMillis = Math.max(tookMillis, searchResult.getTookMillis());
+            }
+        }
+        if (failedCount == queries.length) {
+            throw new McpApiException(ErrorCode.InternalError, "All queries of the multi-search failed");
+        }
+
+        final int limit = resultSize > 0 ? resultSize : ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.default.page.size", 3);
+        final List<Map<String, Object>> fused = fuseRankings(rankings, getRrfRankConstant(), limit);
+        final long renderStart = System.nanoTime();
+        final List<Map<String, Object>> contents = new ArrayList<>();
+        int index = 1;
+        for (final Map<String, Object> doc : fused) {
+            contents.add(createDocumentContent(doc, index++));
+        }
+        recordPhase(getPhaseTimings(), Phase.RENDER, renderStart);
+
+        final Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("estimatedTokens", estimateTokens(contents));
+        meta.put("queryCount", queries.length);
+        if (failedCount > 0) {
+            meta.put("failedQueryCount", failedCount);
+        }
+        meta.put("resultCount", contents.size());
+        // The queries run concurrently, so the slowest one is what the engine took
+        meta.put("tookMillis", tookMillis);
+
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("content", contents);
+        result.put("_meta", meta);
+        return result;
+    }
+
+    /**
+     * Merges ranked lists with reciprocal rank fusion: each document scores {@code sum(1 / (k + rank))}
+     * over the lists it appears in, with ranks starting at 1. Documents are identified by doc_id
+     * (or URL if there is none); the first occurrence is kept, with its score replaced by the fused score.
+     * Ties keep the order in which documents were first seen.
+     *
+     * @param rankings the ranked document lists
+     * @param k        the rank constant; larger values flatten the contribution of top ranks
+     * @param limit    the maximum number of documents to return
+     * @return the fused ranking
+     */
+    protected List<Map<String, Object>> fuseRankings(final List<List<Map<String, Object>>> rankings, final int k, final int limit) {
+        final Map<Object, Map<String, Object>> docs = new LinkedHashMap<>();
+        final Map<Object, Double> scores = new HashMap<>();
+        for (final List<Map<String, Object>> ranking : rankings) {
+            int rank = 1;
+            for (final Map<String, Object> doc : ranking) {
+                final Object key = doc.get("doc_id") != null ? doc.get("doc_id") : doc.get("url");
+                final Object docKey = key != null ? key : doc;
+                docs.putIfAbsent(docKey, doc);
+                scores.merge(docKey, 1.0d / (k + rank), Double::sum);
+                rank++;
+            }
+        }
+        // List.sort is stable, so equal scores keep the first-seen order
+        final List<Object> keys = new ArrayList<>(docs.keySet());
+        keys.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+        final List<Map<String, Object>> fused = new ArrayList<>();
+        for (final Object key : keys.subList(0, Math.min(limit, keys.size()))) {
+            final Map<String, Object> doc = new LinkedHashMap<>(docs.get(key));
+            doc.put("score", Math.round(scores.get(key) * 10000.0d) / 10000.0d);
+            fused.add(doc);
+        }
+        return fused;
+    }
+
+    /**
+     * Gets the response fields of multi-search queries, which add doc_id to the search tool fields for deduplication.
+     *
+     * @return the response fields
+     */
+    protected String[] getMultiSearchResponseFields() {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        return new String[] { fessConfig.getIndexFieldDocId(), fessConfig.getIndexFieldTitle(), fessConfig.getIndexFieldContent(),
+                fessConfig.getIndexFieldUrl(), fessConfig.getResponseFieldContentDescription() };
+    }
+
+    /**
+     * Gets the maximum number of queries accepted by the multi_search tool.
+     *
+     * @return the value of {@code mcp.multi.search.max.queries} (default 5)
+     */
+    protected int getMultiSearchMaxQueries() {
+        return ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.multi.search.max.queries", 5);
+    }
+
+    /**
+     * Gets the number of hits fetched per query before fusion, capped at the maximum page size.
+     *
+     * @return the value of {@code mcp.multi.search.depth} (default 10)
+     */
+    protected int getMultiSearchDepth() {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        final int depth = fessConfig.getSystemPropertyAsInt("mcp.multi.search.depth", 10);
+        return Math.min(Math.max(depth, 1), fessConfig.getPagingSearchPageMaxSizeAsInteger());
+    }
+
+    /**
+     * Gets the rank constant {@code k} of reciprocal rank fusion.
+     *
+     * @return the value of {@code mcp.multi.search.rrf.k} (default 60)
+     */
+    protected int getRrfRankConstant() {
+        return Math.max(1, ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.multi.search.rrf.k", 60));
+    }
+
+    /**
+     * Invokes the get_document tool to retrieve a single document by its doc_id.
+     *
+     * @param params the parameters including doc_id
+     * @return a map containing the document content in MCP-compliant format
+     */
+    protected Map<String, Object> invokeGetDocument(final Map<String, Object> params) {
+        final String docId = (String) params.get("doc_id");
+        if (docId == null || docId.isEmpty()) {
+            throw new McpApiException(ErrorCode.InvalidParams, "Missing required parameter: doc_id");
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("[MCP] Retrieving document: doc_id={}", docId);
+        }
+
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        final String[] fields = new String[] { fessConfig.getIndexFieldTitle(), fessConfig.getIndexFieldContent(),
+                fessConfig.getIndexFieldUrl(), fessConfig.getIndexFieldDocId(), fessConfig.getIndexFieldLastModified() };
+
+        return ComponentUtil.getSearchHelper().getDocumentByDocId(docId, fields, OptionalThing.empty()).map(doc -> {
+            final String title = String.valueOf(doc.getOrDefault(fessConfig.getIndexFieldTitle(), ""));
+            final String url = String.valueOf(doc.getOrDefault(fessConfig.getIndexFieldUrl(), ""));
+            final String content = String.valueOf(doc.getOrDefault(fessConfig.getIndexFieldContent(), ""));
+            final String displayContent = truncateContent(content, getContentMaxLength());
+
+            final StringBuilder sb = new StringBuilder();
+            sb.append("**Title**: ").append(title).append("\n");
+            sb.append("**URL**: ").append(url).append("\n");
+            sb.append("**Doc ID**: ").append(docId).append("\n\n");
+            sb.append(displayContent);
+
+            return Map.<String, Object> of("content", List.of(Map.of("type", "text", "text", sb.toString())));
+        }).orElseGet(() -> {
+            final Map<String, Object> result = new LinkedHashMap<>();
+            result.put("content", List.of(Map.of("type", "text", "text", "Document not found: " + docId)));
+            result.put("isError", true);
+            return result;
+        });
+    }
+
+    /**
+     * Collects index statistics including document count, configuration, and system information.
+     *
+     * @return A map containing organized statistics data
+     */
+    protected Map<String, Object> collectIndexStats() {
+        return await(collectIndexStatsAsync());
+    }
+
+    /**
+     * Collects index statistics without blocking. The document count, index stats, and cluster health
+     * requests are sent in parallel, and the result completes when all of them have returned.
+     * A failed request is reported in its own section and does not fail the others.
+     *
+     * @return a future of the statistics map
+     */
+    protected CompletableFuture<Map<String, Object>> collectIndexStatsAsync() {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        final String indexName = fessConfig.getIndexDocumentSearchIndex();
+
+        final CompletableFuture<Map<String, Object>> countFuture =
+                executeAsync(() -> ComponentUtil.getSearchEngineClient().prepareSearch(indexName).setTrackTotalHits(true).setSize(0))
+                        .thenApply(response -> {
+                            final org.apache.lucene.search.TotalHits totalHits = response.getHits().getTotalHits();
+                            final Map<String, Object> info = new LinkedHashMap<>();
+                            info.put("document_count", totalHits != null ? totalHits.value() : 0);
+                            return info;
+                        })
+                        .exceptionally(e -> {
+                            final Throwable cause = unwrapCompletionException(e);
+                            logger.warn("Failed to get index stats: {}", cause.getMessage());
+                            final Map<String, Object> info = new LinkedHashMap<>();
+                            info.put("document_count", -1);
+                            info.put("error", cause.getMessage());
+                            return info;
+                        });
+        final CompletableFuture<Map<String, Object>> indexStatsFuture = executeAsync(
+                () -> ComponentUtil.getSearchEngineClient().admin().indices().prepareStats(indexName).clear().setDocs(true).setStore(true))
+                        .thenApply(response -> {
+                            final Map<String, Object> info = new LinkedHashMap<>();
+                            if (response.getPrimaries() != null && response.getPrimaries().getDocs() != null) {
+                                info.put("deleted_document_count", response.getPrimaries().getDocs().getDeleted());
+                            }
+                            if (response.getTotal() != null && response.getTotal().getStore() != null) {
+                                info.put("store_size_bytes", response.getTotal().getStore().getSizeInBytes());
+                            }
+                            return info;
+                        })
+                        .exceptionally(e -> {
+                            logger.debug("[MCP] Failed to get index store stats: {}", unwrapCompletionException(e).getMessage());
+                            return new LinkedHashMap<>();
+                        });
+        final CompletableFuture<Map<String, Object>> healthFuture =
+                executeAsync(() -> ComponentUtil.getSearchEngineClient().admin().cluster().prepareHealth(indexName)).thenApply(response -> {
+                    final Map<String, Object> info = new LinkedHashMap<>();
+                    info.put("status", response.getStatus() != null ? response.getStatus().name().toLowerCase(Locale.ROOT) : null);
+                    info.put("number_of_nodes", response.getNumberOfNodes());
+                    info.put("number_of_data_nodes", response.getNumberOfDataNodes());
+                    info.put("active_shards", response.getActiveShards());
+                    info.put("unassigned_shards", response.getUnassignedShards());
+                    return info;
+                }).exceptionally(e -> {
+                    final Throwable cause = unwrapCompletionException(e);
+                    logger.debug("[MCP] Failed to get cluster health: {}", cause.getMessage());
+                    final Map<String, Object> info = new LinkedHashMap<>();
+                    info.put("error", cause.getMessage());
+                    return info;
+                });
+
+        return CompletableFuture.allOf(countFuture, indexStatsFuture, healthFuture).thenApply(v -> {
+            final Map<String, Object> stats = new LinkedHashMap<>();
+
+            // 1. Index information
+            final Map<String, Object> indexInfo = new LinkedHashMap<>();
+            indexInfo.put("index_name", indexName);
+            indexInfo.putAll(countFuture.join());
+            indexInfo.putAll(indexStatsFuture.join());
+            stats.put("index", indexInfo);
+
+            // 2. Cluster information
+            stats.put("cluster", healthFuture.join());
+
+            if (isHedgingEnabled()) {
+                stats.put("hedging", createHedgingStats());
+            }
+
+            // 3. Configuration information
+            final Map<String, Object> configInfo = new LinkedHashMap<>();
+            configInfo.put("max_page_size", fessConfig.getPagingSearchPageMaxSizeAsInteger());
+            stats.put("config", configInfo);
+
+            // 4. System information
+            final Map<String, Object> systemInfo = new LinkedHashMap<>();
+            final Runtime runtime = Runtime.getRuntime();
+            final Map<String, Object> memoryInfo = new LinkedHashMap<>();
+            memoryInfo.put("total_bytes", runtime.totalMemory());
+            memoryInfo.put("free_bytes", runtime.freeMemory());
+            memoryInfo.put("used_bytes", runtime.totalMemory() - runtime.freeMemory());
+            memoryInfo.put("max_bytes", runtime.maxMemory());
+            systemInfo.put("memory", memoryInfo);
+            stats.put("system", systemInfo);
+
+            return stats;
+        });
+    }
+
+    /**
+     * Creates the hedging metrics of direct searches.
+     *
+     * @return the request, hedge, and hedge win counts, the hedge rate (hedges per request),
+     *         the win rate (wins per hedge), and the current hedge delay
+     */
+    protected Map<String, Object> createHedgingStats() {
+        final long requests = searchHedger.getRequestCount();
+        final long hedges = searchHedger.getHedgeCount();
+        final long wins = searchHedger.getHedgeWinCount();
+        final Map<String, Object> hedging = new LinkedHashMap<>();
+        hedging.put("requests", requests);
+        hedging.put("hedges", hedges);
+        hedging.put("hedge_wins", wins);
+        hedging.put("hedge_rate", requests > 0 ? (double) hedges / requests : 0.0d);
+        hedging.put("win_rate", hedges > 0 ? (double) wins / hedges : 0.0d);
+        hedging.put("delay_ms", searchHedger.getHedgeDelayMillis(getHedgePercentile(), getHedgeMinDelay(), getHedgeMinSamples()));
+        return hedging;
+    }
+
+    /**
+     * Returns whether the startup warm-up runs.
+     *
+     * @return the value of {@code mcp.warmup.enabled} (default false)
+     */
+    protected boolean isWarmupEnabled() {
+        return Constants.TRUE.equalsIgnoreCase(ComponentUtil.getFessConfig().getSystemProperty("mcp.warmup.enabled", Constants.FALSE));
+    }
+
+    /**
+     * Starts the warm-up on a background thread. After {@code mcp.warmup.delay} milliseconds (default 10000), it runs
+     * the warm-up requests {@code mcp.warmup.iterations} times (default 20); {@code /mcp/ready} reports readiness once it is done.
+     */
+    protected void startWarmup() {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        final int iterations = fessConfig.getSystemPropertyAsInt("mcp.warmup.iterations", 20);
+        final McpWarmup newWarmup = new McpWarmup(createWarmupRequests(), iterations, this::processWarmupRequest);
+        warmup = newWarmup;
+        final long delay = fessConfig.getSystemPropertyAsInt("mcp.warmup.delay", 10000);
+        if (logger.isInfoEnabled()) {
+            logger.info("[MCP] Starting warm-up in {}ms", delay);
+        }
+        newWarmup.start(delay);
+    }
+
+    /**
+     * Creates the warm-up requests. They are read from the file {@code mcp.warmup.requests}, with one JSON-RPC request
+     * per line or a traffic capture file, or else cover the listing methods, {@code fess://metrics}, and the search,
+     * count, suggest, and index stats tools with the query {@code mcp.warmup.query} (default "fess").
+     *
+     * @return the request bodies
+     */
+    protected List<String> createWarmupRequests() {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        final String file = fessConfig.getSystemProperty("mcp.warmup.requests", "");
+        if (StringUtil.isNotBlank(file)) {
+            try {
+                final List<String> requests = McpWarmup.loadRequests(Paths.get(file.trim()));
+                if (!requests.isEmpty()) {
+                    return requests;
+                }
+                logger.warn("[MCP] No warm-up requests in {}, using the default requests", file);
+            } catch (final IOException e) {
+                logger.warn("[MCP] Failed to read warm-up requests from {}, using the default requests: {}", file, e.getMessage());
+            }
+        }
+        final String query = fessConfig.getSystemProperty("mcp.warmup.query", "fess");
+        final List<String> requests = new ArrayList<>();
+        requests.add(createWarmupRequest("initialize", Map.of("protocolVersion", LATEST_PROTOCOL_VERSION)));
+        requests.add(createWarmupRequest("tools/list", Map.of()));
+        requests.add(createWarmupRequest("resources/list", Map.of()));
+        requests.add(createWarmupRequest("resources/templates/list", Map.of()));
+        requests.add(createWarmupRequest("prompts/list", Map.of()));
+        requests.add(createWarmupRequest("ping", Map.of()));
+        requests.add(createWarmupRequest("resources/read", Map.of("uri", METRICS_URI)));
+        requests.add(createWarmupRequest("tools/call", Map.of("name", "search", "arguments", Map.of("q", query))));
+        requests.add(createWarmupRequest("tools/call", Map.of("name", "count", "arguments", Map.of("q", query))));
+        requests.add(createWarmupRequest("tools/call", Map.of("name", "suggest", "arguments", Map.of("q", query))));
+        requests.add(createWarmupRequest("tools/call", Map.of("name", "get_index_stats", "arguments", Map.of())));
+        return requests;
+    }
+
+    /**
+     * Creates the body of a warm-up request.
+     *
+     * @param method the JSON-RPC method
+     * @param params the method parameters
+     * @return the JSON-RPC request body
+     */
+    protected String createWarmupRequest(final String method, final Map<String, Object> params) {
+        final Map<String, Object> reqMap = new LinkedHashMap<>();
+        reqMap.put("jsonrpc", "2.0");
+        reqMap.put("id", "warmup");
+        reqMap.put("method", method);
+        reqMap.put("params", params);
+        try {
+            return JsonXContent.contentBuilder().map(reqMap).toString();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs a warm-up request or batch through {@link #processSingleRequest(String, HttpServletResponse)} or
+     * {@link #processBatchRequest(String, HttpServletResponse)}, as a real request, with a {@link LocalExchange}
+     * bound as the current request and response. Metrics, the access log, and slow call diagnostics leave
+     * warm-up requests out. The tool registry is built before the first request.
+     *
+     * @param requestBody the JSON-RPC request body
+     * @return true if every request succeeded
+     */
+    protected boolean processWarmupRequest(final String requestBody) {
+        getToolRegistry();
+        final LocalExchange exchange = new LocalExchange(pathPrefix, mimeType);
+        final AtomicInteger failures = new AtomicInteger();
+        exchange.getRequest().setAttribute(WARMUP_ATTRIBUTE, failures);
+        final String trimmed = requestBody.trim();
+        try {
+            callInRequestContext(exchange.getRequest(), exchange.getResponse(), () -> {
+                try {
+                    if (trimmed.startsWith("[")) {
+                        processBatchRequest(trimmed, exchange.getResponse());
+                    } else {
+                        processSingleRequest(trimmed, exchange.getResponse());
+                    }
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
+        } catch (final RuntimeException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("[MCP] Warm-up request failed: {}", requestBody, e);
+            }
+            return false;
+        }
+        return failures.get() == 0 && exchange.getStatus() < HttpServletResponse.SC_BAD_REQUEST && !hasErrorResponse(exchange.getBody());
+    }
+
+    /**
+     * Returns whether a warm-up response contains a JSON-RPC error, e.g. for an invalid element of a batch.
+     *
+     * @param body the response body, empty for notifications
+     * @return true if the response or one of the batch responses is an error
+     */
+    protected boolean hasErrorResponse(final String body) {
+        final String trimmed = body.trim();
+        if (trimmed.isEmpty()) {
+            return false;
+        }
+        try (XContentParser parser =
+                JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, trimmed)) {
+            if (!trimmed.startsWith("[")) {
+                return parser.map().containsKey("error");
+            }
+            return parser.list().stream().anyMatch(item -> !(item instanceof final Map<?, ?> map) || map.containsKey("error"));
+        } catch (final IOException | RuntimeException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Counts a failed JSON-RPC request of the warm-up request bound to the current thread.
+     *
+     * @param outcome the outcome of the request
+     */
+    protected void recordWarmupOutcome(final String outcome) {
+        final AtomicInteger failures = getWarmupFailures();
+        if (failures != null && !McpMetrics.OUTCOME_SUCCESS.equals(outcome)) {
+            failures.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the failure counter of the warm-up request bound to the current thread.
+     *
+     * @return the counter, or null if the current request is not a warm-up request
+     */
+    protected AtomicInteger getWarmupFailures() {
+        return getCurrentRequest().map(request -> request.getAttribute(WARMUP_ATTRIBUTE))
+                .filter(AtomicInteger.class::isInstance)
+                .map(AtomicInteger.class::cast)
+                .orElse(null);
+    }
+
+    /**
+     * Returns whether the current thread runs a warm-up request, either on the warm-up thread or, for batch elements
+     * and asynchronous tool calls, on a worker thread with the warm-up request bound.
+     *
+     * @return true while a warm-up request runs on this thread
+     */
+    protected boolean isWarmupCall() {
+        final McpWarmup currentWarmup = warmup;
+        return currentWarmup != null && !currentWarmup.isDone() && (currentWarmup.isCurrentThread() || getWarmupFailures() != null);
+    }
+
+    /**
+     * Returns whether the server is ready for requests, which is when the warm-up is done or disabled.
+     *
+     * @return true if ready
+     */
+    protected boolean isReady() {
+        final McpWarmup currentWarmup = warmup;
+        return currentWarmup == null || currentWarmup.isDone();
+    }
+
+    /**
+     * Creates the readiness information returned by {@code /mcp/ready}.
+     *
+     * @return a map with "ready" and, if the warm-up is enabled, its status in "warmup"
+     */
+    protected Map<String, Object> createReadinessInfo() {
+        final Map<String, Object> info = new LinkedHashMap<>();
+        info.put("ready", isReady());
+        final McpWarmup currentWarmup = warmup;
+        if (currentWarmup != null) {
+            info.put("warmup", currentWarmup.toMap());
+        }
+        return info;
+    }
 
-        if (contents.isEmpty()) {
-            contents.add(Map.of("type", "text", "text", "No suggestions found for: " + query));
+    /**
+     * Processes a plain HTTP readiness request ({@code GET /mcp/ready}), answered with 200 once ready and 503 before,
+     * e.g. while the warm-up runs.
+     *
+     * @param response the HTTP servlet response
+     * @throws IOException if writing the response fails
+     */
+    protected void processReadyRequest(final HttpServletResponse response) throws IOException {
+        final Map<String, Object> info = createReadinessInfo();
+        if (!Boolean.TRUE.equals(info.get("ready"))) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
         }
+        write(JsonXContent.contentBuilder().map(info).toString(), mimeType, Constants.UTF_8);
+    }
 
-        return Map.of("content", contents);
+    /**
+     * Returns whether request metrics are exposed at {@code /mcp/metrics}. Metrics are recorded either way,
+     * and the {@code fess://metrics} resource is always available to MCP clients.
+     *
+     * @return the value of {@code mcp.metrics.enabled} (default true)
+     */
+    protected boolean isMetricsEnabled() {
+        return Constants.TRUE.equalsIgnoreCase(ComponentUtil.getFessConfig().getSystemProperty("mcp.metrics.enabled", Constants.TRUE));
     }
 
     /**
-     * Resolves the requested suggest size, applying defaults and the configured page-size cap.
-     * <p>
-     * Parsing rules:
-     * <ul>
-     *   <li>{@code null} or unparseable input -&gt; default 10</li>
-     *   <li>{@code Number} -&gt; intValue</li>
-     *   <li>other -&gt; {@link Integer#parseInt}(toString())</li>
-     *   <li>result &lt;= 0 -&gt; default 10</li>
-     *   <li>result &gt; {@code maxPageSize} -&gt; capped at {@code maxPageSize}</li>
-     * </ul>
+     * Processes a plain HTTP metrics request ({@code GET /mcp/metrics}), writing the metrics in the Prometheus text format.
      *
-     * @param numObj the raw {@code num} argument value
-     * @param maxPageSize the configured maximum page size (cap)
-     * @return the effective suggest size within [1, maxPageSize]
+     * @param response the HTTP servlet response
+     * @throws IOException if writing the response fails
      */
-    protected int resolveSuggestSize(final Object numObj, final int maxPageSize) {
-        int num = 10;
-        if (numObj instanceof final Number n) {
-            num = n.intValue();
-        } else if (numObj != null) {
-            try {
-                num = Integer.parseInt(numObj.toString());
-            } catch (final NumberFormatException e) {
-                num = 10;
-            }
+    protected void processMetricsRequest(final HttpServletResponse response) throws IOException {
+        if (!isMetricsEnabled()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
-        // Fall back to default for non-positive values; cap at configured max.
-        if (num <= 0) {
-            num = 10;
+        write(createPrometheusMetrics(), PROMETHEUS_MIME_TYPE, Constants.UTF_8);
+    }
+
+    /**
+     * Creates the metrics in the Prometheus text format: request and tool latency histograms, hedging counters,
+     * and the statistics of the asynchronous executor once it has been created.
+     *
+     * @return the metrics text
+     */
+    protected String createPrometheusMetrics() {
+        final StringBuilder buf = new StringBuilder(16384);
+        metrics.writePrometheus(buf);
+        McpMetrics.writeSample(buf, "fess_mcp_search_hedge_requests_total", "counter", "Direct searches run with hedging.",
+                searchHedger.getRequestCount());
+        McpMetrics.writeSample(buf, "fess_mcp_search_hedges_total", "counter", "Hedge requests sent.", searchHedger.getHedgeCount());
+        McpMetrics.writeSample(buf, "fess_mcp_search_hedge_wins_total", "counter", "Searches answered by the hedge request.",
+                searchHedger.getHedgeWinCount());
+        final ExecutorService executor = asyncExecutor;
+        if (executor instanceof final VirtualThreadExecutor virtualExecutor) {
+            McpMetrics.writeSample(buf, "fess_mcp_virtual_threads_active", "gauge", "Tasks running on virtual threads.",
+                    virtualExecutor.getActiveCount());
+            McpMetrics.writeSample(buf, "fess_mcp_virtual_threads_max", "gauge", "Maximum number of tasks running on virtual threads.",
+                    virtualExecutor.getMaxConcurrency());
+            McpMetrics.writeSample(buf, "fess_mcp_virtual_threads_pinned_total", "counter",
+                    "Virtual threads pinned to their carrier longer than the threshold.", virtualExecutor.getPinnedEventCount());
+        } else if (executor instanceof final ThreadPoolExecutor poolExecutor) {
+            McpMetrics.writeSample(buf, "fess_mcp_async_threads_active", "gauge", "Worker threads running requests.",
+                    poolExecutor.getActiveCount());
+            McpMetrics.writeSample(buf, "fess_mcp_async_queue_size", "gauge", "Requests waiting for a worker thread.",
+                    poolExecutor.getQueue().size());
         }
-        if (num > maxPageSize) {
-            num = maxPageSize;
+        final AccessLogWriter writer = accessLogWriter;
+        if (writer != null) {
+            McpMetrics.writeSample(buf, "fess_mcp_access_log_dropped_total", "counter",
+                    "Access log entries dropped because the buffer was full.", writer.getDroppedCount());
         }
-        return num;
+        final TrafficCapture capture = trafficCapture;
+        if (capture != null) {
+            McpMetrics.writeSample(buf, "fess_mcp_capture_dropped_total", "counter",
+                    "Captured requests dropped because the buffer was full.", capture.getDroppedCount());
+        }
+        return buf.toString();
     }
 
     /**
-     * Invokes the get_document tool to retrieve a single document by its doc_id.
+     * Creates the metrics as a map: request and tool latency summaries, hedging statistics if hedging is enabled,
+     * and the statistics of the asynchronous executor once it has been created.
      *
-     * @param params the parameters including doc_id
-     * @return a map containing the document content in MCP-compliant format
+     * @return the metrics map
      */
-    protected Map<String, Object> invokeGetDocument(final Map<String, Object> params) {
-        final String docId = (String) params.get("doc_id");
-        if (docId == null || docId.isEmpty()) {
-            throw new McpApiException(ErrorCode.InvalidParams, "Missing required parameter: doc_id");
+    protected Map<String, Object> createMetricsInfo() {
+        final Map<String, Object> info = new LinkedHashMap<>(metrics.toMap());
+        if (isHedgingEnabled()) {
+            info.put("hedging", createHedgingStats());
         }
-
-        if (logger.isDebugEnabled()) {
-            logger.debug("[MCP] Retrieving document: doc_id={}", docId);
+        final ExecutorService executor = asyncExecutor;
+        if (executor instanceof final VirtualThreadExecutor virtualExecutor) {
+            final Map<String, Object> executorInfo = new LinkedHashMap<>();
+            executorInfo.put("type", "virtual");
+            executorInfo.put("active", virtualExecutor.getActiveCount());
+            executorInfo.put("max_concurrency", virtualExecutor.getMaxConcurrency());
+            executorInfo.put("pinned_events", virtualExecutor.getPinnedEventCount());
+            info.put("executor", executorInfo);
+        } else if (executor instanceof final ThreadPoolExecutor poolExecutor) {
+            final Map<String, Object> executorInfo = new LinkedHashMap<>();
+            executorInfo.put("type", "platform");
+            executorInfo.put("active", poolExecutor.getActiveCount());
+            executorInfo.put("pool_size", poolExecutor.getPoolSize());
+            executorInfo.put("queue_size", poolExecutor.getQueue().size());
+            info.put("executor", executorInfo);
         }
-
-        final FessConfig fessConfig = ComponentUtil.getFessConfig();
-        final String[] fields = new String[] { fessConfig.getIndexFieldTitle(), fessConfig.getIndexFieldContent(),
-                fessConfig.getIndexFieldUrl(), fessConfig.getIndexFieldDocId(), fessConfig.getIndexFieldLastModified() };
-
-        return ComponentUtil.getSearchHelper().getDocumentByDocId(docId, fields, OptionalThing.empty()).map(doc -> {
-            final String title = String.valueOf(doc.getOrDefault(fessConfig.getIndexFieldTitle(), ""));
-            final String url = String.valueOf(doc.getOrDefault(fessConfig.getIndexFieldUrl(), ""));
-            final String content = String.valueOf(doc.getOrDefault(fessConfig.getIndexFieldContent(), ""));
-            final String displayContent = truncateContent(content, getContentMaxLength());
-
-            final StringBuilder sb = new StringBuilder();
-            sb.append("**Title**: ").append(title).append("\n");
-            sb.append("**URL**: ").append(url).append("\n");
-            sb.append("**Doc ID**: ").append(docId).append("\n\n");
-            sb.append(displayContent);
-
-            return Map.<String, Object> of("content", List.of(Map.of("type", "text", "text", sb.toString())));
-        }).orElseGet(() -> {
-            final Map<String, Object> result = new LinkedHashMap<>();
-            result.put("content", List.of(Map.of("type", "text", "text", "Document not found: " + docId)));
-            result.put("isError", true);
-            return result;
-        });
+        return info;
     }
 
     /**
-     * Collects index statistics including document count, configuration, and system information.
+     * Sends a search engine request with a listener instead of blocking on it.
+     * Exceptions thrown while building or sending the request complete the future exceptionally.
      *
-     * @return A map containing organized statistics data
+     * @param <R>     the response type
+     * @param builder the supplier of the request builder
+     * @return a future completed by the response listener
      */
-    protected Map<String, Object> collectIndexStats() {
-        final Map<String, Object> stats = new LinkedHashMap<>();
-        final FessConfig fessConfig = ComponentUtil.getFessConfig();
-
-        // 1. Index information
-        final Map<String, Object> indexInfo = new LinkedHashMap<>();
+    protected <R> CompletableFuture<R> executeAsync(final Supplier<? extends ActionRequestBuilder<?, R>> builder) {
+        final CompletableFuture<R> future = new CompletableFuture<>();
         try {
-            final String indexName = fessConfig.getIndexDocumentSearchIndex();
-            indexInfo.put("index_name", indexName);
-
-            final org.opensearch.action.search.SearchResponse response =
-                    ComponentUtil.getSearchEngineClient().prepareSearch(indexName).setTrackTotalHits(true).setSize(0).execute().actionGet();
-            final org.opensearch.search.SearchHits hits = response.getHits();
-            final org.apache.lucene.search.TotalHits totalHits = hits.getTotalHits();
-            final long documentCount = totalHits != null ? totalHits.value() : 0;
-            indexInfo.put("document_count", documentCount);
+            final ActionRequestBuilder<?, R> requestBuilder = builder.get();
+            captureSearchSource(requestBuilder);
+            requestBuilder.execute(toActionListener(future));
         } catch (final Exception e) {
-            logger.warn("Failed to get index stats: {}", e.getMessage());
-            indexInfo.put("document_count", -1);
-            indexInfo.put("error", e.getMessage());
+            future.completeExceptionally(e);
         }
-        stats.put("index", indexInfo);
+        return future;
+    }
+
+    /**
+     * Creates an action listener that completes the given future.
+     *
+     * @param <R>    the response type
+     * @param future the future to complete
+     * @return the listener
+     */
+    protected <R> ActionListener<R> toActionListener(final CompletableFuture<R> future) {
+        return new ActionListener<>() {
+            @Override
+            public void onResponse(final R response) {
+                future.complete(response);
+            }
 
-        // 2. Configuration information
-        final Map<String, Object> configInfo = new LinkedHashMap<>();
-        configInfo.put("max_page_size", fessConfig.getPagingSearchPageMaxSizeAsInteger());
-        stats.put("config", configInfo);
+            @Override
+            public void onFailure(final Exception e) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
 
-        // 3. System information
-        final Map<String, Object> systemInfo = new LinkedHashMap<>();
-        final Runtime runtime = Runtime.getRuntime();
-        final Map<String, Object> memoryInfo = new LinkedHashMap<>();
-        memoryInfo.put("total_bytes", runtime.totalMemory());
-        memoryInfo.put("free_bytes", runtime.freeMemory());
-        memoryInfo.put("used_bytes", runtime.totalMemory() - runtime.freeMemory());
-        memoryInfo.put("max_bytes", runtime.maxMemory());
-        systemInfo.put("memory", memoryInfo);
-        stats.put("system", systemInfo);
+    /**
+     * Waits for a future, rethrowing the exception it failed with rather than a {@link CompletionException}.
+     * The wait ends when the thread is interrupted, e.g. when a tool call times out.
+     *
+     * @param <T>    the result type
+     * @param future the future
+     * @return the result
+     */
+    protected <T> T await(final CompletableFuture<T> future) {
+        final long searchStart = System.nanoTime();
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FessSystemException("Interrupted while waiting for the search engine", e);
+        } catch (final ExecutionException | CancellationException e) {
+            final Throwable cause = unwrapCompletionException(e instanceof ExecutionException ? e.getCause() : e);
+            if (cause instanceof final RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof final Error error) {
+                throw error;
+            }
+            throw new FessSystemException(cause.getMessage(), cause);
+        } finally {
+            recordPhase(getPhaseTimings(), Phase.SEARCH, searchStart);
+        }
+    }
 
-        return stats;
+    /**
+     * Unwraps the exception a future stage failed with.
+     *
+     * @param e the exception passed to a future stage
+     * @return the original exception
+     */
+    protected Throwable unwrapCompletionException(final Throwable e) {
+        Throwable cause = e;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
     }
 
     /**
@@ -1048,7 +3939,19 @@ public class McpApiManager extends BaseApiManager {
         indexResource.put("description", "Fess index statistics and configuration information");
         indexResource.put("mimeType", "application/json");
 
-        return Map.of("resources", List.of(indexResource));
+        final Map<String, Object> metricsResource = new HashMap<>();
+        metricsResource.put("uri", METRICS_URI);
+        metricsResource.put("name", "Metrics");
+        metricsResource.put("description", "Latency percentiles of MCP requests and tool calls, and executor statistics");
+        metricsResource.put("mimeType", "application/json");
+
+        final Map<String, Object> slowCallsResource = new HashMap<>();
+        slowCallsResource.put("uri", SLOW_CALLS_URI);
+        slowCallsResource.put("name", "Slow Calls");
+        slowCallsResource.put("description", "Recent tool calls slower than their threshold, with arguments, timings, and search queries");
+        slowCallsResource.put("mimeType", "application/json");
+
+        return Map.of("resources", List.of(indexResource, metricsResource, slowCallsResource));
     }
 
     /**
@@ -1068,6 +3971,10 @@ public class McpApiManager extends BaseApiManager {
             logger.debug("[MCP] Reading resource: uri={}", uri);
         }
 
+        if (isExportUri(uri)) {
+            throw new McpApiException(ErrorCode.InvalidParams, "Export resources must be read in a single (non-batch) request: " + uri);
+        }
+
         if (uri.startsWith("fess://document/")) {
             final String docId = uri.substring("fess://document/".length());
             return buildDocumentResource(docId);
@@ -1075,6 +3982,8 @@ public class McpApiManager extends BaseApiManager {
 
         return switch (uri) {
         case "fess://index/stats" -> buildIndexStatsResource();
+        case METRICS_URI -> buildMetricsResource();
+        case SLOW_CALLS_URI -> buildSlowCallsResource();
         default -> {
             if (logger.isDebugEnabled()) {
                 logger.debug("[MCP] Unknown resource requested: {}", uri);
@@ -1097,7 +4006,273 @@ public class McpApiManager extends BaseApiManager {
         docTemplate.put("description", "Retrieve a Fess document by its document ID");
         docTemplate.put("mimeType", "application/json");
 
-        return Map.of("resourceTemplates", List.of(docTemplate));
+        final Map<String, Object> exportTemplate = new HashMap<>();
+        exportTemplate.put("uriTemplate", EXPORT_URI_PREFIX + "{?q,fl}");
+        exportTemplate.put("name", "Search Export");
+        exportTemplate.put("description", "Stream every document matching query q as NDJSON, one JSON object per line, "
+                + "projected to the comma-separated fields in fl");
+        exportTemplate.put("mimeType", NDJSON_MIME_TYPE);
+
+        return Map.of("resourceTemplates", List.of(docTemplate, exportTemplate));
+    }
+
+    /**
+     * Checks whether the given resource URI refers to an export resource.
+     *
+     * @param uri the resource URI
+     * @return true if the URI is an export resource URI
+     */
+    protected boolean isExportUri(final Object uri) {
+        return uri instanceof final String s && (EXPORT_URI_PREFIX.equals(s) || s.startsWith(EXPORT_URI_PREFIX + "?"));
+    }
+
+    /**
+     * Parses the query parameters of an export resource URI ({@code fess://export?q=...&fl=a,b}).
+     *
+     * @param uri the export resource URI
+     * @return the export arguments with "q" and, if given, "fl"
+     * @throws McpApiException if the query parameter is missing
+     */
+    protected Map<String, Object> parseExportUri(final String uri) {
+        final Map<String, Object> args = new HashMap<>();
+        final int pos = uri.indexOf('?');
+        if (pos >= 0) {
+            for (final String pair : uri.substring(pos + 1).split("&")) {
+                final int eq = pair.indexOf('=');
+                if (eq <= 0) {
+                    continue;
+                }
+                final String name = URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8);
+                final String value = URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                args.put(name, value);
+            }
+        }
+        if (!(args.get("q") instanceof final String q) || q.isBlank()) {
+            throw new McpApiException(ErrorCode.InvalidParams, "Missing required parameter in export URI: q");
+        }
+        return args;
+    }
+
+    /**
+     * Resolves the fields projected into exported documents.
+     * Requested fields are limited to those allowed by {@code mcp.export.fields}.
+     *
+     * @param fl the requested fields as a comma-separated string or a list, or null for all allowed fields
+     * @return the projected fields
+     * @throws McpApiException if none of the requested fields is allowed
+     */
+    protected String[] resolveExportFields(final Object fl) {
+        final List<String> allowed = List.of(getExportAllowedFields());
+        if (fl == null) {
+            return allowed.toArray(new String[allowed.size()]);
+        }
+        final List<?> requested = fl instanceof final List<?> list ? list : List.of(fl.toString().split(","));
+        final String[] fields =
+                requested.stream().map(f -> f.toString().trim()).filter(allowed::contains).distinct().toArray(String[]::new);
+        if (fields.length == 0) {
+            throw new McpApiException(ErrorCode.InvalidParams, "No exportable fields in: " + fl + " (allowed: " + allowed + ")");
+        }
+        return fields;
+    }
+
+    /**
+     * Gets the fields that may be exported.
+     *
+     * @return the exportable field names
+     */
+    protected String[] getExportAllowedFields() {
+        final String fields = ComponentUtil.getFessConfig()
+                .getSystemProperty("mcp.export.fields", "doc_id,url,title,host,site,mimetype,filetype,content_length,last_modified,"
+                        + "label,lang");
+        return StreamUtil.split(fields, ",").get(stream -> stream.map(String::trim).filter(StringUtil::isNotBlank).toArray(String[]::new));
+    }
+
+    /**
+     * Exports all documents matching the query using scroll batches of the search engine,
+     * passing each document as one NDJSON line to the sink. Only one batch is held in memory at a time.
+     * <p>
+     * The export stops after {@code mcp.export.max.documents} documents. It is reported as truncated only if
+     * another matching document follows, so an export of exactly that many documents is complete.
+     *
+     * @param args   the export arguments, including the query "q"
+     * @param fields the fields projected into each line
+     * @param sink   the consumer receiving each NDJSON line (without a line separator)
+     * @return the export metadata: {@code documentCount}, the number of exported documents, {@code truncated},
+     *         whether the export stopped at the limit, and if so {@code maxDocuments}, the limit
+     * @throws McpApiException if scroll search is disabled
+     */
+    protected Map<String, Object> exportDocuments(final Map<String, Object> args, final String[] fields, final Consumer<String> sink) {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        if (!fessConfig.isApiSearchScroll()) {
+            throw new McpApiException(ErrorCode.InvalidRequest, "Export is not available: scroll search is disabled (api.search.scroll)");
+        }
+        final long maxDocuments = fessConfig.getSystemPropertyAsInt("mcp.export.max.documents", 100000);
+        final SearchRequestParams reqParams = createSearchRequestParams(args, fields);
+        final long[] count = { 0 };
+        final boolean[] truncated = { false };
+        ComponentUtil.getSearchHelper().scrollSearch(reqParams, doc -> {
+            if (maxDocuments > 0 && count[0] >= maxDocuments) {
+                truncated[0] = true;
+                return false;
+            }
+            final Map<String, Object> line = new LinkedHashMap<>();
+            for (final String field : fields) {
+                final Object value = doc.get(field);
+                if (value != null) {
+                    line.put(field, processValue(value));
+                }
+            }
+            try {
+                sink.accept(JsonXContent.contentBuilder().map(line).toString());
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count[0]++;
+            return true;
+        }, OptionalThing.empty());
+        final Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("documentCount", count[0]);
+        meta.put("truncated", truncated[0]);
+        if (truncated[0]) {
+            meta.put("maxDocuments", maxDocuments);
+        }
+        return meta;
+    }
+
+    /**
+     * Streams an export resource as the result of a resources/read request.
+     * The JSON-RPC envelope is written first and each document is appended to the resource text
+     * as it arrives, so memory use does not grow with the number of matching documents.
+     *
+     * @param rpcId    the JSON-RPC request id
+     * @param uri      the export resource URI
+     * @param response the HTTP servlet response to stream to
+     * @throws IOException if writing the response fails
+     */
+    protected void streamExportResource(final Object rpcId, final String uri, final HttpServletResponse response) throws IOException {
+        final Map<String, Object> args = parseExportUri(uri);
+        final String[] fields = resolveExportFields(args.get("fl"));
+        if (logger.isDebugEnabled()) {
+            logger.debug("[MCP] Streaming export: uri={}, fields={}", uri, String.join(",", fields));
+        }
+
+        response.setContentType(mimeType + "; charset=UTF-8");
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        writer.write("{\"jsonrpc\":\"2.0\",\"id\":");
+        writer.write(toJsonValue(rpcId));
+        writer.write(",\"result\":{\"contents\":[{\"uri\":");
+        writer.write(toJsonValue(uri));
+        writer.write(",\"mimeType\":\"" + NDJSON_MIME_TYPE + "\",\"text\":\"");
+        final long[] count = { 0 };
+        final Map<String, Object> meta = new LinkedHashMap<>();
+        try {
+            meta.putAll(exportDocuments(args, fields, line -> {
+                try {
+                    final String quoted = toJsonValue(line + "\n");
+                    writer.write(quoted, 1, quoted.length() - 2);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            }));
+            meta.put("complete", !Boolean.TRUE.equals(meta.get("truncated")));
+        } catch (final Exception e) {
+            // The envelope has already been sent, so the failure is reported in _meta instead of a JSON-RPC error
+            logger.warn("[MCP] Export failed after streaming started: uri={}, error={}", uri, e.getMessage(), e);
+            meta.clear();
+            meta.put("documentCount", count[0]);
+            meta.put("complete", false);
+        }
+        writer.write("\"}],\"_meta\":");
+        writer.write(JsonXContent.contentBuilder().map(meta).toString());
+        writer.write("}}");
+        writer.flush();
+    }
+
+    /**
+     * Processes a plain HTTP export request ({@code GET /mcp/export?q=...&fl=...}),
+     * streaming matching documents as NDJSON. Errors found before streaming starts are answered with the
+     * HTTP status of their error code (see {@link #getHttpStatus(ErrorCode)}), and with 503 if scroll search
+     * is disabled.
+     *
+     * @param request  the HTTP servlet request
+     * @param response the HTTP servlet response
+     * @throws IOException if writing the response fails
+     */
+    protected void processExportRequest(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        final Map<String, Object> args = new HashMap<>();
+        args.put("q", request.getParameter("q"));
+        final String[] exQ = request.getParameterValues("ex_q");
+        if (exQ != null) {
+            args.put("ex_q", List.of(exQ));
+        }
+        final String[] fields;
+        try {
+            if (StringUtil.isBlank(request.getParameter("q"))) {
+                throw new McpApiException(ErrorCode.InvalidParams, "Missing required parameter: q");
+            }
+            fields = resolveExportFields(request.getParameter("fl"));
+        } catch (final McpApiException e) {
+            response.sendError(getHttpStatus(e.getCode()), e.getMessage());
+            return;
+        }
+        if (!ComponentUtil.getFessConfig().isApiSearchScroll()) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                    "Export is not available: scroll search is disabled (api.search.scroll)");
+            return;
+        }
+
+        response.setContentType(NDJSON_MIME_TYPE + "; charset=UTF-8");
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        try (StoredContext ignored = applyOpaqueId(resolveTraceId(Collections.emptyMap()))) {
+            final Map<String, Object> meta = exportDocuments(args, fields, line -> {
+                try {
+                    writer.write(line);
+                    writer.write('\n');
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (Boolean.TRUE.equals(meta.get("truncated"))) {
+                logger.info("[MCP] Export truncated: documentCount={}, maxDocuments={}", meta.get("documentCount"),
+                        meta.get("maxDocuments"));
+            }
+        } catch (final McpApiException e) {
+            if (!response.isCommitted()) {
+                response.sendError(getHttpStatus(e.getCode()), e.getMessage());
+                return;
+            }
+            logger.warn("[MCP] Export failed: error={}", e.getMessage(), e);
+        } catch (final Exception e) {
+            logger.warn("[MCP] Export failed: error={}", e.getMessage(), e);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Gets the HTTP status of a plain HTTP request that failed with the given error code, following the meaning
+     * of the JSON-RPC error code.
+     *
+     * @param code the error code
+     * @return 404 for an unknown method or resource, 500 for an internal error, and 400 otherwise
+     */
+    protected int getHttpStatus(final ErrorCode code) {
+        return switch (code) {
+        case MethodNotFound, ResourceNotFound -> HttpServletResponse.SC_NOT_FOUND;
+        case InternalError -> HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        default -> HttpServletResponse.SC_BAD_REQUEST;
+        };
+    }
+
+    /**
+     * Serializes a single value (string, number, boolean, or null) as JSON.
+     *
+     * @param value the value to serialize
+     * @return the JSON representation
+     * @throws IOException if serialization fails
+     */
+    protected String toJsonValue(final Object value) throws IOException {
+        return JsonXContent.contentBuilder().value(value).toString();
     }
 
     /**
@@ -1151,6 +4326,44 @@ public class McpApiManager extends BaseApiManager {
         }
     }
 
+    /**
+     * Builds the metrics resource content.
+     *
+     * @return A map with "contents" key containing the metrics
+     */
+    protected Map<String, Object> buildMetricsResource() {
+        try {
+            final Map<String, Object> content = new HashMap<>();
+            content.put("uri", METRICS_URI);
+            content.put("mimeType", "application/json");
+            content.put("text", JsonXContent.contentBuilder().map(createMetricsInfo()).toString());
+            return Map.of("contents", List.of(content));
+        } catch (final IOException e) {
+            throw new McpApiException(ErrorCode.InternalError, "Failed to serialize metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the slow call diagnostics resource content.
+     *
+     * @return A map with "contents" key containing the captured slow calls, newest first
+     */
+    protected Map<String, Object> buildSlowCallsResource() {
+        final SlowCallLog log = slowCallLog;
+        final Map<String, Object> info = new LinkedHashMap<>();
+        info.put("capturedCount", log != null ? log.getAddedCount() : 0L);
+        info.put("calls", log != null ? log.getEntries() : Collections.emptyList());
+        try {
+            final Map<String, Object> content = new HashMap<>();
+            content.put("uri", SLOW_CALLS_URI);
+            content.put("mimeType", "application/json");
+            content.put("text", JsonXContent.contentBuilder().map(info).toString());
+            return Map.of("contents", List.of(content));
+        } catch (final IOException e) {
+            throw new McpApiException(ErrorCode.InternalError, "Failed to serialize slow calls: " + e.getMessage());
+        }
+    }
+
     /**
      * Handles the prompts/list request and returns available prompts.
      *
@@ -1458,6 +4671,35 @@ public class McpApiManager extends BaseApiManager {
         return ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.content.max.length", DEFAULT_CONTENT_MAX_LENGTH);
     }
 
+    /**
+     * Gets the number of characters assumed per token when estimating token counts.
+     *
+     * @return The number of characters per token
+     */
+    protected int getCharsPerToken() {
+        return Math.max(1, ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.token.chars.per.token", 4));
+    }
+
+    /**
+     * Gets the number of candidate documents fetched when a token budget is given without {@code num}.
+     *
+     * @return The candidate set size, capped at the configured maximum page size
+     */
+    protected int getBudgetCandidateSize() {
+        final FessConfig fessConfig = ComponentUtil.getFessConfig();
+        return Math.min(fessConfig.getSystemPropertyAsInt("mcp.budget.candidate.size", 20),
+                fessConfig.getPagingSearchPageMaxSizeAsInteger().intValue());
+    }
+
+    /**
+     * Gets the minimum snippet length kept per document before documents are dropped from a budgeted result.
+     *
+     * @return The minimum snippet length in characters
+     */
+    protected int getBudgetMinSnippetLength() {
+        return ComponentUtil.getFessConfig().getSystemPropertyAsInt("mcp.budget.min.snippet.length", 200);
+    }
+
     /**
      * Truncates content to the specified maximum length.
      *
@@ -1488,12 +4730,25 @@ public class McpApiManager extends BaseApiManager {
 
     /**
      * Creates a document content entry in Markdown format for MCP response.
+     * Budgeted results are packed with this method too, passing a copy of the document with a shortened
+     * {@code content_description}; overrides should take the snippet from {@link #resolveDisplayContent(Map)}
+     * so that it can be shrunk to fit the budget.
      *
      * @param doc   The processed document
      * @param index The result index (1-based)
      * @return A map containing type and text for MCP content
      */
     protected Map<String, Object> createDocumentContent(final Map<String, Object> doc, final int index) {
+        return Map.of("type", "text", "text", buildDocumentHeader(doc) + resolveDisplayContent(doc));
+    }
+
+    /**
+     * Builds the Markdown header (title, URL, and score) of a document content entry.
+     *
+     * @param doc The processed document
+     * @return The header text, ending with a blank line
+     */
+    protected String buildDocumentHeader(final Map<String, Object> doc) {
         final StringBuilder sb = new StringBuilder();
         final Object score = doc.get("score");
         sb.append("**Title**: ").append(doc.getOrDefault("title", "")).append("\n");
@@ -1502,21 +4757,25 @@ public class McpApiManager extends BaseApiManager {
             sb.append("**Score**: ").append(score).append("\n");
         }
         sb.append("\n");
+        return sb.toString();
+    }
 
+    /**
+     * Resolves the body text of a document content entry.
+     *
+     * @param doc The processed document
+     * @return The highlighted snippet with tags stripped, or the truncated raw content
+     */
+    protected String resolveDisplayContent(final Map<String, Object> doc) {
         // Use content_description (highlighted text) if available, fallback to content
         final String contentDescription = String.valueOf(doc.getOrDefault("content_description", ""));
-        final String displayContent;
         if (contentDescription.isEmpty() || "null".equals(contentDescription)) {
             // Fallback to raw content with truncation
             final String content = String.valueOf(doc.getOrDefault("content", ""));
-            displayContent = truncateContent(content, getContentMaxLength());
-        } else {
-            // Use highlighted content with tags stripped
-            displayContent = stripHighlightTags(contentDescription);
+            return truncateContent(content, getContentMaxLength());
         }
-        sb.append(displayContent);
-
-        return Map.of("type", "text", "text", sb.toString());
+        // Use highlighted content with tags stripped
+        return stripHighlightTags(contentDescription);
     }
 
     /**
@@ -1534,7 +4793,9 @@ public class McpApiManager extends BaseApiManager {
         errorResponse.put("id", id);
         errorResponse.put("error", error);
         try {
-            write(JsonXContent.contentBuilder().map(errorResponse).toString(), mimeType, Constants.UTF_8);
+            final String json = JsonXContent.contentBuilder().map(errorResponse).toString();
+            writeServerTiming(response, getPhaseTimings());
+            write(json, mimeType, Constants.UTF_8);
         } catch (final IOException e) {
             logger.warn("Failed to write error response", e);
         }
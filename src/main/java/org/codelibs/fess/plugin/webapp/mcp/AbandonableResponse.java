@@ -0,0 +1,351 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * A response that a worker thread writes to while another thread may give up on it, e.g. when an asynchronous
+ * request times out. Once {@link #abandon() abandoned}, status, headers, and body writes are discarded, so that
+ * a late worker cannot write into a response the container has already completed and recycled.
+ * <p>
+ * A write that is in progress when the response is abandoned finishes first; {@link #abandon()} waits for it.
+ */
+public class AbandonableResponse extends HttpServletResponseWrapper {
+
+    private final Object lock = new Object();
+
+    private volatile boolean abandoned;
+
+    private PrintWriter writer;
+
+    private ServletOutputStream outputStream;
+
+    /**
+     * Creates a response that writes to the given response until it is abandoned.
+     *
+     * @param response the wrapped response
+     */
+    public AbandonableResponse(final HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Discards all following writes. Waits for a write in progress to finish.
+     */
+    public void abandon() {
+        synchronized (lock) {
+            abandoned = true;
+        }
+    }
+
+    /**
+     * Returns whether the response is abandoned.
+     *
+     * @return true if writes are discarded
+     */
+    public boolean isAbandoned() {
+        return abandoned;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        synchronized (lock) {
+            if (writer == null) {
+                writer = new PrintWriter(new GuardedWriter(abandoned ? Writer.nullWriter() : super.getWriter()));
+            }
+            return writer;
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        synchronized (lock) {
+            if (outputStream == null) {
+                outputStream = new GuardedOutputStream(abandoned ? null : super.getOutputStream());
+            }
+            return outputStream;
+        }
+    }
+
+    @Override
+    public void setStatus(final int sc) {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.setStatus(sc);
+            }
+        }
+    }
+
+    @Override
+    public void sendError(final int sc) throws IOException {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.sendError(sc);
+            }
+        }
+    }
+
+    @Override
+    public void sendError(final int sc, final String msg) throws IOException {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.sendError(sc, msg);
+            }
+        }
+    }
+
+    @Override
+    public void sendRedirect(final String location) throws IOException {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.sendRedirect(location);
+            }
+        }
+    }
+
+    @Override
+    public void setHeader(final String name, final String value) {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.setHeader(name, value);
+            }
+        }
+    }
+
+    @Override
+    public void addHeader(final String name, final String value) {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.addHeader(name, value);
+            }
+        }
+    }
+
+    @Override
+    public void setIntHeader(final String name, final int value) {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.setIntHeader(name, value);
+            }
+        }
+    }
+
+    @Override
+    public void addIntHeader(final String name, final int value) {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.addIntHeader(name, value);
+            }
+        }
+    }
+
+    @Override
+    public void setDateHeader(final String name, final long date) {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.setDateHeader(name, date);
+            }
+        }
+    }
+
+    @Override
+    public void addDateHeader(final String name, final long date) {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.addDateHeader(name, date);
+            }
+        }
+    }
+
+    @Override
+    public void setContentType(final String type) {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.setContentType(type);
+            }
+        }
+    }
+
+    @Override
+    public void setCharacterEncoding(final String charset) {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.setCharacterEncoding(charset);
+            }
+        }
+    }
+
+    @Override
+    public void setContentLength(final int len) {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.setContentLength(len);
+            }
+        }
+    }
+
+    @Override
+    public void setContentLengthLong(final long len) {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.setContentLengthLong(len);
+            }
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.flushBuffer();
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.reset();
+            }
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        synchronized (lock) {
+            if (!abandoned) {
+                super.resetBuffer();
+            }
+        }
+    }
+
+    /**
+     * A writer that discards writes once the response is abandoned.
+     */
+    private class GuardedWriter extends Writer {
+
+        private final Writer out;
+
+        GuardedWriter(final Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) throws IOException {
+            synchronized (AbandonableResponse.this.lock) {
+                if (!abandoned) {
+                    out.write(cbuf, off, len);
+                }
+            }
+        }
+
+        @Override
+        public void write(final String str, final int off, final int len) throws IOException {
+            synchronized (AbandonableResponse.this.lock) {
+                if (!abandoned) {
+                    out.write(str, off, len);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (AbandonableResponse.this.lock) {
+                if (!abandoned) {
+                    out.flush();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (AbandonableResponse.this.lock) {
+                if (!abandoned) {
+                    out.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * An output stream that discards writes once the response is abandoned.
+     */
+    private class GuardedOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream out;
+
+        GuardedOutputStream(final ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            synchronized (AbandonableResponse.this.lock) {
+                if (!abandoned) {
+                    out.write(b);
+                }
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            synchronized (AbandonableResponse.this.lock) {
+                if (!abandoned) {
+                    out.write(b, off, len);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (AbandonableResponse.this.lock) {
+                if (!abandoned) {
+                    out.flush();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (AbandonableResponse.this.lock) {
+                if (!abandoned) {
+                    out.close();
+                }
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return abandoned || out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(final WriteListener writeListener) {
+            if (!abandoned) {
+                out.setWriteListener(writeListener);
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opensearch.common.xcontent.json.JsonXContent;
+
+/**
+ * Writes access log entries as JSON lines from a background thread.
+ * <p>
+ * Request threads hand entries over through a bounded buffer and never wait: when the buffer is full,
+ * the entry is dropped and counted. The writer thread serializes the entries and passes them to the
+ * {@value #LOGGER_NAME} logger, so the log destination is configured in log4j.
+ */
+public class AccessLogWriter implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(AccessLogWriter.class);
+
+    /** The name of the logger the access log is written to. */
+    public static final String LOGGER_NAME = "org.codelibs.fess.mcp.access";
+
+    /** The entry key of the query, which is normalized before it is written. */
+    public static final String QUERY_KEY = "query";
+
+    /** The maximum length of a normalized query. */
+    public static final int MAX_QUERY_LENGTH = 256;
+
+    private static final int DRAIN_SIZE = 256;
+
+    private final BlockingQueue<Map<String, Object>> buffer;
+
+    private final Consumer<String> output;
+
+    private final Consumer<Map<String, Object>> preparer;
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final LongAdder writtenCount = new LongAdder();
+
+    private final Thread writerThread;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a writer logging to the {@value #LOGGER_NAME} logger and starts its thread.
+     *
+     * @param bufferSize the number of entries that may wait to be written
+     */
+    public AccessLogWriter(final int bufferSize) {
+        this(bufferSize, LogManager.getLogger(LOGGER_NAME)::info);
+    }
+
+    /**
+     * Creates a writer and starts its thread.
+     *
+     * @param bufferSize the number of entries that may wait to be written
+     * @param output     receives each serialized line
+     */
+    public AccessLogWriter(final int bufferSize, final Consumer<String> output) {
+        this(bufferSize, output, "mcp-access-log");
+    }
+
+    /**
+     * Creates a writer and starts its thread.
+     *
+     * @param bufferSize the number of entries that may wait to be written
+     * @param output     receives each serialized line
+     * @param threadName the name of the writer thread
+     */
+    public AccessLogWriter(final int bufferSize, final Consumer<String> output, final String threadName) {
+        this(bufferSize, output, threadName, entry -> {});
+    }
+
+    /**
+     * Creates a writer and starts its thread.
+     *
+     * @param bufferSize the number of entries that may wait to be written
+     * @param output     receives each serialized line
+     * @param threadName the name of the writer thread
+     * @param preparer   modifies each entry on the writer thread before it is serialized, e.g. to redact values
+     */
+    public AccessLogWriter(final int bufferSize, final Consumer<String> output, final String threadName,
+            final Consumer<Map<String, Object>> preparer) {
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        this.output = output;
+        this.preparer = preparer;
+        this.writerThread = new Thread(this::run, threadName);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues an entry without waiting. Values must be JSON-serializable; the value of {@value #QUERY_KEY}
+     * is normalized with {@link #normalizeQuery(String)} and the entry is prepared on the writer thread.
+     *
+     * @param entry the entry
+     * @return true if the entry was queued, false if it was dropped because the buffer is full or the writer is closed
+     */
+    public boolean offer(final Map<String, Object> entry) {
+        if (closed || !buffer.offer(entry)) {
+            droppedCount.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private void run() {
+        final List<Map<String, Object>> entries = new ArrayList<>(DRAIN_SIZE);
+        while (!closed || !buffer.isEmpty()) {
+            try {
+                final Map<String, Object> first = buffer.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                entries.add(first);
+                buffer.drainTo(entries, DRAIN_SIZE - 1);
+                entries.forEach(this::write);
+                entries.clear();
+            } catch (final InterruptedException e) {
+                // closed: write what is left
+                buffer.drainTo(entries);
+                entries.forEach(this::write);
+                return;
+            }
+        }
+    }
+
+    private void write(final Map<String, Object> entry) {
+        try {
+            if (entry.get(QUERY_KEY) instanceof final String query) {
+                entry.put(QUERY_KEY, normalizeQuery(query));
+            }
+            preparer.accept(entry);
+            output.accept(JsonXContent.contentBuilder().map(entry).toString());
+            writtenCount.increment();
+        } catch (final Exception e) {
+            logger.warn("[MCP] Failed to write an access log entry: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Normalizes a query for logging: whitespace is collapsed, letters are lower-cased,
+     * and the result is truncated to {@value #MAX_QUERY_LENGTH} characters.
+     *
+     * @param query the query
+     * @return the normalized query
+     */
+    public static String normalizeQuery(final String query) {
+        final String normalized = query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return normalized.length() > MAX_QUERY_LENGTH ? normalized.substring(0, MAX_QUERY_LENGTH) : normalized;
+    }
+
+    /**
+     * Gets the number of bytes a string takes in UTF-8, as {@link String#getBytes(java.nio.charset.Charset)} would
+     * encode it, without encoding it.
+     *
+     * @param value the string
+     * @return the encoded length
+     */
+    public static long utf8Length(final CharSequence value) {
+        long length = 0L;
+        final int size = value.length();
+        for (int i = 0; i < size; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < size && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate is encoded as '?'
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Gets the number of entries dropped because the buffer was full.
+     *
+     * @return the number of dropped entries
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Gets the number of entries written.
+     *
+     * @return the number of written entries
+     */
+    public long getWrittenCount() {
+        return writtenCount.sum();
+    }
+
+    /**
+     * Stops accepting entries and waits briefly for queued entries to be written.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            writerThread.interrupt();
+        }
+    }
+}
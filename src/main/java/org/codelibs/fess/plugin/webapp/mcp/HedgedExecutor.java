@@ -0,0 +1,217 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs requests with hedging: if the primary attempt has not completed after a delay derived from
+ * recent latencies, a second attempt is sent and the first successful response wins.
+ * <p>
+ * Latencies of recent attempts are kept in a fixed-size ring without locking. The hedge delay is a
+ * percentile of that window, recomputed every {@value #RECOMPUTE_INTERVAL} samples.
+ */
+public class HedgedExecutor {
+
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    private final AtomicLongArray latencies;
+
+    private final AtomicLong sampleCount = new AtomicLong();
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final LongAdder hedgeCount = new LongAdder();
+
+    private final LongAdder hedgeWinCount = new LongAdder();
+
+    private volatile long cachedDelayMillis = -1L;
+
+    private volatile double cachedPercentile = Double.NaN;
+
+    /**
+     * Creates a hedged executor.
+     *
+     * @param windowSize the number of recent latencies the hedge delay is computed from
+     */
+    public HedgedExecutor(final int windowSize) {
+        this.latencies = new AtomicLongArray(windowSize);
+    }
+
+    /**
+     * Runs a request with hedging. If the primary attempt fails before the hedge is sent, the result fails,
+     * and no hedge is sent after that; once the hedge is sent, the result fails only if both attempts fail.
+     * <p>
+     * The future of the losing attempt is cancelled, so its response is discarded when it arrives, but the
+     * request itself is not cancelled on the server, which keeps working on it until it completes. A hedged
+     * request therefore costs up to twice the server work, which is why hedges are only sent for the slowest
+     * requests. A primary attempt that loses records the time until the hedge won as its latency, a lower bound,
+     * so that slow attempts are not left out of the latency window.
+     *
+     * @param <T>         the response type
+     * @param primary     sends the primary attempt
+     * @param hedge       sends the hedge attempt
+     * @param delayMillis the delay before the hedge is sent, or a negative value to send no hedge
+     * @return the future of the first successful response
+     */
+    public <T> CompletableFuture<T> execute(final Supplier<CompletableFuture<T>> primary, final Supplier<CompletableFuture<T>> hedge,
+            final long delayMillis) {
+        requestCount.increment();
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final AtomicBoolean settled = new AtomicBoolean();
+        final AtomicInteger pending = new AtomicInteger(1);
+        final AtomicReference<CompletableFuture<T>> hedgeRef = new AtomicReference<>();
+        final long primaryStart = System.nanoTime();
+        final CompletableFuture<T> primaryFuture = primary.get();
+        primaryFuture.whenComplete((response, e) -> {
+            if (e == null) {
+                recordLatency(System.nanoTime() - primaryStart);
+                if (settled.compareAndSet(false, true)) {
+                    final CompletableFuture<T> hedgeFuture = hedgeRef.get();
+                    if (hedgeFuture != null) {
+                        hedgeFuture.cancel(false);
+                    }
+                    result.complete(response);
+                }
+            } else if (pending.decrementAndGet() == 0 && settled.compareAndSet(false, true)) {
+                result.completeExceptionally(e);
+            }
+        });
+        if (delayMillis < 0 || settled.get()) {
+            return result;
+        }
+
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            // pending drops to 0 only when the result fails, so checking and incrementing it in one step
+            // never sends a hedge for a failed result
+            int count;
+            do {
+                count = pending.get();
+                if (count == 0 || settled.get()) {
+                    return;
+                }
+            } while (!pending.compareAndSet(count, count + 1));
+            hedgeCount.increment();
+            final long hedgeStart = System.nanoTime();
+            final CompletableFuture<T> hedgeFuture;
+            try {
+                hedgeFuture = hedge.get();
+            } catch (final RuntimeException e) {
+                if (pending.decrementAndGet() == 0 && settled.compareAndSet(false, true)) {
+                    result.completeExceptionally(e);
+                }
+                return;
+            }
+            hedgeRef.set(hedgeFuture);
+            hedgeFuture.whenComplete((response, e) -> {
+                if (e == null) {
+                    recordLatency(System.nanoTime() - hedgeStart);
+                    if (settled.compareAndSet(false, true)) {
+                        hedgeWinCount.increment();
+                        // The primary attempt has taken at least this long; without it, the window would only
+                        // keep the latencies of fast attempts and the hedge delay would drift down
+                        recordLatency(System.nanoTime() - primaryStart);
+                        primaryFuture.cancel(false);
+                        result.complete(response);
+                    }
+                } else if (pending.decrementAndGet() == 0 && settled.compareAndSet(false, true)) {
+                    result.completeExceptionally(e);
+                }
+            });
+            if (settled.get() && !hedgeFuture.isDone()) {
+                // The primary attempt won while the hedge was being sent
+                hedgeFuture.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Records the latency of an attempt.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void recordLatency(final long nanos) {
+        final long count = sampleCount.getAndIncrement();
+        latencies.set((int) (count % latencies.length()), nanos);
+        if ((count + 1) % RECOMPUTE_INTERVAL == 0) {
+            cachedPercentile = Double.NaN;
+        }
+    }
+
+    /**
+     * Gets the hedge delay: the given percentile of recent latencies, but at least the minimum delay.
+     *
+     * @param percentile     the percentile of recent latencies, in (0, 100]
+     * @param minDelayMillis the minimum delay in milliseconds
+     * @param minSamples     the number of latencies needed before hedging starts
+     * @return the delay in milliseconds, or -1 if there are not enough samples yet
+     */
+    public long getHedgeDelayMillis(final double percentile, final long minDelayMillis, final int minSamples) {
+        final long count = sampleCount.get();
+        if (count < Math.max(1, minSamples)) {
+            return -1L;
+        }
+        if (cachedPercentile != percentile) {
+            final int size = (int) Math.min(count, latencies.length());
+            final long[] values = new long[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = latencies.get(i);
+            }
+            Arrays.sort(values);
+            final int index = Math.min(size - 1, Math.max(0, (int) Math.ceil(percentile / 100.0d * size) - 1));
+            cachedDelayMillis = TimeUnit.NANOSECONDS.toMillis(values[index]);
+            cachedPercentile = percentile;
+        }
+        return Math.max(minDelayMillis, cachedDelayMillis);
+    }
+
+    /**
+     * Gets the number of requests run through this executor.
+     *
+     * @return the number of requests
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * Gets the number of requests for which a hedge was sent.
+     *
+     * @return the number of hedges
+     */
+    public long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    /**
+     * Gets the number of requests answered by the hedge rather than the primary attempt.
+     *
+     * @return the number of hedge wins
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.sum();
+    }
+}
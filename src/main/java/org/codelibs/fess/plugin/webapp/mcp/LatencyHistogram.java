@@ -0,0 +1,184 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram with log-linear buckets, recorded without locking.
+ * <p>
+ * Like an HDR histogram, each power of two between {@code 2^}{@value #MIN_EXPONENT} and
+ * {@code 2^}{@value #MAX_EXPONENT} nanoseconds (about 65&micro;s to 69s) is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so the relative error of a recorded value is at most 25%.
+ * Faster values fall into the first bucket and slower values into the overflow bucket.
+ */
+public class LatencyHistogram {
+
+    /** The exponent of the upper bound of the first bucket. */
+    public static final int MIN_EXPONENT = 16;
+
+    /** The exponent of the upper bound of the last finite bucket. */
+    public static final int MAX_EXPONENT = 36;
+
+    /** The number of sub-buckets per power of two. */
+    public static final int SUB_BUCKETS = 4;
+
+    private static final int SUB_BUCKET_BITS = 2;
+
+    /** The number of buckets, including the first and the overflow bucket. */
+    public static final int BUCKET_COUNT = 2 + (MAX_EXPONENT - MIN_EXPONENT) * SUB_BUCKETS;
+
+    private static final long[] UPPER_BOUNDS = new long[BUCKET_COUNT];
+
+    static {
+        UPPER_BOUNDS[0] = 1L << MIN_EXPONENT;
+        for (int i = 1; i < BUCKET_COUNT - 1; i++) {
+            final int exponent = MIN_EXPONENT + (i - 1) / SUB_BUCKETS;
+            final int sub = (i - 1) % SUB_BUCKETS;
+            UPPER_BOUNDS[i] = (long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS);
+        }
+        UPPER_BOUNDS[BUCKET_COUNT - 1] = Long.MAX_VALUE;
+    }
+
+    private final LongAdder[] counts = new LongAdder[BUCKET_COUNT];
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values are recorded as zero
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0L, nanos);
+        counts[bucketIndex(value)].increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Gets the index of the bucket a value falls into.
+     *
+     * @param nanos the value in nanoseconds
+     * @return the bucket index
+     */
+    public static int bucketIndex(final long nanos) {
+        if (nanos < UPPER_BOUNDS[0]) {
+            return 0;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        final int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gets the exclusive upper bound of a bucket.
+     *
+     * @param index the bucket index
+     * @return the upper bound in nanoseconds, or {@link Long#MAX_VALUE} for the overflow bucket
+     */
+    public static long getUpperBound(final int index) {
+        return UPPER_BOUNDS[index];
+    }
+
+    /**
+     * Gets a snapshot of the bucket counts. Concurrent recording may make the snapshot slightly inconsistent
+     * with {@link #getCount()}.
+     *
+     * @return the number of values recorded in each bucket
+     */
+    public long[] getBucketCounts() {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts[i].sum();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        long count = 0L;
+        for (final LongAdder adder : counts) {
+            count += adder.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the sum of recorded values.
+     *
+     * @return the sum in nanoseconds
+     */
+    public long getSumNanos() {
+        return sum.sum();
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return the maximum in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Gets an upper estimate of a percentile: the upper bound of the bucket containing it,
+     * capped at the largest recorded value.
+     *
+     * @param percentile the percentile, in (0, 100]
+     * @return the percentile in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        final long[] snapshot = getBucketCounts();
+        long total = 0L;
+        for (final long count : snapshot) {
+            total += count;
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        final long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0d * total));
+        final long maxValue = getMaxNanos();
+        long seen = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(UPPER_BOUNDS[i], maxValue);
+            }
+        }
+        return maxValue;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * An in-process HTTP request and response, for running requests through the regular request processing
+ * without a client, e.g. for the warm-up. The request has no body, parameters, headers, or session
+ * and comes from the loopback address; the response collects the status, headers, and body in memory.
+ */
+public class LocalExchange {
+
+    private static final String LOOPBACK_ADDRESS = "127.0.0.1";
+
+    private final String servletPath;
+
+    private final String contentType;
+
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    private final Map<String, String> headers = new ConcurrentHashMap<>();
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    private final PrintWriter writer = new PrintWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+
+    private final ServletOutputStream outputStream = new ServletOutputStream() {
+        @Override
+        public void write(final int b) {
+            body.write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            body.write(b, off, len);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(final WriteListener writeListener) {
+            // writes never block
+        }
+    };
+
+    private final HttpServletRequest request;
+
+    private final HttpServletResponse response;
+
+    private volatile int status = HttpServletResponse.SC_OK;
+
+    private volatile String responseContentType;
+
+    /**
+     * Creates an exchange.
+     *
+     * @param servletPath the servlet path and URI of the request
+     * @param contentType the content type of the request
+     */
+    public LocalExchange(final String servletPath, final String contentType) {
+        this.servletPath = servletPath;
+        this.contentType = contentType;
+        final ClassLoader classLoader = LocalExchange.class.getClassLoader();
+        request = (HttpServletRequest) Proxy.newProxyInstance(classLoader, new Class<?>[] { HttpServletRequest.class },
+                (proxy, method, args) -> handleRequest(proxy, method, args));
+        response = (HttpServletResponse) Proxy.newProxyInstance(classLoader, new Class<?>[] { HttpServletResponse.class },
+                (proxy, method, args) -> handleResponse(proxy, method, args));
+    }
+
+    /**
+     * Gets the request.
+     *
+     * @return the request
+     */
+    public HttpServletRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Gets the response.
+     *
+     * @return the response
+     */
+    public HttpServletResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * Gets the status set on the response.
+     *
+     * @return the status, 200 unless set
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets a header set on the response.
+     *
+     * @param name the header name
+     * @return the value, or null if not set
+     */
+    public String getHeader(final String name) {
+        return headers.get(name);
+    }
+
+    /**
+     * Gets the body written to the response so far.
+     *
+     * @return the body decoded as UTF-8
+     */
+    public String getBody() {
+        writer.flush();
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    private Object handleRequest(final Object proxy, final Method method, final Object[] args) {
+        switch (method.getName()) {
+        case "getAttribute":
+            return attributes.get((String) args[0]);
+        case "setAttribute":
+            if (args[1] != null) {
+                attributes.put((String) args[0], args[1]);
+            } else {
+                attributes.remove(args[0]);
+            }
+            return null;
+        case "removeAttribute":
+            attributes.remove(args[0]);
+            return null;
+        case "getAttributeNames":
+            return Collections.enumeration(attributes.keySet());
+        case "getServletPath", "getRequestURI":
+            return servletPath;
+        case "getContextPath":
+            return "";
+        case "getMethod":
+            return "POST";
+        case "getContentType":
+            return contentType;
+        case "getCharacterEncoding":
+            return StandardCharsets.UTF_8.name();
+        case "getRemoteAddr", "getRemoteHost", "getLocalAddr", "getLocalName", "getServerName":
+            return LOOPBACK_ADDRESS;
+        case "getLocale":
+            return Locale.ROOT;
+        case "getLocales":
+            return Collections.enumeration(Collections.singletonList(Locale.ROOT));
+        case "getHeaderNames", "getHeaders", "getParameterNames":
+            return Collections.emptyEnumeration();
+        case "getParameterMap":
+            return Collections.emptyMap();
+        case "getIntHeader":
+            return -1;
+        case "getDateHeader":
+            return -1L;
+        default:
+            return handleObjectMethod(proxy, method, args);
+        }
+    }
+
+    private Object handleResponse(final Object proxy, final Method method, final Object[] args) {
+        switch (method.getName()) {
+        case "getWriter":
+            return writer;
+        case "getOutputStream":
+            return outputStream;
+        case "setStatus", "sendError":
+            status = (Integer) args[0];
+            return null;
+        case "getStatus":
+            return status;
+        case "setHeader", "addHeader", "setIntHeader", "addIntHeader", "setDateHeader", "addDateHeader":
+            headers.put((String) args[0], String.valueOf(args[1]));
+            return null;
+        case "getHeader":
+            return headers.get(args[0]);
+        case "containsHeader":
+            return headers.containsKey(args[0]);
+        case "getHeaderNames":
+            return Collections.unmodifiableSet(headers.keySet());
+        case "setContentType":
+            responseContentType = (String) args[0];
+            return null;
+        case "getContentType":
+            return responseContentType;
+        case "getCharacterEncoding":
+            return StandardCharsets.UTF_8.name();
+        case "getLocale":
+            return Locale.ROOT;
+        case "encodeURL", "encodeRedirectURL":
+            return args[0];
+        case "flushBuffer":
+            writer.flush();
+            return null;
+        default:
+            return handleObjectMethod(proxy, method, args);
+        }
+    }
+
+    private Object handleObjectMethod(final Object proxy, final Method method, final Object[] args) {
+        switch (method.getName()) {
+        case "equals":
+            return proxy == args[0];
+        case "hashCode":
+            return System.identityHashCode(proxy);
+        case "toString":
+            return "LocalExchange[" + servletPath + "]";
+        default:
+            return defaultValue(method.getReturnType());
+        }
+    }
+
+    private static Object defaultValue(final Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type.isArray()) {
+            return Array.newInstance(type.getComponentType(), 0);
+        }
+        return null;
+    }
+}
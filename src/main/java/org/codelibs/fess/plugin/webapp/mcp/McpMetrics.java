@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Latency histograms of MCP requests, per JSON-RPC method and outcome, and of tool calls, per tool and outcome.
+ * <p>
+ * Recording looks up an existing histogram without locking and updates it with {@link LatencyHistogram#record(long)}.
+ * Callers are expected to pass a bounded set of names and outcomes, since every combination is kept forever.
+ */
+public class McpMetrics {
+
+    /** The outcome of a successful call. */
+    public static final String OUTCOME_SUCCESS = "success";
+
+    /** The outcome of a tool call that returned a result with {@code isError} set. */
+    public static final String OUTCOME_IS_ERROR = "is_error";
+
+    /** The Prometheus metric name of request latencies. */
+    public static final String REQUEST_METRIC = "fess_mcp_request_duration_seconds";
+
+    /** The Prometheus metric name of tool call latencies. */
+    public static final String TOOL_METRIC = "fess_mcp_tool_duration_seconds";
+
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> requests = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> tools = new ConcurrentHashMap<>();
+
+    /**
+     * Records the latency of a JSON-RPC request.
+     *
+     * @param method  the method name
+     * @param outcome the outcome: {@value #OUTCOME_SUCCESS}, {@value #OUTCOME_IS_ERROR}, or an {@link ErrorCode} name
+     * @param nanos   the latency in nanoseconds
+     */
+    public void recordRequest(final String method, final String outcome, final long nanos) {
+        histogram(requests, method, outcome).record(nanos);
+    }
+
+    /**
+     * Records the latency of a tool call.
+     *
+     * @param tool    the tool name
+     * @param outcome the outcome: {@value #OUTCOME_SUCCESS}, {@value #OUTCOME_IS_ERROR}, or an {@link ErrorCode} name
+     * @param nanos   the latency in nanoseconds
+     */
+    public void recordTool(final String tool, final String outcome, final long nanos) {
+        histogram(tools, tool, outcome).record(nanos);
+    }
+
+    /**
+     * Gets the request histogram of a method and outcome.
+     *
+     * @param method  the method name
+     * @param outcome the outcome
+     * @return the histogram, or null if nothing was recorded
+     */
+    public LatencyHistogram getRequestHistogram(final String method, final String outcome) {
+        final Map<String, LatencyHistogram> byOutcome = requests.get(method);
+        return byOutcome != null ? byOutcome.get(outcome) : null;
+    }
+
+    /**
+     * Gets the tool histogram of a tool and outcome.
+     *
+     * @param tool    the tool name
+     * @param outcome the outcome
+     * @return the histogram, or null if nothing was recorded
+     */
+    public LatencyHistogram getToolHistogram(final String tool, final String outcome) {
+        final Map<String, LatencyHistogram> byOutcome = tools.get(tool);
+        return byOutcome != null ? byOutcome.get(outcome) : null;
+    }
+
+    private static LatencyHistogram histogram(final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> series,
+            final String name, final String outcome) {
+        ConcurrentMap<String, LatencyHistogram> byOutcome = series.get(name);
+        if (byOutcome == null) {
+            byOutcome = series.computeIfAbsent(name, k -> new ConcurrentHashMap<>());
+        }
+        LatencyHistogram histogram = byOutcome.get(outcome);
+        if (histogram == null) {
+            histogram = byOutcome.computeIfAbsent(outcome, k -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * Writes the histograms in the Prometheus text exposition format. Buckets are reported at every power of two
+     * nanoseconds, which are exact bucket boundaries of {@link LatencyHistogram}.
+     *
+     * @param buf the buffer to append to
+     */
+    public void writePrometheus(final StringBuilder buf) {
+        writeHistograms(buf, REQUEST_METRIC, "Latency of MCP JSON-RPC requests.", "method", requests);
+        writeHistograms(buf, TOOL_METRIC, "Latency of MCP tool calls.", "tool", tools);
+    }
+
+    private static void writeHistograms(final StringBuilder buf, final String metric, final String help, final String label,
+            final Map<String, ConcurrentMap<String, LatencyHistogram>> series) {
+        buf.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        buf.append("# TYPE ").append(metric).append(" histogram\n");
+        new TreeMap<>(series).forEach((name, byOutcome) -> new TreeMap<>(byOutcome).forEach((outcome, histogram) -> {
+            final String labels = label + "=\"" + escapeLabelValue(name) + "\",outcome=\"" + escapeLabelValue(outcome) + "\"";
+            final long[] counts = histogram.getBucketCounts();
+            long cumulative = 0L;
+            for (int i = 0; i < counts.length - 1; i++) {
+                cumulative += counts[i];
+                if (i % LatencyHistogram.SUB_BUCKETS == 0) {
+                    buf.append(metric)
+                            .append("_bucket{")
+                            .append(labels)
+                            .append(",le=\"")
+                            .append(toSeconds(LatencyHistogram.getUpperBound(i)))
+                            .append("\"} ")
+                            .append(cumulative)
+                            .append('\n');
+                }
+            }
+            cumulative += counts[counts.length - 1];
+            buf.append(metric).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(cumulative).append('\n');
+            buf.append(metric).append("_sum{").append(labels).append("} ").append(toSeconds(histogram.getSumNanos())).append('\n');
+            buf.append(metric).append("_count{").append(labels).append("} ").append(cumulative).append('\n');
+        }));
+    }
+
+    /**
+     * Writes a single-sample metric in the Prometheus text exposition format.
+     *
+     * @param buf    the buffer to append to
+     * @param metric the metric name
+     * @param type   the metric type, e.g. {@code counter} or {@code gauge}
+     * @param help   the help text
+     * @param value  the sample value
+     */
+    public static void writeSample(final StringBuilder buf, final String metric, final String type, final String help, final Number value) {
+        buf.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        buf.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+        buf.append(metric).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Summarizes the histograms as maps of methods and tools to outcomes to count, mean, percentiles, and maximum
+     * in milliseconds.
+     *
+     * @return a map with "requests" and "tools" keys
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("requests", summarize(requests));
+        map.put("tools", summarize(tools));
+        return map;
+    }
+
+    private static Map<String, Object> summarize(final Map<String, ConcurrentMap<String, LatencyHistogram>> series) {
+        final Map<String, Object> map = new TreeMap<>();
+        series.forEach((name, byOutcome) -> {
+            final Map<String, Object> outcomes = new TreeMap<>();
+            byOutcome.forEach((outcome, histogram) -> {
+                final long count = histogram.getCount();
+                final Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("count", count);
+                summary.put("mean_ms", count > 0 ? toMillis(histogram.getSumNanos() / count) : 0.0d);
+                summary.put("p50_ms", toMillis(histogram.getValueAtPercentile(50)));
+                summary.put("p90_ms", toMillis(histogram.getValueAtPercentile(90)));
+                summary.put("p99_ms", toMillis(histogram.getValueAtPercentile(99)));
+                summary.put("max_ms", toMillis(histogram.getMaxNanos()));
+                outcomes.put(outcome, summary);
+            });
+            map.put(name, outcomes);
+        });
+        return map;
+    }
+
+    private static double toSeconds(final long nanos) {
+        return nanos / 1_000_000_000.0d;
+    }
+
+    private static double toMillis(final long nanos) {
+        return Math.round(nanos / 1_000.0d) / 1_000.0d;
+    }
+
+    private static String escapeLabelValue(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event for one JSON-RPC request handled by the MCP API, including each element of a batch.
+ * <p>
+ * When recording is off or the event is disabled, {@link #begin()}, {@link #end()}, and {@link #shouldCommit()}
+ * are nearly free, so callers should compute costly fields only after {@link #shouldCommit()} returns true.
+ */
+@Name(McpRequestEvent.NAME)
+@Label("MCP Request")
+@Category({ "Fess", "MCP" })
+@Description("A JSON-RPC request handled by the Fess MCP API")
+@StackTrace(false)
+public class McpRequestEvent extends Event {
+
+    /** The event name. */
+    public static final String NAME = "org.codelibs.fess.mcp.Request";
+
+    @Label("Method")
+    private String method;
+
+    @Label("Tool")
+    @Description("The tool name of a tools/call request")
+    private String tool;
+
+    @Label("RPC ID")
+    private String rpcId;
+
+    @Label("Trace ID")
+    @Description("The trace id from _meta.traceId or the traceparent header, also sent to the search engine as X-Opaque-Id")
+    private String traceId;
+
+    @Label("Batch")
+    @Description("Whether the request was an element of a batch request")
+    private boolean batch;
+
+    @Label("Hit Count")
+    @Description("The number of results returned, or -1 if not applicable")
+    private int hitCount = -1;
+
+    @Label("Bytes Out")
+    @Description("The size of the serialized response, or -1 if unknown")
+    @DataAmount
+    private long bytesOut = -1L;
+
+    @Label("Outcome")
+    @Description("success, is_error, or the JSON-RPC error code name")
+    private String outcome;
+
+    /**
+     * Creates an event. Call {@link #begin()} to start timing it.
+     */
+    public McpRequestEvent() {
+        // nothing
+    }
+
+    /**
+     * Sets the JSON-RPC method.
+     *
+     * @param method the method name
+     */
+    public void setMethod(final String method) {
+        this.method = method;
+    }
+
+    /**
+     * Sets the tool name of a tools/call request.
+     *
+     * @param tool the tool name
+     */
+    public void setTool(final String tool) {
+        this.tool = tool;
+    }
+
+    /**
+     * Sets the JSON-RPC request id.
+     *
+     * @param rpcId the request id, or null for a notification
+     */
+    public void setRpcId(final Object rpcId) {
+        this.rpcId = rpcId != null ? rpcId.toString() : null;
+    }
+
+    /**
+     * Sets the trace id of the request.
+     *
+     * @param traceId the trace id, or null if the request carries none
+     */
+    public void setTraceId(final String traceId) {
+        this.traceId = traceId;
+    }
+
+    /**
+     * Sets whether the request was an element of a batch request.
+     *
+     * @param batch true for a batch element
+     */
+    public void setBatch(final boolean batch) {
+        this.batch = batch;
+    }
+
+    /**
+     * Sets the number of results returned.
+     *
+     * @param hitCount the number of results, or -1 if not applicable
+     */
+    public void setHitCount(final int hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    /**
+     * Sets the size of the serialized response.
+     *
+     * @param bytesOut the size in bytes, or -1 if unknown
+     */
+    public void setBytesOut(final long bytesOut) {
+        this.bytesOut = bytesOut;
+    }
+
+    /**
+     * Sets the outcome of the request.
+     *
+     * @param outcome {@value McpMetrics#OUTCOME_SUCCESS}, {@value McpMetrics#OUTCOME_IS_ERROR}, or an {@link ErrorCode} name
+     */
+    public void setOutcome(final String outcome) {
+        this.outcome = outcome;
+    }
+}
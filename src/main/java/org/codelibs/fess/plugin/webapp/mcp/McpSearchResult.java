@@ -0,0 +1,182 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.codelibs.fess.util.FacetResponse;
+
+/**
+ * The result of a search executed by the MCP API, independent of the search path used.
+ */
+public class McpSearchResult {
+
+    /** The document items in rank order. */
+    private List<Map<String, Object>> documentItems = Collections.emptyList();
+
+    /** The sort values of each document item, aligned with the document items. */
+    private List<Object[]> sortValues = Collections.emptyList();
+
+    /** The total number of hits. */
+    private long totalHits;
+
+    /** The relation of the total number of hits ("eq" or "gte"). */
+    private String totalHitsRelation;
+
+    /** The time taken by the search engine in milliseconds. */
+    private long tookMillis;
+
+    /** The point-in-time id used for the search, if any. */
+    private String pointInTimeId;
+
+    /** The facet response, if facets were requested. */
+    private FacetResponse facetResponse;
+
+    /**
+     * Creates an empty search result.
+     */
+    public McpSearchResult() {
+        // nothing
+    }
+
+    /**
+     * Returns the document items in rank order.
+     *
+     * @return the document items
+     */
+    public List<Map<String, Object>> getDocumentItems() {
+        return documentItems;
+    }
+
+    /**
+     * Sets the document items.
+     *
+     * @param documentItems the document items in rank order
+     */
+    public void setDocumentItems(final List<Map<String, Object>> documentItems) {
+        this.documentItems = documentItems != null ? documentItems : Collections.emptyList();
+    }
+
+    /**
+     * Returns the sort values of each document item.
+     *
+     * @return the sort values, aligned with the document items, or an empty list if not available
+     */
+    public List<Object[]> getSortValues() {
+        return sortValues;
+    }
+
+    /**
+     * Sets the sort values of each document item.
+     *
+     * @param sortValues the sort values, aligned with the document items
+     */
+    public void setSortValues(final List<Object[]> sortValues) {
+        this.sortValues = sortValues != null ? sortValues : Collections.emptyList();
+    }
+
+    /**
+     * Returns the total number of hits.
+     *
+     * @return the total number of hits
+     */
+    public long getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * Sets the total number of hits.
+     *
+     * @param totalHits the total number of hits
+     */
+    public void setTotalHits(final long totalHits) {
+        this.totalHits = totalHits;
+    }
+
+    /**
+     * Returns the relation of the total number of hits.
+     *
+     * @return "eq" if the total is exact, "gte" if it is a lower bound
+     */
+    public String getTotalHitsRelation() {
+        return totalHitsRelation;
+    }
+
+    /**
+     * Sets the relation of the total number of hits.
+     *
+     * @param totalHitsRelation "eq" or "gte"
+     */
+    public void setTotalHitsRelation(final String totalHitsRelation) {
+        this.totalHitsRelation = totalHitsRelation;
+    }
+
+    /**
+     * Returns the time taken by the search engine.
+     *
+     * @return the time in milliseconds
+     */
+    public long getTookMillis() {
+        return tookMillis;
+    }
+
+    /**
+     * Sets the time taken by the search engine.
+     *
+     * @param tookMillis the time in milliseconds
+     */
+    public void setTookMillis(final long tookMillis) {
+        this.tookMillis = tookMillis;
+    }
+
+    /**
+     * Returns the point-in-time id used for the search.
+     *
+     * @return the point-in-time id, or null if the search did not use one
+     */
+    public String getPointInTimeId() {
+        return pointInTimeId;
+    }
+
+    /**
+     * Sets the point-in-time id used for the search.
+     *
+     * @param pointInTimeId the point-in-time id
+     */
+    public void setPointInTimeId(final String pointInTimeId) {
+        this.pointInTimeId = pointInTimeId;
+    }
+
+    /**
+     * Returns the facet response.
+     *
+     * @return the facet response, or null if facets were not requested
+     */
+    public FacetResponse getFacetResponse() {
+        return facetResponse;
+    }
+
+    /**
+     * Sets the facet response.
+     *
+     * @param facetResponse the facet response
+     */
+    public void setFacetResponse(final FacetResponse facetResponse) {
+        this.facetResponse = facetResponse;
+    }
+}
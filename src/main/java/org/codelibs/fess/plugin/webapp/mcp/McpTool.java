@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.util.Map;
+
+/**
+ * A tool offered through {@code tools/list} and called through {@code tools/call}.
+ * <p>
+ * Besides the built-in tools, every component implementing this interface in the DI container is registered,
+ * e.g. one declared in a plugin's {@code fess_api++.xml}. A component with the name of a built-in tool replaces it.
+ * The definition methods are called once, when the registry is built; {@link #invoke(Map)} may be called from
+ * several threads at once.
+ */
+public interface McpTool {
+
+    /**
+     * Gets the tool name, unique among the registered tools.
+     *
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * Gets the description shown to clients.
+     *
+     * @return the description
+     */
+    String getDescription();
+
+    /**
+     * Gets the JSON Schema of the tool arguments.
+     *
+     * @return the schema, as nested maps and lists
+     */
+    Map<String, Object> getInputSchema();
+
+    /**
+     * Gets the tool annotations, e.g. {@code title} and {@code readOnlyHint}.
+     *
+     * @return the annotations, or an empty map
+     */
+    default Map<String, Object> getAnnotations() {
+        return Map.of();
+    }
+
+    /**
+     * Gets how calls of the tool are executed. Configuration may override the policy per tool.
+     *
+     * @return the policy
+     */
+    default ToolPolicy getPolicy() {
+        return ToolPolicy.DEFAULT;
+    }
+
+    /**
+     * Calls the tool.
+     *
+     * @param arguments the tool arguments
+     * @return the tool result in MCP format, with a "content" list and optionally "isError"
+     * @throws org.codelibs.fess.plugin.webapp.exception.McpApiException if the arguments are invalid
+     */
+    Map<String, Object> invoke(Map<String, Object> arguments);
+}
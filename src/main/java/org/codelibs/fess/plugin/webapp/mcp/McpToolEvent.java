@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event for one MCP tool invocation. It runs inside the {@link McpRequestEvent}
+ * of its tools/call request on the same thread.
+ */
+@Name(McpToolEvent.NAME)
+@Label("MCP Tool Call")
+@Category({ "Fess", "MCP" })
+@Description("A tool invocation handled by the Fess MCP API")
+@StackTrace(false)
+public class McpToolEvent extends Event {
+
+    /** The event name. */
+    public static final String NAME = "org.codelibs.fess.mcp.ToolCall";
+
+    @Label("Tool")
+    private String tool;
+
+    @Label("Hit Count")
+    @Description("The number of results returned, or -1 if not applicable")
+    private int hitCount = -1;
+
+    @Label("Outcome")
+    @Description("success, is_error, or the JSON-RPC error code name")
+    private String outcome;
+
+    /**
+     * Creates an event. Call {@link #begin()} to start timing it.
+     */
+    public McpToolEvent() {
+        // nothing
+    }
+
+    /**
+     * Sets the tool name.
+     *
+     * @param tool the tool name
+     */
+    public void setTool(final String tool) {
+        this.tool = tool;
+    }
+
+    /**
+     * Sets the number of results returned.
+     *
+     * @param hitCount the number of results, or -1 if not applicable
+     */
+    public void setHitCount(final int hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    /**
+     * Sets the outcome of the tool call.
+     *
+     * @param outcome {@value McpMetrics#OUTCOME_SUCCESS}, {@value McpMetrics#OUTCOME_IS_ERROR}, or an {@link ErrorCode} name
+     */
+    public void setOutcome(final String outcome) {
+        this.outcome = outcome;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opensearch.common.xcontent.json.JsonXContent;
+
+/**
+ * An immutable set of tools, looked up by name with one hash map access.
+ * <p>
+ * Everything that does not depend on a call is computed once, when the registry is built: the definition of each tool,
+ * with its input schema and annotations copied into unmodifiable maps, the validator compiled from the input schema,
+ * the effective policy of each tool, the {@code tools/list} result, and its JSON serialization.
+ */
+public class McpToolRegistry {
+
+    private static final Logger logger = LogManager.getLogger(McpToolRegistry.class);
+
+    /**
+     * A registered tool with its definition, effective policy, and concurrency permits.
+     */
+    public static class Registration {
+
+        private final McpTool tool;
+
+        private final ToolPolicy policy;
+
+        private final Map<String, Object> definition;
+
+        private final Semaphore permits;
+
+        private final SchemaValidator validator;
+
+        /**
+         * Creates a registration.
+         *
+         * @param tool   the tool
+         * @param policy the effective policy
+         */
+        @SuppressWarnings("unchecked")
+        protected Registration(final McpTool tool, final ToolPolicy policy) {
+            this.tool = tool;
+            this.policy = policy;
+            final Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", tool.getName());
+            map.put("description", tool.getDescription());
+            map.put("inputSchema", freeze(tool.getInputSchema()));
+            final Map<String, Object> annotations = tool.getAnnotations();
+            if (annotations != null && !annotations.isEmpty()) {
+                map.put("annotations", freeze(annotations));
+            }
+            this.definition = Collections.unmodifiableMap(map);
+            this.permits = policy.getMaxConcurrency() > 0 ? new Semaphore(policy.getMaxConcurrency()) : null;
+            this.validator = SchemaValidator.compile((Map<String, Object>) definition.get("inputSchema"));
+        }
+
+        /**
+         * Gets the tool.
+         *
+         * @return the tool
+         */
+        public McpTool getTool() {
+            return tool;
+        }
+
+        /**
+         * Gets the tool name.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return tool.getName();
+        }
+
+        /**
+         * Gets the effective policy, with configuration applied.
+         *
+         * @return the policy
+         */
+        public ToolPolicy getPolicy() {
+            return policy;
+        }
+
+        /**
+         * Gets the unmodifiable definition listed by {@code tools/list}.
+         *
+         * @return the definition with "name", "description", "inputSchema", and "annotations"
+         */
+        public Map<String, Object> getDefinition() {
+            return definition;
+        }
+
+        /**
+         * Gets the validator compiled from the input schema.
+         *
+         * @return the validator
+         */
+        public SchemaValidator getValidator() {
+            return validator;
+        }
+
+        /**
+         * Takes a permit to start a call, without waiting. Every successful call must be followed by {@link #release()}.
+         *
+         * @return true if the call may start, false if the concurrency limit is reached
+         */
+        public boolean tryAcquire() {
+            return permits == null || permits.tryAcquire();
+        }
+
+        /**
+         * Returns the permit of a finished call.
+         */
+        public void release() {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+
+        /**
+         * Gets the number of calls that may still start.
+         *
+         * @return the number of available permits, or {@link Integer#MAX_VALUE} without a concurrency limit
+         */
+        public int getAvailablePermits() {
+            return permits != null ? permits.availablePermits() : Integer.MAX_VALUE;
+        }
+    }
+
+    private final Map<String, Registration> registrations;
+
+    private final Map<String, Object> listToolsResult;
+
+    private final String listToolsJson;
+
+    /**
+     * Builds a registry. A tool with the name of an earlier tool replaces it, keeping its position in the list.
+     *
+     * @param tools          the tools, in the order they are listed
+     * @param policyResolver the function computing the effective policy of a tool
+     * @throws IllegalArgumentException if a tool has no name
+     */
+    public McpToolRegistry(final List<? extends McpTool> tools, final Function<McpTool, ToolPolicy> policyResolver) {
+        final Map<String, Registration> ordered = new LinkedHashMap<>();
+        for (final McpTool tool : tools) {
+            final String name = tool.getName();
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("Tool without a name: " + tool.getClass().getName());
+            }
+            final ToolPolicy policy = policyResolver.apply(tool);
+            final Registration previous = ordered.put(name, new Registration(tool, policy != null ? policy : ToolPolicy.DEFAULT));
+            if (previous != null && logger.isInfoEnabled()) {
+                logger.info("[MCP] Tool {} is replaced: {} -> {}", name, previous.getTool().getClass().getName(),
+                        tool.getClass().getName());
+            }
+        }
+        this.registrations = Map.copyOf(ordered);
+        this.listToolsResult = Map.of("tools", ordered.values().stream().map(Registration::getDefinition).toList());
+        try {
+            this.listToolsJson = JsonXContent.contentBuilder().map(listToolsResult).toString();
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to serialize the tool definitions.", e);
+        }
+    }
+
+    /**
+     * Gets a registered tool.
+     *
+     * @param name the tool name
+     * @return the registration, or null if no tool has this name
+     */
+    public Registration get(final String name) {
+        return name != null ? registrations.get(name) : null;
+    }
+
+    /**
+     * Returns whether a tool is registered.
+     *
+     * @param name the tool name
+     * @return true if registered
+     */
+    public boolean contains(final String name) {
+        return name != null && registrations.containsKey(name);
+    }
+
+    /**
+     * Gets the names of the registered tools.
+     *
+     * @return the unmodifiable set of names
+     */
+    public Set<String> getNames() {
+        return registrations.keySet();
+    }
+
+    /**
+     * Gets the {@code tools/list} result. The same unmodifiable instance is returned on every call,
+     * which lets a caller recognize it and write {@link #getListToolsJson()} instead of serializing it.
+     *
+     * @return a map with a "tools" key containing the tool definitions in registration order
+     */
+    public Map<String, Object> getListToolsResult() {
+        return listToolsResult;
+    }
+
+    /**
+     * Gets the JSON serialization of {@link #getListToolsResult()}.
+     *
+     * @return the JSON text
+     */
+    public String getListToolsJson() {
+        return listToolsJson;
+    }
+
+    /**
+     * Copies nested maps and lists into unmodifiable ones, keeping the order of map entries.
+     *
+     * @param <T>   the value type
+     * @param value the value
+     * @return the unmodifiable copy, or the value itself if it is neither a map nor a list
+     */
+    @SuppressWarnings("unchecked")
+    protected static <T> T freeze(final T value) {
+        if (value instanceof final Map<?, ?> map) {
+            final Map<String, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(String.valueOf(k), freeze(v)));
+            return (T) Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof final List<?> list) {
+            final List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(v -> copy.add(freeze(v)));
+            return (T) Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opensearch.common.xcontent.LoggingDeprecationHandler;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.xcontent.NamedXContentRegistry;
+import org.opensearch.core.xcontent.XContentParser;
+
+/**
+ * Runs a set of synthetic JSON-RPC requests a number of times on a background thread, so that the code paths
+ * of the first real requests are already compiled and the search engine connections are open.
+ * <p>
+ * The warm-up is done once every request has run the given number of times, or once it is stopped.
+ * A failing request is counted and does not end the warm-up.
+ */
+public class McpWarmup {
+
+    /**
+     * The state of a warm-up.
+     */
+    public enum State {
+        /** Not started yet, or waiting for its delay. */
+        PENDING,
+        /** Running the requests. */
+        RUNNING,
+        /** Finished or stopped. */
+        DONE
+    }
+
+    private static final Logger logger = LogManager.getLogger(McpWarmup.class);
+
+    private final List<String> requests;
+
+    private final int iterations;
+
+    private final Predicate<String> runner;
+
+    private final AtomicInteger succeededCount = new AtomicInteger();
+
+    private final AtomicInteger failedCount = new AtomicInteger();
+
+    private final CountDownLatch doneLatch = new CountDownLatch(1);
+
+    private volatile State state = State.PENDING;
+
+    private volatile Thread thread;
+
+    private volatile long startTime;
+
+    private volatile long elapsedNanos = -1L;
+
+    /**
+     * Creates a warm-up.
+     *
+     * @param requests   the JSON-RPC request bodies
+     * @param iterations the number of times every request runs
+     * @param runner     runs a request body, returning false if it failed
+     */
+    public McpWarmup(final List<String> requests, final int iterations, final Predicate<String> runner) {
+        this.requests = List.copyOf(requests);
+        this.iterations = Math.max(1, iterations);
+        this.runner = runner;
+    }
+
+    /**
+     * Reads warm-up requests from a file with one JSON-RPC request per line. Blank lines are skipped,
+     * and for the entries of a traffic capture file, the recorded {@value TrafficCapture#BODY_KEY} is used.
+     *
+     * @param path the file
+     * @return the request bodies
+     * @throws IOException if the file cannot be read
+     */
+    public static List<String> loadRequests(final Path path) throws IOException {
+        final List<String> bodies = new ArrayList<>();
+        for (final String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            final String trimmed = line.trim();
+            if (!trimmed.isEmpty()) {
+                bodies.add(extractBody(trimmed));
+            }
+        }
+        return bodies;
+    }
+
+    private static String extractBody(final String line) {
+        if (!line.startsWith("{") || !line.contains("\"" + TrafficCapture.BODY_KEY + "\"")) {
+            return line;
+        }
+        try (XContentParser parser =
+                JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, line)) {
+            final Map<String, Object> entry = parser.map();
+            if (entry.get(TrafficCapture.BODY_KEY) instanceof final String body && entry.containsKey(TrafficCapture.TIME_KEY)) {
+                return body;
+            }
+        } catch (final IOException | RuntimeException e) {
+            // not a capture entry; run the line as it is
+        }
+        return line;
+    }
+
+    /**
+     * Starts the warm-up on a new daemon thread.
+     *
+     * @param delayMillis the time to wait before the first request, e.g. until the application has started
+     */
+    public void start(final long delayMillis) {
+        final Thread warmupThread = new Thread(() -> {
+            try {
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+                run();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                finish();
+            }
+        }, "mcp-warmup");
+        warmupThread.setDaemon(true);
+        thread = warmupThread;
+        warmupThread.start();
+    }
+
+    /**
+     * Runs the warm-up on the current thread.
+     */
+    public void run() {
+        thread = Thread.currentThread();
+        state = State.RUNNING;
+        startTime = System.nanoTime();
+        try {
+            for (int i = 0; i < iterations && !Thread.currentThread().isInterrupted(); i++) {
+                for (final String request : requests) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    runRequest(request);
+                }
+            }
+        } finally {
+            finish();
+        }
+    }
+
+    private void runRequest(final String request) {
+        try {
+            if (runner.test(request)) {
+                succeededCount.incrementAndGet();
+            } else {
+                failedCount.incrementAndGet();
+            }
+        } catch (final RuntimeException e) {
+            failedCount.incrementAndGet();
+            if (logger.isDebugEnabled()) {
+                logger.debug("[MCP] Warm-up request failed: {}", request, e);
+            }
+        }
+    }
+
+    private void finish() {
+        if (startTime != 0L) {
+            elapsedNanos = System.nanoTime() - startTime;
+        }
+        state = State.DONE;
+        thread = null;
+        doneLatch.countDown();
+        if (logger.isInfoEnabled()) {
+            logger.info("[MCP] Warm-up done: requests={}, iterations={}, succeeded={}, failed={}, elapsed={}ms", requests.size(),
+                    iterations, succeededCount.get(), failedCount.get(), TimeUnit.NANOSECONDS.toMillis(Math.max(0L, elapsedNanos)));
+        }
+    }
+
+    /**
+     * Stops the warm-up after the running request. It is then done.
+     */
+    public void stop() {
+        final Thread warmupThread = thread;
+        if (warmupThread != null) {
+            warmupThread.interrupt();
+        }
+    }
+
+    /**
+     * Waits for the warm-up to be done.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if the warm-up is done
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public boolean await(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return doneLatch.await(timeout, unit);
+    }
+
+    /**
+     * Returns whether the warm-up is done.
+     *
+     * @return true if finished or stopped
+     */
+    public boolean isDone() {
+        return state == State.DONE;
+    }
+
+    /**
+     * Returns whether the current thread runs the warm-up, so that its requests can be left out of metrics and logs.
+     *
+     * @return true on the warm-up thread while it runs
+     */
+    public boolean isCurrentThread() {
+        return thread == Thread.currentThread();
+    }
+
+    /**
+     * Gets the state.
+     *
+     * @return the state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Gets the number of requests that succeeded so far.
+     *
+     * @return the number of succeeded requests
+     */
+    public int getSucceededCount() {
+        return succeededCount.get();
+    }
+
+    /**
+     * Gets the number of requests that failed so far.
+     *
+     * @return the number of failed requests
+     */
+    public int getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Gets the status of the warm-up.
+     *
+     * @return a map with "state", "requests", "iterations", "succeeded", "failed", and, once done, "elapsedMillis"
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("state", state.name().toLowerCase(Locale.ROOT));
+        map.put("requests", requests.size());
+        map.put("iterations", iterations);
+        map.put("succeeded", succeededCount.get());
+        map.put("failed", failedCount.get());
+        if (state == State.DONE && elapsedNanos >= 0L) {
+            map.put("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        }
+        return map;
+    }
+}
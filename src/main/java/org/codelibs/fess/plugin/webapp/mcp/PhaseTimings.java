@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The time spent in each processing phase of one HTTP request, measured with {@link System#nanoTime()}.
+ * <p>
+ * Phases may nest ({@link Phase#DISPATCH} contains {@link Phase#SEARCH} and {@link Phase#RENDER}) and may be
+ * recorded more than once; their durations are summed. Phases can be recorded from several threads at once,
+ * e.g. by concurrent batch elements, in which case a phase may add up to more than the elapsed time.
+ */
+public class PhaseTimings {
+
+    /**
+     * A processing phase.
+     */
+    public enum Phase {
+        /** Reading the request body. */
+        READ("read"),
+        /** Parsing the JSON-RPC request. */
+        PARSE("parse"),
+        /** Running the JSON-RPC method, including search and render. */
+        DISPATCH("dispatch"),
+        /** Waiting for the search engine. */
+        SEARCH("search"),
+        /** Converting documents to tool result content. */
+        RENDER("render"),
+        /** Serializing the JSON-RPC response. */
+        SERIALIZE("serialize");
+
+        private final String metricName;
+
+        Phase(final String metricName) {
+            this.metricName = metricName;
+        }
+
+        /**
+         * Gets the name of the phase in the {@code Server-Timing} header.
+         *
+         * @return the metric name
+         */
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long startTime = System.nanoTime();
+
+    private final AtomicLongArray nanos = new AtomicLongArray(PHASES.length);
+
+    /**
+     * Adds the time elapsed since a start time to a phase.
+     *
+     * @param phase     the phase
+     * @param startTime the start time, from {@link System#nanoTime()}
+     */
+    public void addSince(final Phase phase, final long startTime) {
+        nanos.addAndGet(phase.ordinal(), System.nanoTime() - startTime);
+    }
+
+    /**
+     * Gets the time spent in a phase.
+     *
+     * @param phase the phase
+     * @return the time in nanoseconds
+     */
+    public long getNanos(final Phase phase) {
+        return nanos.get(phase.ordinal());
+    }
+
+    /**
+     * Gets the time elapsed since this object was created.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return System.nanoTime() - startTime;
+    }
+
+    /**
+     * Formats the recorded phases and the total time as a {@code Server-Timing} header value,
+     * e.g. {@code read;dur=0.042, dispatch;dur=12.5, total;dur=13.1}. Phases that were not recorded are omitted.
+     *
+     * @return the header value
+     */
+    public String toServerTiming() {
+        final StringBuilder buf = new StringBuilder(128);
+        for (final Phase phase : PHASES) {
+            final long value = getNanos(phase);
+            if (value > 0L) {
+                buf.append(phase.getMetricName()).append(";dur=").append(formatMillis(value)).append(", ");
+            }
+        }
+        return buf.append("total;dur=").append(formatMillis(getTotalNanos())).toString();
+    }
+
+    /**
+     * Gets the recorded phases and the total time in milliseconds, keyed by phase name with a {@code Millis} suffix
+     * (e.g. {@code searchMillis}). Phases that were not recorded are omitted.
+     *
+     * @return the timings
+     */
+    public Map<String, Object> toMap() {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        for (final Phase phase : PHASES) {
+            final long value = getNanos(phase);
+            if (value > 0L) {
+                map.put(phase.getMetricName() + "Millis", toMillis(value));
+            }
+        }
+        map.put("totalMillis", toMillis(getTotalNanos()));
+        return map;
+    }
+
+    private static double toMillis(final long nanos) {
+        return Math.round(nanos / 1_000.0d) / 1_000.0d;
+    }
+
+    private static String formatMillis(final long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0d);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the point-in-times opened for cursor-based searches, so that their number can be capped.
+ * <p>
+ * A point-in-time counts from the moment it is reserved, before the search engine has opened it, until it is
+ * removed when its scan ends, or until its keep-alive has passed since it was last used, when the search engine
+ * closes it by itself.
+ */
+public class PointInTimeRegistry {
+
+    private final Map<String, Long> expiryTimes = new HashMap<>();
+
+    private int reservedCount;
+
+    /**
+     * Reserves a point-in-time if fewer than the given number are open or reserved.
+     * The reservation ends with {@link #register(String, long)}.
+     *
+     * @param maxOpen the maximum number of open point-in-times
+     * @return true if reserved
+     */
+    public synchronized boolean reserve(final int maxOpen) {
+        removeExpired();
+        if (expiryTimes.size() + reservedCount >= maxOpen) {
+            return false;
+        }
+        reservedCount++;
+        return true;
+    }
+
+    /**
+     * Ends a reservation with the point-in-time that was opened for it.
+     *
+     * @param id              the id of the opened point-in-time, or null if it could not be opened
+     * @param keepAliveMillis the keep-alive of the point-in-time
+     */
+    public synchronized void register(final String id, final long keepAliveMillis) {
+        if (reservedCount > 0) {
+            reservedCount--;
+        }
+        if (id != null) {
+            expiryTimes.put(id, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(keepAliveMillis));
+        }
+    }
+
+    /**
+     * Extends the expiry of a point-in-time that was used again.
+     *
+     * @param id              the point-in-time id
+     * @param keepAliveMillis the keep-alive of the point-in-time
+     */
+    public synchronized void touch(final String id, final long keepAliveMillis) {
+        expiryTimes.computeIfPresent(id, (k, v) -> System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(keepAliveMillis));
+    }
+
+    /**
+     * Removes a point-in-time that is closed.
+     *
+     * @param id the point-in-time id
+     * @return true if it was tracked
+     */
+    public synchronized boolean remove(final String id) {
+        return expiryTimes.remove(id) != null;
+    }
+
+    /**
+     * Gets the number of open or reserved point-in-times.
+     *
+     * @return the number of point-in-times
+     */
+    public synchronized int getOpenCount() {
+        removeExpired();
+        return expiryTimes.size() + reservedCount;
+    }
+
+    private void removeExpired() {
+        final long now = System.nanoTime();
+        expiryTimes.values().removeIf(expiryTime -> expiryTime - now <= 0L);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Writes lines to size-bounded files in a directory, keeping only the newest files.
+ * <p>
+ * Files are named {@code <prefix>-<yyyyMMddHHmmssSSS>-<sequence>.ndjson}, so sorting them by name sorts them
+ * by creation. A new file is started when the next line would make the current file larger than the maximum size,
+ * and the oldest files with the same prefix are then deleted until at most the maximum number remain.
+ * Every line is flushed once written.
+ */
+public class RotatingFileWriter implements Consumer<String>, Closeable {
+
+    /** The suffix of the file names. */
+    public static final String SUFFIX = ".ndjson";
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS", Locale.ROOT);
+
+    private final Path directory;
+
+    private final String prefix;
+
+    private final long maxFileSize;
+
+    private final int maxFiles;
+
+    private Writer writer;
+
+    private long size;
+
+    private int sequence;
+
+    /**
+     * Creates a writer. The directory is created with the first file.
+     *
+     * @param directory   the directory of the files
+     * @param prefix      the prefix of the file names
+     * @param maxFileSize the size in bytes after which a new file is started
+     * @param maxFiles    the number of files kept
+     */
+    public RotatingFileWriter(final Path directory, final String prefix, final long maxFileSize, final int maxFiles) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.maxFileSize = Math.max(1L, maxFileSize);
+        this.maxFiles = Math.max(1, maxFiles);
+    }
+
+    /**
+     * Writes a line, starting a new file first if the current one is full.
+     *
+     * @param line the line, without a line terminator
+     * @throws UncheckedIOException if writing fails
+     */
+    @Override
+    public synchronized void accept(final String line) {
+        final long length = AccessLogWriter.utf8Length(line) + 1;
+        try {
+            if (writer == null || size > 0L && size + length > maxFileSize) {
+                rotate();
+            }
+            writer.write(line);
+            writer.write('\n');
+            writer.flush();
+            size += length;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void rotate() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        Files.createDirectories(directory);
+        final String timestamp = TIMESTAMP_FORMATTER.format(LocalDateTime.now());
+        final String name = prefix + "-" + timestamp + "-" + String.format(Locale.ROOT, "%04d", sequence++) + SUFFIX;
+        writer = Files.newBufferedWriter(directory.resolve(name), StandardCharsets.UTF_8);
+        size = 0L;
+        final List<Path> files = listFiles(directory, prefix);
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    /**
+     * Lists the files written with a prefix in a directory.
+     *
+     * @param directory the directory
+     * @param prefix    the prefix of the file names
+     * @return the files, oldest first, or an empty list if the directory does not exist
+     * @throws IOException if the directory cannot be read
+     */
+    public static List<Path> listFiles(final Path directory, final String prefix) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "-*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    /**
+     * Closes the current file.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codelibs.fess.plugin.webapp.exception.McpApiException;
+
+/**
+ * A validator of tool arguments compiled from a JSON Schema, so that a call walks a tree of checks instead of
+ * interpreting the schema.
+ * <p>
+ * The keywords {@code type} (a single type), {@code properties}, {@code required}, {@code additionalProperties}
+ * (only {@code false}), {@code items}, {@code enum}, {@code minimum}, {@code maximum}, {@code minItems}, and
+ * {@code maxItems} are checked; other keywords are ignored. Validation also coerces the values the way the tools
+ * used to parse them: a numeric string is accepted as an integer or a number, "true" and "false" as a boolean,
+ * a number or a boolean as a string, and a single value as an array of one element. Null values count as absent.
+ */
+public class SchemaValidator {
+
+    /** A validator accepting any value. */
+    public static final SchemaValidator ANY = new SchemaValidator(new Node());
+
+    private final Node root;
+
+    private SchemaValidator(final Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Compiles a schema.
+     *
+     * @param schema the JSON Schema, as nested maps and lists; null accepts any value
+     * @return the validator
+     */
+    public static SchemaValidator compile(final Map<String, Object> schema) {
+        return schema != null ? new SchemaValidator(compileNode(schema)) : ANY;
+    }
+
+    /**
+     * Validates tool arguments.
+     *
+     * @param arguments the arguments
+     * @return the arguments with coerced values and without null values, in an unmodifiable map
+     * @throws McpApiException with {@link ErrorCode#InvalidParams} if the arguments do not match the schema
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> validate(final Map<String, Object> arguments) {
+        return (Map<String, Object>) root.validate(null, arguments);
+    }
+
+    private static Node compileNode(final Object schema) {
+        if (!(schema instanceof final Map<?, ?> map)) {
+            return new Node();
+        }
+        final Node node = switch (String.valueOf(map.get("type"))) {
+        case "object" -> compileObject(map);
+        case "array" -> new ArrayNode(compileNode(map.get("items")), toInt(map.get("minItems"), 0),
+                toInt(map.get("maxItems"), Integer.MAX_VALUE));
+        case "string" -> new StringNode();
+        case "integer" -> new NumberNode(true, toDecimal(map.get("minimum")), toDecimal(map.get("maximum")));
+        case "number" -> new NumberNode(false, toDecimal(map.get("minimum")), toDecimal(map.get("maximum")));
+        case "boolean" -> new BooleanNode();
+        default -> new Node();
+        };
+        if (map.get("enum") instanceof final List<?> values) {
+            node.allowed = Set.copyOf(values.stream().filter(v -> v != null).map(String::valueOf).toList());
+        }
+        return node;
+    }
+
+    private static Node compileObject(final Map<?, ?> schema) {
+        final Map<String, Node> properties = new LinkedHashMap<>();
+        if (schema.get("properties") instanceof final Map<?, ?> map) {
+            map.forEach((name, propertySchema) -> properties.put(String.valueOf(name), compileNode(propertySchema)));
+        }
+        final List<String> required = new ArrayList<>();
+        if (schema.get("required") instanceof final List<?> list) {
+            list.forEach(name -> required.add(String.valueOf(name)));
+        }
+        return new ObjectNode(Map.copyOf(properties), required.toArray(String[]::new),
+                !Boolean.FALSE.equals(schema.get("additionalProperties")));
+    }
+
+    private static int toInt(final Object value, final int defaultValue) {
+        return value instanceof final Number number ? number.intValue() : defaultValue;
+    }
+
+    private static BigDecimal toDecimal(final Object value) {
+        return value instanceof final Number number ? new BigDecimal(number.toString()) : null;
+    }
+
+    private static McpApiException invalid(final String path, final String expected, final Object value) {
+        final String text = String.valueOf(value);
+        return new McpApiException(ErrorCode.InvalidParams, "Invalid parameter " + path + ": expected " + expected + ", got "
+                + (text.length() > 50 ? text.substring(0, 50) + "..." : text));
+    }
+
+    private static String childPath(final String parent, final String name) {
+        return parent != null ? parent + "." + name : name;
+    }
+
+    /**
+     * A compiled schema accepting any value, with an optional enumeration.
+     */
+    private static class Node {
+
+        Set<String> allowed;
+
+        Object validate(final String path, final Object value) {
+            final Object coerced = coerce(path, value);
+            if (allowed != null && !allowed.contains(String.valueOf(coerced))) {
+                throw invalid(path, "one of " + allowed, value);
+            }
+            return coerced;
+        }
+
+        Object coerce(final String path, final Object value) {
+            return value;
+        }
+    }
+
+    private static class ObjectNode extends Node {
+
+        private final Map<String, Node> properties;
+
+        private final String[] required;
+
+        private final boolean additionalProperties;
+
+        ObjectNode(final Map<String, Node> properties, final String[] required, final boolean additionalProperties) {
+            this.properties = properties;
+            this.required = required;
+            this.additionalProperties = additionalProperties;
+        }
+
+        @Override
+        Object coerce(final String path, final Object value) {
+            if (!(value instanceof final Map<?, ?> map)) {
+                throw invalid(path != null ? path : "arguments", "object", value);
+            }
+            for (final String name : required) {
+                if (map.get(name) == null) {
+                    throw new McpApiException(ErrorCode.InvalidParams, "Missing required parameter: " + childPath(path, name));
+                }
+            }
+            final Map<String, Object> result = new LinkedHashMap<>();
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                final String name = String.valueOf(entry.getKey());
+                final Node node = properties.get(name);
+                if (node != null) {
+                    result.put(name, node.validate(childPath(path, name), entry.getValue()));
+                } else if (additionalProperties) {
+                    result.put(name, entry.getValue());
+                } else {
+                    throw new McpApiException(ErrorCode.InvalidParams, "Unknown parameter: " + childPath(path, name));
+                }
+            }
+            return Collections.unmodifiableMap(result);
+        }
+    }
+
+    private static class ArrayNode extends Node {
+
+        private final Node items;
+
+        private final int minItems;
+
+        private final int maxItems;
+
+        ArrayNode(final Node items, final int minItems, final int maxItems) {
+            this.items = items;
+            this.minItems = minItems;
+            this.maxItems = maxItems;
+        }
+
+        @Override
+        Object coerce(final String path, final Object value) {
+            final List<?> list = value instanceof final List<?> l ? l : List.of(value);
+            if (list.size() < minItems || list.size() > maxItems) {
+                throw invalid(path, "an array of " + minItems + " to " + maxItems + " items", value);
+            }
+            final List<Object> result = new ArrayList<>(list.size());
+            for (int i = 0; i < list.size(); i++) {
+                final Object item = list.get(i);
+                if (item != null) {
+                    result.add(items.validate(path + "[" + i + "]", item));
+                }
+            }
+            return Collections.unmodifiableList(result);
+        }
+    }
+
+    private static class StringNode extends Node {
+
+        @Override
+        Object coerce(final String path, final Object value) {
+            if (value instanceof String) {
+                return value;
+            }
+            if (value instanceof Number || value instanceof Boolean) {
+                return value.toString();
+            }
+            throw invalid(path, "string", value);
+        }
+    }
+
+    private static class BooleanNode extends Node {
+
+        @Override
+        Object coerce(final String path, final Object value) {
+            if (value instanceof Boolean) {
+                return value;
+            }
+            if ("true".equalsIgnoreCase(String.valueOf(value)) || "false".equalsIgnoreCase(String.valueOf(value))) {
+                return Boolean.valueOf(value.toString());
+            }
+            throw invalid(path, "boolean", value);
+        }
+    }
+
+    private static class NumberNode extends Node {
+
+        private final boolean integer;
+
+        private final BigDecimal minimum;
+
+        private final BigDecimal maximum;
+
+        NumberNode(final boolean integer, final BigDecimal minimum, final BigDecimal maximum) {
+            this.integer = integer;
+            this.minimum = minimum;
+            this.maximum = maximum;
+        }
+
+        @Override
+        Object coerce(final String path, final Object value) {
+            if (value instanceof Integer && minimum == null && maximum == null) {
+                return value;
+            }
+            final String expected = integer ? "integer" : "number";
+            final BigDecimal decimal;
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                decimal = BigDecimal.valueOf(((Number) value).longValue());
+            } else if (value instanceof Number || value instanceof String) {
+                try {
+                    decimal = new BigDecimal(value.toString().trim());
+                } catch (final NumberFormatException e) {
+                    throw invalid(path, expected, value);
+                }
+            } else {
+                throw invalid(path, expected, value);
+            }
+            if (minimum != null && decimal.compareTo(minimum) < 0 || maximum != null && decimal.compareTo(maximum) > 0) {
+                throw invalid(path, expected + " in [" + (minimum != null ? minimum : "") + ", " + (maximum != null ? maximum : "") + "]",
+                        value);
+            }
+            if (!integer) {
+                return value instanceof Number ? value : decimal.doubleValue();
+            }
+            if (decimal.signum() != 0 && decimal.stripTrailingZeros().scale() > 0) {
+                throw invalid(path, expected, value);
+            }
+            final long longValue;
+            try {
+                longValue = decimal.longValueExact();
+            } catch (final ArithmeticException e) {
+                throw invalid(path, expected, value);
+            }
+            if (longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE) {
+                return (int) longValue;
+            }
+            return longValue;
+        }
+    }
+}
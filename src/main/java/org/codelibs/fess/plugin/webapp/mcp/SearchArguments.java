@@ -0,0 +1,252 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codelibs.fess.plugin.webapp.exception.McpApiException;
+
+/**
+ * The search arguments of a tool call, parsed once from the raw arguments into typed values.
+ * Instances are immutable; the arrays they return are shared and must not be modified.
+ */
+public class SearchArguments {
+
+    private static final String[] NO_VALUES = new String[0];
+
+    private final String query;
+
+    private final Map<String, String[]> fields;
+
+    private final Map<String, String[]> conditions;
+
+    private final String[] languages;
+
+    private final String sort;
+
+    private final int startPosition;
+
+    private final int pageSize;
+
+    private final int offset;
+
+    private final String[] extraQueries;
+
+    private final String preference;
+
+    private final String similarDocHash;
+
+    private SearchArguments(final Map<String, Object> args, final int defaultStartPosition, final int defaultPageSize,
+            final int maxPageSize) {
+        query = toText("q", args.get("q"));
+        fields = toArrayMap("fields", args.get("fields"));
+        conditions = toArrayMap("as", args.get("as"));
+        languages = args.get("lang") != null ? toArray("lang", args.get("lang")) : NO_VALUES;
+        sort = toText("sort", args.get("sort"));
+        final Object start = args.get("start");
+        final int startValue = start != null ? toInt("start", start) : -1;
+        startPosition = startValue > -1 ? startValue : defaultStartPosition;
+        final Object num = args.get("num");
+        if (num == null) {
+            pageSize = defaultPageSize;
+        } else {
+            final int numValue = toInt("num", num);
+            pageSize = numValue > maxPageSize || numValue <= 0 ? maxPageSize : numValue;
+        }
+        final Object offsetValue = args.get("offset");
+        offset = offsetValue != null ? toInt("offset", offsetValue) : 0;
+        extraQueries = args.get("ex_q") != null ? toArray("ex_q", args.get("ex_q")) : null;
+        preference = toText("preference", args.get("preference"));
+        similarDocHash = toText("sdh", args.get("sdh"));
+    }
+
+    /**
+     * Parses search arguments. Numbers may be given as numbers or numeric strings, and arrays as lists or single values.
+     *
+     * @param args                 the raw arguments
+     * @param defaultStartPosition the start position without a valid {@code start}
+     * @param defaultPageSize      the page size without {@code num}
+     * @param maxPageSize          the largest page size, also used for a {@code num} of 0 or less
+     * @return the arguments
+     * @throws McpApiException with {@link ErrorCode#InvalidParams} if a value has the wrong type
+     */
+    public static SearchArguments bind(final Map<String, Object> args, final int defaultStartPosition, final int defaultPageSize,
+            final int maxPageSize) {
+        return new SearchArguments(args, defaultStartPosition, defaultPageSize, maxPageSize);
+    }
+
+    private static McpApiException invalid(final String name, final String expected, final Object value) {
+        return new McpApiException(ErrorCode.InvalidParams, "Invalid parameter " + name + ": expected " + expected + ", got " + value);
+    }
+
+    private static String toText(final String name, final Object value) {
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        throw invalid(name, "string", value);
+    }
+
+    private static int toInt(final String name, final Object value) {
+        if (value instanceof final Number number) {
+            final long longValue = number.longValue();
+            return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, longValue));
+        }
+        if (value instanceof final String text) {
+            try {
+                return Integer.parseInt(text.trim());
+            } catch (final NumberFormatException e) {
+                throw invalid(name, "integer", value);
+            }
+        }
+        throw invalid(name, "integer", value);
+    }
+
+    private static String[] toArray(final String name, final Object value) {
+        if (value instanceof final String[] array) {
+            return array;
+        }
+        if (value instanceof final List<?> list) {
+            final String[] array = new String[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = toText(name, list.get(i));
+            }
+            return array;
+        }
+        return new String[] { toText(name, value) };
+    }
+
+    private static Map<String, String[]> toArrayMap(final String name, final Object value) {
+        if (value == null) {
+            return Collections.emptyMap();
+        }
+        if (!(value instanceof final Map<?, ?> map)) {
+            throw invalid(name, "object of string arrays", value);
+        }
+        final Map<String, String[]> result = new LinkedHashMap<>();
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                final String key = String.valueOf(entry.getKey());
+                result.put(key, toArray(name + "." + key, entry.getValue()));
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Gets the query string.
+     *
+     * @return the value of {@code q}, or null
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Gets the field filters.
+     *
+     * @return the value of {@code fields}, or an empty map
+     */
+    public Map<String, String[]> getFields() {
+        return fields;
+    }
+
+    /**
+     * Gets the additional search conditions.
+     *
+     * @return the value of {@code as}, or an empty map
+     */
+    public Map<String, String[]> getConditions() {
+        return conditions;
+    }
+
+    /**
+     * Gets the languages.
+     *
+     * @return the value of {@code lang}, or an empty array
+     */
+    public String[] getLanguages() {
+        return languages;
+    }
+
+    /**
+     * Gets the sort order.
+     *
+     * @return the value of {@code sort}, or null
+     */
+    public String getSort() {
+        return sort;
+    }
+
+    /**
+     * Gets the start position.
+     *
+     * @return the value of {@code start}, or the default start position
+     */
+    public int getStartPosition() {
+        return startPosition;
+    }
+
+    /**
+     * Gets the page size.
+     *
+     * @return the value of {@code num}, capped at the largest page size, or the default page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Gets the offset.
+     *
+     * @return the value of {@code offset}, or 0
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the extra queries.
+     *
+     * @return the value of {@code ex_q}, or null
+     */
+    public String[] getExtraQueries() {
+        return extraQueries;
+    }
+
+    /**
+     * Gets the shard preference.
+     *
+     * @return the value of {@code preference}, or null
+     */
+    public String getPreference() {
+        return preference;
+    }
+
+    /**
+     * Gets the hash of the document whose similar documents are searched.
+     *
+     * @return the value of {@code sdh}, or null
+     */
+    public String getSimilarDocHash() {
+        return similarDocHash;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codelibs.fess.plugin.webapp.exception.McpApiException;
+import org.opensearch.common.xcontent.LoggingDeprecationHandler;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.xcontent.NamedXContentRegistry;
+import org.opensearch.core.xcontent.XContentParser;
+
+/**
+ * An opaque pagination cursor for the search tool.
+ * It carries the sort values of the last returned hit (for {@code search_after}),
+ * the point-in-time id the search runs against, and a fingerprint of the query
+ * so that a cursor cannot be replayed against a different query.
+ */
+public class SearchCursor {
+
+    /** The cursor value that starts cursor-based pagination. */
+    public static final String START = "*";
+
+    private static final int VERSION = 1;
+
+    /** The point-in-time id, or null if the search is not bound to one. */
+    private final String pointInTimeId;
+
+    /** The sort values of the last returned hit, or null for the first page. */
+    private final Object[] searchAfter;
+
+    /** The fingerprint of the query the cursor belongs to. */
+    private final String fingerprint;
+
+    /**
+     * Creates a search cursor.
+     *
+     * @param pointInTimeId the point-in-time id, or null
+     * @param searchAfter   the sort values of the last returned hit, or null for the first page
+     * @param fingerprint   the fingerprint of the query
+     */
+    public SearchCursor(final String pointInTimeId, final Object[] searchAfter, final String fingerprint) {
+        this.pointInTimeId = pointInTimeId;
+        this.searchAfter = searchAfter;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Returns the point-in-time id.
+     *
+     * @return the point-in-time id, or null
+     */
+    public String getPointInTimeId() {
+        return pointInTimeId;
+    }
+
+    /**
+     * Returns the sort values of the last returned hit.
+     *
+     * @return the sort values, or null for the first page
+     */
+    public Object[] getSearchAfter() {
+        return searchAfter;
+    }
+
+    /**
+     * Returns the fingerprint of the query the cursor belongs to.
+     *
+     * @return the fingerprint
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Encodes this cursor as an opaque URL-safe string.
+     *
+     * @return the encoded cursor
+     */
+    public String encode() {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("v", VERSION);
+        map.put("fp", fingerprint);
+        if (pointInTimeId != null) {
+            map.put("pit", pointInTimeId);
+        }
+        if (searchAfter != null) {
+            map.put("after", List.of(searchAfter));
+        }
+        try {
+            final String json = JsonXContent.contentBuilder().map(map).toString();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+        } catch (final Exception e) {
+            throw new McpApiException(ErrorCode.InternalError, "Failed to encode cursor: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decodes a cursor created by {@link #encode()}.
+     *
+     * @param value the encoded cursor
+     * @return the decoded cursor
+     * @throws McpApiException if the value is not a valid cursor
+     */
+    public static SearchCursor decode(final String value) {
+        final Map<String, Object> map;
+        try {
+            final String json = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            try (XContentParser parser =
+                    JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, json)) {
+                map = parser.map();
+            }
+        } catch (final Exception e) {
+            throw new McpApiException(ErrorCode.InvalidParams, "Invalid cursor: " + value, e);
+        }
+        if (!(map.get("v") instanceof final Number version) || version.intValue() != VERSION
+                || !(map.get("fp") instanceof final String fingerprint)) {
+            throw new McpApiException(ErrorCode.InvalidParams, "Invalid cursor: " + value);
+        }
+        final Object pit = map.get("pit");
+        final Object after = map.get("after");
+        return new SearchCursor(pit instanceof final String s ? s : null, after instanceof final List<?> list ? list.toArray() : null,
+                fingerprint);
+    }
+}
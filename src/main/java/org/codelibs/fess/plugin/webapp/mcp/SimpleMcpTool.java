@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A tool defined by its metadata and a function running it.
+ */
+public class SimpleMcpTool implements McpTool {
+
+    private final String name;
+
+    private final String description;
+
+    private final Map<String, Object> inputSchema;
+
+    private final Map<String, Object> annotations;
+
+    private final ToolPolicy policy;
+
+    private final Function<Map<String, Object>, Map<String, Object>> invoker;
+
+    /**
+     * Creates a tool.
+     *
+     * @param name        the tool name
+     * @param description the description
+     * @param inputSchema the JSON Schema of the arguments
+     * @param annotations the tool annotations
+     * @param policy      how calls are executed
+     * @param invoker     the function running a call with its arguments
+     */
+    public SimpleMcpTool(final String name, final String description, final Map<String, Object> inputSchema,
+            final Map<String, Object> annotations, final ToolPolicy policy,
+            final Function<Map<String, Object>, Map<String, Object>> invoker) {
+        this.name = name;
+        this.description = description;
+        this.inputSchema = inputSchema;
+        this.annotations = annotations != null ? annotations : Map.of();
+        this.policy = policy != null ? policy : ToolPolicy.DEFAULT;
+        this.invoker = invoker;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public Map<String, Object> getInputSchema() {
+        return inputSchema;
+    }
+
+    @Override
+    public Map<String, Object> getAnnotations() {
+        return annotations;
+    }
+
+    @Override
+    public ToolPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public Map<String, Object> invoke(final Map<String, Object> arguments) {
+        return invoker.apply(arguments);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded ring of captured slow calls. Once the ring is full, each new entry replaces the oldest one.
+ * <p>
+ * Adding an entry takes one atomic increment and one array store, so callers never wait for each other.
+ * A snapshot taken while entries are added may miss or reorder the entries being written.
+ */
+public class SlowCallLog {
+
+    private final AtomicReferenceArray<Map<String, Object>> entries;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Creates an empty ring.
+     *
+     * @param capacity the number of entries kept
+     */
+    public SlowCallLog(final int capacity) {
+        this.entries = new AtomicReferenceArray<>(Math.max(1, capacity));
+    }
+
+    /**
+     * Adds an entry, replacing the oldest one if the ring is full.
+     *
+     * @param entry the entry
+     */
+    public void add(final Map<String, Object> entry) {
+        final long index = sequence.getAndIncrement();
+        entries.set((int) (index % entries.length()), entry);
+    }
+
+    /**
+     * Gets the entries kept in the ring.
+     *
+     * @return the entries, newest first
+     */
+    public List<Map<String, Object>> getEntries() {
+        final long last = sequence.get();
+        final long first = Math.max(0L, last - entries.length());
+        final List<Map<String, Object>> list = new ArrayList<>((int) (last - first));
+        for (long index = last - 1; index >= first; index--) {
+            final Map<String, Object> entry = entries.get((int) (index % entries.length()));
+            if (entry != null) {
+                list.add(entry);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Gets the number of entries added since the ring was created, including those already replaced.
+     *
+     * @return the number of added entries
+     */
+    public long getAddedCount() {
+        return sequence.get();
+    }
+
+    /**
+     * Gets the number of entries kept.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return entries.length();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+/**
+ * How calls of one tool are executed: how many may run at once, how long a caller waits for one,
+ * and on which thread it runs. Instances are immutable.
+ */
+public class ToolPolicy {
+
+    /**
+     * The thread a tool call runs on.
+     */
+    public enum Execution {
+        /** The thread handling the request. */
+        CALLER,
+        /** A thread of the tool executor. */
+        ASYNC
+    }
+
+    /** No concurrency limit, no timeout, run on the caller thread. */
+    public static final ToolPolicy DEFAULT = new ToolPolicy(0, 0L, Execution.CALLER);
+
+    private final int maxConcurrency;
+
+    private final long timeoutMillis;
+
+    private final Execution execution;
+
+    /**
+     * Creates a policy.
+     *
+     * @param maxConcurrency the maximum number of concurrent calls, or 0 or less for no limit
+     * @param timeoutMillis  the time a caller waits for a call in milliseconds, or 0 or less to wait until it completes
+     * @param execution      the thread calls run on
+     */
+    public ToolPolicy(final int maxConcurrency, final long timeoutMillis, final Execution execution) {
+        this.maxConcurrency = Math.max(0, maxConcurrency);
+        this.timeoutMillis = Math.max(0L, timeoutMillis);
+        this.execution = execution != null ? execution : Execution.CALLER;
+    }
+
+    /**
+     * Gets the maximum number of concurrent calls.
+     *
+     * @return the limit, or 0 for no limit
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Gets the time a caller waits for a call.
+     *
+     * @return the timeout in milliseconds, or 0 to wait until the call completes
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Gets the thread calls run on, as configured.
+     *
+     * @return the execution
+     */
+    public Execution getExecution() {
+        return execution;
+    }
+
+    /**
+     * Returns whether calls run on a thread of their own. A timeout implies this, since the caller has to stop
+     * waiting while the call goes on.
+     *
+     * @return true if calls are handed over to the tool executor
+     */
+    public boolean isAsync() {
+        return execution == Execution.ASYNC || timeoutMillis > 0L;
+    }
+
+    /**
+     * Creates a copy of this policy with another concurrency limit.
+     *
+     * @param maxConcurrency the maximum number of concurrent calls, or 0 or less for no limit
+     * @return the new policy
+     */
+    public ToolPolicy withMaxConcurrency(final int maxConcurrency) {
+        return new ToolPolicy(maxConcurrency, timeoutMillis, execution);
+    }
+
+    /**
+     * Creates a copy of this policy with another timeout.
+     *
+     * @param timeoutMillis the timeout in milliseconds, or 0 or less for none
+     * @return the new policy
+     */
+    public ToolPolicy withTimeoutMillis(final long timeoutMillis) {
+        return new ToolPolicy(maxConcurrency, timeoutMillis, execution);
+    }
+
+    /**
+     * Creates a copy of this policy with another execution.
+     *
+     * @param execution the thread calls run on
+     * @return the new policy
+     */
+    public ToolPolicy withExecution(final Execution execution) {
+        return new ToolPolicy(maxConcurrency, timeoutMillis, execution);
+    }
+
+    @Override
+    public String toString() {
+        return "ToolPolicy [maxConcurrency=" + maxConcurrency + ", timeoutMillis=" + timeoutMillis + ", execution=" + execution + "]";
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opensearch.common.xcontent.LoggingDeprecationHandler;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.xcontent.NamedXContentRegistry;
+import org.opensearch.core.xcontent.XContentParser;
+
+/**
+ * Records a sample of incoming JSON-RPC request bodies for replay.
+ * <p>
+ * Each sampled body becomes an entry with its arrival time in epoch milliseconds ({@value #TIME_KEY}) and the body
+ * ({@value #BODY_KEY}), queued to an {@link AccessLogWriter}, which writes it as a JSON line from its own thread
+ * and drops it when the buffer is full.
+ * When keys to redact are configured, the writer thread replaces the values of those keys anywhere in the body with
+ * {@value #REDACTED}, whether strings, numbers, booleans, or null, while keeping the shape of lists and objects;
+ * a body that cannot be parsed is then replaced as a whole, since it cannot be redacted safely.
+ */
+public class TrafficCapture implements AutoCloseable {
+
+    /** The entry key of the arrival time, in epoch milliseconds. */
+    public static final String TIME_KEY = "time";
+
+    /** The entry key of the request body. */
+    public static final String BODY_KEY = "body";
+
+    /** The replacement of redacted values. */
+    public static final String REDACTED = "[redacted]";
+
+    private static final Logger logger = LogManager.getLogger(TrafficCapture.class);
+
+    private final Consumer<String> output;
+
+    private final AccessLogWriter writer;
+
+    private final int samplePercent;
+
+    private final Set<String> redactedKeys;
+
+    /**
+     * Creates a capture and starts its writer thread.
+     *
+     * @param output        receives each serialized entry, e.g. a {@link RotatingFileWriter}; closed with this capture
+     *                      if it is {@link Closeable}
+     * @param bufferSize    the number of entries that may wait to be written
+     * @param samplePercent the percentage of requests recorded, from 0 to 100
+     * @param redactedKeys  the keys whose values are redacted
+     */
+    public TrafficCapture(final Consumer<String> output, final int bufferSize, final int samplePercent, final Set<String> redactedKeys) {
+        this.output = output;
+        this.samplePercent = Math.min(100, Math.max(0, samplePercent));
+        this.redactedKeys = redactedKeys;
+        this.writer = new AccessLogWriter(bufferSize, output, "mcp-traffic-capture", this::redactEntry);
+    }
+
+    /**
+     * Records a request body if it is sampled, without waiting for it to be written.
+     *
+     * @param body the request body
+     * @return true if the body was queued, false if it was not sampled or was dropped
+     */
+    public boolean capture(final String body) {
+        if (samplePercent < 100 && ThreadLocalRandom.current().nextInt(100) >= samplePercent) {
+            return false;
+        }
+        final Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put(TIME_KEY, System.currentTimeMillis());
+        entry.put(BODY_KEY, body);
+        return writer.offer(entry);
+    }
+
+    /**
+     * Redacts the body of an entry on the writer thread, so that request threads do not parse bodies.
+     *
+     * @param entry the entry
+     */
+    protected void redactEntry(final Map<String, Object> entry) {
+        if (!redactedKeys.isEmpty() && entry.get(BODY_KEY) instanceof final String body) {
+            entry.put(BODY_KEY, redact(body));
+        }
+    }
+
+    /**
+     * Redacts the values of the configured keys in a JSON request body.
+     *
+     * @param body the request body
+     * @return the redacted body, or {@value #REDACTED} if the body is not valid JSON
+     */
+    protected String redact(final String body) {
+        try (XContentParser parser =
+                JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, body)) {
+            final Object message = body.trim().startsWith("[") ? parser.list() : parser.map();
+            return JsonXContent.contentBuilder().value(redactValue(message, false)).toString();
+        } catch (final Exception e) {
+            return REDACTED;
+        }
+    }
+
+    private Object redactValue(final Object value, final boolean redacted) {
+        if (value instanceof final Map<?, ?> map) {
+            final Map<String, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(String.valueOf(k), redactValue(v, redacted || redactedKeys.contains(String.valueOf(k)))));
+            return copy;
+        }
+        if (value instanceof final List<?> list) {
+            final List<Object> copy = new ArrayList<>(list.size());
+            for (final Object item : list) {
+                copy.add(redactValue(item, redacted));
+            }
+            return copy;
+        }
+        return redacted ? REDACTED : value;
+    }
+
+    /**
+     * Gets the number of sampled bodies dropped because the buffer was full.
+     *
+     * @return the number of dropped bodies
+     */
+    public long getDroppedCount() {
+        return writer.getDroppedCount();
+    }
+
+    /**
+     * Gets the number of bodies written.
+     *
+     * @return the number of written bodies
+     */
+    public long getWrittenCount() {
+        return writer.getWrittenCount();
+    }
+
+    /**
+     * Stops recording, waits briefly for queued bodies to be written, and closes the output.
+     */
+    @Override
+    public void close() {
+        writer.close();
+        if (output instanceof final Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (final IOException e) {
+                logger.warn("[MCP] Failed to close the traffic capture: {}", e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * An executor that runs each task on a new virtual thread, with at most a fixed number of tasks running at once.
+ * Tasks submitted beyond that limit are rejected immediately instead of queued, so callers can shed load.
+ * <p>
+ * Optionally, the executor watches the JDK's {@code jdk.VirtualThreadPinned} events and logs virtual threads
+ * that stayed pinned to their carrier thread longer than a threshold. Pinned threads block a carrier thread
+ * like a platform thread would, which defeats the purpose of virtual threads. The events are JVM-wide.
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+    private static final Logger logger = LogManager.getLogger(VirtualThreadExecutor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final int MAX_LOGGED_FRAMES = 8;
+
+    private final ThreadFactory threadFactory;
+
+    private final int maxConcurrency;
+
+    private final Semaphore permits;
+
+    private final LongAdder pinnedEventCount = new LongAdder();
+
+    private final RecordingStream pinningStream;
+
+    private volatile boolean shutdown;
+
+    /**
+     * Creates an executor.
+     *
+     * @param namePrefix      the name prefix of the virtual threads
+     * @param maxConcurrency  the maximum number of tasks running at once
+     * @param pinnedThreshold the pinning duration above which pinned threads are logged, or null to disable pinning diagnostics
+     */
+    public VirtualThreadExecutor(final String namePrefix, final int maxConcurrency, final Duration pinnedThreshold) {
+        this.threadFactory = Thread.ofVirtual().name(namePrefix, 1).factory();
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+        this.pinningStream = pinnedThreshold != null ? startPinningMonitor(pinnedThreshold) : null;
+    }
+
+    /**
+     * Starts streaming {@code jdk.VirtualThreadPinned} events.
+     *
+     * @param threshold the minimum pinning duration of reported events
+     * @return the recording stream, or null if JFR is not available
+     */
+    protected RecordingStream startPinningMonitor(final Duration threshold) {
+        try {
+            final RecordingStream stream = new RecordingStream();
+            stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+            stream.onEvent(PINNED_EVENT, this::onPinned);
+            stream.startAsync();
+            return stream;
+        } catch (final Exception e) {
+            logger.warn("[MCP] Failed to start virtual thread pinning diagnostics: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Handles a pinning event.
+     *
+     * @param event the {@code jdk.VirtualThreadPinned} event
+     */
+    protected void onPinned(final RecordedEvent event) {
+        pinnedEventCount.increment();
+        if (logger.isWarnEnabled()) {
+            final String thread = event.getThread() != null ? event.getThread().getJavaName() : "unknown";
+            final String frames = event.getStackTrace() == null ? ""
+                    : event.getStackTrace()
+                            .getFrames()
+                            .stream()
+                            .limit(MAX_LOGGED_FRAMES)
+                            .map(VirtualThreadExecutor::formatFrame)
+                            .collect(Collectors.joining("\n\tat ", "\n\tat ", ""));
+            logger.warn("[MCP] Virtual thread {} was pinned to its carrier thread for {}ms{}", thread, event.getDuration().toMillis(),
+                    frames);
+        }
+    }
+
+    private static String formatFrame(final RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    /**
+     * Runs the command on a new virtual thread.
+     *
+     * @param command the task
+     * @throws RejectedExecutionException if the executor is shut down or the concurrency limit is reached
+     */
+    @Override
+    public void execute(final Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("Too many concurrent tasks: " + maxConcurrency);
+        }
+        try {
+            threadFactory.newThread(() -> {
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            }).start();
+        } catch (final RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of tasks currently running.
+     *
+     * @return the number of running tasks
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Gets the maximum number of tasks running at once.
+     *
+     * @return the concurrency limit
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Gets the number of pinning events observed since the executor was created.
+     *
+     * @return the number of {@code jdk.VirtualThreadPinned} events above the threshold
+     */
+    public long getPinnedEventCount() {
+        return pinnedEventCount.sum();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (pinningStream != null) {
+            pinningStream.close();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && getActiveCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10L);
+        }
+        return true;
+    }
+}
@@ -15,21 +15,84 @@
  */
 package org.codelibs.fess.plugin.webapp.api.mcp;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.codelibs.fess.entity.FacetInfo;
+import org.codelibs.fess.entity.SearchRequestParams;
+import org.codelibs.fess.mylasta.direction.FessConfig;
 import org.codelibs.fess.plugin.webapp.exception.McpApiException;
+import org.codelibs.fess.plugin.webapp.mcp.AccessLogWriter;
 import org.codelibs.fess.plugin.webapp.mcp.ErrorCode;
+import org.codelibs.fess.plugin.webapp.mcp.LatencyHistogram;
+import org.codelibs.fess.plugin.webapp.mcp.LocalExchange;
+import org.codelibs.fess.plugin.webapp.mcp.McpMetrics;
+import org.codelibs.fess.plugin.webapp.mcp.McpRequestEvent;
+import org.codelibs.fess.plugin.webapp.mcp.McpSearchResult;
+import org.codelibs.fess.plugin.webapp.mcp.McpTool;
+import org.codelibs.fess.plugin.webapp.mcp.McpToolEvent;
+import org.codelibs.fess.plugin.webapp.mcp.McpToolRegistry;
+import org.codelibs.fess.plugin.webapp.mcp.McpWarmup;
+import org.codelibs.fess.plugin.webapp.mcp.PhaseTimings;
+import org.codelibs.fess.plugin.webapp.mcp.PhaseTimings.Phase;
+import org.codelibs.fess.plugin.webapp.mcp.SearchCursor;
+import org.codelibs.fess.plugin.webapp.mcp.SimpleMcpTool;
+import org.codelibs.fess.plugin.webapp.mcp.ToolPolicy;
+import org.codelibs.fess.plugin.webapp.mcp.TrafficCapture;
+import org.codelibs.fess.plugin.webapp.mcp.VirtualThreadExecutor;
+import org.codelibs.fess.util.ComponentUtil;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
+import org.opensearch.action.ActionRequestBuilder;
+import org.opensearch.action.search.SearchAction;
+import org.opensearch.action.search.SearchRequestBuilder;
+import org.opensearch.action.search.SearchResponse;
+import org.opensearch.common.unit.TimeValue;
+import org.opensearch.common.util.concurrent.ThreadContext.StoredContext;
+import org.opensearch.common.xcontent.LoggingDeprecationHandler;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.xcontent.NamedXContentRegistry;
+import org.opensearch.core.xcontent.XContentParser;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 /**
  * Test class for McpApiManager.
@@ -60,6 +123,56 @@ public class McpApiManagerTest {
         protected int getContentMaxLength() {
             return contentMaxLength;
         }
+
+        @Override
+        protected int getCharsPerToken() {
+            return 4;
+        }
+
+        @Override
+        protected String[] getExportAllowedFields() {
+            return new String[] { "doc_id", "url", "title" };
+        }
+
+        @Override
+        protected String[] getCollapseAllowedFields() {
+            return new String[] { "content_minhash_bits", "host" };
+        }
+
+        @Override
+        protected boolean isVirtualThreadsEnabled() {
+            return false;
+        }
+
+        @Override
+        protected boolean isHedgingEnabled() {
+            return false;
+        }
+
+        @Override
+        protected boolean isAccessLogEnabled() {
+            return false;
+        }
+
+        @Override
+        protected long getSlowThreshold(final String tool) {
+            return -1L;
+        }
+
+        @Override
+        protected boolean isCaptureEnabled() {
+            return false;
+        }
+
+        @Override
+        protected ToolPolicy resolveToolPolicy(final McpTool tool) {
+            return tool.getPolicy();
+        }
+
+        @Override
+        protected long getToolTimeout() {
+            return 10000L;
+        }
     }
 
     @Test
@@ -118,7 +231,7 @@ public class McpApiManagerTest {
         @SuppressWarnings("unchecked")
         final List<Map<String, Object>> tools = (List<Map<String, Object>>) result.get("tools");
         assertNotNull("Tools list should not be null", tools);
-        assertEquals("Should have 4 tools", 4, tools.size());
+        assertEquals("Should have 6 tools", 6, tools.size());
 
         // Check search tool
         final Map<String, Object> searchTool = tools.get(0);
@@ -145,7 +258,7 @@ public class McpApiManagerTest {
         @SuppressWarnings("unchecked")
         final List<Map<String, Object>> resources = (List<Map<String, Object>>) result.get("resources");
         assertNotNull("Resources list should not be null", resources);
-        assertEquals("Should have 1 resource", 1, resources.size());
+        assertEquals("Should have 3 resources", 3, resources.size());
 
         final Map<String, Object> resource = resources.get(0);
         assertEquals("Resource URI", "fess://index/stats", resource.get("uri"));
@@ -1393,7 +1506,7 @@ public class McpApiManagerTest {
         final List<Map<String, Object>> resources = (List<Map<String, Object>>) result.get("resources");
 
         assertNotNull("resources should not be null", resources);
-        assertEquals("Should have 1 resource", 1, resources.size());
+        assertEquals("Should have 3 resources", 3, resources.size());
 
         final Map<String, Object> indexStatsResource = resources.get(0);
         assertEquals("Resource URI", "fess://index/stats", indexStatsResource.get("uri"));
@@ -2062,4 +2175,2319 @@ public class McpApiManagerTest {
         assertEquals(-32601, error.get("code"));
         assertEquals("test error", error.get("message"));
     }
+
+    // ==================== Token budget packing tests ====================
+
+    private static Map<String, Object> createBudgetDoc(final int n, final int contentLength) {
+        final Map<String, Object> doc = new HashMap<>();
+        doc.put("title", "Doc " + n);
+        doc.put("url", "https://example.com/" + n);
+        doc.put("content", "x".repeat(contentLength));
+        return doc;
+    }
+
+    @Test
+    public void testResolveCharBudget() {
+        assertEquals("No budget", 0, mcpApiManager.resolveCharBudget(Map.of("q", "test")));
+        assertEquals("max_tokens converted with chars per token", 400, mcpApiManager.resolveCharBudget(Map.of("max_tokens", 100)));
+        assertEquals("max_chars takes precedence", 250, mcpApiManager.resolveCharBudget(Map.of("max_tokens", 100, "max_chars", 250)));
+        assertEquals("String value parsed", 120, mcpApiManager.resolveCharBudget(Map.of("max_chars", "120")));
+        assertEquals("Non-positive ignored", 0, mcpApiManager.resolveCharBudget(Map.of("max_chars", -1)));
+        assertEquals("Unparseable ignored", 0, mcpApiManager.resolveCharBudget(Map.of("max_tokens", "abc")));
+    }
+
+    @Test
+    public void testPackDocumentContents_AllFitUntouched() {
+        final List<Map<String, Object>> docs = List.of(createBudgetDoc(1, 50), createBudgetDoc(2, 50));
+        final List<Map<String, Object>> contents = mcpApiManager.packDocumentContents(docs, 10000, 20);
+
+        assertEquals("All documents should fit", 2, contents.size());
+        assertEquals("Content should be identical to unbudgeted rendering", mcpApiManager.createDocumentContent(docs.get(0), 1).get("text"),
+                contents.get(0).get("text"));
+    }
+
+    @Test
+    public void testPackDocumentContents_ShrinksSnippetsBeforeDropping() {
+        final List<Map<String, Object>> docs = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            docs.add(createBudgetDoc(i, 1000));
+        }
+        final int headerLength = mcpApiManager.buildDocumentHeader(docs.get(0)).length();
+        final int budget = 5 * (headerLength + 103) + 10;
+
+        final List<Map<String, Object>> contents = mcpApiManager.packDocumentContents(docs, budget, 100);
+
+        assertEquals("All five documents should be kept with shorter snippets", 5, contents.size());
+        int total = 0;
+        for (final Map<String, Object> content : contents) {
+            final String text = (String) content.get("text");
+            assertTrue("Snippet should be truncated", text.endsWith("..."));
+            total += text.length();
+        }
+        assertTrue("Total length should be within budget", total <= budget);
+    }
+
+    @Test
+    public void testPackDocumentContents_DropsTrailingDocuments() {
+        final List<Map<String, Object>> docs = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            docs.add(createBudgetDoc(i, 1000));
+        }
+        final int headerLength = mcpApiManager.buildDocumentHeader(docs.get(0)).length();
+        final int budget = 2 * (headerLength + 103) + 10;
+
+        final List<Map<String, Object>> contents = mcpApiManager.packDocumentContents(docs, budget, 100);
+
+        assertEquals("Only two documents fit with minimum snippets", 2, contents.size());
+        assertTrue("Rank order should be kept", ((String) contents.get(0).get("text")).contains("Doc 1"));
+        assertTrue("Rank order should be kept", ((String) contents.get(1).get("text")).contains("Doc 2"));
+    }
+
+    @Test
+    public void testPackDocumentContents_TinyBudgetReturnsTopDocument() {
+        final List<Map<String, Object>> contents = mcpApiManager.packDocumentContents(List.of(createBudgetDoc(1, 1000)), 10, 100);
+
+        assertEquals("Top document should be returned", 1, contents.size());
+        assertEquals("Text should be cut to the budget", 10, ((String) contents.get(0).get("text")).length());
+    }
+
+    @Test
+    public void testPackDocumentContents_UsesCreateDocumentContent() {
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected Map<String, Object> createDocumentContent(final Map<String, Object> doc, final int index) {
+                return Map.of("type", "text", "text", "#" + index + " " + doc.get("title") + "\n" + resolveDisplayContent(doc), "index",
+                        index);
+            }
+        };
+        final List<Map<String, Object>> docs = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            docs.add(createBudgetDoc(i, 1000));
+        }
+        final int budget = 3 * ("#1 Doc 1\n".length() + 103);
+
+        final List<Map<String, Object>> contents = manager.packDocumentContents(docs, budget, 100);
+
+        assertEquals("All three documents should be kept with shorter snippets", 3, contents.size());
+        int total = 0;
+        for (int i = 0; i < contents.size(); i++) {
+            final String text = (String) contents.get(i).get("text");
+            assertTrue(text, text.startsWith("#" + (i + 1) + " Doc " + (i + 1) + "\n") && text.endsWith("..."));
+            assertEquals("Entries keep the keys of the overridden rendering", i + 1, contents.get(i).get("index"));
+            total += text.length();
+        }
+        assertTrue("Total length should be within budget", total <= budget);
+    }
+
+    @Test
+    public void testPackDocumentContents_Empty() {
+        assertTrue("No documents should produce no contents", mcpApiManager.packDocumentContents(List.of(), 100, 10).isEmpty());
+    }
+
+    @Test
+    public void testEstimateTokens() {
+        final List<Map<String, Object>> contents = List.of(Map.of("type", "text", "text", "x".repeat(10)),
+                Map.of("type", "text", "text", "y".repeat(7)));
+        assertEquals("17 chars at 4 chars/token should round up to 5 tokens", 5, mcpApiManager.estimateTokens(contents));
+        assertEquals("Empty contents should be 0 tokens", 0, mcpApiManager.estimateTokens(List.of()));
+    }
+
+    // ==================== Cursor pagination tests ====================
+
+    private static McpSearchResult createCursorResult(final int hits) {
+        final McpSearchResult result = new McpSearchResult();
+        final List<Object[]> sortValues = new ArrayList<>();
+        for (int i = 0; i < hits; i++) {
+            sortValues.add(new Object[] { 10.0 - i, "doc" + i });
+        }
+        result.setSortValues(sortValues);
+        result.setPointInTimeId("pit");
+        return result;
+    }
+
+    @Test
+    public void testCreateNextCursor_FullPage() {
+        final String next = mcpApiManager.createNextCursor(createCursorResult(3), 3, 3, "fp");
+        assertNotNull("Full page should have a next cursor", next);
+
+        final SearchCursor cursor = SearchCursor.decode(next);
+        assertEquals("pit", cursor.getPointInTimeId());
+        assertEquals("fp", cursor.getFingerprint());
+        assertEquals("Cursor should continue after the last returned hit", "doc2", cursor.getSearchAfter()[1]);
+    }
+
+    @Test
+    public void testCreateNextCursor_LastPage() {
+        assertNull("Short page should not have a next cursor", mcpApiManager.createNextCursor(createCursorResult(2), 2, 3, "fp"));
+        assertNull("Empty page should not have a next cursor", mcpApiManager.createNextCursor(createCursorResult(0), 0, 3, "fp"));
+    }
+
+    @Test
+    public void testCreateNextCursor_PackedPageContinuesAfterLastReturned() {
+        final String next = mcpApiManager.createNextCursor(createCursorResult(5), 2, 5, "fp");
+        assertNotNull("Packed page should have a next cursor", next);
+        assertEquals("doc1", SearchCursor.decode(next).getSearchAfter()[1]);
+    }
+
+    @Test
+    public void testInvokeSearch_ClosesPointInTimeAtEndOfScan() {
+        final List<String> opened = new ArrayList<>();
+        final List<String> closed = new ArrayList<>();
+        final List<Integer> pageSizes = new ArrayList<>(List.of(3, 1));
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected String openPointInTime() {
+                opened.add("pit");
+                return "pit";
+            }
+
+            @Override
+            protected void closePointInTime(final String pitId) {
+                closed.add(pitId);
+            }
+
+            @Override
+            protected TimeValue getCursorKeepAlive() {
+                return TimeValue.timeValueSeconds(60);
+            }
+
+            @Override
+            protected McpSearchResult executeDirectSearch(final SearchRequestParams reqParams, final int offset,
+                    final Consumer<SearchRequestBuilder> customizer) {
+                final McpSearchResult result = createCursorResult(pageSizes.remove(0));
+                final List<Map<String, Object>> docs = new ArrayList<>();
+                for (int i = 0; i < result.getSortValues().size(); i++) {
+                    docs.add(createDoc("doc" + i, "Fess " + i));
+                }
+                result.setDocumentItems(docs);
+                return result;
+            }
+        };
+        installSearchConfig();
+        try {
+            final Map<String, Object> first = manager.handleInvoke(Map.of("name", "search", "arguments", Map.of("q", "fess", "num", 3,
+                    "cursor", SearchCursor.START)));
+            final Object nextCursor = ((Map<?, ?>) first.get("_meta")).get("nextCursor");
+            assertNotNull(String.valueOf(first), nextCursor);
+            assertEquals(List.of("pit"), opened);
+            assertEquals("The point-in-time stays open while the scan goes on", List.of(), closed);
+
+            final Map<String, Object> last =
+                    manager.handleInvoke(Map.of("name", "search", "arguments", Map.of("q", "fess", "num", 3, "cursor", nextCursor)));
+            assertNull(((Map<?, ?>) last.get("_meta")).get("nextCursor"));
+            assertEquals("The last page closes the point-in-time", List.of("pit"), closed);
+            assertEquals(List.of("pit"), opened);
+        } finally {
+            ComponentUtil.setFessConfig(null);
+        }
+    }
+
+    @Test
+    public void testCreateQueryFingerprint() {
+        final String fp1 = mcpApiManager.createQueryFingerprint(Map.of("q", "fess", "num", 3));
+        final String fp2 = mcpApiManager.createQueryFingerprint(Map.of("q", "fess", "num", 10, "cursor", "*"));
+        final String fp3 = mcpApiManager.createQueryFingerprint(Map.of("q", "other"));
+
+        assertEquals("Paging arguments should not change the fingerprint", fp1, fp2);
+        assertFalse("Different queries should have different fingerprints", fp1.equals(fp3));
+    }
+
+    // ==================== Export tests ====================
+
+    @Test
+    public void testHandleListResourceTemplates_HasExportTemplate() {
+        @SuppressWarnings("unchecked")
+        final List<Map<String, Object>> templates =
+                (List<Map<String, Object>>) mcpApiManager.handleListResourceTemplates(Map.of()).get("resourceTemplates");
+
+        final Map<String, Object> export = templates.stream().filter(t -> "fess://export{?q,fl}".equals(t.get("uriTemplate"))).findFirst()
+                .orElseThrow(() -> new AssertionError("Export template should exist"));
+        assertEquals("application/x-ndjson", export.get("mimeType"));
+    }
+
+    @Test
+    public void testIsExportUri() {
+        assertTrue(mcpApiManager.isExportUri("fess://export?q=test"));
+        assertTrue(mcpApiManager.isExportUri("fess://export"));
+        assertFalse(mcpApiManager.isExportUri("fess://exports?q=test"));
+        assertFalse(mcpApiManager.isExportUri("fess://index/stats"));
+        assertFalse(mcpApiManager.isExportUri(null));
+    }
+
+    @Test
+    public void testParseExportUri() {
+        final Map<String, Object> args = mcpApiManager.parseExportUri("fess://export?q=site%3Aexample.com+fess&fl=url,title");
+        assertEquals("site:example.com fess", args.get("q"));
+        assertEquals("url,title", args.get("fl"));
+    }
+
+    @Test
+    public void testParseExportUri_MissingQuery() {
+        try {
+            mcpApiManager.parseExportUri("fess://export?fl=url");
+            fail("Should require q");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+        }
+    }
+
+    @Test
+    public void testResolveExportFields() {
+        assertArrayEquals("All allowed fields by default", new String[] { "doc_id", "url", "title" }, mcpApiManager.resolveExportFields(null));
+        assertArrayEquals("Disallowed fields are dropped", new String[] { "url", "title" },
+                mcpApiManager.resolveExportFields("url, content,title,url"));
+        assertArrayEquals("List values are accepted", new String[] { "doc_id" }, mcpApiManager.resolveExportFields(List.of("doc_id")));
+        try {
+            mcpApiManager.resolveExportFields("content");
+            fail("Should reject when no field is allowed");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+        }
+    }
+
+    @Test
+    public void testHandleReadResource_ExportUriRejectedOutsideSingleRequest() {
+        try {
+            mcpApiManager.handleReadResource(Map.of("uri", "fess://export?q=test"));
+            fail("Export resource should not be readable through the buffered path");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+        }
+    }
+
+    @Test
+    public void testStreamExportResource_ReportsTruncation() throws Exception {
+        final boolean[] truncated = { true };
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected Map<String, Object> exportDocuments(final Map<String, Object> args, final String[] fields,
+                    final Consumer<String> sink) {
+                sink.accept("{\"doc_id\":\"1\"}");
+                sink.accept("{\"doc_id\":\"2\"}");
+                final Map<String, Object> meta = new LinkedHashMap<>();
+                meta.put("documentCount", 2L);
+                meta.put("truncated", truncated[0]);
+                if (truncated[0]) {
+                    meta.put("maxDocuments", 2L);
+                }
+                return meta;
+            }
+        };
+
+        LocalExchange exchange = new LocalExchange("/mcp", "application/json");
+        manager.streamExportResource(1, "fess://export?q=fess", exchange.getResponse());
+        Map<String, Object> meta = (Map<String, Object>) ((Map<String, Object>) parseLine(exchange.getBody()).get("result")).get("_meta");
+        assertEquals(2, ((Number) meta.get("documentCount")).intValue());
+        assertEquals(false, meta.get("complete"));
+        assertEquals(true, meta.get("truncated"));
+        assertEquals(2, ((Number) meta.get("maxDocuments")).intValue());
+
+        truncated[0] = false;
+        exchange = new LocalExchange("/mcp", "application/json");
+        manager.streamExportResource(1, "fess://export?q=fess", exchange.getResponse());
+        meta = (Map<String, Object>) ((Map<String, Object>) parseLine(exchange.getBody()).get("result")).get("_meta");
+        assertEquals(true, meta.get("complete"));
+        assertEquals(false, meta.get("truncated"));
+        assertNull(meta.get("maxDocuments"));
+    }
+
+    @Test
+    public void testProcessExportRequest_ErrorStatus() throws Exception {
+        final boolean[] scroll = { true };
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected Map<String, Object> exportDocuments(final Map<String, Object> args, final String[] fields,
+                    final Consumer<String> sink) {
+                throw new McpApiException(ErrorCode.ResourceNotFound, "gone");
+            }
+        };
+        ComponentUtil.setFessConfig(new FessConfig.SimpleImpl() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean isApiSearchScroll() {
+                return scroll[0];
+            }
+        });
+        try {
+            // getParameter answers both q and fl, so "content" is a field that may not be exported
+            assertEquals(HttpServletResponse.SC_BAD_REQUEST, processExport(manager, "content"));
+            assertEquals(HttpServletResponse.SC_NOT_FOUND, processExport(manager, "url"));
+            scroll[0] = false;
+            assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, processExport(manager, "url"));
+        } finally {
+            ComponentUtil.setFessConfig(null);
+        }
+    }
+
+    private static int processExport(final McpApiManager manager, final String parameter) throws IOException {
+        final HttpServletRequest request = createProxy(HttpServletRequest.class, new ArrayList<>(), Map.of("getParameter", parameter));
+        final LocalExchange exchange = new LocalExchange("/mcp/export", null);
+        manager.processExportRequest(request, exchange.getResponse());
+        return exchange.getStatus();
+    }
+
+    @Test
+    public void testGetHttpStatus() {
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, mcpApiManager.getHttpStatus(ErrorCode.InvalidParams));
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, mcpApiManager.getHttpStatus(ErrorCode.InvalidRequest));
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, mcpApiManager.getHttpStatus(ErrorCode.ResourceNotFound));
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, mcpApiManager.getHttpStatus(ErrorCode.MethodNotFound));
+        assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, mcpApiManager.getHttpStatus(ErrorCode.InternalError));
+    }
+
+    // ==================== Facet tests ====================
+
+    @Test
+    public void testCreateFacetInfo_NoFacetRequested() {
+        assertNull(mcpApiManager.createFacetInfo(Map.of("q", "test")));
+        assertNull(mcpApiManager.createFacetInfo(Map.of("q", "test", "facet.field", List.of())));
+    }
+
+    @Test
+    public void testCreateFacetInfo_FieldsAndQueries() {
+        final FacetInfo facetInfo = mcpApiManager.createFacetInfo(
+                Map.of("facet.field", List.of("label", "site"), "facet.query", "timestamp:[now-7d TO *]", "facet.size", 5));
+        assertNotNull(facetInfo);
+        assertArrayEquals(new String[] { "label", "site" }, facetInfo.field);
+        assertArrayEquals(new String[] { "timestamp:[now-7d TO *]" }, facetInfo.query);
+        assertEquals(Integer.valueOf(5), facetInfo.size);
+    }
+
+    @Test
+    public void testCreateFacetInfo_IgnoresInvalidSize() {
+        final FacetInfo facetInfo = mcpApiManager.createFacetInfo(Map.of("facet.field", "label", "facet.size", "abc"));
+        assertNotNull(facetInfo);
+        assertNull(facetInfo.query);
+        assertNull(facetInfo.size);
+    }
+
+    @Test
+    public void testToStringArray() {
+        assertArrayEquals(new String[0], mcpApiManager.toStringArray(null));
+        assertArrayEquals(new String[0], mcpApiManager.toStringArray(" "));
+        assertArrayEquals(new String[] { "a" }, mcpApiManager.toStringArray("a"));
+        final List<Object> values = new ArrayList<>();
+        values.add("a");
+        values.add(null);
+        values.add("");
+        values.add("b");
+        assertArrayEquals(new String[] { "a", "b" }, mcpApiManager.toStringArray(values));
+    }
+
+    @Test
+    public void testCreateFacetBlock_NullResponse() {
+        assertNull(mcpApiManager.createFacetBlock(null));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testToolsListSearchSchema_HasFacetProperties() throws Exception {
+        final Map<String, Object> result = mcpApiManager.handleListTools();
+        final List<Map<String, Object>> tools = (List<Map<String, Object>>) result.get("tools");
+        final Map<String, Object> search = tools.stream().filter(t -> "search".equals(t.get("name"))).findFirst().orElseThrow();
+        final Map<String, Object> properties = (Map<String, Object>) ((Map<String, Object>) search.get("inputSchema")).get("properties");
+        assertTrue(properties.containsKey("facet.field"));
+        assertTrue(properties.containsKey("facet.query"));
+        assertTrue(properties.containsKey("facet.size"));
+    }
+
+    // ==================== Count tool tests ====================
+
+    private static McpApiManager createCountManager(final long totalHits, final String relation) {
+        return new TestMcpApiManager() {
+            @Override
+            protected SearchRequestParams createSearchRequestParams(final Map<String, Object> params) {
+                return null;
+            }
+
+            @Override
+            protected McpSearchResult executeCount(final SearchRequestParams reqParams) {
+                final McpSearchResult result = new McpSearchResult();
+                result.setTotalHits(totalHits);
+                result.setTotalHitsRelation(relation);
+                result.setTookMillis(2);
+                return result;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testInvokeCount_Exact() {
+        final Map<String, Object> result = createCountManager(42, "eq").invokeCount(Map.of("q", "fess"));
+        final List<Map<String, Object>> contents = (List<Map<String, Object>>) result.get("content");
+        assertEquals(1, contents.size());
+        assertEquals("42 documents match: fess", contents.get(0).get("text"));
+        final Map<String, Object> meta = (Map<String, Object>) result.get("_meta");
+        assertEquals(42L, meta.get("count"));
+        assertEquals("eq", meta.get("relation"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testInvokeCount_LowerBound() {
+        final Map<String, Object> result = createCountManager(10000, "gte").invokeCount(Map.of("q", "*"));
+        final List<Map<String, Object>> contents = (List<Map<String, Object>>) result.get("content");
+        assertEquals("At least 10000 documents match: *", contents.get(0).get("text"));
+        assertEquals("gte", ((Map<String, Object>) result.get("_meta")).get("relation"));
+    }
+
+    @Test
+    public void testInvokeCount_MissingQuery() {
+        try {
+            mcpApiManager.invokeCount(Map.of("q", " "));
+            fail("Should require q");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testHandleInvoke_Count() {
+        final Map<String, Object> result =
+                createCountManager(7, "eq").handleInvoke(Map.of("name", "count", "arguments", Map.of("q", "fess")));
+        assertNull(result.get("isError"));
+        assertEquals(7L, ((Map<String, Object>) result.get("_meta")).get("count"));
+    }
+
+    // ==================== Multi-search tests ====================
+
+    private static Map<String, Object> createDoc(final String docId, final String title) {
+        final Map<String, Object> doc = new HashMap<>();
+        doc.put("doc_id", docId);
+        doc.put("title", title);
+        doc.put("url", "http://example.com/" + docId);
+        doc.put("content_description", "snippet of " + docId);
+        doc.put("score", 1.0f);
+        return doc;
+    }
+
+    @Test
+    public void testFuseRankings_DeduplicatesAndRanksByFusedScore() {
+        final List<Map<String, Object>> first = List.of(createDoc("a", "A"), createDoc("b", "B"), createDoc("c", "C"));
+        final List<Map<String, Object>> second = List.of(createDoc("c", "C"), createDoc("b", "B"), createDoc("d", "D"));
+
+        final List<Map<String, Object>> fused = mcpApiManager.fuseRankings(List.of(first, second), 60, 10);
+
+        assertEquals("Duplicates should be merged", 4, fused.size());
+        // c: 1/63 + 1/61 = 0.032266, b: 1/62 + 1/62 = 0.032258, a: 1/61, d: 1/63
+        assertEquals("c", fused.get(0).get("doc_id"));
+        assertEquals("b", fused.get(1).get("doc_id"));
+        assertEquals("a", fused.get(2).get("doc_id"));
+        assertEquals("d", fused.get(3).get("doc_id"));
+        assertEquals(0.0323d, (Double) fused.get(0).get("score"), 0.00001d);
+    }
+
+    @Test
+    public void testFuseRankings_LimitAndTies() {
+        final List<Map<String, Object>> first = List.of(createDoc("a", "A"));
+        final List<Map<String, Object>> second = List.of(createDoc("b", "B"));
+
+        final List<Map<String, Object>> fused = mcpApiManager.fuseRankings(List.of(first, second), 60, 1);
+
+        assertEquals(1, fused.size());
+        assertEquals("Ties should keep the first-seen order", "a", fused.get(0).get("doc_id"));
+    }
+
+    @Test
+    public void testFuseRankings_FallsBackToUrl() {
+        final Map<String, Object> doc1 = createDoc("x", "X");
+        doc1.remove("doc_id");
+        final Map<String, Object> doc2 = createDoc("x", "X");
+        doc2.remove("doc_id");
+
+        assertEquals(1, mcpApiManager.fuseRankings(List.of(List.of(doc1), List.of(doc2)), 60, 10).size());
+    }
+
+    private static McpApiManager createMultiSearchManager(final List<McpSearchResult> results, final List<String> executedQueries) {
+        return new TestMcpApiManager() {
+            @Override
+            protected SearchRequestParams createSearchRequestParams(final Map<String, Object> params, final String[] responseFields) {
+                executedQueries.add((String) params.get("q"));
+                return null;
+            }
+
+            @Override
+            protected String[] getMultiSearchResponseFields() {
+                return new String[] { "doc_id", "title" };
+            }
+
+            @Override
+            protected int getMultiSearchMaxQueries() {
+                return 3;
+            }
+
+            @Override
+            protected int getMultiSearchDepth() {
+                return 10;
+            }
+
+            @Override
+            protected int getRrfRankConstant() {
+                return 60;
+            }
+
+            @Override
+            protected List<McpSearchResult> executeMultiSearch(final List<SearchRequestParams> reqParamsList) {
+                return results;
+            }
+        };
+    }
+
+    private static McpSearchResult createMultiSearchResult(final Map<String, Object>... docs) {
+        final McpSearchResult result = new McpSearchResult();
+        result.setDocumentItems(List.of(docs));
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testInvokeMultiSearch() {
+        final List<String> executedQueries = new ArrayList<>();
+        final List<McpSearchResult> results = List.of(createMultiSearchResult(createDoc("a", "A"), createDoc("b", "B")),
+                createMultiSearchResult(createDoc("b", "B"), createDoc("c", "C")));
+        final McpApiManager manager = createMultiSearchManager(results, executedQueries);
+
+        final Map<String, Object> result = manager.invokeMultiSearch(Map.of("queries", List.of("fess", "fess search"), "num", 5));
+
+        assertEquals(List.of("fess", "fess search"), executedQueries);
+        final List<Map<String, Object>> contents = (List<Map<String, Object>>) result.get("content");
+        assertEquals(3, contents.size());
+        assertTrue("Document found by both queries should be first", ((String) contents.get(0).get("text")).contains("**Title**: B"));
+        final Map<String, Object> meta = (Map<String, Object>) result.get("_meta");
+        assertEquals(2, meta.get("queryCount"));
+        assertEquals(3, meta.get("resultCount"));
+        assertNull(meta.get("failedQueryCount"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testInvokeMultiSearch_PartialFailure() {
+        final List<McpSearchResult> results = new ArrayList<>();
+        results.add(null);
+        results.add(createMultiSearchResult(createDoc("a", "A")));
+        final McpApiManager manager = createMultiSearchManager(results, new ArrayList<>());
+
+        final Map<String, Object> result = manager.invokeMultiSearch(Map.of("queries", List.of("q1", "q2"), "num", 3));
+
+        assertEquals(1, ((List<Object>) result.get("content")).size());
+        assertEquals(1, ((Map<String, Object>) result.get("_meta")).get("failedQueryCount"));
+    }
+
+    @Test
+    public void testInvokeMultiSearch_InvalidQueries() {
+        final McpApiManager manager = createMultiSearchManager(List.of(), new ArrayList<>());
+        try {
+            manager.invokeMultiSearch(Map.of("num", 3));
+            fail("Should require queries");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+        }
+        try {
+            manager.invokeMultiSearch(Map.of("queries", List.of("a", "b", "c", "d")));
+            fail("Should reject too many queries");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+        }
+    }
+
+    // ==================== Collapse tests ====================
+
+    @Test
+    public void testResolveCollapseField() {
+        assertNull(mcpApiManager.resolveCollapseField(null));
+        assertNull(mcpApiManager.resolveCollapseField(""));
+        assertEquals("host", mcpApiManager.resolveCollapseField(" host "));
+        try {
+            mcpApiManager.resolveCollapseField("content");
+            fail("Should reject a field that is not allowed");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testInvokeSearch_Collapse() {
+        final List<String> collapsedOn = new ArrayList<>();
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected SearchRequestParams createSearchRequestParams(final Map<String, Object> params) {
+                return null;
+            }
+
+            @Override
+            protected McpSearchResult executeCollapsedSearch(final SearchRequestParams reqParams, final String collapseField) {
+                collapsedOn.add(collapseField);
+                final McpSearchResult result = new McpSearchResult();
+                result.setDocumentItems(List.of(createDoc("a", "A")));
+                return result;
+            }
+
+            @Override
+            protected McpSearchResult executeSearch(final SearchRequestParams reqParams) {
+                throw new AssertionError("Collapsed searches should not use the regular search path");
+            }
+        };
+
+        final Map<String, Object> result = manager.invokeSearch(Map.of("q", "fess", "collapse", "content_minhash_bits"));
+
+        assertEquals(List.of("content_minhash_bits"), collapsedOn);
+        assertEquals("content_minhash_bits", ((Map<String, Object>) result.get("_meta")).get("collapsedOn"));
+    }
+
+    @Test
+    public void testInvokeSearch_CollapseWithCursorRejected() {
+        try {
+            mcpApiManager.invokeSearch(Map.of("q", "fess", "collapse", "host", "cursor", "*"));
+            fail("collapse and cursor should not be combined");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+        }
+    }
+
+    // ==================== Asynchronous processing tests ====================
+
+    @SuppressWarnings("unchecked")
+    private static <T> T createProxy(final Class<T> type, final List<String> calls, final Map<String, Object> returns) {
+        return (T) Proxy.newProxyInstance(McpApiManagerTest.class.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            calls.add(method.getName() + (args != null && args.length == 1 ? "(" + args[0] + ")" : ""));
+            final Object value = returns.get(method.getName());
+            if (value != null) {
+                return value;
+            }
+            if (method.getReturnType() == boolean.class) {
+                return false;
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void testProcessAsync_RejectedWhenBusy() throws Exception {
+        final List<String> calls = new ArrayList<>();
+        final AsyncContext asyncContext = createProxy(AsyncContext.class, calls, Map.of());
+        final HttpServletRequest request = createProxy(HttpServletRequest.class, calls, Map.of("startAsync", asyncContext));
+        final HttpServletResponse response = createProxy(HttpServletResponse.class, calls, Map.of());
+        // A shut-down executor rejects every task, like a saturated one
+        final ExecutorService rejecting = Executors.newSingleThreadExecutor();
+        rejecting.shutdown();
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected long getAsyncTimeout() {
+                return 1000L;
+            }
+
+            @Override
+            protected ExecutorService getAsyncExecutor() {
+                return rejecting;
+            }
+        };
+
+        manager.processAsync(request, response);
+
+        assertTrue(calls.toString(), calls.contains("sendError(503)"));
+        assertTrue(calls.toString(), calls.contains("complete"));
+    }
+
+    @Test
+    public void testProcessAsync_TimeoutBeforeWorkerWrites() throws Exception {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        final AtomicReference<AsyncListener> listener = new AtomicReference<>();
+        final AsyncContext asyncContext = (AsyncContext) Proxy.newProxyInstance(McpApiManagerTest.class.getClassLoader(),
+                new Class<?>[] { AsyncContext.class }, (proxy, method, args) -> {
+                    if ("addListener".equals(method.getName())) {
+                        listener.set((AsyncListener) args[0]);
+                    } else {
+                        calls.add(method.getName());
+                    }
+                    return null;
+                });
+        final HttpServletRequest request = createProxy(HttpServletRequest.class, new ArrayList<>(), Map.of("startAsync", asyncContext));
+        final HttpServletResponse response = createProxy(HttpServletResponse.class, calls, Map.of());
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected long getAsyncTimeout() {
+                return 1000L;
+            }
+
+            @Override
+            protected ExecutorService getAsyncExecutor() {
+                return executor;
+            }
+
+            @Override
+            protected <T> T callInRequestContext(final Object request, final Object response, final Supplier<T> task) {
+                return task.get();
+            }
+
+            @Override
+            protected void processRequest(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+                try {
+                    started.countDown();
+                    new CountDownLatch(1).await(10, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    interrupted.set(true);
+                }
+                try {
+                    response.setHeader("X-Late", "true");
+                    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                } finally {
+                    finished.countDown();
+                }
+            }
+        };
+
+        try {
+            manager.processAsync(request, response);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            listener.get().onTimeout(null);
+
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+            assertTrue("The worker should be interrupted", interrupted.get());
+            assertEquals(List.of("setTimeout", "isCommitted", "sendError(503)", "complete"), calls);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // ==================== Virtual thread tests ====================
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testProcessBatchRequests_VirtualThreads() {
+        final VirtualThreadExecutor executor = new VirtualThreadExecutor("test-vt-", 10, null);
+        final List<Boolean> virtualFlags = new ArrayList<>();
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected boolean isVirtualThreadsEnabled() {
+                return true;
+            }
+
+            @Override
+            protected ExecutorService getAsyncExecutor() {
+                return executor;
+            }
+
+            @Override
+            protected <T> Supplier<T> withRequestContext(final Supplier<T> task) {
+                return task;
+            }
+
+            @Override
+            protected Map<String, Object> handlePing() {
+                synchronized (virtualFlags) {
+                    virtualFlags.add(Thread.currentThread().isVirtual());
+                }
+                return super.handlePing();
+            }
+        };
+
+        try {
+            final List<Map<String, Object>> requests = new ArrayList<>();
+            for (int i = 1; i <= 5; i++) {
+                requests.add(Map.of("jsonrpc", "2.0", "id", i, "method", "ping"));
+            }
+            requests.add(Map.of("jsonrpc", "2.0", "method", "notifications/initialized"));
+
+            final List<Map<String, Object>> responses = manager.processBatchRequests(requests);
+
+            assertEquals("Notifications should not produce responses", 5, responses.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals("Responses should keep the request order", i + 1, responses.get(i).get("id"));
+            }
+            assertEquals(List.of(true, true, true, true, true), virtualFlags);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // ==================== Non-blocking search engine call tests ====================
+
+    @Test
+    public void testExecuteAsync_BuildFailureCompletesExceptionally() {
+        final CompletableFuture<Object> future = mcpApiManager.executeAsync(() -> {
+            throw new IllegalStateException("no client");
+        });
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            mcpApiManager.await(future);
+            fail("Should rethrow the original exception");
+        } catch (final IllegalStateException e) {
+            assertEquals("no client", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testToActionListener() {
+        final CompletableFuture<String> success = new CompletableFuture<>();
+        mcpApiManager.toActionListener(success).onResponse("ok");
+        assertEquals("ok", mcpApiManager.await(success));
+
+        final CompletableFuture<String> failure = new CompletableFuture<>();
+        mcpApiManager.toActionListener(failure).onFailure(new IOException("timeout"));
+        try {
+            mcpApiManager.await(failure.thenApply(String::trim));
+            fail("Should fail");
+        } catch (final RuntimeException e) {
+            assertTrue("Checked exceptions should be wrapped with their cause", e.getCause() instanceof IOException);
+            assertEquals("timeout", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testUnwrapCompletionException() {
+        final IOException cause = new IOException("x");
+        assertEquals(cause, mcpApiManager.unwrapCompletionException(new CompletionException(new CompletionException(cause))));
+        assertEquals(cause, mcpApiManager.unwrapCompletionException(cause));
+    }
+
+    // ==================== Hedged search tests ====================
+
+    @Test
+    public void testExecuteDirectSearch_HedgeBuiltWithCallerRequest() {
+        // Fess builds the role filter from the request bound to the thread building the search
+        final ThreadLocal<String> boundRole = new ThreadLocal<>();
+        final List<String> builtRoles = Collections.synchronizedList(new ArrayList<>());
+        final List<String> sentThreads = Collections.synchronizedList(new ArrayList<>());
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected boolean isHedgingEnabled() {
+                return true;
+            }
+
+            @Override
+            protected double getHedgePercentile() {
+                return 50.0d;
+            }
+
+            @Override
+            protected long getHedgeMinDelay() {
+                return 0L;
+            }
+
+            @Override
+            protected int getHedgeMinSamples() {
+                return 1;
+            }
+
+            @Override
+            protected String getOpaqueId() {
+                return null;
+            }
+
+            @Override
+            protected SearchRequestBuilder prepareDirectSearch(final SearchRequestParams reqParams, final int offset) {
+                builtRoles.add(boundRole.get());
+                return new SearchRequestBuilder(null, SearchAction.INSTANCE);
+            }
+
+            @Override
+            protected <R> CompletableFuture<R> executeAsync(final Supplier<? extends ActionRequestBuilder<?, R>> builder) {
+                assertNotNull(builder.get());
+                sentThreads.add(Thread.currentThread().getName());
+                // The primary attempt of the second search never answers, so that its hedge wins
+                return sentThreads.size() == 2 ? new CompletableFuture<>() : CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            protected McpSearchResult createSearchResult(final SearchResponse response, final int offset, final int pageSize) {
+                return new McpSearchResult();
+            }
+        };
+        installSearchConfig();
+        boundRole.set("role_admin");
+        try {
+            final SearchRequestParams reqParams = manager.createSearchRequestParams(Map.of("q", "fess"));
+            // The first search records the latency sample that enables hedging
+            manager.executeDirectSearch(reqParams, 0, builder -> {});
+            manager.executeDirectSearch(reqParams, 0, builder -> {});
+
+            assertEquals("Primary, primary, and hedge attempts", 3, sentThreads.size());
+            assertFalse("The hedge is sent from another thread", Thread.currentThread().getName().equals(sentThreads.get(2)));
+            assertEquals(List.of("role_admin", "role_admin", "role_admin"), builtRoles);
+        } finally {
+            boundRole.remove();
+            ComponentUtil.setFessConfig(null);
+        }
+    }
+
+    // ==================== Sticky preference tests ====================
+
+    private static HttpServletRequest createHeaderRequest(final Map<String, String> headers, final String remoteAddr) {
+        return (HttpServletRequest) Proxy.newProxyInstance(McpApiManagerTest.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> switch (method.getName()) {
+                case "getHeader" -> headers.get(args[0]);
+                case "getRemoteAddr" -> remoteAddr;
+                default -> null;
+                });
+    }
+
+    @Test
+    public void testCreateSessionPreference_FromSessionId() {
+        final String p1 = mcpApiManager.createSessionPreference(createHeaderRequest(Map.of("Mcp-Session-Id", "abc"), "10.0.0.1"));
+        final String p2 = mcpApiManager.createSessionPreference(createHeaderRequest(Map.of("Mcp-Session-Id", "abc"), "10.0.0.2"));
+        final String p3 = mcpApiManager.createSessionPreference(createHeaderRequest(Map.of("Mcp-Session-Id", "def"), "10.0.0.1"));
+
+        assertEquals("The same session should get the same preference", p1, p2);
+        assertFalse("Different sessions should get different preferences", p1.equals(p3));
+        assertTrue(p1.startsWith("mcp_"));
+        assertFalse("The session id should not be sent as is", p1.contains("abc"));
+    }
+
+    @Test
+    public void testCreateSessionPreference_FromClientIdentity() {
+        final String p1 = mcpApiManager.createSessionPreference(createHeaderRequest(Map.of("User-Agent", "agent/1"), "10.0.0.1"));
+        final String p2 = mcpApiManager.createSessionPreference(createHeaderRequest(Map.of("User-Agent", "agent/1"), "10.0.0.1"));
+        final String p3 = mcpApiManager.createSessionPreference(createHeaderRequest(Map.of("User-Agent", "agent/1"), "10.0.0.2"));
+
+        assertEquals(p1, p2);
+        assertFalse(p1.equals(p3));
+    }
+
+    @Test
+    public void testResolvePreference() {
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected boolean isStickyPreferenceEnabled() {
+                return true;
+            }
+
+            @Override
+            protected Optional<HttpServletRequest> getCurrentRequest() {
+                return Optional.of(createHeaderRequest(Map.of("Mcp-Session-Id", "abc"), "10.0.0.1"));
+            }
+        };
+
+        assertEquals("Explicit preference should win", "_local", manager.resolvePreference("_local"));
+        assertEquals(manager.createSessionPreference(createHeaderRequest(Map.of("Mcp-Session-Id", "abc"), "10.0.0.1")),
+                manager.resolvePreference(null));
+    }
+
+    @Test
+    public void testResolvePreference_NoRequest() {
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected boolean isStickyPreferenceEnabled() {
+                return true;
+            }
+
+            @Override
+            protected Optional<HttpServletRequest> getCurrentRequest() {
+                return Optional.empty();
+            }
+        };
+
+        assertNull(manager.resolvePreference(null));
+    }
+
+    @Test
+    public void testInvokeSearch_PreferenceRoutesToDirectSearch() {
+        final List<String> paths = new ArrayList<>();
+        final boolean[] sticky = { true };
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected boolean isStickyPreferenceEnabled() {
+                return sticky[0];
+            }
+
+            @Override
+            protected Optional<HttpServletRequest> getCurrentRequest() {
+                return Optional.of(createHeaderRequest(Map.of("Mcp-Session-Id", "abc"), "10.0.0.1"));
+            }
+
+            @Override
+            protected McpSearchResult executeSearch(final SearchRequestParams reqParams) {
+                paths.add("helper");
+                return new McpSearchResult();
+            }
+
+            @Override
+            protected McpSearchResult executeDirectSearch(final SearchRequestParams reqParams, final int offset,
+                    final Consumer<SearchRequestBuilder> customizer) {
+                paths.add("direct " + resolvePreference(reqParams.getAttribute(PREFERENCE_ATTRIBUTE)));
+                return new McpSearchResult();
+            }
+        };
+        installSearchConfig();
+        try {
+            manager.handleInvoke(Map.of("name", "search", "arguments", Map.of("q", "fess")));
+            manager.handleInvoke(Map.of("name", "search", "arguments", Map.of("q", "fess", "preference", "_local")));
+            sticky[0] = false;
+            manager.handleInvoke(Map.of("name", "search", "arguments", Map.of("q", "fess", "preference", "_local")));
+            manager.handleInvoke(Map.of("name", "search", "arguments", Map.of("q", "fess")));
+        } finally {
+            ComponentUtil.setFessConfig(null);
+        }
+
+        assertEquals("Only an explicit preference leaves the SearchHelper path",
+                List.of("helper", "direct _local", "direct _local", "helper"), paths);
+    }
+
+    // ==================== Metrics tests ====================
+
+    @Test
+    public void testMetrics_BatchElementOutcomes() {
+        final McpApiManager manager = new TestMcpApiManager();
+        manager.processBatchElement(Map.of("jsonrpc", "2.0", "id", 1, "method", "ping"));
+        manager.processBatchElement(Map.of("jsonrpc", "2.0", "id", 2, "method", "no/such/method"));
+        manager.processBatchElement(Map.of("jsonrpc", "1.0", "id", 3, "method", "ping"));
+        manager.processBatchElement(Map.of("jsonrpc", "2.0", "method", "notifications/initialized"));
+
+        assertEquals(1, manager.metrics.getRequestHistogram("ping", McpMetrics.OUTCOME_SUCCESS).getCount());
+        assertEquals("Unknown methods should share one series", 1,
+                manager.metrics.getRequestHistogram("unknown", ErrorCode.MethodNotFound.name()).getCount());
+        assertEquals(1, manager.metrics.getRequestHistogram("ping", ErrorCode.InvalidRequest.name()).getCount());
+        assertEquals(1, manager.metrics.getRequestHistogram("notifications/initialized", McpMetrics.OUTCOME_SUCCESS).getCount());
+        assertNull(manager.metrics.getRequestHistogram("no/such/method", ErrorCode.MethodNotFound.name()));
+    }
+
+    @Test
+    public void testMetrics_ToolOutcomes() {
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected Map<String, Object> invokeCount(final Map<String, Object> params) {
+                throw new IllegalStateException("search engine down");
+            }
+        };
+        final Map<String, Object> params = Map.of("name", "count", "arguments", Map.of("q", "x"));
+        final Map<String, Object> response =
+                manager.processBatchElement(Map.of("jsonrpc", "2.0", "id", 1, "method", "tools/call", "params", params));
+        assertNotNull(response.get("result"));
+        try {
+            manager.handleInvoke(Map.of("name", "no_such_tool", "arguments", Map.of()));
+            fail("Should reject an unknown tool");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+        }
+
+        assertEquals(1, manager.metrics.getToolHistogram("count", McpMetrics.OUTCOME_IS_ERROR).getCount());
+        assertEquals(1, manager.metrics.getRequestHistogram("tools/call", McpMetrics.OUTCOME_IS_ERROR).getCount());
+        assertEquals(1, manager.metrics.getToolHistogram("unknown", ErrorCode.InvalidParams.name()).getCount());
+    }
+
+    @Test
+    public void testCreatePrometheusMetrics() {
+        final McpApiManager manager = new TestMcpApiManager();
+        manager.processBatchElement(Map.of("jsonrpc", "2.0", "id", 1, "method", "ping"));
+
+        final String text = manager.createPrometheusMetrics();
+        assertTrue(text.contains("# TYPE fess_mcp_request_duration_seconds histogram\n"));
+        assertTrue(text.contains("fess_mcp_request_duration_seconds_bucket{method=\"ping\",outcome=\"success\",le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("fess_mcp_request_duration_seconds_count{method=\"ping\",outcome=\"success\"} 1\n"));
+        assertTrue(text.contains("# TYPE fess_mcp_tool_duration_seconds histogram\n"));
+        assertTrue(text.contains("fess_mcp_search_hedge_requests_total 0\n"));
+        assertFalse("No executor statistics before the executor exists", text.contains("fess_mcp_virtual_threads_active"));
+    }
+
+    @Test
+    public void testCreatePrometheusMetrics_VirtualThreads() {
+        final McpApiManager manager = new TestMcpApiManager();
+        manager.asyncExecutor = new VirtualThreadExecutor("test-vt-", 4, null);
+        try {
+            final String text = manager.createPrometheusMetrics();
+            assertTrue(text.contains("fess_mcp_virtual_threads_active 0\n"));
+            assertTrue(text.contains("fess_mcp_virtual_threads_max 4\n"));
+            assertTrue(text.contains("fess_mcp_virtual_threads_pinned_total 0\n"));
+        } finally {
+            manager.destroy();
+        }
+    }
+
+    @Test
+    public void testHandleReadResource_Metrics() {
+        final McpApiManager manager = new TestMcpApiManager();
+        manager.processBatchElement(Map.of("jsonrpc", "2.0", "id", 1, "method", "ping"));
+
+        final Map<String, Object> result = manager.handleReadResource(Map.of("uri", "fess://metrics"));
+        @SuppressWarnings("unchecked")
+        final List<Map<String, Object>> contents = (List<Map<String, Object>>) result.get("contents");
+        assertEquals(1, contents.size());
+        assertEquals("fess://metrics", contents.get(0).get("uri"));
+        final String text = (String) contents.get(0).get("text");
+        assertTrue(text, text.contains("\"requests\""));
+        assertTrue(text, text.contains("\"ping\""));
+        assertTrue(text, text.contains("\"p99_ms\""));
+        assertFalse("Hedging statistics only when hedging is enabled", text.contains("\"hedging\""));
+    }
+
+    @Test
+    public void testMetrics_LatencyIsRecorded() {
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected Map<String, Object> handlePing() {
+                try {
+                    Thread.sleep(5L);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.handlePing();
+            }
+        };
+        manager.processBatchElement(Map.of("jsonrpc", "2.0", "id", 1, "method", "ping"));
+
+        final LatencyHistogram histogram = manager.metrics.getRequestHistogram("ping", McpMetrics.OUTCOME_SUCCESS);
+        assertTrue(histogram.getMaxNanos() >= 5_000_000L);
+    }
+
+    // ==================== Phase timing tests ====================
+
+    private static McpApiManager createTimedManager(final PhaseTimings timings) {
+        final HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(McpApiManagerTest.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class },
+                (proxy, method, args) -> "getAttribute".equals(method.getName()) && "mcp.timings".equals(args[0]) ? timings : null);
+        return new TestMcpApiManager() {
+            @Override
+            protected Optional<HttpServletRequest> getCurrentRequest() {
+                return Optional.of(request);
+            }
+
+            @Override
+            protected boolean isServerTimingEnabled() {
+                return true;
+            }
+        };
+    }
+
+    @Test
+    public void testGetPhaseTimings() {
+        final PhaseTimings timings = new PhaseTimings();
+        assertEquals(timings, createTimedManager(timings).getPhaseTimings());
+        assertNull("Not timed outside of a request", mcpApiManager.getPhaseTimings());
+    }
+
+    @Test
+    public void testAwait_RecordsSearchPhase() {
+        final PhaseTimings timings = new PhaseTimings();
+        final McpApiManager manager = createTimedManager(timings);
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(20, TimeUnit.MILLISECONDS).execute(() -> future.complete("done"));
+
+        assertEquals("done", manager.await(future));
+        assertTrue(timings.getNanos(Phase.SEARCH) >= 10_000_000L);
+    }
+
+    @Test
+    public void testWriteServerTiming() {
+        final PhaseTimings timings = new PhaseTimings();
+        timings.addSince(Phase.PARSE, System.nanoTime() - 1_000_000L);
+        final Map<String, Object> headers = new HashMap<>();
+        final HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(McpApiManagerTest.class.getClassLoader(),
+                new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+                    if ("setHeader".equals(method.getName())) {
+                        headers.put((String) args[0], args[1]);
+                    }
+                    return null;
+                });
+
+        createTimedManager(timings).writeServerTiming(response, timings);
+        final String value = (String) headers.get("Server-Timing");
+        assertNotNull(value);
+        assertTrue(value, value.startsWith("parse;dur="));
+        assertTrue(value, value.contains(", total;dur="));
+
+        headers.clear();
+        mcpApiManager.writeServerTiming(response, null);
+        assertTrue("No header without timings", headers.isEmpty());
+    }
+
+    @Test
+    public void testIsTimingsRequested() {
+        assertTrue(mcpApiManager.isTimingsRequested(Map.of("_meta", Map.of("timings", true))));
+        assertFalse(mcpApiManager.isTimingsRequested(Map.of("_meta", Map.of("timings", "yes"))));
+        assertFalse(mcpApiManager.isTimingsRequested(Map.of("name", "search")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAddTimingsMeta() {
+        final PhaseTimings timings = new PhaseTimings();
+        timings.addSince(Phase.DISPATCH, System.nanoTime() - 2_000_000L);
+        final Map<String, Object> result = Map.of("content", List.of(), "_meta", Map.of("resultCount", 0));
+
+        final Map<String, Object> timed = (Map<String, Object>) mcpApiManager.addTimingsMeta(result, timings);
+        final Map<String, Object> meta = (Map<String, Object>) timed.get("_meta");
+        assertEquals("Existing _meta entries are kept", 0, meta.get("resultCount"));
+        final Map<String, Object> timingMap = (Map<String, Object>) meta.get("timings");
+        assertTrue((Double) timingMap.get("dispatchMillis") >= 2.0d);
+        assertTrue(timingMap.containsKey("totalMillis"));
+        assertFalse("The original result is not modified", ((Map<String, Object>) result.get("_meta")).containsKey("timings"));
+        assertEquals("Non-object results are returned as is", "x", mcpApiManager.addTimingsMeta("x", timings));
+    }
+
+    // ==================== Flight Recorder event tests ====================
+
+    private static List<RecordedEvent> recordEvents(final Runnable task) throws IOException {
+        final Path file = Files.createTempFile("mcp-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(McpRequestEvent.NAME);
+            recording.enable(McpToolEvent.NAME);
+            recording.start();
+            task.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws Exception {
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected Map<String, Object> invokeCount(final Map<String, Object> params) {
+                return Map.of("content", List.of(), "_meta", Map.of("count", 42L));
+            }
+        };
+        final Map<String, Object> params = Map.of("name", "count", "arguments", Map.of("q", "fess"));
+        final List<RecordedEvent> events = recordEvents(
+                () -> manager.processBatchElement(Map.of("jsonrpc", "2.0", "id", 7, "method", "tools/call", "params", params)));
+
+        final RecordedEvent request =
+                events.stream().filter(e -> e.getEventType().getName().equals(McpRequestEvent.NAME)).findFirst().orElseThrow();
+        assertEquals("tools/call", request.getString("method"));
+        assertEquals("count", request.getString("tool"));
+        assertEquals("7", request.getString("rpcId"));
+        assertTrue(request.getBoolean("batch"));
+        assertEquals(42, request.getInt("hitCount"));
+        assertEquals(McpMetrics.OUTCOME_SUCCESS, request.getString("outcome"));
+
+        final RecordedEvent tool =
+                events.stream().filter(e -> e.getEventType().getName().equals(McpToolEvent.NAME)).findFirst().orElseThrow();
+        assertEquals("count", tool.getString("tool"));
+        assertEquals(42, tool.getInt("hitCount"));
+        assertEquals(McpMetrics.OUTCOME_SUCCESS, tool.getString("outcome"));
+    }
+
+    @Test
+    public void testFlightRecorderEvents_Error() throws Exception {
+        final List<RecordedEvent> events =
+                recordEvents(() -> mcpApiManager.processBatchElement(Map.of("jsonrpc", "2.0", "id", "a", "method", "no/such/method")));
+
+        assertEquals(1, events.size());
+        assertEquals("no/such/method", events.get(0).getString("method"));
+        assertEquals(ErrorCode.MethodNotFound.name(), events.get(0).getString("outcome"));
+        assertEquals(-1, events.get(0).getInt("hitCount"));
+        assertEquals(-1L, events.get(0).getLong("bytesOut"));
+    }
+
+    @Test
+    public void testGetHitCount() {
+        assertEquals(3, mcpApiManager.getHitCount(Map.of("_meta", Map.of("resultCount", 3))));
+        assertEquals(Integer.MAX_VALUE, mcpApiManager.getHitCount(Map.of("_meta", Map.of("count", Long.MAX_VALUE))));
+        assertEquals(-1, mcpApiManager.getHitCount(Map.of("content", List.of())));
+        assertEquals(-1, mcpApiManager.getHitCount(null));
+    }
+
+    // ==================== Trace context tests ====================
+
+    @Test
+    public void testParseTraceparent() {
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736",
+                mcpApiManager.parseTraceparent("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"));
+        assertEquals("Future versions may append fields", "4bf92f3577b34da6a3ce929d0e0e4736",
+                mcpApiManager.parseTraceparent("01-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01-extra"));
+        assertNull("Version ff is invalid", mcpApiManager.parseTraceparent("ff-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"));
+        assertNull("All-zero trace id is invalid",
+                mcpApiManager.parseTraceparent("00-00000000000000000000000000000000-00f067aa0ba902b7-01"));
+        assertNull(mcpApiManager.parseTraceparent("00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01"));
+        assertNull(mcpApiManager.parseTraceparent("not a traceparent"));
+        assertNull(mcpApiManager.parseTraceparent(null));
+    }
+
+    @Test
+    public void testResolveTraceId() {
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected Optional<HttpServletRequest> getCurrentRequest() {
+                return Optional.of(createHeaderRequest(Map.of("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"),
+                        "10.0.0.1"));
+            }
+        };
+
+        assertEquals("agent-run:42", manager.resolveTraceId(Map.of("_meta", Map.of("traceId", "agent-run:42"))));
+        assertEquals("Invalid trace ids fall back to the header", "4bf92f3577b34da6a3ce929d0e0e4736",
+                manager.resolveTraceId(Map.of("_meta", Map.of("traceId", "bad id\r\nX-Injected: 1"))));
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", manager.resolveTraceId(Map.of()));
+        assertNull("No trace id without a request", mcpApiManager.resolveTraceId(Map.of()));
+    }
+
+    @Test
+    public void testApplyOpaqueId_Null() {
+        assertNull(mcpApiManager.applyOpaqueId(null));
+    }
+
+    @Test
+    public void testProcessBatchElement_AppliesOpaqueId() {
+        final List<String> calls = new ArrayList<>();
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected StoredContext applyOpaqueId(final String opaqueId) {
+                if (opaqueId == null) {
+                    return null;
+                }
+                calls.add("apply:" + opaqueId);
+                return new StoredContext() {
+                    @Override
+                    public void close() {
+                        calls.add("close");
+                    }
+
+                    @Override
+                    public void restore() {
+                        calls.add("restore");
+                    }
+                };
+            }
+
+            @Override
+            protected Map<String, Object> handlePing() {
+                calls.add("ping");
+                return super.handlePing();
+            }
+        };
+
+        final Map<String, Object> params = Map.of("_meta", Map.of("traceId", "t1"));
+        manager.processBatchElement(Map.of("jsonrpc", "2.0", "id", 1, "method", "ping", "params", params));
+        assertEquals(List.of("apply:t1", "ping", "close"), calls);
+
+        calls.clear();
+        manager.processBatchElement(Map.of("jsonrpc", "2.0", "id", 2, "method", "ping"));
+        assertEquals("No opaque id without a trace id", List.of("ping"), calls);
+    }
+
+    // ==================== Access log tests ====================
+
+    private static McpApiManager createAccessLogManager(final AccessLogWriter writer) {
+        return new TestMcpApiManager() {
+            @Override
+            protected AccessLogWriter getAccessLogWriter() {
+                return writer;
+            }
+
+            @Override
+            protected Optional<HttpServletRequest> getCurrentRequest() {
+                return Optional.of(createHeaderRequest(Map.of(), "10.0.0.9"));
+            }
+
+            @Override
+            protected StoredContext applyOpaqueId(final String opaqueId) {
+                return null;
+            }
+
+            @Override
+            protected SearchRequestParams createSearchRequestParams(final Map<String, Object> params) {
+                return null;
+            }
+
+            @Override
+            protected McpSearchResult executeCount(final SearchRequestParams reqParams) {
+                final McpSearchResult result = new McpSearchResult();
+                result.setTotalHits(42);
+                result.setTotalHitsRelation("eq");
+                result.setTookMillis(7);
+                return result;
+            }
+        };
+    }
+
+    private static Map<String, Object> parseLine(final String line) throws IOException {
+        return JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, line).map();
+    }
+
+    @Test
+    public void testAccessLog_BatchElement() throws Exception {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        final AccessLogWriter writer = new AccessLogWriter(16, lines::add);
+        final McpApiManager manager = createAccessLogManager(writer);
+
+        final Map<String, Object> params =
+                Map.of("name", "count", "arguments", Map.of("q", "  Fess   SEARCH "), "_meta", Map.of("traceId", "run-1"));
+        manager.processBatchElement(Map.of("jsonrpc", "2.0", "id", 5, "method", "tools/call", "params", params));
+        writer.close();
+
+        assertEquals(1, lines.size());
+        final Map<String, Object> entry = parseLine(lines.get(0));
+        assertEquals("tools/call", entry.get("method"));
+        assertEquals("count", entry.get("tool"));
+        assertEquals("fess search", entry.get("query"));
+        assertEquals(5, entry.get("rpcId"));
+        assertEquals("run-1", entry.get("traceId"));
+        assertEquals("10.0.0.9", entry.get("client"));
+        assertEquals(true, entry.get("batch"));
+        assertEquals(-1, entry.get("bytesIn"));
+        assertEquals(-1, entry.get("bytesOut"));
+        assertEquals(42, entry.get("hits"));
+        assertEquals(7, entry.get("tookMillis"));
+        assertEquals("success", entry.get("outcome"));
+        assertNotNull(entry.get("time"));
+        assertTrue(entry.get("latencyMillis") instanceof Number);
+    }
+
+    @Test
+    public void testAccessLog_Notification() throws Exception {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        final AccessLogWriter writer = new AccessLogWriter(16, lines::add);
+
+        createAccessLogManager(writer).processBatchElement(Map.of("jsonrpc", "2.0", "method", "notifications/initialized"));
+        writer.close();
+
+        assertEquals(1, lines.size());
+        final Map<String, Object> entry = parseLine(lines.get(0));
+        assertEquals("notifications/initialized", entry.get("method"));
+        assertNull(entry.get("rpcId"));
+        assertNull(entry.get("query"));
+    }
+
+    @Test
+    public void testWriteAccessLog_Sizes() throws Exception {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        final AccessLogWriter writer = new AccessLogWriter(16, lines::add);
+
+        createAccessLogManager(writer).writeAccessLog("ping", Map.of(), 1, null, "success", Map.of(), "{\"q\":\"caf\u00e9\"}", "{}",
+                2_500_000L);
+        writer.close();
+
+        final Map<String, Object> entry = parseLine(lines.get(0));
+        assertEquals(false, entry.get("batch"));
+        assertEquals(13, entry.get("bytesIn"));
+        assertEquals(2, entry.get("bytesOut"));
+        assertEquals(-1, entry.get("hits"));
+        assertEquals(-1, entry.get("tookMillis"));
+        assertEquals(2.5d, entry.get("latencyMillis"));
+    }
+
+    @Test
+    public void testWriteAccessLog_Disabled() {
+        // TestMcpApiManager disables the access log, so nothing is created
+        mcpApiManager.writeAccessLog("ping", Map.of(), 1, null, "success", null, "{}", "{}", 1L);
+        assertNull(mcpApiManager.accessLogWriter);
+    }
+
+    @Test
+    public void testGetLoggedQuery() {
+        assertEquals("fess", mcpApiManager.getLoggedQuery("tools/call", Map.of("name", "search", "arguments", Map.of("q", "fess"))));
+        final Map<String, Object> multi = Map.of("name", "multi_search", "arguments", Map.of("queries", List.of("a", "b")));
+        assertEquals("a | b", mcpApiManager.getLoggedQuery("tools/call", multi));
+        assertNull(mcpApiManager.getLoggedQuery("tools/call", Map.of("name", "get_document", "arguments", Map.of("id", "1"))));
+        assertNull(mcpApiManager.getLoggedQuery("resources/read", Map.of("arguments", Map.of("q", "fess"))));
+    }
+
+    @Test
+    public void testGetTookMillis() {
+        assertEquals(12L, mcpApiManager.getTookMillis(Map.of("_meta", Map.of("tookMillis", 12))));
+        assertEquals(-1L, mcpApiManager.getTookMillis(Map.of("_meta", Map.of())));
+        assertEquals(-1L, mcpApiManager.getTookMillis(null));
+    }
+
+    // ==================== Slow call tests ====================
+
+    private static McpApiManager createSlowCallManager(final long threshold) {
+        return new TestMcpApiManager() {
+            @Override
+            protected long getSlowThreshold(final String tool) {
+                return threshold;
+            }
+
+            @Override
+            protected int getSlowLogSize() {
+                return 10;
+            }
+
+            @Override
+            protected String getOpaqueId() {
+                return "run-1";
+            }
+
+            @Override
+            protected SearchRequestParams createSearchRequestParams(final Map<String, Object> params) {
+                return null;
+            }
+
+            @Override
+            protected McpSearchResult executeCount(final SearchRequestParams reqParams) {
+                assertNotNull("A capture is active during the call", searchSource.get());
+                final McpSearchResult result = new McpSearchResult();
+                result.setTotalHits(42);
+                result.setTotalHitsRelation("eq");
+                result.setTookMillis(7);
+                return result;
+            }
+        };
+    }
+
+    @Test
+    public void testHandleInvoke_CapturesSlowCall() {
+        final McpApiManager manager = createSlowCallManager(0L);
+        final Map<String, Object> result = manager.handleInvoke(Map.of("name", "count", "arguments", Map.of("q", "fess")));
+
+        final List<Map<String, Object>> calls = manager.slowCallLog.getEntries();
+        assertEquals(1, calls.size());
+        final Map<String, Object> call = calls.get(0);
+        assertEquals("count", call.get("tool"));
+        assertEquals(Map.of("q", "fess"), call.get("arguments"));
+        assertEquals("success", call.get("outcome"));
+        assertEquals("run-1", call.get("traceId"));
+        assertEquals(42, call.get("hits"));
+        assertEquals(7L, call.get("tookMillis"));
+        assertNull("No search engine request was sent", call.get("query"));
+        assertFalse("Not timed outside of a request", call.containsKey("timings"));
+        assertTrue(((Number) call.get("responseBytes")).intValue() > 0);
+        assertNotNull(result.get("_meta"));
+        assertNull("The capture ends with the call", manager.searchSource.get());
+    }
+
+    @Test
+    public void testHandleInvoke_FastCallIsNotCaptured() {
+        final McpApiManager manager = createSlowCallManager(60_000L);
+        manager.handleInvoke(Map.of("name", "count", "arguments", Map.of("q", "fess")));
+
+        assertNull(manager.slowCallLog);
+        assertNull(manager.searchSource.get());
+    }
+
+    @Test
+    public void testHandleInvoke_FailedCallIsCaptured() {
+        final McpApiManager manager = createSlowCallManager(0L);
+        try {
+            manager.handleInvoke(Map.of("name", "count", "arguments", Map.of()));
+            fail("Should throw McpApiException");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+        }
+
+        final Map<String, Object> call = manager.slowCallLog.getEntries().get(0);
+        assertEquals("InvalidParams", call.get("outcome"));
+        assertEquals(-1, call.get("responseBytes"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testHandleReadResource_SlowCalls() throws Exception {
+        final McpApiManager manager = createSlowCallManager(0L);
+        Map<String, Object> result = manager.handleReadResource(Map.of("uri", "fess://diagnostics/slow"));
+        String text = (String) ((List<Map<String, Object>>) result.get("contents")).get(0).get("text");
+        assertEquals(Map.of("capturedCount", 0, "calls", List.of()), parseLine(text));
+
+        manager.handleInvoke(Map.of("name", "count", "arguments", Map.of("q", "fess")));
+        result = manager.handleReadResource(Map.of("uri", "fess://diagnostics/slow"));
+        final Map<String, Object> content = ((List<Map<String, Object>>) result.get("contents")).get(0);
+        assertEquals("fess://diagnostics/slow", content.get("uri"));
+        text = (String) content.get("text");
+        final Map<String, Object> info = parseLine(text);
+        assertEquals(1, info.get("capturedCount"));
+        assertEquals("count", ((List<Map<String, Object>>) info.get("calls")).get(0).get("tool"));
+    }
+
+    // ==================== Traffic capture tests ====================
+
+    @Test
+    public void testCaptureRequest() throws Exception {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        final TrafficCapture capture = new TrafficCapture(lines::add, 16, 100, Set.of("q"));
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected TrafficCapture getTrafficCapture() {
+                return capture;
+            }
+        };
+
+        manager.captureRequest("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"tools/call\",\"params\":{\"arguments\":{\"q\":\"fess\"}}}");
+        capture.close();
+
+        assertEquals(1, lines.size());
+        final String body = (String) parseLine(lines.get(0)).get(TrafficCapture.BODY_KEY);
+        assertTrue(body, body.contains("\"q\":\"[redacted]\""));
+    }
+
+    @Test
+    public void testCaptureRequest_Disabled() {
+        assertNull(mcpApiManager.getTrafficCapture());
+        mcpApiManager.captureRequest("{}");
+        assertNull(mcpApiManager.trafficCapture);
+    }
+
+    // ==================== Tool registry tests ====================
+
+    private static McpTool createEchoTool(final String name, final ToolPolicy policy) {
+        return new SimpleMcpTool(name, "Echo the arguments", Map.of("type", "object", "properties", Map.of()), Map.of(), policy,
+                arguments -> Map.of("content", List.of(Map.of("type", "text", "text", String.valueOf(arguments)))));
+    }
+
+    private static McpApiManager createManagerWithTools(final McpTool... tools) {
+        return new TestMcpApiManager() {
+            @Override
+            protected List<McpTool> findPluginTools() {
+                return List.of(tools);
+            }
+
+            @Override
+            protected <T> Supplier<T> withRequestContext(final Supplier<T> task) {
+                return task;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testToolRegistry_PluginTool() {
+        final McpApiManager manager = createManagerWithTools(createEchoTool("echo", ToolPolicy.DEFAULT));
+
+        final List<Map<String, Object>> tools = (List<Map<String, Object>>) manager.handleListTools().get("tools");
+        assertEquals(7, tools.size());
+        assertEquals("search", tools.get(0).get("name"));
+        assertEquals("Plugin tools are listed after the built-in tools", "echo", tools.get(6).get("name"));
+
+        final Map<String, Object> result = manager.handleInvoke(Map.of("name", "echo", "arguments", Map.of("a", 1)));
+        assertEquals("{a=1}", ((List<Map<String, Object>>) result.get("content")).get(0).get("text"));
+        assertEquals(1, manager.metrics.getToolHistogram("echo", McpMetrics.OUTCOME_SUCCESS).getCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testToolRegistry_PluginToolReplacesBuiltin() {
+        final McpApiManager manager = createManagerWithTools(createEchoTool("count", ToolPolicy.DEFAULT));
+
+        final List<Map<String, Object>> tools = (List<Map<String, Object>>) manager.handleListTools().get("tools");
+        assertEquals(6, tools.size());
+        assertEquals("Echo the arguments", tools.get(4).get("description"));
+
+        final Map<String, Object> result = manager.handleInvoke(Map.of("name", "count", "arguments", Map.of("q", "fess")));
+        assertEquals("{q=fess}", ((List<Map<String, Object>>) result.get("content")).get(0).get("text"));
+    }
+
+    @Test
+    public void testToolRegistry_ListIsBuiltOnce() {
+        final Map<String, Object> first = mcpApiManager.handleListTools();
+        assertTrue("The same result is returned on every call", first == mcpApiManager.handleListTools());
+        try {
+            first.put("tools", List.of());
+            fail("The tools/list result should be unmodifiable");
+        } catch (final UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testToolRegistry_ConcurrencyLimit() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        final McpTool blocking = new SimpleMcpTool("blocking", "Blocks", Map.of("type", "object"), Map.of(),
+                new ToolPolicy(1, 0L, ToolPolicy.Execution.CALLER), arguments -> {
+                    started.countDown();
+                    try {
+                        finish.await(10, TimeUnit.SECONDS);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Map.of("content", List.of());
+                });
+        final McpApiManager manager = createManagerWithTools(blocking);
+
+        final CompletableFuture<Map<String, Object>> first =
+                CompletableFuture.supplyAsync(() -> manager.handleInvoke(Map.of("name", "blocking", "arguments", Map.of())));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        final Map<String, Object> rejected = manager.handleInvoke(Map.of("name", "blocking", "arguments", Map.of()));
+        assertEquals(Boolean.TRUE, rejected.get("isError"));
+        final String text = (String) ((List<Map<String, Object>>) rejected.get("content")).get(0).get("text");
+        assertTrue(text, text.contains("Too many concurrent calls"));
+
+        finish.countDown();
+        assertNull(first.get(10, TimeUnit.SECONDS).get("isError"));
+        assertNull("The permit is returned after the call", manager.handleInvoke(Map.of("name", "blocking", "arguments", Map.of()))
+                .get("isError"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testToolRegistry_Timeout() throws Exception {
+        final CountDownLatch finish = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final List<Boolean> callerThread = Collections.synchronizedList(new ArrayList<>());
+        final Thread testThread = Thread.currentThread();
+        final McpTool slow = new SimpleMcpTool("slow", "Slow", Map.of("type", "object"), Map.of(),
+                new ToolPolicy(1, 50L, ToolPolicy.Execution.CALLER), arguments -> {
+                    callerThread.add(Thread.currentThread() == testThread);
+                    try {
+                        finish.await(10, TimeUnit.SECONDS);
+                    } catch (final InterruptedException e) {
+                        interrupted.countDown();
+                        Thread.currentThread().interrupt();
+                    }
+                    return Map.of("content", List.of());
+                });
+        final McpApiManager manager = createManagerWithTools(slow);
+        manager.toolExecutor = Executors.newCachedThreadPool();
+        try {
+            final Map<String, Object> result = manager.handleInvoke(Map.of("name", "slow", "arguments", Map.of()));
+            assertEquals(Boolean.TRUE, result.get("isError"));
+            final String text = (String) ((List<Map<String, Object>>) result.get("content")).get(0).get("text");
+            assertTrue(text, text.contains("timed out after 50ms"));
+            assertEquals("A timeout implies running on the executor", List.of(false), callerThread);
+
+            // The timed out call is interrupted and its permit is returned at once
+            assertEquals(1, manager.getToolRegistry().get("slow").getAvailablePermits());
+            assertTrue("The timed out call should be interrupted", interrupted.await(10, TimeUnit.SECONDS));
+            manager.toolExecutor.shutdown();
+            assertTrue(manager.toolExecutor.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals("The permit is returned once", 1, manager.getToolRegistry().get("slow").getAvailablePermits());
+        } finally {
+            finish.countDown();
+            manager.destroy();
+        }
+    }
+
+    @Test
+    public void testToolRegistry_AsyncToolError() {
+        final McpTool failing = new SimpleMcpTool("failing", "Fails", Map.of("type", "object"), Map.of(),
+                new ToolPolicy(0, 0L, ToolPolicy.Execution.ASYNC), arguments -> {
+                    throw new McpApiException(ErrorCode.InvalidParams, "bad argument");
+                });
+        final McpApiManager manager = createManagerWithTools(failing);
+        manager.toolExecutor = Executors.newCachedThreadPool();
+        try {
+            manager.handleInvoke(Map.of("name", "failing", "arguments", Map.of()));
+            fail("Should rethrow the error of the tool");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+            assertEquals("bad argument", e.getMessage());
+        } finally {
+            manager.destroy();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testToolRegistry_AsyncToolOnToolExecutor() {
+        final ToolPolicy async = new ToolPolicy(0, 0L, ToolPolicy.Execution.ASYNC);
+        final McpApiManager[] holder = new McpApiManager[1];
+        final McpTool inner = createEchoTool("inner", async);
+        final McpTool outer = new SimpleMcpTool("outer", "Calls inner", Map.of("type", "object"), Map.of(), async,
+                arguments -> holder[0].handleInvoke(Map.of("name", "inner", "arguments", Map.of("x", 1))));
+        final McpApiManager manager = createManagerWithTools(inner, outer);
+        holder[0] = manager;
+        // A saturated request executor does not block tool calls, and a single tool thread does not block nested calls
+        final ExecutorService rejecting = Executors.newSingleThreadExecutor();
+        rejecting.shutdown();
+        manager.asyncExecutor = rejecting;
+        manager.toolExecutor = Executors.newSingleThreadExecutor();
+        try {
+            final Map<String, Object> result = manager.handleInvoke(Map.of("name", "outer", "arguments", Map.of()));
+            assertNull(result.get("isError"));
+            assertEquals("{x=1}", ((List<Map<String, Object>>) result.get("content")).get(0).get("text"));
+
+            manager.toolExecutor.shutdown();
+            final Map<String, Object> rejected = manager.handleInvoke(Map.of("name", "inner", "arguments", Map.of()));
+            assertEquals(Boolean.TRUE, rejected.get("isError"));
+            assertEquals("The permit of a rejected call is returned", Integer.MAX_VALUE,
+                    manager.getToolRegistry().get("inner").getAvailablePermits());
+        } finally {
+            manager.destroy();
+        }
+    }
+
+    @Test
+    public void testResolveToolPolicy_AsyncDefaultTimeout() {
+        final McpApiManager manager = new McpApiManager();
+        ComponentUtil.setFessConfig(new FessConfig.SimpleImpl() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public String getSystemProperty(final String key, final String defaultValue) {
+                return defaultValue;
+            }
+
+            @Override
+            public int getSystemPropertyAsInt(final String key, final int defaultValue) {
+                return defaultValue;
+            }
+        });
+        try {
+            final ToolPolicy async =
+                    manager.resolveToolPolicy(createEchoTool("echo", new ToolPolicy(0, 0L, ToolPolicy.Execution.ASYNC)));
+            assertEquals("Asynchronous calls are never waited for forever", 60000L, async.getTimeoutMillis());
+            assertEquals(0L, manager.resolveToolPolicy(createEchoTool("echo", ToolPolicy.DEFAULT)).getTimeoutMillis());
+        } finally {
+            ComponentUtil.setFessConfig(null);
+        }
+    }
+
+    @Test
+    public void testResolveToolPolicy() {
+        final FessConfig fessConfig = new FessConfig.SimpleImpl() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public String getSystemProperty(final String key, final String defaultValue) {
+                return "mcp.tool.echo.executor".equals(key) ? "async" : defaultValue;
+            }
+
+            @Override
+            public int getSystemPropertyAsInt(final String key, final int defaultValue) {
+                return "mcp.tool.echo.max.concurrency".equals(key) ? 3 : defaultValue;
+            }
+        };
+        final McpApiManager manager = new McpApiManager();
+        ComponentUtil.setFessConfig(fessConfig);
+        try {
+            final ToolPolicy policy = manager.resolveToolPolicy(createEchoTool("echo", new ToolPolicy(0, 200L, null)));
+            assertEquals(3, policy.getMaxConcurrency());
+            assertEquals(200L, policy.getTimeoutMillis());
+            assertEquals(ToolPolicy.Execution.ASYNC, policy.getExecution());
+        } finally {
+            ComponentUtil.setFessConfig(null);
+        }
+    }
+
+    @Test
+    public void testSerializeResponse_ToolsList() throws Exception {
+        final Map<String, Object> resMap = new LinkedHashMap<>();
+        resMap.put("jsonrpc", "2.0");
+        resMap.put("id", "a\"b");
+        resMap.put("result", mcpApiManager.handleListTools());
+
+        final String json = mcpApiManager.serializeResponse(resMap);
+        assertEquals("The pre-serialized list is spliced into the envelope", JsonXContent.contentBuilder().map(resMap).toString(), json);
+        assertTrue(json, json.endsWith(",\"result\":" + mcpApiManager.getToolRegistry().getListToolsJson() + "}"));
+    }
+
+    // ==================== Argument validation tests ====================
+
+    private static McpApiManager createValidationManager(final List<SearchRequestParams> executed) {
+        return new TestMcpApiManager() {
+            @Override
+            protected McpSearchResult executeSearch(final SearchRequestParams reqParams) {
+                executed.add(reqParams);
+                final McpSearchResult result = new McpSearchResult();
+                result.setDocumentItems(List.of());
+                return result;
+            }
+        };
+    }
+
+    private static void installSearchConfig() {
+        ComponentUtil.setFessConfig(new FessConfig.SimpleImpl() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Integer getPagingSearchPageStartAsInteger() {
+                return 0;
+            }
+
+            @Override
+            public Integer getPagingSearchPageMaxSizeAsInteger() {
+                return 100;
+            }
+
+            @Override
+            public String getIndexFieldTitle() {
+                return "title";
+            }
+
+            @Override
+            public String getIndexFieldContent() {
+                return "content";
+            }
+
+            @Override
+            public String getIndexFieldUrl() {
+                return "url";
+            }
+
+            @Override
+            public String getResponseFieldContentDescription() {
+                return "content_description";
+            }
+        });
+    }
+
+    @Test
+    public void testHandleInvoke_InvalidArgumentsRejectedBeforeSearch() {
+        final List<SearchRequestParams> executed = new ArrayList<>();
+        final McpApiManager manager = createValidationManager(executed);
+        try {
+            manager.handleInvoke(Map.of("name", "search", "arguments", Map.of("q", "fess", "num", "ten")));
+            fail("Should reject a non-numeric num");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+            assertTrue(e.getMessage(), e.getMessage().contains("num"));
+        }
+        try {
+            manager.handleInvoke(Map.of("name", "search", "arguments", Map.of("num", 3)));
+            fail("Should reject a missing q");
+        } catch (final McpApiException e) {
+            assertEquals("Missing required parameter: q", e.getMessage());
+        }
+        assertTrue("No search is executed", executed.isEmpty());
+        assertEquals(2, manager.metrics.getToolHistogram("search", ErrorCode.InvalidParams.name()).getCount());
+    }
+
+    @Test
+    public void testHandleInvoke_InvalidFieldsRejectedBeforeSearch() {
+        final List<SearchRequestParams> executed = new ArrayList<>();
+        final McpApiManager manager = createValidationManager(executed);
+        installSearchConfig();
+        try {
+            manager.handleInvoke(Map.of("name", "search", "arguments", Map.of("q", "fess", "fields", "label")));
+            fail("Should reject fields that are not an object");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+            assertTrue(e.getMessage(), e.getMessage().contains("fields"));
+        } finally {
+            ComponentUtil.setFessConfig(null);
+        }
+        assertTrue("No search is executed", executed.isEmpty());
+    }
+
+    @Test
+    public void testHandleInvoke_ArgumentsAreBoundOnce() {
+        final List<SearchRequestParams> executed = new ArrayList<>();
+        final McpApiManager manager = createValidationManager(executed);
+        installSearchConfig();
+        try {
+            final Map<String, Object> result = manager.handleInvoke(Map.of("name", "search", "arguments",
+                    Map.of("q", "fess", "num", "5", "start", 10.0d, "fields", Map.of("label", List.of("docs")))));
+            assertNull(String.valueOf(result.get("content")), result.get("isError"));
+        } finally {
+            ComponentUtil.setFessConfig(null);
+        }
+
+        assertEquals(1, executed.size());
+        final SearchRequestParams reqParams = executed.get(0);
+        assertEquals("fess", reqParams.getQuery());
+        assertEquals(5, reqParams.getPageSize());
+        assertEquals(10, reqParams.getStartPosition());
+        assertArrayEquals(new String[] { "docs" }, reqParams.getFields().get("label"));
+        assertTrue("The same bound values are returned on every call", reqParams.getFields() == reqParams.getFields());
+        assertTrue(reqParams.getHighlightInfo() == reqParams.getHighlightInfo());
+    }
+
+    // ==================== Warm-up tests ====================
+
+    private static McpApiManager createWarmupManager() {
+        return new TestMcpApiManager() {
+            // Binds the request and response like the DI container's external context
+            private final ThreadLocal<Object[]> bound = new ThreadLocal<>();
+
+            @Override
+            protected <T> T callInRequestContext(final Object request, final Object response, final Supplier<T> task) {
+                final Object[] previous = bound.get();
+                bound.set(new Object[] { request, response });
+                try {
+                    return task.get();
+                } finally {
+                    bound.set(previous);
+                }
+            }
+
+            @Override
+            protected Optional<HttpServletRequest> getCurrentRequest() {
+                return Optional.ofNullable(bound.get()).map(objects -> (HttpServletRequest) objects[0]);
+            }
+
+            @Override
+            protected void write(final String text, final String contentType, final String encoding) {
+                try {
+                    ((HttpServletResponse) bound.get()[1]).getWriter().print(text);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            protected Map<String, Object> invokeCount(final Map<String, Object> params) {
+                return Map.of("content", List.of(Map.of("type", "text", "text", "0")));
+            }
+        };
+    }
+
+    @Test
+    public void testWarmup_RunsRequestsWithoutRecordingThem() {
+        final McpApiManager manager = createWarmupManager();
+        final List<String> requests = List.of(manager.createWarmupRequest("ping", Map.of()),
+                manager.createWarmupRequest("tools/list", Map.of()),
+                manager.createWarmupRequest("tools/call", Map.of("name", "count", "arguments", Map.of("q", "fess"))));
+        final McpWarmup warmup = new McpWarmup(requests, 3, manager::processWarmupRequest);
+        manager.warmup = warmup;
+        assertFalse("Not ready before the warm-up", manager.isReady());
+
+        warmup.run();
+
+        assertTrue(manager.isReady());
+        assertEquals(9, warmup.getSucceededCount());
+        assertEquals(0, warmup.getFailedCount());
+        assertNotNull("The tool registry is built", manager.toolRegistry);
+        assertNull(manager.metrics.getRequestHistogram("ping", McpMetrics.OUTCOME_SUCCESS));
+        assertNull(manager.metrics.getToolHistogram("count", McpMetrics.OUTCOME_SUCCESS));
+
+        manager.handleInvoke(Map.of("name", "count", "arguments", Map.of("q", "fess")));
+        assertEquals("Calls after the warm-up are recorded", 1,
+                manager.metrics.getToolHistogram("count", McpMetrics.OUTCOME_SUCCESS).getCount());
+    }
+
+    @Test
+    public void testProcessWarmupRequest_RunsThroughRequestProcessing() {
+        final List<String> bound = new ArrayList<>();
+        final List<String> written = new ArrayList<>();
+        final McpApiManager manager = new TestMcpApiManager() {
+            @Override
+            protected <T> T callInRequestContext(final Object request, final Object response, final Supplier<T> task) {
+                final HttpServletRequest httpRequest = (HttpServletRequest) request;
+                bound.add(httpRequest.getServletPath() + " " + (httpRequest.getAttribute(WARMUP_ATTRIBUTE) != null));
+                return task.get();
+            }
+
+            @Override
+            protected void write(final String text, final String contentType, final String encoding) {
+                written.add(text);
+            }
+        };
+
+        assertTrue(manager.processWarmupRequest(manager.createWarmupRequest("ping", Map.of())));
+
+        assertEquals("A local request marked as warm-up request is bound", List.of("/mcp true"), bound);
+        assertEquals(1, written.size());
+        assertTrue(written.get(0), written.get(0).contains("\"id\":\"warmup\""));
+    }
+
+    @Test
+    public void testProcessWarmupRequest_Failures() {
+        final McpApiManager manager = createWarmupManager();
+        manager.warmup = new McpWarmup(List.of(), 1, body -> true);
+        assertFalse(manager.processWarmupRequest(manager.createWarmupRequest("no/such/method", Map.of())));
+        assertFalse("Invalid arguments fail",
+                manager.processWarmupRequest(manager.createWarmupRequest("tools/call", Map.of("name", "count", "arguments", Map.of()))));
+        assertFalse(manager.processWarmupRequest("{not json"));
+        assertTrue("Notifications succeed", manager.processWarmupRequest("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}"));
+        assertTrue(manager.processWarmupRequest("[{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"ping\"},"
+                + "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"prompts/list\"}]"));
+        assertFalse("A batch fails if one element fails",
+                manager.processWarmupRequest("[{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"ping\"},\"x\"]"));
+    }
+
+    @Test
+    public void testCreateWarmupRequests() throws Exception {
+        final McpApiManager manager = new McpApiManager();
+        final Path file = Files.createTempFile("mcp-warmup", ".ndjson");
+        final Map<String, String> properties = new HashMap<>();
+        ComponentUtil.setFessConfig(new FessConfig.SimpleImpl() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public String getSystemProperty(final String key, final String defaultValue) {
+                return properties.getOrDefault(key, defaultValue);
+            }
+        });
+        try {
+            properties.put("mcp.warmup.query", "a\"b");
+            final List<String> defaults = manager.createWarmupRequests();
+            assertTrue(defaults.toString(), defaults.stream().anyMatch(r -> r.contains("\"tools/list\"")));
+            assertTrue(defaults.toString(), defaults.stream().anyMatch(r -> r.contains("\"q\":\"a\\\"b\"")));
+
+            Files.writeString(file, "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"ping\"}\n\n");
+            properties.put("mcp.warmup.requests", file.toString());
+            assertEquals(List.of("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"ping\"}"), manager.createWarmupRequests());
+
+            properties.put("mcp.warmup.requests", file.resolveSibling("no-such-file.ndjson").toString());
+            assertEquals("Missing files fall back to the defaults", defaults, manager.createWarmupRequests());
+        } finally {
+            ComponentUtil.setFessConfig(null);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testCreateReadinessInfo() {
+        assertEquals(Map.of("ready", true), mcpApiManager.createReadinessInfo());
+
+        final McpWarmup warmup = new McpWarmup(List.of("{}"), 1, body -> true);
+        mcpApiManager.warmup = warmup;
+        Map<String, Object> info = mcpApiManager.createReadinessInfo();
+        assertEquals(false, info.get("ready"));
+        assertEquals("pending", ((Map<?, ?>) info.get("warmup")).get("state"));
+
+        warmup.run();
+        info = mcpApiManager.createReadinessInfo();
+        assertEquals(true, info.get("ready"));
+        assertEquals("done", ((Map<?, ?>) info.get("warmup")).get("state"));
+        assertEquals(1, ((Map<?, ?>) info.get("warmup")).get("succeeded"));
+    }
+
+    // ==================== Allocation budget tests ====================
+
+    // Upper bounds on the bytes one request allocates on the calling thread, with about 2x headroom over what it
+    // allocates today, so that a change which triples the garbage of a hot path fails here. Most of a small request
+    // is the 16 KiB page each XContentBuilder starts with. Raise a budget only with a change expected to allocate more.
+    private static final long PING_ALLOCATION_BUDGET = 48L * 1024;
+
+    private static final long TOOLS_LIST_ALLOCATION_BUDGET = 160L * 1024;
+
+    private static final long SEARCH_ALLOCATION_BUDGET = 192L * 1024;
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final String PING_BODY = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"ping\"}";
+
+    private static final String TOOLS_LIST_BODY = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"tools/list\",\"params\":{}}";
+
+    private static final String SEARCH_BODY =
+            "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"tools/call\",\"params\":{\"name\":\"search\",\"arguments\":{\"q\":\"fess\"}}}";
+
+    private static McpApiManager createAllocationManager(final AtomicReference<String> written) {
+        final List<Map<String, Object>> docs = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            final Map<String, Object> doc = createDoc("doc" + i, "Fess document " + i);
+            doc.put("content_description", "An <strong>open source</strong> enterprise search server. ".repeat(4));
+            docs.add(doc);
+        }
+        final SearchRequestParams reqParams;
+        installSearchConfig();
+        try {
+            reqParams = new TestMcpApiManager().createSearchRequestParams(Map.of("q", "fess"));
+        } finally {
+            ComponentUtil.setFessConfig(null);
+        }
+        return new TestMcpApiManager() {
+            @Override
+            protected void write(final String text, final String contentType, final String encoding) {
+                // Checked after the measurement, since parsing here would count against the budget
+                written.set(text);
+            }
+
+            @Override
+            protected StoredContext applyOpaqueId(final String opaqueId) {
+                return null;
+            }
+
+            @Override
+            protected SearchRequestParams createSearchRequestParams(final Map<String, Object> params) {
+                return reqParams;
+            }
+
+            @Override
+            protected McpSearchResult executeSearch(final SearchRequestParams reqParams) {
+                final McpSearchResult result = new McpSearchResult();
+                result.setDocumentItems(docs);
+                result.setTotalHits(docs.size());
+                result.setTotalHitsRelation("eq");
+                result.setTookMillis(3);
+                return result;
+            }
+        };
+    }
+
+    private static String createBatchBody(final int size) {
+        final StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            buf.append(i > 0 ? "," : "").append("{\"jsonrpc\":\"2.0\",\"id\":").append(i).append(",\"method\":\"ping\"}");
+        }
+        return buf.append(']').toString();
+    }
+
+    /**
+     * Runs a task until the JIT and lazy initialization settle and returns the fewest bytes one run allocated
+     * on the current thread, which is the least sensitive to background noise.
+     */
+    private static long measureAllocatedBytes(final Callable<?> task) throws Exception {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("Thread allocation counters are not available", bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue("Thread allocation counters are not available", threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        final long threadId = Thread.currentThread().threadId();
+        for (int i = 0; i < 500; i++) {
+            task.call();
+        }
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < 50; i++) {
+            final long before = threadBean.getThreadAllocatedBytes(threadId);
+            task.call();
+            min = Math.min(min, threadBean.getThreadAllocatedBytes(threadId) - before);
+        }
+        return min;
+    }
+
+    /**
+     * Asserts that a measured response succeeded, so that a budget is not met by a cheaper error path: no
+     * JSON-RPC {@code error} member, and no tool result with {@code isError}.
+     */
+    private static void assertSuccessResponse(final String text) throws IOException {
+        assertNotNull("No response was written", text);
+        final List<Object> responses;
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY,
+                LoggingDeprecationHandler.INSTANCE, text)) {
+            responses = text.startsWith("[") ? parser.list() : List.of(parser.map());
+        }
+        for (final Object response : responses) {
+            final Map<?, ?> responseMap = (Map<?, ?>) response;
+            assertFalse(text, responseMap.containsKey("error"));
+            if (responseMap.get("result") instanceof final Map<?, ?> result) {
+                assertFalse(text, Boolean.TRUE.equals(result.get("isError")));
+            }
+        }
+    }
+
+    private static void assertWithinBudget(final String name, final long budget, final long allocated) {
+        assertTrue(name + " allocated " + allocated + " bytes, over its budget of " + budget, allocated <= budget);
+    }
+
+    @Test
+    public void testAllocationBudget_Ping() throws Exception {
+        final AtomicReference<String> written = new AtomicReference<>();
+        final McpApiManager manager = createAllocationManager(written);
+        assertWithinBudget("ping", PING_ALLOCATION_BUDGET, measureAllocatedBytes(() -> {
+            manager.processSingleRequest(PING_BODY, null);
+            return null;
+        }));
+        assertSuccessResponse(written.get());
+    }
+
+    @Test
+    public void testAllocationBudget_ToolsList() throws Exception {
+        final AtomicReference<String> written = new AtomicReference<>();
+        final McpApiManager manager = createAllocationManager(written);
+        assertWithinBudget("tools/list", TOOLS_LIST_ALLOCATION_BUDGET, measureAllocatedBytes(() -> {
+            manager.processSingleRequest(TOOLS_LIST_BODY, null);
+            return null;
+        }));
+        assertSuccessResponse(written.get());
+    }
+
+    @Test
+    public void testAllocationBudget_Search() throws Exception {
+        final AtomicReference<String> written = new AtomicReference<>();
+        final McpApiManager manager = createAllocationManager(written);
+        assertWithinBudget("search", SEARCH_ALLOCATION_BUDGET, measureAllocatedBytes(() -> {
+            manager.processSingleRequest(SEARCH_BODY, null);
+            return null;
+        }));
+        assertSuccessResponse(written.get());
+    }
+
+    @Test
+    public void testAllocationBudget_Batch() throws Exception {
+        final AtomicReference<String> written = new AtomicReference<>();
+        final McpApiManager manager = createAllocationManager(written);
+        final long pingAllocated = measureAllocatedBytes(() -> {
+            manager.processSingleRequest(PING_BODY, null);
+            return null;
+        });
+        final String body = createBatchBody(BATCH_SIZE);
+        // A batch element may allocate no more than the same request sent on its own, which also pays for the
+        // request envelope and its own XContentBuilder
+        assertWithinBudget(BATCH_SIZE + "-element batch", BATCH_SIZE * pingAllocated, measureAllocatedBytes(() -> {
+            manager.processBatchRequest(body, null);
+            return null;
+        }));
+        assertSuccessResponse(written.get());
+    }
 }
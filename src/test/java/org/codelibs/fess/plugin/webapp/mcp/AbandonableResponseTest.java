@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Test class for AbandonableResponse.
+ */
+public class AbandonableResponseTest {
+
+    private static HttpServletResponse createResponse(final List<String> calls, final StringWriter body) {
+        final PrintWriter writer = new PrintWriter(body);
+        return (HttpServletResponse) Proxy.newProxyInstance(AbandonableResponseTest.class.getClassLoader(),
+                new Class<?>[] { HttpServletResponse.class }, (proxy, method, args) -> {
+                    if ("getWriter".equals(method.getName())) {
+                        return writer;
+                    }
+                    calls.add(method.getName() + (args != null && args.length == 1 ? "(" + args[0] + ")" : ""));
+                    return method.getReturnType() == boolean.class ? false : null;
+                });
+    }
+
+    @Test
+    public void testWritesUntilAbandoned() throws Exception {
+        final List<String> calls = new ArrayList<>();
+        final StringWriter body = new StringWriter();
+        final AbandonableResponse response = new AbandonableResponse(createResponse(calls, body));
+
+        response.setStatus(200);
+        response.setHeader("X-Test", "a");
+        final PrintWriter writer = response.getWriter();
+        writer.write("before");
+        writer.flush();
+        assertFalse(response.isAbandoned());
+
+        response.abandon();
+
+        assertTrue(response.isAbandoned());
+        writer.write("after");
+        writer.flush();
+        response.setStatus(500);
+        response.sendError(500);
+        response.setHeader("X-Test", "b");
+        response.setContentType("text/plain");
+        response.flushBuffer();
+        assertEquals("before", body.toString());
+        assertEquals(List.of("setStatus(200)"), calls.subList(0, 1));
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    public void testWriterRequestedAfterAbandon() throws Exception {
+        final List<String> calls = new ArrayList<>();
+        final StringWriter body = new StringWriter();
+        final AbandonableResponse response = new AbandonableResponse(createResponse(calls, body));
+        response.abandon();
+
+        response.getWriter().print("late");
+        response.getWriter().close();
+        response.getOutputStream().write(1);
+
+        assertEquals("", body.toString());
+        assertTrue(calls.toString(), calls.isEmpty());
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test class for AccessLogWriter.
+ */
+public class AccessLogWriterTest {
+
+    private static Map<String, Object> entry(final String method, final String query) {
+        final Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("method", method);
+        entry.put(AccessLogWriter.QUERY_KEY, query);
+        return entry;
+    }
+
+    @Test
+    public void testWrite() {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        final AccessLogWriter writer = new AccessLogWriter(16, lines::add);
+        assertTrue(writer.offer(entry("tools/call", " Hello\tWORLD ")));
+        assertTrue(writer.offer(entry("ping", null)));
+        writer.close();
+
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0), lines.get(0).contains("\"query\":\"hello world\""));
+        assertTrue(lines.get(1), lines.get(1).contains("\"method\":\"ping\""));
+        assertEquals(2L, writer.getWrittenCount());
+        assertEquals(0L, writer.getDroppedCount());
+    }
+
+    @Test
+    public void testPreparer() {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        final AccessLogWriter writer = new AccessLogWriter(16, lines::add, "test-writer", entry -> {
+            threads.add(Thread.currentThread().getName());
+            entry.put("method", "prepared");
+        });
+        assertTrue(writer.offer(entry("ping", null)));
+        writer.close();
+
+        assertEquals(List.of("test-writer"), threads);
+        assertTrue(lines.get(0), lines.get(0).contains("\"method\":\"prepared\""));
+    }
+
+    @Test
+    public void testOfferDoesNotBlockWhenFull() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AccessLogWriter writer = new AccessLogWriter(2, line -> {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // The first entry is taken by the writer thread, which then blocks in the output
+        writer.offer(entry("ping", null));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        assertTrue(writer.offer(entry("ping", null)));
+        assertTrue(writer.offer(entry("ping", null)));
+        assertFalse("The buffer is full", writer.offer(entry("ping", null)));
+        assertEquals(1L, writer.getDroppedCount());
+
+        release.countDown();
+        writer.close();
+        assertEquals(3L, writer.getWrittenCount());
+    }
+
+    @Test
+    public void testOfferAfterClose() {
+        final AccessLogWriter writer = new AccessLogWriter(4, line -> {});
+        writer.close();
+        assertFalse(writer.offer(entry("ping", null)));
+        assertEquals(1L, writer.getDroppedCount());
+    }
+
+    @Test
+    public void testNormalizeQuery() {
+        assertEquals("fess search", AccessLogWriter.normalizeQuery("  Fess \n SEARCH "));
+        assertEquals(AccessLogWriter.MAX_QUERY_LENGTH, AccessLogWriter.normalizeQuery("a".repeat(1000)).length());
+    }
+
+    @Test
+    public void testUtf8Length() {
+        assertEquals(0L, AccessLogWriter.utf8Length(""));
+        assertEquals(4L, AccessLogWriter.utf8Length("fess"));
+        assertEquals(5L, AccessLogWriter.utf8Length("café"));
+        assertEquals(9L, AccessLogWriter.utf8Length("検索。"));
+        assertEquals(4L, AccessLogWriter.utf8Length("😀"));
+        for (final String value : new String[] { "fess", "café", "検索", "😀x", "\ud800" }) {
+            assertEquals(value, value.getBytes(java.nio.charset.StandardCharsets.UTF_8).length, AccessLogWriter.utf8Length(value));
+        }
+    }
+}
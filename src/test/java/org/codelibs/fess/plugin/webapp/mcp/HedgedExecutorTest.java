@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test class for HedgedExecutor.
+ */
+public class HedgedExecutorTest {
+
+    @Test
+    public void testPrimaryWinsWithoutHedge() throws Exception {
+        final HedgedExecutor executor = new HedgedExecutor(16);
+        final CompletableFuture<String> result =
+                executor.execute(() -> CompletableFuture.completedFuture("primary"), () -> CompletableFuture.completedFuture("hedge"), 1000L);
+
+        assertEquals("primary", result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executor.getRequestCount());
+        assertEquals(0, executor.getHedgeCount());
+        assertEquals(0, executor.getHedgeWinCount());
+    }
+
+    @Test
+    public void testHedgeWinsWhenPrimaryIsSlow() throws Exception {
+        final HedgedExecutor executor = new HedgedExecutor(16);
+        final CompletableFuture<String> primary = new CompletableFuture<>();
+        final CompletableFuture<String> result =
+                executor.execute(() -> primary, () -> CompletableFuture.completedFuture("hedge"), 10L);
+
+        assertEquals("hedge", result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executor.getHedgeCount());
+        assertEquals(1, executor.getHedgeWinCount());
+        assertTrue("The losing attempt should be cancelled", primary.isCancelled());
+    }
+
+    @Test
+    public void testLosingPrimaryRecordsLatency() throws Exception {
+        final HedgedExecutor executor = new HedgedExecutor(16);
+        final CompletableFuture<String> result =
+                executor.execute(CompletableFuture::new, () -> CompletableFuture.completedFuture("hedge"), 20L);
+
+        assertEquals("hedge", result.get(5, TimeUnit.SECONDS));
+        assertTrue("The losing primary attempt should record at least the hedge delay", executor.getHedgeDelayMillis(100, 0, 2) >= 20L);
+    }
+
+    @Test
+    public void testNoHedgeAfterPrimaryFailure() throws Exception {
+        final HedgedExecutor executor = new HedgedExecutor(16);
+        final CompletableFuture<String> primary = new CompletableFuture<>();
+        final CompletableFuture<String> result = executor.execute(() -> primary, () -> {
+            throw new AssertionError("Hedge should not be sent");
+        }, 20L);
+
+        primary.completeExceptionally(new IllegalStateException("down"));
+        assertTrue(result.isCompletedExceptionally());
+        Thread.sleep(100L);
+        assertEquals(0, executor.getHedgeCount());
+    }
+
+    @Test
+    public void testNoHedgeWithNegativeDelay() throws Exception {
+        final HedgedExecutor executor = new HedgedExecutor(16);
+        final CompletableFuture<String> primary = new CompletableFuture<>();
+        final CompletableFuture<String> result = executor.execute(() -> primary, () -> {
+            throw new AssertionError("Hedge should not be sent");
+        }, -1L);
+
+        Thread.sleep(50L);
+        primary.complete("primary");
+        assertEquals("primary", result.get(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getHedgeCount());
+    }
+
+    @Test
+    public void testPrimaryFailureBeforeHedge() throws Exception {
+        final HedgedExecutor executor = new HedgedExecutor(16);
+        final CompletableFuture<String> result = executor.execute(() -> CompletableFuture.failedFuture(new IllegalStateException("down")),
+                () -> CompletableFuture.completedFuture("hedge"), 1000L);
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("Should fail with the primary failure");
+        } catch (final ExecutionException e) {
+            assertEquals("down", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testBothAttemptsFail() throws Exception {
+        final HedgedExecutor executor = new HedgedExecutor(16);
+        final CompletableFuture<String> primary = new CompletableFuture<>();
+        final CompletableFuture<String> result =
+                executor.execute(() -> primary, () -> CompletableFuture.failedFuture(new IllegalStateException("hedge down")), 10L);
+
+        Thread.sleep(100L);
+        assertFalse("A failed hedge should wait for the primary attempt", result.isDone());
+        primary.completeExceptionally(new IllegalStateException("primary down"));
+        try {
+            result.get(5, TimeUnit.SECONDS);
+            fail("Should fail when both attempts fail");
+        } catch (final ExecutionException e) {
+            assertEquals("primary down", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testHedgeDelay() {
+        final HedgedExecutor executor = new HedgedExecutor(100);
+        assertEquals("Not enough samples", -1L, executor.getHedgeDelayMillis(95, 0, 10));
+
+        for (int i = 1; i <= 100; i++) {
+            executor.recordLatency(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertEquals(95L, executor.getHedgeDelayMillis(95, 0, 10));
+        assertEquals(50L, executor.getHedgeDelayMillis(50, 0, 10));
+        assertEquals("Minimum delay applies", 200L, executor.getHedgeDelayMillis(95, 200, 10));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test class for LatencyHistogram.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketBoundaries() {
+        assertEquals(0, LatencyHistogram.bucketIndex(0L));
+        assertEquals(0, LatencyHistogram.bucketIndex((1L << LatencyHistogram.MIN_EXPONENT) - 1));
+        assertEquals(1, LatencyHistogram.bucketIndex(1L << LatencyHistogram.MIN_EXPONENT));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(1L << LatencyHistogram.MAX_EXPONENT));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testValuesFallBelowTheirUpperBound() {
+        for (long value = 1L; value < 1L << 40; value = value * 3 / 2 + 1) {
+            final int index = LatencyHistogram.bucketIndex(value);
+            assertTrue("value=" + value, value < LatencyHistogram.getUpperBound(index));
+            if (index > 0) {
+                assertTrue("value=" + value, value >= LatencyHistogram.getUpperBound(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testRelativeError() {
+        for (int index = 1; index < LatencyHistogram.BUCKET_COUNT - 1; index++) {
+            final long lower = LatencyHistogram.getUpperBound(index - 1);
+            final long upper = LatencyHistogram.getUpperBound(index);
+            assertTrue("index=" + index, upper - lower <= lower / 4);
+        }
+    }
+
+    @Test
+    public void testRecordAndPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getValueAtPercentile(50));
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+
+        assertEquals(100L, histogram.getCount());
+        assertEquals(5050L * 1_000_000L, histogram.getSumNanos());
+        assertEquals(100_000_000L, histogram.getMaxNanos());
+        final long p50 = histogram.getValueAtPercentile(50);
+        assertTrue("p50=" + p50, p50 >= 50_000_000L && p50 <= 50_000_000L * 5 / 4);
+        assertEquals("Percentiles are capped at the maximum", 100_000_000L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testNegativeValue() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5L);
+        assertEquals(1L, histogram.getBucketCounts()[0]);
+        assertEquals(0L, histogram.getSumNanos());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.record(i * 1000L);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000L, histogram.getCount());
+    }
+}
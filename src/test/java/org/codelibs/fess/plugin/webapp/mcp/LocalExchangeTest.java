@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Test class for LocalExchange.
+ */
+public class LocalExchangeTest {
+
+    @Test
+    public void testRequest() {
+        final LocalExchange exchange = new LocalExchange("/mcp", "application/json");
+        final HttpServletRequest request = exchange.getRequest();
+
+        assertEquals("/mcp", request.getServletPath());
+        assertEquals("/mcp", request.getRequestURI());
+        assertEquals("POST", request.getMethod());
+        assertEquals("application/json", request.getContentType());
+        assertEquals("127.0.0.1", request.getRemoteAddr());
+        assertNull(request.getHeader("Authorization"));
+        assertNull(request.getParameter("q"));
+        assertFalse(request.getHeaderNames().hasMoreElements());
+
+        request.setAttribute("a", "1");
+        assertEquals("1", request.getAttribute("a"));
+        assertEquals(Collections.singletonList("a"), Collections.list(request.getAttributeNames()));
+        request.setAttribute("a", null);
+        assertNull(request.getAttribute("a"));
+        assertTrue(request.equals(request));
+        assertFalse(request.equals(exchange.getResponse()));
+    }
+
+    @Test
+    public void testResponse() throws Exception {
+        final LocalExchange exchange = new LocalExchange("/mcp", "application/json");
+        final HttpServletResponse response = exchange.getResponse();
+        assertEquals(HttpServletResponse.SC_OK, exchange.getStatus());
+
+        response.setHeader("X-Test", "1");
+        response.getWriter().print("{\"a\":1}");
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, exchange.getStatus());
+        assertEquals("1", exchange.getHeader("X-Test"));
+        assertFalse(response.isCommitted());
+        assertEquals("Writes through the writer are flushed before reading the body", "{\"a\":1}", exchange.getBody());
+    }
+
+    @Test
+    public void testResponseOutputStream() throws Exception {
+        final LocalExchange exchange = new LocalExchange("/mcp", "application/json");
+
+        exchange.getResponse().getOutputStream().write("{\"b\":\"\u00e9\"}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(HttpServletResponse.SC_OK, exchange.getStatus());
+        assertEquals("{\"b\":\"\u00e9\"}", exchange.getBody());
+    }
+}
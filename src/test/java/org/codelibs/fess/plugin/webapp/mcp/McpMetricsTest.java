@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Test class for McpMetrics.
+ */
+public class McpMetricsTest {
+
+    @Test
+    public void testRecord() {
+        final McpMetrics metrics = new McpMetrics();
+        metrics.recordRequest("ping", McpMetrics.OUTCOME_SUCCESS, 1_000_000L);
+        metrics.recordRequest("ping", McpMetrics.OUTCOME_SUCCESS, 2_000_000L);
+        metrics.recordTool("search", ErrorCode.InvalidParams.name(), 1_000_000L);
+
+        assertEquals(2L, metrics.getRequestHistogram("ping", McpMetrics.OUTCOME_SUCCESS).getCount());
+        assertEquals(1L, metrics.getToolHistogram("search", ErrorCode.InvalidParams.name()).getCount());
+        assertNull(metrics.getRequestHistogram("ping", ErrorCode.InternalError.name()));
+        assertNull(metrics.getToolHistogram("ping", McpMetrics.OUTCOME_SUCCESS));
+    }
+
+    @Test
+    public void testWritePrometheus() {
+        final McpMetrics metrics = new McpMetrics();
+        metrics.recordRequest("tools/call", McpMetrics.OUTCOME_SUCCESS, 100_000L);
+        metrics.recordRequest("tools/call", McpMetrics.OUTCOME_SUCCESS, 3_000_000_000L);
+        metrics.recordTool("search", McpMetrics.OUTCOME_IS_ERROR, 100_000L);
+
+        final StringBuilder buf = new StringBuilder();
+        metrics.writePrometheus(buf);
+        final String text = buf.toString();
+
+        final String labels = "method=\"tools/call\",outcome=\"success\"";
+        // 100us is above 2^16ns and below 2^17ns
+        assertTrue(text, text.contains("fess_mcp_request_duration_seconds_bucket{" + labels + ",le=\"6.5536E-5\"} 0\n"));
+        assertTrue(text, text.contains("fess_mcp_request_duration_seconds_bucket{" + labels + ",le=\"1.31072E-4\"} 1\n"));
+        assertTrue(text, text.contains("fess_mcp_request_duration_seconds_bucket{" + labels + ",le=\"+Inf\"} 2\n"));
+        assertTrue(text, text.contains("fess_mcp_request_duration_seconds_sum{" + labels + "} 3.0001\n"));
+        assertTrue(text, text.contains("fess_mcp_request_duration_seconds_count{" + labels + "} 2\n"));
+        assertTrue(text, text.contains("fess_mcp_tool_duration_seconds_count{tool=\"search\",outcome=\"is_error\"} 1\n"));
+
+        // Each series reports one bucket per power of two plus +Inf
+        final long bucketLines = text.lines().filter(l -> l.startsWith("fess_mcp_request_duration_seconds_bucket{")).count();
+        assertEquals(LatencyHistogram.MAX_EXPONENT - LatencyHistogram.MIN_EXPONENT + 2, bucketLines);
+    }
+
+    @Test
+    public void testWritePrometheus_EscapesLabels() {
+        final McpMetrics metrics = new McpMetrics();
+        metrics.recordTool("a\"b\\c", McpMetrics.OUTCOME_SUCCESS, 1L);
+
+        final StringBuilder buf = new StringBuilder();
+        metrics.writePrometheus(buf);
+        assertTrue(buf.toString().contains("tool=\"a\\\"b\\\\c\""));
+    }
+
+    @Test
+    public void testWriteSample() {
+        final StringBuilder buf = new StringBuilder();
+        McpMetrics.writeSample(buf, "fess_mcp_test_total", "counter", "A test counter.", 3L);
+        assertEquals("# HELP fess_mcp_test_total A test counter.\n# TYPE fess_mcp_test_total counter\nfess_mcp_test_total 3\n",
+                buf.toString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testToMap() {
+        final McpMetrics metrics = new McpMetrics();
+        metrics.recordRequest("ping", McpMetrics.OUTCOME_SUCCESS, 2_000_000L);
+
+        final Map<String, Object> map = metrics.toMap();
+        final Map<String, Object> requests = (Map<String, Object>) map.get("requests");
+        final Map<String, Object> ping = (Map<String, Object>) ((Map<String, Object>) requests.get("ping")).get("success");
+        assertEquals(1L, ping.get("count"));
+        assertEquals(2.0d, ping.get("mean_ms"));
+        assertEquals(2.0d, ping.get("max_ms"));
+        assertEquals(2.0d, ping.get("p99_ms"));
+        assertTrue(((Map<String, Object>) map.get("tools")).isEmpty());
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.opensearch.common.xcontent.json.JsonXContent;
+
+/**
+ * Test class for McpToolRegistry.
+ */
+public class McpToolRegistryTest {
+
+    private static McpTool createTool(final String name, final String text, final ToolPolicy policy) {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("q", new HashMap<>(Map.of("type", "string")));
+        return new SimpleMcpTool(name, "The " + name + " tool", Map.of("type", "object", "properties", properties),
+                Map.of("title", name), policy, arguments -> Map.of("content", List.of(Map.of("type", "text", "text", text))));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testLookupAndList() {
+        final McpToolRegistry registry =
+                new McpToolRegistry(List.of(createTool("a", "A", null), createTool("b", "B", null)), McpTool::getPolicy);
+
+        assertTrue(registry.contains("a"));
+        assertFalse(registry.contains("c"));
+        assertFalse(registry.contains(null));
+        assertNull(registry.get("c"));
+        assertEquals(Set.of("a", "b"), registry.getNames());
+        assertEquals(Map.of("content", List.of(Map.of("type", "text", "text", "B"))), registry.get("b").getTool().invoke(Map.of()));
+
+        final List<Map<String, Object>> tools = (List<Map<String, Object>>) registry.getListToolsResult().get("tools");
+        assertEquals(2, tools.size());
+        assertEquals("a", tools.get(0).get("name"));
+        assertEquals("The a tool", tools.get(0).get("description"));
+        assertEquals(Map.of("title", "a"), tools.get(0).get("annotations"));
+        assertSame(registry.get("b").getDefinition(), tools.get(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDefinitionIsFrozen() {
+        final McpToolRegistry registry = new McpToolRegistry(List.of(createTool("a", "A", null)), McpTool::getPolicy);
+        final Map<String, Object> schema = (Map<String, Object>) registry.get("a").getDefinition().get("inputSchema");
+        final Map<String, Object> q = (Map<String, Object>) ((Map<String, Object>) schema.get("properties")).get("q");
+        try {
+            q.put("type", "integer");
+            fail("Nested schema maps should be unmodifiable");
+        } catch (final UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNoAnnotations() {
+        final McpTool tool = new SimpleMcpTool("a", "A", Map.of("type", "object"), null, null, arguments -> Map.of());
+        final McpToolRegistry registry = new McpToolRegistry(List.of(tool), McpTool::getPolicy);
+        assertFalse(registry.get("a").getDefinition().containsKey("annotations"));
+        assertSame(ToolPolicy.DEFAULT, registry.get("a").getPolicy());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testReplaceKeepsPosition() {
+        final McpToolRegistry registry = new McpToolRegistry(
+                List.of(createTool("a", "A", null), createTool("b", "B", null), createTool("a", "A2", null)), McpTool::getPolicy);
+
+        final List<Map<String, Object>> tools = (List<Map<String, Object>>) registry.getListToolsResult().get("tools");
+        assertEquals(2, tools.size());
+        assertEquals("a", tools.get(0).get("name"));
+        assertEquals(Map.of("content", List.of(Map.of("type", "text", "text", "A2"))), registry.get("a").getTool().invoke(Map.of()));
+    }
+
+    @Test
+    public void testListToolsJson() throws Exception {
+        final McpToolRegistry registry =
+                new McpToolRegistry(List.of(createTool("a", "A", null), createTool("b", "B", null)), McpTool::getPolicy);
+        assertEquals(JsonXContent.contentBuilder().map(registry.getListToolsResult()).toString(), registry.getListToolsJson());
+    }
+
+    @Test
+    public void testPolicyResolver() {
+        final McpToolRegistry registry = new McpToolRegistry(List.of(createTool("a", "A", ToolPolicy.DEFAULT)),
+                tool -> tool.getPolicy().withMaxConcurrency(2));
+        final McpToolRegistry.Registration registration = registry.get("a");
+        assertEquals(2, registration.getPolicy().getMaxConcurrency());
+
+        assertTrue(registration.tryAcquire());
+        assertTrue(registration.tryAcquire());
+        assertFalse("The concurrency limit is reached", registration.tryAcquire());
+        registration.release();
+        assertEquals(1, registration.getAvailablePermits());
+        assertTrue(registration.tryAcquire());
+    }
+
+    @Test
+    public void testNoConcurrencyLimit() {
+        final McpToolRegistry registry = new McpToolRegistry(List.of(createTool("a", "A", null)), McpTool::getPolicy);
+        final McpToolRegistry.Registration registration = registry.get("a");
+        for (int i = 0; i < 100; i++) {
+            assertTrue(registration.tryAcquire());
+        }
+        assertEquals(Integer.MAX_VALUE, registration.getAvailablePermits());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testToolWithoutName() {
+        new McpToolRegistry(List.of(createTool("", "A", null)), McpTool::getPolicy);
+    }
+}
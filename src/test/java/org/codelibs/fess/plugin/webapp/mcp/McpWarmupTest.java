@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test class for McpWarmup.
+ */
+public class McpWarmupTest {
+
+    @Test
+    public void testRun() {
+        final List<String> ran = new ArrayList<>();
+        final McpWarmup warmup = new McpWarmup(List.of("a", "b", "c"), 2, body -> {
+            ran.add(body);
+            if ("c".equals(body)) {
+                throw new IllegalStateException("failed");
+            }
+            return !"b".equals(body);
+        });
+        assertEquals(McpWarmup.State.PENDING, warmup.getState());
+        assertFalse(warmup.isDone());
+
+        warmup.run();
+
+        assertEquals(List.of("a", "b", "c", "a", "b", "c"), ran);
+        assertTrue(warmup.isDone());
+        assertEquals(2, warmup.getSucceededCount());
+        assertEquals("Failed and throwing requests are counted", 4, warmup.getFailedCount());
+        final Map<String, Object> map = warmup.toMap();
+        assertEquals("done", map.get("state"));
+        assertEquals(3, map.get("requests"));
+        assertEquals(2, map.get("iterations"));
+        assertTrue(map.containsKey("elapsedMillis"));
+    }
+
+    @Test
+    public void testStartOnBackgroundThread() throws Exception {
+        final List<Boolean> onWarmupThread = Collections.synchronizedList(new ArrayList<>());
+        final McpWarmup[] holder = new McpWarmup[1];
+        final McpWarmup warmup = new McpWarmup(List.of("a"), 3, body -> onWarmupThread.add(holder[0].isCurrentThread()));
+        holder[0] = warmup;
+
+        warmup.start(10L);
+
+        assertTrue(warmup.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(true, true, true), onWarmupThread);
+        assertFalse(warmup.isCurrentThread());
+        assertEquals(3, warmup.getSucceededCount());
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final McpWarmup warmup = new McpWarmup(List.of("a"), Integer.MAX_VALUE, body -> {
+            started.countDown();
+            return true;
+        });
+        warmup.start(0L);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        warmup.stop();
+
+        assertTrue(warmup.await(5, TimeUnit.SECONDS));
+        assertTrue(warmup.isDone());
+        assertTrue(warmup.getSucceededCount() < Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testStopWhileWaiting() throws Exception {
+        final McpWarmup warmup = new McpWarmup(List.of("a"), 1, body -> true);
+        warmup.start(60_000L);
+
+        warmup.stop();
+
+        assertTrue(warmup.await(5, TimeUnit.SECONDS));
+        assertEquals(0, warmup.getSucceededCount());
+        assertFalse(warmup.toMap().containsKey("elapsedMillis"));
+    }
+
+    @Test
+    public void testLoadRequests() throws Exception {
+        final Path file = Files.createTempFile("mcp-warmup", ".ndjson");
+        try {
+            final String ping = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"ping\"}";
+            final String listTools = "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"tools/list\"}";
+            final String batch = "[{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"ping\",\"params\":{\"body\":\"x\"}}]";
+            final String captured = "{\"time\":1700000000000,\"body\":\"" + listTools.replace("\"", "\\\"") + "\"}";
+            Files.writeString(file, ping + "\n\n" + captured + "\n" + batch + "\n");
+
+            assertEquals(List.of(ping, listTools, batch), McpWarmup.loadRequests(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
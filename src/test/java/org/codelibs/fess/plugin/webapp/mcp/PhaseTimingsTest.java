@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.codelibs.fess.plugin.webapp.mcp.PhaseTimings.Phase;
+import org.junit.Test;
+
+/**
+ * Test class for PhaseTimings.
+ */
+public class PhaseTimingsTest {
+
+    @Test
+    public void testAddSince() {
+        final PhaseTimings timings = new PhaseTimings();
+        final long now = System.nanoTime();
+        timings.addSince(Phase.SEARCH, now - 3_000_000L);
+        timings.addSince(Phase.SEARCH, now - 2_000_000L);
+
+        assertTrue(timings.getNanos(Phase.SEARCH) >= 5_000_000L);
+        assertEquals(0L, timings.getNanos(Phase.RENDER));
+    }
+
+    @Test
+    public void testToServerTiming() {
+        final PhaseTimings timings = new PhaseTimings();
+        timings.addSince(Phase.READ, System.nanoTime() - 1_500_000L);
+        timings.addSince(Phase.SERIALIZE, System.nanoTime() - 500_000L);
+
+        final String value = timings.toServerTiming();
+        assertTrue(value, value.matches("read;dur=\\d+\\.\\d{3}, serialize;dur=\\d+\\.\\d{3}, total;dur=\\d+\\.\\d{3}"));
+    }
+
+    @Test
+    public void testToServerTiming_NothingRecorded() {
+        assertTrue(new PhaseTimings().toServerTiming().startsWith("total;dur="));
+    }
+
+    @Test
+    public void testToMap() {
+        final PhaseTimings timings = new PhaseTimings();
+        timings.addSince(Phase.PARSE, System.nanoTime() - 1_000_000L);
+
+        final Map<String, Object> map = timings.toMap();
+        assertTrue((Double) map.get("parseMillis") >= 1.0d);
+        assertTrue(map.containsKey("totalMillis"));
+        assertFalse(map.containsKey("searchMillis"));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for PointInTimeRegistry.
+ */
+public class PointInTimeRegistryTest {
+
+    @Test
+    public void testReserveUpToMaxOpen() {
+        final PointInTimeRegistry registry = new PointInTimeRegistry();
+        assertTrue(registry.reserve(2));
+        assertTrue(registry.reserve(2));
+        assertFalse("Reservations count before the point-in-time is open", registry.reserve(2));
+
+        registry.register("pit1", 60_000L);
+        registry.register(null, 60_000L);
+
+        assertEquals("A failed open ends its reservation", 1, registry.getOpenCount());
+        assertTrue(registry.reserve(2));
+        registry.register("pit2", 60_000L);
+        assertFalse(registry.reserve(2));
+
+        assertTrue(registry.remove("pit1"));
+        assertFalse(registry.remove("pit1"));
+        assertEquals(1, registry.getOpenCount());
+        assertTrue("A closed point-in-time frees its slot", registry.reserve(2));
+    }
+
+    @Test
+    public void testExpiredPointInTimesAreDropped() {
+        final PointInTimeRegistry registry = new PointInTimeRegistry();
+        assertTrue(registry.reserve(1));
+        registry.register("pit1", 0L);
+
+        assertEquals("A point-in-time past its keep-alive is closed by the search engine", 0, registry.getOpenCount());
+        assertTrue(registry.reserve(1));
+        registry.register("pit2", 60_000L);
+        registry.touch("pit1", 60_000L);
+        assertEquals("Touching an unknown point-in-time does not track it", 1, registry.getOpenCount());
+    }
+}
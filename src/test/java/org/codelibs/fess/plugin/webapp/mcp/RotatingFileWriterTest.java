@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test class for RotatingFileWriter.
+ */
+public class RotatingFileWriterTest {
+
+    @Test
+    public void testRotateAndRetain() throws Exception {
+        final Path dir = Files.createTempDirectory("rotating");
+        // Each line takes 10 bytes with its terminator, so each file holds two lines
+        try (RotatingFileWriter writer = new RotatingFileWriter(dir.resolve("capture"), "test", 20L, 2)) {
+            for (int i = 0; i < 7; i++) {
+                writer.accept("line-000" + i);
+            }
+        }
+
+        final List<Path> files = RotatingFileWriter.listFiles(dir.resolve("capture"), "test");
+        assertEquals("Only the newest files are kept", 2, files.size());
+        assertEquals(List.of("line-0004", "line-0005"), Files.readAllLines(files.get(0), StandardCharsets.UTF_8));
+        assertEquals(List.of("line-0006"), Files.readAllLines(files.get(1), StandardCharsets.UTF_8));
+        assertTrue(files.get(0).getFileName().toString().matches("test-\\d{17}-0002\\.ndjson"));
+    }
+
+    @Test
+    public void testOversizedLine() throws Exception {
+        final Path dir = Files.createTempDirectory("rotating");
+        try (RotatingFileWriter writer = new RotatingFileWriter(dir, "test", 4L, 10)) {
+            writer.accept("longer than the maximum");
+            writer.accept("x");
+        }
+
+        final List<Path> files = RotatingFileWriter.listFiles(dir, "test");
+        assertEquals("A line is never split", 2, files.size());
+        assertEquals(List.of("longer than the maximum"), Files.readAllLines(files.get(0), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testListFiles_MissingDirectory() throws Exception {
+        assertTrue(RotatingFileWriter.listFiles(Files.createTempDirectory("rotating").resolve("missing"), "test").isEmpty());
+    }
+}
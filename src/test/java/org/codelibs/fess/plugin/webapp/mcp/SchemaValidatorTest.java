@@ -0,0 +1,158 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codelibs.fess.plugin.webapp.exception.McpApiException;
+import org.junit.Test;
+
+/**
+ * Test class for SchemaValidator.
+ */
+public class SchemaValidatorTest {
+
+    private static final SchemaValidator VALIDATOR = SchemaValidator.compile(createSchema());
+
+    private static Map<String, Object> createSchema() {
+        final Map<String, Object> properties = new HashMap<>();
+        properties.put("q", Map.of("type", "string"));
+        properties.put("num", Map.of("type", "integer", "minimum", 1, "maximum", 100));
+        properties.put("score", Map.of("type", "number"));
+        properties.put("exact", Map.of("type", "boolean"));
+        properties.put("labels", Map.of("type", "array", "items", Map.of("type", "string")));
+        properties.put("order", Map.of("type", "string", "enum", List.of("asc", "desc")));
+        properties.put("as",
+                Map.of("type", "object", "properties", Map.of("site", Map.of("type", "array", "items", Map.of("type", "integer")))));
+        return Map.of("type", "object", "properties", properties, "required", List.of("q"));
+    }
+
+    private static void assertInvalid(final Map<String, Object> arguments, final String message) {
+        try {
+            VALIDATOR.validate(arguments);
+            fail("Should reject " + arguments);
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    @Test
+    public void testValid() {
+        final Map<String, Object> arguments = Map.of("q", "fess", "num", 10, "score", 0.5, "exact", true, "labels", List.of("a", "b"),
+                "order", "asc", "extra", "kept");
+        assertEquals(arguments, VALIDATOR.validate(arguments));
+    }
+
+    @Test
+    public void testCoercion() {
+        final Map<String, Object> arguments = new HashMap<>();
+        arguments.put("q", 42);
+        arguments.put("num", "7");
+        arguments.put("score", "1.5");
+        arguments.put("exact", "false");
+        arguments.put("labels", "a");
+        arguments.put("order", null);
+
+        final Map<String, Object> result = VALIDATOR.validate(arguments);
+        assertEquals("42", result.get("q"));
+        assertEquals(7, result.get("num"));
+        assertEquals(1.5d, result.get("score"));
+        assertEquals(Boolean.FALSE, result.get("exact"));
+        assertEquals("A single value is an array of one element", List.of("a"), result.get("labels"));
+        assertFalse("Null values count as absent", result.containsKey("order"));
+        assertEquals(10, VALIDATOR.validate(Map.of("q", "fess", "num", 10.0d)).get("num"));
+        assertEquals(10, VALIDATOR.validate(Map.of("q", "fess", "num", 10L)).get("num"));
+    }
+
+    @Test
+    public void testRequired() {
+        assertInvalid(Map.of(), "Missing required parameter: q");
+        final Map<String, Object> arguments = new HashMap<>();
+        arguments.put("q", null);
+        assertInvalid(arguments, "Missing required parameter: q");
+    }
+
+    @Test
+    public void testWrongTypes() {
+        assertInvalid(Map.of("q", List.of("a")), "Invalid parameter q: expected string");
+        assertInvalid(Map.of("q", "fess", "num", "ten"), "Invalid parameter num: expected integer");
+        assertInvalid(Map.of("q", "fess", "num", 1.5d), "Invalid parameter num: expected integer");
+        assertInvalid(Map.of("q", "fess", "score", Map.of()), "Invalid parameter score: expected number");
+        assertInvalid(Map.of("q", "fess", "exact", "yes"), "Invalid parameter exact: expected boolean");
+        assertInvalid(Map.of("q", "fess", "labels", List.of(Map.of())), "Invalid parameter labels[0]: expected string");
+        assertInvalid(Map.of("q", "fess", "as", "site"), "Invalid parameter as: expected object");
+        assertInvalid(Map.of("q", "fess", "as", Map.of("site", List.of(1, "x"))), "Invalid parameter as.site[1]: expected integer");
+    }
+
+    @Test
+    public void testRangeAndEnum() {
+        assertInvalid(Map.of("q", "fess", "num", 0), "expected integer in [1, 100]");
+        assertInvalid(Map.of("q", "fess", "num", 101), "expected integer in [1, 100]");
+        assertInvalid(Map.of("q", "fess", "order", "up"), "Invalid parameter order: expected one of");
+    }
+
+    @Test
+    public void testAdditionalProperties() {
+        final SchemaValidator strict = SchemaValidator
+                .compile(Map.of("type", "object", "properties", Map.of("q", Map.of("type", "string")), "additionalProperties", false));
+        assertEquals(Map.of("q", "a"), strict.validate(Map.of("q", "a")));
+        try {
+            strict.validate(Map.of("q", "a", "x", 1));
+            fail("Should reject an unknown parameter");
+        } catch (final McpApiException e) {
+            assertEquals("Unknown parameter: x", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testNotAnObject() {
+        try {
+            VALIDATOR.validate(null);
+            fail("Should reject missing arguments");
+        } catch (final McpApiException e) {
+            assertEquals(ErrorCode.InvalidParams, e.getCode());
+        }
+    }
+
+    @Test
+    public void testResultIsUnmodifiable() {
+        final Map<String, Object> result = VALIDATOR.validate(Map.of("q", "fess"));
+        try {
+            result.put("num", 1);
+            fail("The result should be unmodifiable");
+        } catch (final UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAny() {
+        assertSame(SchemaValidator.ANY, SchemaValidator.compile(null));
+        assertNull(SchemaValidator.ANY.validate(null));
+        final Map<String, Object> arguments = Map.of("a", List.of(1));
+        assertSame(arguments, SchemaValidator.compile(Map.of("description", "no type")).validate(arguments));
+    }
+}
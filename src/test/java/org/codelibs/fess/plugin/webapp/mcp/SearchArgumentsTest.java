@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+
+import org.codelibs.fess.plugin.webapp.exception.McpApiException;
+import org.junit.Test;
+
+/**
+ * Test class for SearchArguments.
+ */
+public class SearchArgumentsTest {
+
+    private static SearchArguments bind(final Map<String, Object> args) {
+        return SearchArguments.bind(args, 0, 3, 100);
+    }
+
+    @Test
+    public void testDefaults() {
+        final SearchArguments arguments = bind(Map.of());
+        assertNull(arguments.getQuery());
+        assertEquals(0, arguments.getStartPosition());
+        assertEquals(3, arguments.getPageSize());
+        assertEquals(0, arguments.getOffset());
+        assertTrue(arguments.getFields().isEmpty());
+        assertTrue(arguments.getConditions().isEmpty());
+        assertEquals(0, arguments.getLanguages().length);
+        assertNull(arguments.getExtraQueries());
+        assertNull(arguments.getPreference());
+        assertNull(arguments.getSort());
+        assertNull(arguments.getSimilarDocHash());
+    }
+
+    @Test
+    public void testValues() {
+        final SearchArguments arguments = bind(Map.of("q", "fess", "start", "20", "num", 10L, "offset", 5, "sort", "score.desc", "lang",
+                List.of("en", "ja"), "ex_q", "label:a", "preference", "p1", "sdh", "h1"));
+        assertEquals("fess", arguments.getQuery());
+        assertEquals(20, arguments.getStartPosition());
+        assertEquals(10, arguments.getPageSize());
+        assertEquals(5, arguments.getOffset());
+        assertEquals("score.desc", arguments.getSort());
+        assertArrayEquals(new String[] { "en", "ja" }, arguments.getLanguages());
+        assertArrayEquals(new String[] { "label:a" }, arguments.getExtraQueries());
+        assertEquals("p1", arguments.getPreference());
+        assertEquals("h1", arguments.getSimilarDocHash());
+    }
+
+    @Test
+    public void testPageSizeAndStartBounds() {
+        assertEquals(100, bind(Map.of("num", 1000)).getPageSize());
+        assertEquals(100, bind(Map.of("num", 0)).getPageSize());
+        assertEquals(100, bind(Map.of("num", Long.MAX_VALUE)).getPageSize());
+        assertEquals(0, bind(Map.of("start", -1)).getStartPosition());
+    }
+
+    @Test
+    public void testFieldsAndConditions() {
+        final SearchArguments arguments = bind(Map.of("fields", Map.of("label", List.of("a", "b")), "as", Map.of("site", "example.com")));
+        assertArrayEquals(new String[] { "a", "b" }, arguments.getFields().get("label"));
+        assertArrayEquals(new String[] { "example.com" }, arguments.getConditions().get("site"));
+    }
+
+    @Test
+    public void testInvalidValues() {
+        final List<Map<String, Object>> invalidArgs = List.of(Map.of("fields", "label"),
+                Map.of("fields", Map.of("label", List.of(Map.of()))), Map.of("as", List.of("a")), Map.of("num", "ten"),
+                Map.of("start", List.of(1)), Map.of("q", Map.of()));
+        for (final Map<String, Object> args : invalidArgs) {
+            try {
+                bind(args);
+                fail("Should reject " + args);
+            } catch (final McpApiException e) {
+                assertEquals(ErrorCode.InvalidParams, e.getCode());
+            }
+        }
+    }
+}
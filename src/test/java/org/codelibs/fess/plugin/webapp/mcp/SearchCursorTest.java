@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.codelibs.fess.plugin.webapp.exception.McpApiException;
+import org.junit.Test;
+
+/**
+ * Test class for SearchCursor.
+ */
+public class SearchCursorTest {
+
+    @Test
+    public void testEncodeDecode_RoundTrip() {
+        final SearchCursor cursor = new SearchCursor("pit-123", new Object[] { 1.5, "doc-9" }, "abc");
+        final SearchCursor decoded = SearchCursor.decode(cursor.encode());
+
+        assertEquals("pit-123", decoded.getPointInTimeId());
+        assertEquals("abc", decoded.getFingerprint());
+        assertEquals(2, decoded.getSearchAfter().length);
+        assertEquals(1.5, ((Number) decoded.getSearchAfter()[0]).doubleValue(), 0.0);
+        assertEquals("doc-9", decoded.getSearchAfter()[1]);
+    }
+
+    @Test
+    public void testEncodeDecode_WithoutPointInTime() {
+        final SearchCursor decoded = SearchCursor.decode(new SearchCursor(null, new Object[] { 10L }, "fp").encode());
+
+        assertNull("Point-in-time should be absent", decoded.getPointInTimeId());
+        assertEquals(10L, ((Number) decoded.getSearchAfter()[0]).longValue());
+    }
+
+    @Test
+    public void testEncode_IsUrlSafe() {
+        final String encoded = new SearchCursor("a/b+c==", new Object[] { "x?y&z" }, "fp").encode();
+        assertFalse("Cursor should not contain '+'", encoded.contains("+"));
+        assertFalse("Cursor should not contain '/'", encoded.contains("/"));
+        assertFalse("Cursor should not contain padding", encoded.contains("="));
+    }
+
+    @Test
+    public void testDecode_Invalid() {
+        for (final String value : new String[] { "not a cursor", "e30", SearchCursor.START }) {
+            try {
+                SearchCursor.decode(value);
+                fail("Should reject invalid cursor: " + value);
+            } catch (final McpApiException e) {
+                assertEquals(ErrorCode.InvalidParams, e.getCode());
+                assertTrue(e.getMessage().startsWith("Invalid cursor"));
+            }
+        }
+    }
+}
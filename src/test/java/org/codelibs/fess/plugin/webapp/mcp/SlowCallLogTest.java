@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Test class for SlowCallLog.
+ */
+public class SlowCallLogTest {
+
+    @Test
+    public void testEmpty() {
+        final SlowCallLog log = new SlowCallLog(3);
+        assertTrue(log.getEntries().isEmpty());
+        assertEquals(0L, log.getAddedCount());
+        assertEquals(3, log.getCapacity());
+    }
+
+    @Test
+    public void testNewestFirst() {
+        final SlowCallLog log = new SlowCallLog(3);
+        log.add(Map.of("n", 1));
+        log.add(Map.of("n", 2));
+
+        assertEquals(List.of(Map.of("n", 2), Map.of("n", 1)), log.getEntries());
+    }
+
+    @Test
+    public void testOldestEntriesAreReplaced() {
+        final SlowCallLog log = new SlowCallLog(3);
+        for (int i = 1; i <= 5; i++) {
+            log.add(Map.of("n", i));
+        }
+
+        assertEquals(List.of(Map.of("n", 5), Map.of("n", 4), Map.of("n", 3)), log.getEntries());
+        assertEquals(5L, log.getAddedCount());
+    }
+
+    @Test
+    public void testMinimumCapacity() {
+        final SlowCallLog log = new SlowCallLog(0);
+        log.add(Map.of("n", 1));
+        log.add(Map.of("n", 2));
+
+        assertEquals(1, log.getCapacity());
+        assertEquals(List.of(Map.of("n", 2)), log.getEntries());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for ToolPolicy.
+ */
+public class ToolPolicyTest {
+
+    @Test
+    public void testDefault() {
+        assertEquals(0, ToolPolicy.DEFAULT.getMaxConcurrency());
+        assertEquals(0L, ToolPolicy.DEFAULT.getTimeoutMillis());
+        assertEquals(ToolPolicy.Execution.CALLER, ToolPolicy.DEFAULT.getExecution());
+        assertFalse(ToolPolicy.DEFAULT.isAsync());
+    }
+
+    @Test
+    public void testNormalization() {
+        final ToolPolicy policy = new ToolPolicy(-1, -5L, null);
+        assertEquals(0, policy.getMaxConcurrency());
+        assertEquals(0L, policy.getTimeoutMillis());
+        assertEquals(ToolPolicy.Execution.CALLER, policy.getExecution());
+    }
+
+    @Test
+    public void testIsAsync() {
+        assertTrue(ToolPolicy.DEFAULT.withExecution(ToolPolicy.Execution.ASYNC).isAsync());
+        assertTrue("A timeout implies asynchronous execution", ToolPolicy.DEFAULT.withTimeoutMillis(100L).isAsync());
+    }
+
+    @Test
+    public void testWith() {
+        final ToolPolicy policy = new ToolPolicy(2, 100L, ToolPolicy.Execution.ASYNC);
+        final ToolPolicy copy = policy.withMaxConcurrency(5);
+        assertEquals(5, copy.getMaxConcurrency());
+        assertEquals(100L, copy.getTimeoutMillis());
+        assertEquals(ToolPolicy.Execution.ASYNC, copy.getExecution());
+        assertEquals("The original is unchanged", 2, policy.getMaxConcurrency());
+    }
+}
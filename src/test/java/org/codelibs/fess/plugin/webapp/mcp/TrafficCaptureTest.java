@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+import org.opensearch.common.xcontent.LoggingDeprecationHandler;
+import org.opensearch.common.xcontent.json.JsonXContent;
+import org.opensearch.core.xcontent.NamedXContentRegistry;
+
+/**
+ * Test class for TrafficCapture.
+ */
+public class TrafficCaptureTest {
+
+    private static Map<String, Object> parse(final String json) throws Exception {
+        return JsonXContent.jsonXContent.createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, json).map();
+    }
+
+    @Test
+    public void testCapture() throws Exception {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        final TrafficCapture capture = new TrafficCapture(lines::add, 16, 100, Set.of());
+        final String body = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"ping\"}";
+        final long before = System.currentTimeMillis();
+        assertTrue(capture.capture(body));
+        capture.close();
+
+        assertEquals(1, lines.size());
+        final Map<String, Object> entry = parse(lines.get(0));
+        assertEquals("The body is kept verbatim", body, entry.get(TrafficCapture.BODY_KEY));
+        assertTrue(((Number) entry.get(TrafficCapture.TIME_KEY)).longValue() >= before);
+        assertEquals(1L, capture.getWrittenCount());
+    }
+
+    @Test
+    public void testSampling() {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        final TrafficCapture capture = new TrafficCapture(lines::add, 16, 0, Set.of());
+        assertFalse(capture.capture("{}"));
+        capture.close();
+        assertTrue(lines.isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRedact() throws Exception {
+        final TrafficCapture capture = new TrafficCapture(line -> {}, 16, 100, Set.of("q", "queries"));
+        final String redacted = capture.redact("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"multi_search\",\"arguments\":{\"q\":\"secret\",\"queries\":[\"a\",\"b\"],\"num\":5}}}");
+        capture.close();
+
+        final Map<String, Object> arguments = (Map<String, Object>) ((Map<String, Object>) parse(redacted).get("params")).get("arguments");
+        assertEquals(TrafficCapture.REDACTED, arguments.get("q"));
+        assertEquals("The shape of lists is kept", List.of(TrafficCapture.REDACTED, TrafficCapture.REDACTED), arguments.get("queries"));
+        assertEquals(5, arguments.get("num"));
+        assertTrue(redacted, redacted.contains("\"name\":\"multi_search\""));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRedact_NonStringValues() throws Exception {
+        final TrafficCapture capture = new TrafficCapture(line -> {}, 16, 100, Set.of("token", "pin", "admin", "session", "ids"));
+        final String redacted = capture.redact("{\"params\":{\"token\":12345,\"pin\":1.5,\"admin\":true,\"session\":null,"
+                + "\"ids\":[1,false,{\"x\":2}],\"num\":5}}");
+        capture.close();
+
+        final Map<String, Object> params = (Map<String, Object>) parse(redacted).get("params");
+        assertEquals(TrafficCapture.REDACTED, params.get("token"));
+        assertEquals(TrafficCapture.REDACTED, params.get("pin"));
+        assertEquals(TrafficCapture.REDACTED, params.get("admin"));
+        assertEquals(TrafficCapture.REDACTED, params.get("session"));
+        assertEquals(List.of(TrafficCapture.REDACTED, TrafficCapture.REDACTED, Map.of("x", TrafficCapture.REDACTED)), params.get("ids"));
+        assertEquals(5, params.get("num"));
+    }
+
+    @Test
+    public void testRedactOnWriterThread() throws Exception {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        final TrafficCapture capture = new TrafficCapture(lines::add, 16, 100, Set.of("q")) {
+            @Override
+            protected String redact(final String body) {
+                threads.add(Thread.currentThread().getName());
+                return super.redact(body);
+            }
+        };
+        assertTrue(capture.capture("{\"jsonrpc\":\"2.0\",\"id\":1,\"params\":{\"arguments\":{\"q\":\"secret\"}}}"));
+        capture.close();
+
+        assertEquals("The body is parsed on the writer thread only", List.of("mcp-traffic-capture"), threads);
+        assertEquals(1, lines.size());
+        final String body = (String) parse(lines.get(0)).get(TrafficCapture.BODY_KEY);
+        assertTrue(body, body.contains("\"q\":\"[redacted]\"") && !body.contains("secret"));
+    }
+
+    @Test
+    public void testRedact_BatchAndInvalidBody() {
+        final TrafficCapture capture = new TrafficCapture(line -> {}, 16, 100, Set.of("q"));
+        final String batch =
+                capture.redact("[{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"tools/call\",\"params\":{\"arguments\":{\"q\":\"x\"}}}]");
+        capture.close();
+
+        assertTrue(batch, batch.startsWith("[") && batch.contains("\"q\":\"[redacted]\""));
+        assertEquals(TrafficCapture.REDACTED, capture.redact("{not json"));
+    }
+
+    @Test
+    public void testCloseClosesOutput() {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final class Output implements Consumer<String>, Closeable {
+            @Override
+            public void accept(final String line) {
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        }
+        new TrafficCapture(new Output(), 16, 100, Set.of()).close();
+        assertTrue(closed.get());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012-2025 CodeLibs Project and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.codelibs.fess.plugin.webapp.mcp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test class for VirtualThreadExecutor.
+ */
+public class VirtualThreadExecutorTest {
+
+    @Test
+    public void testRunsOnVirtualThread() throws Exception {
+        final VirtualThreadExecutor executor = new VirtualThreadExecutor("test-vt-", 2, null);
+        try {
+            final Future<Boolean> future = executor.submit(() -> Thread.currentThread().isVirtual());
+            assertTrue(future.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectsBeyondMaxConcurrency() throws Exception {
+        final VirtualThreadExecutor executor = new VirtualThreadExecutor("test-vt-", 2, null);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(2);
+        try {
+            for (int i = 0; i < 2; i++) {
+                executor.execute(() -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertEquals(2, executor.getActiveCount());
+            try {
+                executor.execute(() -> {});
+                fail("Should reject a task beyond the concurrency limit");
+            } catch (final RejectedExecutionException e) {
+                // expected
+            }
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getActiveCount());
+    }
+
+    @Test
+    public void testRejectsAfterShutdown() {
+        final VirtualThreadExecutor executor = new VirtualThreadExecutor("test-vt-", 2, null);
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+        try {
+            executor.execute(() -> {});
+            fail("Should reject a task after shutdown");
+        } catch (final RejectedExecutionException e) {
+            // expected
+        }
+    }
+}